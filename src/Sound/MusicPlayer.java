@@ -1,5 +1,7 @@
 package Sound;
 
+import utils.StartupProfiler;
+
 import javax.sound.sampled.*;
 import java.io.BufferedInputStream;
 import java.io.InputStream;
@@ -19,8 +21,8 @@ public class MusicPlayer
     // Flag to determine if music should loop
     private boolean isLooping;
 
-    // Current volume of the music
-    private float volume = SoundManager.DEFAULT_MUSIC_VOLUME;
+    // Current volume of the music, set by the gain thread
+    private volatile float volume = SoundManager.getMusicVolume();
 
     /**
      * Constructs a music player for a specific track.
@@ -33,8 +35,8 @@ public class MusicPlayer
         isLooping = loop;
         loadMusic(musicFilePath);
 
-        // Start playing if looping is enabled
-        if (isLooping)
+        // Start playing if looping is enabled (no clip without the file or an audio device)
+        if (isLooping && clip != null)
         {
             clip.loop(Clip.LOOP_CONTINUOUSLY);
             play();
@@ -47,6 +49,7 @@ public class MusicPlayer
      */
     private void loadMusic(String musicFilePath)
     {
+        long start = StartupProfiler.start();
         try
         {
             // Load audio resource
@@ -70,6 +73,8 @@ public class MusicPlayer
         } catch (Exception e) {
             System.err.println("Error loading music file: " + musicFilePath);
             e.printStackTrace();
+        } finally {
+            StartupProfiler.end("music " + musicFilePath, start);
         }
     }
 
@@ -142,7 +147,14 @@ public class MusicPlayer
     {
         if (clip != null)
         {
-            clip.start();
+            if (isLooping)
+            {
+                clip.loop(Clip.LOOP_CONTINUOUSLY);  // Stopping a clip ends its loop
+            }
+            else
+            {
+                clip.start();
+            }
         }
     }
 
@@ -1,5 +1,7 @@
 package Sound;
 
+import utils.StartupProfiler;
+
 import javax.sound.sampled.*;
 import java.io.BufferedInputStream;
 import java.io.InputStream;
@@ -13,8 +15,8 @@ public class SFX
     // Audio clip for the sound effect
     private Clip clip;
 
-    // Current volume of the sound effect
-    private float volume = SoundManager.DEFAULT_SFX_VOLUME;
+    // Current volume of the sound effect, set by the gain thread and read when playing
+    private volatile float volume = SoundManager.getSFXVolume();
 
     // Path to the sound file
     private final String soundPath;
@@ -35,6 +37,7 @@ public class SFX
      */
     private void loadSound()
     {
+        long start = StartupProfiler.start();
         try {
             // Load audio resource
             InputStream audioSrc = SFX.class.getResourceAsStream(soundPath);
@@ -58,6 +61,8 @@ public class SFX
         } catch (Exception e) {
             System.err.println("Error loading sound file: " + soundPath);
             e.printStackTrace();
+        } finally {
+            StartupProfiler.end("sound " + soundPath, start);
         }
     }
 
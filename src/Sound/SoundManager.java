@@ -1,5 +1,13 @@
 package Sound;
 import utils.Constants;
+import utils.SettingsStore;
+import utils.StartupProfiler;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Manages sound effects and music for the application.
@@ -12,6 +20,11 @@ public class SoundManager
     public static final float DEFAULT_MUSIC_VOLUME = 0.3f;
     public static final float DEFAULT_SFX_VOLUME = 0.7f;
 
+    // Volume changes are eased in on a background thread in small steps to avoid zipper noise
+    private static final long GAIN_STEP_MS = 10;
+    private static final float GAIN_SMOOTHING = 0.3f;  // Fraction of the remaining distance per step
+    private static final float GAIN_EPSILON = 0.001f;  // Close enough to snap to the target
+
     // Static references to sound objects
     private static SFX clickSound;
     private static SFX winSound;
@@ -19,12 +32,32 @@ public class SoundManager
     private static MusicPlayer menuMusic;
     private static MusicPlayer playingMusic;
 
+    // Track paused by suspendMusic, resumed by resumeMusic. EDT only
+    private static MusicPlayer suspendedMusic;
+
     // Tracks whether sounds have been initialized
     private static boolean isInitialized = false;
 
+    // Saved volumes, read before the static block below so every clip opens at the right gain.
+    // Targets are float bits written by any thread; the applied values belong to the gain thread.
+    private static final AtomicInteger musicTarget = new AtomicInteger(Float.floatToIntBits(SettingsStore.getMusicVolume()));
+    private static final AtomicInteger sfxTarget = new AtomicInteger(Float.floatToIntBits(SettingsStore.getSfxVolume()));
+    private static float appliedMusicVolume = getMusicVolume();
+    private static float appliedSfxVolume = getSFXVolume();
+
+    // Thread that eases the clips towards the targets, only running while a ramp is in progress
+    private static final AtomicBoolean ramping = new AtomicBoolean(false);
+    private static final ScheduledExecutorService gainThread = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "gain-smoother");
+        t.setDaemon(true);
+        return t;
+    });
+
     // Initialize sounds when class is first loaded
     static {
+        long start = StartupProfiler.start();
         initializeSounds();
+        StartupProfiler.end("SoundManager class init", start);
     }
 
     /**
@@ -54,23 +87,85 @@ public class SoundManager
 
     /**
      * Sets volume for all music tracks.
+     * Only stores the target; the clips are eased towards it on the gain thread.
      * @param volume Desired volume level (0.0 to 1.0)
      */
     public static void setMusicVolume(float volume)
     {
-        if (menuMusic != null) menuMusic.setVolume(volume);
-        if (playingMusic != null) playingMusic.setVolume(volume);
+        volume = Math.max(0f, Math.min(1f, volume));
+        musicTarget.set(Float.floatToIntBits(volume));
+        startRamp();
+        SettingsStore.setMusicVolume(volume);
     }
 
     /**
      * Sets volume for all sound effects.
+     * Only stores the target; the clips are eased towards it on the gain thread.
      * @param volume Desired volume level (0.0 to 1.0)
      */
     public static void setSFXVolume(float volume)
     {
-        if (clickSound != null) clickSound.setVolume(volume);
-        if (winSound != null) winSound.setVolume(volume);
-        if (loseSound != null) loseSound.setVolume(volume);
+        volume = Math.max(0f, Math.min(1f, volume));
+        sfxTarget.set(Float.floatToIntBits(volume));
+        startRamp();
+        SettingsStore.setSfxVolume(volume);
+    }
+
+    public static float getMusicVolume() { return Float.intBitsToFloat(musicTarget.get()); }
+    public static float getSFXVolume() { return Float.intBitsToFloat(sfxTarget.get()); }
+
+    /**
+     * Starts the gain thread's ramp unless it is already running.
+     */
+    private static void startRamp()
+    {
+        if (ramping.compareAndSet(false, true))
+        {
+            gainThread.execute(SoundManager::stepGains);
+        }
+    }
+
+    /**
+     * Moves the applied volumes one step towards their targets and schedules
+     * the next step until both have arrived.
+     */
+    private static void stepGains()
+    {
+        float music = ease(appliedMusicVolume, getMusicVolume());
+        if (music != appliedMusicVolume)
+        {
+            appliedMusicVolume = music;
+            if (menuMusic != null) menuMusic.setVolume(music);
+            if (playingMusic != null) playingMusic.setVolume(music);
+        }
+
+        float sfx = ease(appliedSfxVolume, getSFXVolume());
+        if (sfx != appliedSfxVolume)
+        {
+            appliedSfxVolume = sfx;
+            if (clickSound != null) clickSound.setVolume(sfx);
+            if (winSound != null) winSound.setVolume(sfx);
+            if (loseSound != null) loseSound.setVolume(sfx);
+        }
+
+        boolean done = appliedMusicVolume == getMusicVolume() && appliedSfxVolume == getSFXVolume();
+        if (done)
+        {
+            ramping.set(false);
+            // A target may have changed after the check; pick it up if nobody else did
+            done = (appliedMusicVolume == getMusicVolume() && appliedSfxVolume == getSFXVolume())
+                    || !ramping.compareAndSet(false, true);
+        }
+        if (!done)
+        {
+            gainThread.schedule(SoundManager::stepGains, GAIN_STEP_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static float ease(float current, float target)
+    {
+        float next = current + (target - current) * GAIN_SMOOTHING;
+        return Math.abs(target - next) < GAIN_EPSILON ? target : next;
     }
 
     // Getter methods for accessing sound resources
@@ -112,6 +207,34 @@ public class SoundManager
         }
     }
 
+    /**
+     * Pauses whichever track is playing, e.g. while the window is minimized.
+     */
+    public static void suspendMusic()
+    {
+        for (MusicPlayer music : new MusicPlayer[]{menuMusic, playingMusic})
+        {
+            if (music != null && music.isPlaying())
+            {
+                music.pause();
+                suspendedMusic = music;
+            }
+        }
+    }
+
+    /**
+     * Resumes the track paused by suspendMusic, unless another track was started in the meantime.
+     */
+    public static void resumeMusic()
+    {
+        MusicPlayer music = suspendedMusic;
+        suspendedMusic = null;
+        if (music == null) return;
+        boolean otherPlaying = (menuMusic != null && menuMusic.isPlaying()) ||
+                (playingMusic != null && playingMusic.isPlaying());
+        if (!otherPlaying) music.resume();
+    }
+
     /**
      * Stops and releases all sound resources.
      * Should be called when application is closing.
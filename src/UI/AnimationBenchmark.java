@@ -0,0 +1,106 @@
+package UI;
+
+import utils.AssetManager;
+import utils.Constants.ImagePaths;
+import utils.Constants.playingUICons;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * Measures the cost of one frame of the hand shake animation, drawing both hands
+ * into an off-screen image the size of the game window.
+ * Compares the cached frames against rotating and scaling the full size images every frame.
+ *
+ * Usage: java -cp out:res UI.AnimationBenchmark [frames]
+ */
+public class AnimationBenchmark
+{
+    public static void main(String[] args) throws IOException
+    {
+        int frames = args.length > 0 ? Integer.parseInt(args[0]) : 600;
+        int width = 1530, height = 890;
+
+        BufferedImage playerFist = AssetManager.acquire(ImagePaths.ROCK_HAND);
+        BufferedImage computerFist = AssetManager.acquire(ImagePaths.ROCK_COMP);
+        if (playerFist == null || computerFist == null)
+        {
+            System.err.println("Hand images not found, run with res on the classpath");
+            return;
+        }
+
+        BufferedImage screen = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = screen.createGraphics();
+        int playerX = playingUICons.HAND_X;
+        int computerX = width - playingUICons.HAND_WIDTH - playingUICons.HAND_X;
+
+        long buildStart = System.nanoTime();
+        HandShakeAnimation animation = new HandShakeAnimation();
+        animation.buildFrames(playerFist, computerFist);
+        long buildNanos = System.nanoTime() - buildStart;
+
+        AnimationTimeline timeline = new AnimationTimeline()
+                .key(0, 0, 0, Easing.LINEAR)
+                .key(150, -playingUICons.SHAKE_HEIGHT, -playingUICons.SHAKE_MAX_ANGLE, Easing.EASE_OUT)
+                .key(300, 0, 0, Easing.EASE_IN);
+
+        // Warm up both paths before measuring
+        runCached(animation, g, playerX, computerX, frames);
+        runTransformed(timeline, playerFist, computerFist, g, playerX, computerX, frames / 4);
+
+        long cached = runCached(animation, g, playerX, computerX, frames);
+        long transformed = runTransformed(timeline, playerFist, computerFist, g, playerX, computerX, frames / 4);
+
+        System.out.println("Frame cache build: " + buildNanos / 1_000_000 + " ms");
+        System.out.println("Cached frames:     " + cached / frames / 1000 + " us/frame (" + frames + " frames)");
+        System.out.println("Per-frame rotate:  " + transformed / (frames / 4) / 1000 + " us/frame (" + frames / 4 + " frames)");
+        g.dispose();
+    }
+
+    /**
+     * Times the animation as PlayingUI runs it: update, then one blit per hand.
+     */
+    private static long runCached(HandShakeAnimation animation, Graphics2D g, int playerX, int computerX, int frames)
+    {
+        long start = System.nanoTime();
+        for (int i = 0; i < frames; i++)
+        {
+            if (!animation.isRunning()) animation.start();
+            animation.update();
+            animation.drawPlayer(g, playerX, playingUICons.HAND_Y);
+            animation.drawComputer(g, computerX, playingUICons.HAND_Y);
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Times the straightforward approach: a new transform per hand per frame and a scaled draw.
+     */
+    private static long runTransformed(AnimationTimeline timeline, BufferedImage playerFist, BufferedImage computerFist,
+                                       Graphics2D g, int playerX, int computerX, int frames)
+    {
+        AffineTransform original = g.getTransform();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        long start = System.nanoTime();
+        for (int i = 0; i < frames; i++)
+        {
+            long t = (i * 1000L / 60) % timeline.getDuration();
+            int offsetY = Math.round(timeline.offsetAt(t));
+            double angle = Math.toRadians(timeline.angleAt(t));
+
+            g.setTransform(original);
+            g.rotate(angle, playerX + playingUICons.HAND_WIDTH / 2.0, playingUICons.HAND_Y + offsetY + playingUICons.HAND_HEIGHT);
+            g.drawImage(playerFist, playerX, playingUICons.HAND_Y + offsetY,
+                    playingUICons.HAND_WIDTH, playingUICons.HAND_HEIGHT, null);
+
+            g.setTransform(original);
+            g.rotate(-angle, computerX + playingUICons.HAND_WIDTH / 2.0, playingUICons.HAND_Y + offsetY + playingUICons.HAND_HEIGHT);
+            g.drawImage(computerFist, computerX, playingUICons.HAND_Y + offsetY,
+                    playingUICons.HAND_WIDTH, playingUICons.HAND_HEIGHT, null);
+        }
+        g.setTransform(original);
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,82 @@
+package UI;
+
+import java.util.Arrays;
+
+/**
+ * A timeline of keyframes, each holding a vertical offset and a rotation angle.
+ * Values between two keyframes are interpolated with the easing of the later keyframe.
+ * Sampling allocates nothing, so it can run every frame.
+ */
+public class AnimationTimeline
+{
+    private long[] times = new long[0];      // Keyframe times in ms, ascending
+    private float[] offsets = new float[0];  // Vertical offset in pixels
+    private float[] angles = new float[0];   // Rotation in degrees
+    private Easing[] easings = new Easing[0]; // Easing into each keyframe
+
+    /**
+     * Appends a keyframe.
+     *
+     * @param timeMs Time of the keyframe from the start of the timeline
+     * @param offsetY Vertical offset at this keyframe
+     * @param angle Rotation at this keyframe
+     * @param easing Easing used to reach this keyframe from the previous one
+     * @return This timeline, so keyframes can be chained
+     */
+    public AnimationTimeline key(long timeMs, float offsetY, float angle, Easing easing)
+    {
+        int n = times.length;
+        if (n > 0 && timeMs < times[n - 1])
+        {
+            throw new IllegalArgumentException("Keyframes must be added in time order");
+        }
+        times = Arrays.copyOf(times, n + 1);
+        offsets = Arrays.copyOf(offsets, n + 1);
+        angles = Arrays.copyOf(angles, n + 1);
+        easings = Arrays.copyOf(easings, n + 1);
+        times[n] = timeMs;
+        offsets[n] = offsetY;
+        angles[n] = angle;
+        easings[n] = easing;
+        return this;
+    }
+
+    /**
+     * Retrieves the time of the last keyframe.
+     */
+    public long getDuration()
+    {
+        return times.length == 0 ? 0 : times[times.length - 1];
+    }
+
+    public float offsetAt(long timeMs)
+    {
+        return sample(offsets, timeMs);
+    }
+
+    public float angleAt(long timeMs)
+    {
+        return sample(angles, timeMs);
+    }
+
+    /**
+     * Interpolates one channel of the timeline at the given time.
+     */
+    private float sample(float[] values, long timeMs)
+    {
+        int n = times.length;
+        if (n == 0) return 0f;
+        if (timeMs <= times[0]) return values[0];
+        if (timeMs >= times[n - 1]) return values[n - 1];
+
+        // Timelines are a handful of keys long, a linear scan is cheapest
+        int next = 1;
+        while (times[next] < timeMs) next++;
+
+        long start = times[next - 1];
+        long span = times[next] - start;
+        float t = span == 0 ? 1f : (float) (timeMs - start) / span;
+        t = easings[next].apply(t);
+        return values[next - 1] + (values[next] - values[next - 1]) * t;
+    }
+}
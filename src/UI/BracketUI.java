@@ -0,0 +1,119 @@
+package UI;
+
+import logic.Tournament;
+import utils.Constants.TournamentCons;
+
+import java.awt.*;
+
+/**
+ * Draws a tournament bracket between the player's series.
+ *
+ * A 65k entrant bracket does not fit on screen, so only a block of VIEW_SLOTS
+ * slots is drawn: the top block (where the player is seeded) of the current
+ * round and the rounds it feeds into. Smaller brackets are drawn whole.
+ */
+public class BracketUI
+{
+    private static final int VIEW_ROUNDS = Integer.numberOfTrailingZeros(TournamentCons.VIEW_SLOTS);
+    private static final Color LINE_COLOR = new Color(255, 255, 255, 120);
+
+    /**
+     * Draws the bracket over a dimmed background.
+     *
+     * @param status Line shown below the bracket, e.g. what Enter does next
+     */
+    public void draw(Graphics g, Tournament tournament, String status, int width, int height)
+    {
+        g.setColor(new Color(0, 0, 0, 190));
+        g.fillRect(0, 0, width, height);
+
+        int rounds = tournament.getRoundCount();
+        int current = Math.min(tournament.getCurrentRound(), rounds);
+        int firstRound = Math.max(0, Math.min(current, rounds - VIEW_ROUNDS));
+        int lastRound = Math.min(rounds, firstRound + VIEW_ROUNDS);
+
+        g.setColor(Color.WHITE);
+        g.setFont(new Font("Arial", Font.BOLD, TournamentCons.TITLE_SIZE));
+        drawCentered(g, "Tournament", width, 60);
+        g.setFont(new Font("Arial", Font.PLAIN, TournamentCons.TEXT_SIZE));
+        String round = tournament.isFinished() ? "Finished" : "Round " + (current + 1) + " of " + rounds;
+        drawCentered(g, tournament.getFormat() + "  -  " + tournament.getEntrants() + " entrants  -  " + round +
+                "  -  " + tournament.getRemaining() + " left", width, 100);
+
+        drawColumns(g, tournament, firstRound, lastRound, width, height);
+
+        g.setColor(Color.WHITE);
+        g.setFont(new Font("Arial", Font.PLAIN, TournamentCons.TEXT_SIZE));
+        if (lastRound < rounds)
+        {
+            drawCentered(g, "Showing the top " + TournamentCons.VIEW_SLOTS + " of " +
+                    (1 << (rounds - firstRound)) + " slots in round " + (firstRound + 1), width,
+                    height - TournamentCons.VIEW_BOTTOM + 30);
+        }
+        drawCentered(g, status, width, height - TournamentCons.VIEW_BOTTOM + 70);
+    }
+
+    /**
+     * Draws one column per round, each entry centred between the two it came from.
+     */
+    private void drawColumns(Graphics g, Tournament tournament, int firstRound, int lastRound, int width, int height)
+    {
+        int columns = lastRound - firstRound + 1;
+        int left = (width - columns * TournamentCons.COLUMN_WIDTH) / 2;
+        int shown = Math.min(TournamentCons.VIEW_SLOTS, 1 << (tournament.getRoundCount() - firstRound));
+        float rowHeight = (height - TournamentCons.VIEW_TOP - TournamentCons.VIEW_BOTTOM) / (float) shown;
+        Font nameFont = new Font("Arial", Font.PLAIN, TournamentCons.NAME_SIZE);
+        Font playerFont = new Font("Arial", Font.BOLD, TournamentCons.NAME_SIZE);
+
+        for (int c = 0; c < columns; c++)
+        {
+            int round = firstRound + c;
+            int x = left + c * TournamentCons.COLUMN_WIDTH;
+            float spacing = rowHeight * (1 << c);
+            for (int slot = 0; slot < shown >> c; slot++)
+            {
+                int y = (int) (TournamentCons.VIEW_TOP + (slot + 0.5f) * spacing);
+                int entrant = tournament.getEntrant(round, slot);
+
+                // Bracket lines from this slot to the one it moves on to
+                if (round < lastRound)
+                {
+                    int nextY = (int) (TournamentCons.VIEW_TOP + (slot / 2 + 0.5f) * spacing * 2);
+                    int lineEnd = x + TournamentCons.COLUMN_WIDTH - 10;
+                    g.setColor(LINE_COLOR);
+                    g.drawLine(x, y + 4, lineEnd, y + 4);
+                    g.drawLine(lineEnd, y + 4, lineEnd, nextY + 4);
+                }
+
+                g.setFont(entrant == Tournament.PLAYER && tournament.hasPlayer() ? playerFont : nameFont);
+                g.setColor(getColor(tournament, round, slot, entrant));
+                g.drawString(entrant == Tournament.PENDING ? "..." : tournament.getName(entrant), x, y);
+
+                int[] score = round > 0 ? tournament.getScore(round, slot) : null;
+                if (score != null)
+                {
+                    g.setColor(Color.LIGHT_GRAY);
+                    g.drawString(score[0] + "-" + score[1], x - 36, y);
+                }
+            }
+        }
+    }
+
+    /**
+     * Player in yellow, knocked out entrants greyed out.
+     */
+    private static Color getColor(Tournament tournament, int round, int slot, int entrant)
+    {
+        boolean knockedOut = round < tournament.getRoundCount() && entrant >= 0 &&
+                tournament.getEntrant(round + 1, slot / 2) >= 0 && tournament.getEntrant(round + 1, slot / 2) != entrant;
+        if (knockedOut) return Color.GRAY;
+        if (entrant == Tournament.PLAYER && tournament.hasPlayer()) return Color.YELLOW;
+        return entrant == Tournament.BYE ? Color.DARK_GRAY : Color.WHITE;
+    }
+
+    private static void drawCentered(Graphics g, String text, int width, int y)
+    {
+        FontMetrics metrics = g.getFontMetrics();
+        g.drawString(text, (width - metrics.stringWidth(text)) / 2, y);
+    }
+}
@@ -0,0 +1,14 @@
+package UI;
+
+/**
+ * Easing curves for animations. Each maps a progress of 0.0-1.0 to an eased progress of 0.0-1.0.
+ */
+public interface Easing
+{
+    float apply(float t);
+
+    Easing LINEAR = t -> t;
+    Easing EASE_IN = t -> t * t;
+    Easing EASE_OUT = t -> t * (2 - t);
+    Easing EASE_IN_OUT = t -> t < 0.5f ? 2 * t * t : -1 + (4 - 2 * t) * t;
+}
@@ -0,0 +1,133 @@
+package UI;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.stream.IntStream;
+
+/**
+ * Blurs a captured frame, for backdrops such as the pause menu's.
+ *
+ * Repeated box blurs approach a Gaussian, and a box blur is separable and needs
+ * only a running sum per row, so each pass costs the same whatever the radius.
+ * Every pass blurs the rows, in parallel, and writes them transposed: two passes
+ * blur both directions while every pass reads its input in order.
+ */
+public class FrameBlur
+{
+    /**
+     * Blurs an opaque frame.
+     *
+     * @param frame A TYPE_INT_RGB image; its pixels are used as scratch space
+     * @param radius Box radius in pixels
+     * @param passes Box blurs per direction, 3 is close to a Gaussian
+     * @return A new image holding the blurred frame
+     */
+    public static BufferedImage blur(BufferedImage frame, int radius, int passes)
+    {
+        if (frame.getType() != BufferedImage.TYPE_INT_RGB)
+        {
+            throw new IllegalArgumentException("Expected a TYPE_INT_RGB frame, got type " + frame.getType());
+        }
+        int width = frame.getWidth(), height = frame.getHeight();
+        // The capture is thrown away afterwards, so taking its array is fine
+        int[] pixels = ((DataBufferInt) frame.getRaster().getDataBuffer()).getData();
+        int[] transposed = new int[pixels.length];
+        for (int i = 0; i < passes; i++)
+        {
+            blurRowsTransposed(pixels, transposed, width, height, radius);  // Horizontal
+            blurRowsTransposed(transposed, pixels, height, width, radius);  // Vertical, and back in place
+        }
+
+        // Copied into a fresh image, which Java2D can still cache in video memory
+        BufferedImage blurred = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        blurred.getRaster().setDataElements(0, 0, width, height, pixels);
+        return blurred;
+    }
+
+    /**
+     * Scales an opaque frame up with bilinear filtering. Meant for blurred frames, which
+     * are blurred at a fraction of the screen size and lose nothing by it.
+     *
+     * @param frame A TYPE_INT_RGB image; its pixels are read in place
+     * @return A new width x height image
+     */
+    public static BufferedImage scaleUp(BufferedImage frame, int width, int height)
+    {
+        if (frame.getType() != BufferedImage.TYPE_INT_RGB)
+        {
+            throw new IllegalArgumentException("Expected a TYPE_INT_RGB frame, got type " + frame.getType());
+        }
+        int srcWidth = frame.getWidth(), srcHeight = frame.getHeight();
+        int[] in = ((DataBufferInt) frame.getRaster().getDataBuffer()).getData();
+        int[] out = new int[width * height];
+
+        // Source column and weight of every output column, weights in 1/256
+        int[] x0 = new int[width], x1 = new int[width], wx = new int[width];
+        for (int x = 0; x < width; x++)
+        {
+            int fx = Math.max(0, (int) (((x + 0.5) * srcWidth / width - 0.5) * 256));
+            x0[x] = Math.min(srcWidth - 1, fx >> 8);
+            x1[x] = Math.min(srcWidth - 1, x0[x] + 1);
+            wx[x] = fx & 0xFF;
+        }
+        IntStream.range(0, height).parallel().forEach(y -> {
+            int fy = Math.max(0, (int) (((y + 0.5) * srcHeight / height - 0.5) * 256));
+            int top = Math.min(srcHeight - 1, fy >> 8) * srcWidth;
+            int bottom = Math.min(srcHeight - 1, (fy >> 8) + 1) * srcWidth;
+            int wy = fy & 0xFF;
+            int row = y * width;
+            for (int x = 0; x < width; x++)
+            {
+                int upper = mix(in[top + x0[x]], in[top + x1[x]], wx[x]);
+                int lower = mix(in[bottom + x0[x]], in[bottom + x1[x]], wx[x]);
+                out[row + x] = mix(upper, lower, wy);
+            }
+        });
+
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        scaled.getRaster().setDataElements(0, 0, width, height, out);
+        return scaled;
+    }
+
+    /**
+     * Blends two RGB pixels, weight in 1/256 towards b.
+     */
+    private static int mix(int a, int b, int weight)
+    {
+        int inverse = 256 - weight;
+        int r = ((a >> 16 & 0xFF) * inverse + (b >> 16 & 0xFF) * weight) >> 8;
+        int g = ((a >> 8 & 0xFF) * inverse + (b >> 8 & 0xFF) * weight) >> 8;
+        int bl = ((a & 0xFF) * inverse + (b & 0xFF) * weight) >> 8;
+        return r << 16 | g << 8 | bl;
+    }
+
+    /**
+     * Box blurs every row of in and stores row y as column y of out.
+     * The edges repeat their outermost pixel.
+     */
+    private static void blurRowsTransposed(int[] in, int[] out, int width, int height, int radius)
+    {
+        int window = radius * 2 + 1;
+        int scale = ((1 << 16) + window - 1) / window; // sum * scale >> 16 == sum / window, without a division
+        IntStream.range(0, height).parallel().forEach(y -> {
+            int row = y * width;
+            int r = 0, g = 0, b = 0;
+            for (int i = -radius; i <= radius; i++)
+            {
+                int p = in[row + Math.max(0, Math.min(width - 1, i))];
+                r += p >> 16 & 0xFF;
+                g += p >> 8 & 0xFF;
+                b += p & 0xFF;
+            }
+            for (int x = 0; x < width; x++)
+            {
+                out[x * height + y] = (r * scale >> 16) << 16 | (g * scale >> 16) << 8 | b * scale >> 16;
+                int added = in[row + Math.min(width - 1, x + radius + 1)];
+                int removed = in[row + Math.max(0, x - radius)];
+                r += (added >> 16 & 0xFF) - (removed >> 16 & 0xFF);
+                g += (added >> 8 & 0xFF) - (removed >> 8 & 0xFF);
+                b += (added & 0xFF) - (removed & 0xFF);
+            }
+        });
+    }
+}
@@ -0,0 +1,148 @@
+package UI;
+
+import utils.Constants.playingUICons;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * The "bato, bato, pik" countdown: both fists are raised and lowered once per
+ * beat before the chosen hands are revealed.
+ *
+ * start() is called from the input handler, update() from the game loop and
+ * the draw methods from the EDT; the sampled values are kept in volatile fields.
+ */
+public class HandShakeAnimation
+{
+    private static final String[] BEAT_TEXT = {"Bato", "Bato", "Pik!"};
+
+    private final AnimationTimeline timeline;
+    private SpriteFrameCache playerFrames;   // Player fist at each tilt
+    private SpriteFrameCache computerFrames; // Computer fist at each tilt, tilted the other way
+
+    private volatile boolean running;
+    private volatile long startNanos;
+    private volatile int offsetY;            // Current lift of both fists
+    private volatile float angle;            // Current tilt of the player fist
+    private volatile int beat;               // Index of the current beat
+
+    public HandShakeAnimation()
+    {
+        timeline = new AnimationTimeline().key(0, 0, 0, Easing.LINEAR);
+        long beatMs = playingUICons.SHAKE_BEAT_DURATION;
+        for (int i = 0; i < playingUICons.SHAKE_BEATS; i++)
+        {
+            timeline.key(i * beatMs + beatMs / 2, -playingUICons.SHAKE_HEIGHT, -playingUICons.SHAKE_MAX_ANGLE, Easing.EASE_OUT)
+                    .key((i + 1) * beatMs, 0, 0, Easing.EASE_IN);
+        }
+    }
+
+    /**
+     * Pre-renders the tilted fists at their on-screen size.
+     *
+     * @param playerFist Full size image of the player's fist
+     * @param computerFist Full size image of the computer's fist
+     */
+    public void buildFrames(BufferedImage playerFist, BufferedImage computerFist)
+    {
+        if (playerFist != null)
+        {
+            playerFrames = new SpriteFrameCache(playerFist, playingUICons.HAND_WIDTH, playingUICons.HAND_HEIGHT,
+                    -playingUICons.SHAKE_MAX_ANGLE, 0f, playingUICons.SHAKE_ANGLE_STEPS, 0.5f, 1f);
+        }
+        if (computerFist != null)
+        {
+            computerFrames = new SpriteFrameCache(computerFist, playingUICons.HAND_WIDTH, playingUICons.HAND_HEIGHT,
+                    0f, playingUICons.SHAKE_MAX_ANGLE, playingUICons.SHAKE_ANGLE_STEPS, 0.5f, 1f);
+        }
+    }
+
+    /**
+     * Drops the pre-rendered frames, e.g. when the playing screen releases its assets.
+     */
+    public void releaseFrames()
+    {
+        playerFrames = null;
+        computerFrames = null;
+    }
+
+    /**
+     * Starts the countdown from the first beat.
+     */
+    public void start()
+    {
+        startNanos = System.nanoTime();
+        offsetY = 0;
+        angle = 0;
+        beat = 0;
+        running = true;
+    }
+
+    /**
+     * Stops the countdown without finishing it.
+     */
+    public void stop()
+    {
+        running = false;
+    }
+
+    /**
+     * Advances the animation to the current time.
+     *
+     * @return true on the update the countdown finishes
+     */
+    public boolean update()
+    {
+        if (!running) return false;
+
+        long elapsed = (System.nanoTime() - startNanos) / 1_000_000;
+        if (elapsed >= timeline.getDuration())
+        {
+            running = false;
+            return true;
+        }
+        offsetY = Math.round(timeline.offsetAt(elapsed));
+        angle = timeline.angleAt(elapsed);
+        beat = (int) Math.min(BEAT_TEXT.length - 1, elapsed / playingUICons.SHAKE_BEAT_DURATION);
+        return false;
+    }
+
+    public void drawPlayer(Graphics g, int x, int y)
+    {
+        SpriteFrameCache frames = playerFrames;
+        if (frames != null)
+        {
+            g.drawImage(frames.frameFor(angle), x, y + offsetY, null);
+        }
+    }
+
+    public void drawComputer(Graphics g, int x, int y)
+    {
+        SpriteFrameCache frames = computerFrames;
+        if (frames != null)
+        {
+            g.drawImage(frames.frameFor(-angle), x, y + offsetY, null);
+        }
+    }
+
+    /**
+     * Retrieves the length of the whole countdown in milliseconds.
+     */
+    public long getDuration()
+    {
+        return timeline.getDuration();
+    }
+
+    public boolean isRunning()
+    {
+        return running;
+    }
+
+    /**
+     * Retrieves the word called out on the current beat.
+     */
+    public String getBeatText()
+    {
+        return BEAT_TEXT[beat];
+    }
+}
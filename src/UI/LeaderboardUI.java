@@ -0,0 +1,202 @@
+package UI;
+
+import logic.LeaderboardStore;
+import utils.AssetGroup;
+import utils.Constants.ImagePaths;
+import utils.Constants.LeaderboardCons;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * Draws the local leaderboard: one page of players ranked by win rate, longest
+ * streak or matches played, plus the local player's own rank.
+ * Rows are copied out of the LeaderboardStore on the game thread and only
+ * redrawn on the EDT.
+ */
+public class LeaderboardUI
+{
+    private static final String[] SORT_NAMES = {"1 - Win Rate", "2 - Longest Streak", "3 - Games Played"};
+    private static final long REFRESH_INTERVAL_MS = 500; // Picks up matches recorded while the screen is open
+
+    private BufferedImage backgroundImage;
+    private final AssetGroup assets = new AssetGroup(); // Images held while the leaderboard is visible
+
+    private volatile int sort = LeaderboardCons.SORT_WIN_RATE;
+    private volatile int firstRow; // 0-based rank of the top row
+    private volatile boolean dirty = true;
+    private long lastRefresh;
+
+    // Snapshot drawn by the EDT
+    private volatile LeaderboardStore.Row[] rows = new LeaderboardStore.Row[0];
+    private volatile int playerCount;
+    private volatile int localRank = -1;
+    private final String localName = LeaderboardStore.getLocalPlayerName();
+
+    /**
+     * Acquires the background and starts loading the leaderboard. Called when the state is entered.
+     */
+    public void loadAssets()
+    {
+        if (!assets.isLoaded())
+        {
+            try {
+                backgroundImage = assets.acquire(ImagePaths.MENU_BACKGROUND);
+            } catch (IOException e) {
+                System.out.println("Error loading leaderboard UI images: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+        LeaderboardStore.load();
+        dirty = true;
+    }
+
+    /**
+     * Releases the background while the leaderboard is not visible.
+     */
+    public void releaseAssets()
+    {
+        assets.releaseAll();
+        backgroundImage = null;
+    }
+
+    /**
+     * Copies the visible page out of the store when it changed or is due for a refresh.
+     */
+    public void update()
+    {
+        long now = System.currentTimeMillis();
+        if (!LeaderboardStore.isLoaded() || (!dirty && now - lastRefresh < REFRESH_INTERVAL_MS)) return;
+
+        dirty = false;
+        lastRefresh = now;
+        int currentSort = sort;
+        playerCount = LeaderboardStore.getPlayerCount();
+        localRank = LeaderboardStore.getRank(currentSort, localName);
+        rows = LeaderboardStore.getPage(currentSort, firstRow, LeaderboardCons.PAGE_SIZE);
+    }
+
+    public void draw(Graphics g, int width, int height)
+    {
+        if (backgroundImage != null)
+        {
+            g.drawImage(backgroundImage, 0, 0, width, height, null);
+        } else {
+            g.setColor(Color.DARK_GRAY);
+            g.fillRect(0, 0, width, height);
+        }
+        g.setColor(new Color(0, 0, 0, 150));
+        g.fillRect(0, 0, width, height);
+
+        g.setColor(Color.WHITE);
+        g.setFont(new Font("Arial", Font.BOLD, LeaderboardCons.TITLE_SIZE));
+        drawCentered(g, "Leaderboard", width, LeaderboardCons.TITLE_Y);
+
+        drawTabs(g, width);
+
+        g.setFont(new Font("Arial", Font.PLAIN, LeaderboardCons.TEXT_SIZE));
+        if (!LeaderboardStore.isLoaded())
+        {
+            drawCentered(g, "Loading...", width, LeaderboardCons.TABLE_Y + LeaderboardCons.ROW_HEIGHT);
+            return;
+        }
+        if (playerCount == 0)
+        {
+            drawCentered(g, "Finish a match to get on the leaderboard", width, LeaderboardCons.TABLE_Y + LeaderboardCons.ROW_HEIGHT);
+        } else {
+            drawTable(g, width);
+        }
+
+        String footer = (localRank > 0 ? "Your rank: #" + localRank + " of " + playerCount : playerCount + " players") +
+                "    Up/Down - Scroll    Y - Find me    ESC - Back";
+        drawCentered(g, footer, width, height - 40);
+    }
+
+    private void drawTabs(Graphics g, int width)
+    {
+        g.setFont(new Font("Arial", Font.BOLD, LeaderboardCons.TEXT_SIZE));
+        int tabWidth = LeaderboardCons.TABLE_WIDTH / LeaderboardCons.TOTAL_SORTS;
+        int left = (width - LeaderboardCons.TABLE_WIDTH) / 2;
+        for (int i = 0; i < LeaderboardCons.TOTAL_SORTS; i++)
+        {
+            g.setColor(i == sort ? Color.YELLOW : Color.LIGHT_GRAY);
+            FontMetrics metrics = g.getFontMetrics();
+            g.drawString(SORT_NAMES[i], left + i * tabWidth + (tabWidth - metrics.stringWidth(SORT_NAMES[i])) / 2,
+                    LeaderboardCons.TABS_Y);
+        }
+    }
+
+    private void drawTable(Graphics g, int width)
+    {
+        int left = (width - LeaderboardCons.TABLE_WIDTH) / 2;
+        int[] columns = {left, left + 120, left + 520, left + 670, left + 800};
+        int y = LeaderboardCons.TABLE_Y;
+
+        g.setColor(Color.LIGHT_GRAY);
+        String[] headers = {"Rank", "Player", "Win Rate", "Streak", "Games"};
+        for (int c = 0; c < headers.length; c++)
+        {
+            g.drawString(headers[c], columns[c], y);
+        }
+
+        for (LeaderboardStore.Row row : rows)
+        {
+            y += LeaderboardCons.ROW_HEIGHT;
+            g.setColor(row.name.equals(localName) ? Color.YELLOW : Color.WHITE);
+            g.drawString("#" + row.rank, columns[0], y);
+            g.drawString(row.name, columns[1], y);
+            g.drawString(Math.round(row.getWinRate() * 100) + "%", columns[2], y);
+            g.drawString(String.valueOf(row.longestStreak), columns[3], y);
+            g.drawString(String.valueOf(row.matches), columns[4], y);
+        }
+    }
+
+    private static void drawCentered(Graphics g, String text, int width, int y)
+    {
+        FontMetrics metrics = g.getFontMetrics();
+        g.drawString(text, (width - metrics.stringWidth(text)) / 2, y);
+    }
+
+    /**
+     * Retrieves which sort tab is under the mouse, or -1.
+     */
+    public int getTabClicked(int mouseX, int mouseY, int width)
+    {
+        int left = (width - LeaderboardCons.TABLE_WIDTH) / 2;
+        if (mouseY < LeaderboardCons.TABS_Y - LeaderboardCons.TEXT_SIZE || mouseY > LeaderboardCons.TABS_Y + 8) return -1;
+        if (mouseX < left || mouseX >= left + LeaderboardCons.TABLE_WIDTH) return -1;
+        return (mouseX - left) / (LeaderboardCons.TABLE_WIDTH / LeaderboardCons.TOTAL_SORTS);
+    }
+
+    public void setSort(int newSort)
+    {
+        if (newSort >= 0 && newSort < LeaderboardCons.TOTAL_SORTS && newSort != sort)
+        {
+            sort = newSort;
+            firstRow = 0;
+            dirty = true;
+        }
+    }
+
+    /**
+     * Moves the page by a number of rows, clamped to the leaderboard.
+     */
+    public void scroll(int rowsDelta)
+    {
+        int last = Math.max(0, playerCount - LeaderboardCons.PAGE_SIZE);
+        firstRow = Math.max(0, Math.min(last, firstRow + rowsDelta));
+        dirty = true;
+    }
+
+    /**
+     * Scrolls to the page holding the local player.
+     */
+    public void showLocalPlayer()
+    {
+        if (localRank > 0)
+        {
+            scroll(localRank - 1 - LeaderboardCons.PAGE_SIZE / 2 - firstRow);
+        }
+    }
+}
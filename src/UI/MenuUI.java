@@ -4,12 +4,11 @@ import Sound.SoundManager;
 import utils.Constants.menuUICons;
 import utils.Constants.menuButtons;
 import utils.Constants.ImagePaths;
+import utils.AssetGroup;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import javax.imageio.ImageIO;
 import java.io.IOException;
-import java.io.InputStream;
 
 /**
  * HAHAHAHAHAHAHAHA
@@ -18,75 +17,95 @@ import java.io.InputStream;
  */
 public class MenuUI
 {
-    private BufferedImage backgroundImage, titleImage; // Background and title images
-    private BufferedImage[] buttonImages;             // Images for default button states
-    private BufferedImage[] buttonPressedImages;      // Images for pressed button states
+    private BufferedImage backgroundImage;            // Background image
+    private TextureAtlas atlas;                       // Title and buttons at their drawn size
+    private int titleRegion;                          // Atlas region of the title
+    private int[] buttonRegions;                      // Regions for default button states
+    private int[] buttonPressedRegions;               // Regions for pressed button states
     private boolean[] isButtonPressed;               // Tracks whether each button is pressed
     private boolean[] isButtonHovered;               // Tracks whether each button is hovere
+    private final AssetGroup assets = new AssetGroup(); // Images held while the menu is visible
 
     /**
      * Constructor to initialize the menu UI.
-     * Loads the button states, images, and sets the menu music.
+     * Sets up the button states and the menu music; images are loaded by loadAssets.
      */
     public MenuUI()
     {
         initButtons();
-        loadImages();
         SoundManager.switchToMenuMusic();
     }
 
+    /**
+     * Acquires the menu images. Called when the menu state is entered.
+     */
+    public void loadAssets()
+    {
+        if (atlas == null)
+        {
+            loadImages();
+        }
+    }
+
+    /**
+     * Releases the menu images so they can be evicted while the menu is not visible.
+     */
+    public void releaseAssets()
+    {
+        assets.releaseAll();
+        backgroundImage = null;
+        atlas = null;
+    }
+
     /**
      * Initializes button states and allocates memory for button-related arrays.
      */
     private void initButtons()
     {
-        buttonImages = new BufferedImage[menuButtons.TOTAL_MENU_BUTTONS];
-        buttonPressedImages = new BufferedImage[menuButtons.TOTAL_MENU_BUTTONS];
+        buttonRegions = new int[menuButtons.TOTAL_MENU_BUTTONS];
+        buttonPressedRegions = new int[menuButtons.TOTAL_MENU_BUTTONS];
         isButtonPressed = new boolean[menuButtons.TOTAL_MENU_BUTTONS];
         isButtonHovered = new boolean[menuButtons.TOTAL_MENU_BUTTONS];
     }
 
     /**
      * Loads all required images for the menu UI, including buttons, title, and background.
+     * The title and buttons are packed into the atlas, after which their full size
+     * images are released again.
      */
     private void loadImages()
     {
+        AssetGroup sources = new AssetGroup();
         try {
-            // Load background and title
-            backgroundImage = loadImage(ImagePaths.MENU_BACKGROUND);
-            titleImage = loadImage(ImagePaths.MENU_TITLE);
+            // Load background
+            backgroundImage = assets.acquire(ImagePaths.MENU_BACKGROUND);
+
+            TextureAtlas.Builder builder = new TextureAtlas.Builder();
+            titleRegion = builder.add(sources.acquire(ImagePaths.MENU_TITLE),
+                    menuUICons.TITLE_WIDTH, menuUICons.TITLE_HEIGHT);
 
-            // Load button images
-            buttonImages[menuButtons.PLAY] = loadImage(ImagePaths.PLAY_BUTTON);
-            buttonImages[menuButtons.SETTINGS] = loadImage(ImagePaths.SETTINGS_BUTTON);
-            buttonImages[menuButtons.QUIT] = loadImage(ImagePaths.QUIT_BUTTON);
+            // Button images
+            buttonRegions[menuButtons.PLAY] = addButton(builder, sources, ImagePaths.PLAY_BUTTON);
+            buttonRegions[menuButtons.SETTINGS] = addButton(builder, sources, ImagePaths.SETTINGS_BUTTON);
+            buttonRegions[menuButtons.QUIT] = addButton(builder, sources, ImagePaths.QUIT_BUTTON);
 
-            // Load pressed button images
-            buttonPressedImages[menuButtons.PLAY] = loadImage(ImagePaths.PLAY_CLICKED);
-            buttonPressedImages[menuButtons.SETTINGS] = loadImage(ImagePaths.SETTINGS_CLICKED);
-            buttonPressedImages[menuButtons.QUIT] = loadImage(ImagePaths.QUIT_CLICKED);
+            // Pressed button images
+            buttonPressedRegions[menuButtons.PLAY] = addButton(builder, sources, ImagePaths.PLAY_CLICKED);
+            buttonPressedRegions[menuButtons.SETTINGS] = addButton(builder, sources, ImagePaths.SETTINGS_CLICKED);
+            buttonPressedRegions[menuButtons.QUIT] = addButton(builder, sources, ImagePaths.QUIT_CLICKED);
 
+            atlas = builder.build();
         } catch (IOException e) {
             System.out.println("Error loading menu UI images: " + e.getMessage());
             e.printStackTrace();
+        } finally {
+            sources.releaseAll();
         }
     }
 
-    /**
-     * Utility method to load an image from a file path.
-     *
-     * @param path The file path of the image
-     * @return The loaded BufferedImage
-     * @throws IOException If the image cannot be loaded
-     */
-    private BufferedImage loadImage(String path) throws IOException {
-        try (InputStream is = getClass().getResourceAsStream(path)) {
-            if (is == null) {
-                System.out.println("Failed to load " + path);
-                return null;
-            }
-            return ImageIO.read(is);
-        }
+    private static int addButton(TextureAtlas.Builder builder, AssetGroup sources, String path) throws IOException
+    {
+        return builder.add(sources.acquire(path), menuUICons.BUTTON_WIDTH, menuUICons.BUTTON_HEIGHT);
     }
 
     /**
@@ -118,6 +137,12 @@ public class MenuUI
         g.drawString("Q - Bato", 20, 500);
         g.drawString("W - Papel", 20, 517);
         g.drawString("E - Gunting", 20, 535);
+        g.drawString("H - Hot-seat Versus", 20, 570);
+        g.drawString("L - LAN Versus", 20, 587);
+        g.drawString("T - Tournament", 20, 604);
+        g.drawString("A - Learning AI", 20, 621);
+        g.drawString("B - Leaderboard", 20, 638);
+        g.drawString("R - Replays", 20, 655);
     }
 
     /**
@@ -138,12 +163,10 @@ public class MenuUI
      */
     private void drawTitle(Graphics g, int width)
     {
-        if (titleImage != null)
+        if (atlas != null)
         {
             int titleX = (width - menuUICons.TITLE_WIDTH) / 2;
-            g.drawImage(titleImage, titleX, 0,
-                    menuUICons.TITLE_WIDTH,
-                    menuUICons.TITLE_HEIGHT, null);
+            atlas.draw(g, titleRegion, titleX, 0);
         }
     }
 
@@ -152,6 +175,7 @@ public class MenuUI
      */
     private void drawButtons(Graphics g, int width)
     {
+        if (atlas == null) return;
         int buttonX = (width - menuUICons.BUTTON_WIDTH) / 2;
 
         for (int i = 0; i < menuButtons.TOTAL_MENU_BUTTONS; i++)
@@ -159,16 +183,10 @@ public class MenuUI
             int buttonY = menuUICons.BUTTON_Y +
                     (menuUICons.BUTTON_HEIGHT + menuUICons.BUTTON_SPACING) * i;
 
-            BufferedImage buttonImage = isButtonHovered[i] ?
-                    buttonPressedImages[i] :
-                    buttonImages[i];
-
-            if (buttonImage != null)
-            {
-                g.drawImage(buttonImage, buttonX, buttonY,
-                        menuUICons.BUTTON_WIDTH,
-                        menuUICons.BUTTON_HEIGHT, null);
-            }
+            int buttonRegion = isButtonHovered[i] ?
+                    buttonPressedRegions[i] :
+                    buttonRegions[i];
+            atlas.draw(g, buttonRegion, buttonX, buttonY);
         }
     }
 
@@ -0,0 +1,89 @@
+package UI;
+
+import utils.Constants.playingUICons;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures a full pool of particles at the game's rates: two updates (120 UPS)
+ * and one draw (60 FPS) per frame into an off-screen image the size of the window.
+ * Also reports the bytes allocated by the benchmark thread while measuring.
+ *
+ * Usage: java UI.ParticleBenchmark [frames]
+ */
+public class ParticleBenchmark
+{
+    public static void main(String[] args)
+    {
+        int frames = args.length > 0 ? Integer.parseInt(args[0]) : 1200;
+        int width = 1530, height = 890;
+
+        BufferedImage screen = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = screen.createGraphics();
+        ParticleSystem particles = new ParticleSystem(playingUICons.MAX_PARTICLES);
+
+        runFrames(particles, g, width, height, frames / 4); // Warm up
+
+        long allocatedBefore = allocatedBytes();
+        long updateNanos = 0, drawNanos = 0, live = 0;
+        for (int f = 0; f < frames; f++)
+        {
+            refill(particles, width, height);
+            long start = System.nanoTime();
+            particles.update(1f / 120, height);
+            particles.update(1f / 120, height);
+            long mid = System.nanoTime();
+            particles.draw(g);
+            long end = System.nanoTime();
+            updateNanos += mid - start;
+            drawNanos += end - mid;
+            live += particles.getCount();
+        }
+        long allocated = allocatedBytes() - allocatedBefore;
+
+        System.out.println("Particles per frame: " + live / frames);
+        System.out.println("Update (x2):         " + updateNanos / frames / 1000 + " us/frame");
+        System.out.println("Draw:                " + drawNanos / frames / 1000 + " us/frame");
+        System.out.println("Frame budget @60:    16666 us");
+        System.out.println("Allocated:           " + (allocatedBefore < 0 ? "n/a" : allocated + " bytes over " + frames + " frames"));
+        g.dispose();
+    }
+
+    private static void runFrames(ParticleSystem particles, Graphics2D g, int width, int height, int frames)
+    {
+        for (int f = 0; f < frames; f++)
+        {
+            refill(particles, width, height);
+            particles.update(1f / 120, height);
+            particles.update(1f / 120, height);
+            particles.draw(g);
+        }
+    }
+
+    /**
+     * Tops the pool back up with a mix of all three effects.
+     */
+    private static void refill(ParticleSystem particles, int width, int height)
+    {
+        int missing = playingUICons.MAX_PARTICLES - particles.getCount();
+        if (missing <= 0) return;
+        particles.emitConfetti(width, missing / 2);
+        particles.emitSparks(width / 2f, height / 2f, missing / 4);
+        particles.emitShards(width / 4f, height / 4f, missing - missing / 2 - missing / 4);
+    }
+
+    /**
+     * Bytes allocated by the current thread so far, or -1 if the JVM cannot tell.
+     */
+    private static long allocatedBytes()
+    {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean)
+        {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().threadId());
+        }
+        return -1;
+    }
+}
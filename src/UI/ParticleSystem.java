@@ -0,0 +1,175 @@
+package UI;
+
+import utils.Constants.playingUICons;
+
+import java.awt.*;
+import java.util.SplittableRandom;
+
+/**
+ * Fixed capacity pool of particles for the win/lose effects (confetti, sparks, heart shards).
+ *
+ * Particles are stored as parallel arrays rather than objects, so spawning,
+ * updating and drawing never allocate. Dead particles are removed by moving the
+ * last live particle into their slot. Colors come from a small palette, and
+ * drawing sets each palette color once and fills every particle of that color.
+ *
+ * Particles are spawned and updated on the game thread and drawn on the EDT,
+ * both under the pool's lock.
+ */
+public class ParticleSystem
+{
+    // Palette indices
+    public static final int RED = 0, ORANGE = 1, YELLOW = 2, GREEN = 3, BLUE = 4, MAGENTA = 5, WHITE = 6, HEART_RED = 7;
+    private static final Color[] PALETTE = {
+            new Color(235, 64, 52), new Color(245, 150, 40), new Color(250, 220, 60), new Color(80, 200, 90),
+            new Color(60, 140, 235), new Color(210, 80, 200), Color.WHITE, new Color(200, 20, 40)
+    };
+
+    private final int capacity;
+    private final float[] x, y, vx, vy;  // Position and velocity in pixels / pixels per second
+    private final float[] life;          // Seconds left
+    private final float[] gravity;       // Gravity scale, confetti floats down slower than shards
+    private final byte[] size;           // Square size in pixels
+    private final byte[] color;          // Palette index
+    private int count;                   // Live particles occupy [0, count)
+
+    // Separate from the match RNG, so effects never change the computer's choices
+    private final SplittableRandom random = new SplittableRandom();
+
+    public ParticleSystem(int capacity)
+    {
+        this.capacity = capacity;
+        x = new float[capacity];
+        y = new float[capacity];
+        vx = new float[capacity];
+        vy = new float[capacity];
+        life = new float[capacity];
+        gravity = new float[capacity];
+        size = new byte[capacity];
+        color = new byte[capacity];
+    }
+
+    /**
+     * Adds a particle, silently dropped if the pool is full.
+     */
+    private void spawn(float px, float py, float pvx, float pvy, float seconds, float gravityScale, int pixels, int paletteIndex)
+    {
+        if (count == capacity) return;
+        int i = count++;
+        x[i] = px;
+        y[i] = py;
+        vx[i] = pvx;
+        vy[i] = pvy;
+        life[i] = seconds;
+        gravity[i] = gravityScale;
+        size[i] = (byte) pixels;
+        color[i] = (byte) paletteIndex;
+    }
+
+    /**
+     * Confetti falling from the top of the screen.
+     */
+    public synchronized void emitConfetti(int width, int amount)
+    {
+        for (int i = 0; i < amount; i++)
+        {
+            spawn(random.nextInt(Math.max(1, width)), -random.nextInt(200),
+                    random.nextInt(-80, 81), random.nextInt(60, 220),
+                    2.5f + random.nextInt(150) / 100f, 0.15f,
+                    4 + random.nextInt(5), random.nextInt(MAGENTA + 1));
+        }
+    }
+
+    /**
+     * A radial burst of sparks, e.g. at the hand that lost the round.
+     */
+    public synchronized void emitSparks(float cx, float cy, int amount)
+    {
+        for (int i = 0; i < amount; i++)
+        {
+            double angle = random.nextDouble() * Math.PI * 2;
+            float speed = 200 + random.nextInt(400);
+            spawn(cx, cy, (float) Math.cos(angle) * speed, (float) Math.sin(angle) * speed,
+                    0.3f + random.nextInt(40) / 100f, 0.5f,
+                    2 + random.nextInt(3), random.nextBoolean() ? YELLOW : WHITE);
+        }
+    }
+
+    /**
+     * Shards of a breaking heart, thrown up and falling.
+     */
+    public synchronized void emitShards(float cx, float cy, int amount)
+    {
+        for (int i = 0; i < amount; i++)
+        {
+            spawn(cx + random.nextInt(-10, 11), cy + random.nextInt(-10, 11),
+                    random.nextInt(-150, 151), -random.nextInt(100, 350),
+                    0.8f + random.nextInt(50) / 100f, 1f,
+                    3 + random.nextInt(4), random.nextInt(4) == 0 ? WHITE : HEART_RED);
+        }
+    }
+
+    /**
+     * Moves every particle and removes the expired ones.
+     *
+     * @param dt Seconds since the last update
+     * @param height Height of the screen; particles below it are removed
+     */
+    public synchronized void update(float dt, int height)
+    {
+        float fall = playingUICons.PARTICLE_GRAVITY * dt;
+        int i = 0;
+        while (i < count)
+        {
+            life[i] -= dt;
+            vy[i] += fall * gravity[i];
+            x[i] += vx[i] * dt;
+            y[i] += vy[i] * dt;
+
+            if (life[i] <= 0 || y[i] > height)
+            {
+                // Move the last live particle into this slot and check it next
+                int last = --count;
+                x[i] = x[last];
+                y[i] = y[last];
+                vx[i] = vx[last];
+                vy[i] = vy[last];
+                life[i] = life[last];
+                gravity[i] = gravity[last];
+                size[i] = size[last];
+                color[i] = color[last];
+            } else {
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Draws every particle, one palette color at a time.
+     */
+    public synchronized void draw(Graphics g)
+    {
+        if (count == 0) return;
+        for (int c = 0; c < PALETTE.length; c++)
+        {
+            g.setColor(PALETTE[c]);
+            for (int i = 0; i < count; i++)
+            {
+                if (color[i] == c)
+                {
+                    g.fillRect((int) x[i], (int) y[i], size[i], size[i]);
+                }
+            }
+        }
+    }
+
+    public synchronized void clear()
+    {
+        count = 0;
+    }
+
+    public synchronized int getCount()
+    {
+        return count;
+    }
+}
@@ -1,15 +1,35 @@
 package UI;
 
+import Sound.SFX;
 import Sound.SoundManager;
+import gamestates.GameState;
+import logic.AIOpponent;
+import logic.DifficultyController;
+import logic.LearningOpponent;
+import logic.LeaderboardStore;
+import logic.Match;
+import logic.MatchFormat;
+import logic.MoveHistory;
+import logic.ReplayRecorder;
+import logic.RuleSet;
+import logic.StatsStore;
+import logic.Tournament;
+import net.VersusClient;
 import utils.Constants.playingUICons;
 import utils.Constants.ImagePaths;
+import utils.Constants.LearningCons;
+import utils.Constants.ReplayCons;
+import utils.Constants.TournamentCons;
+import utils.Constants.VersusCons;
+import utils.AssetGroup;
 
+import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import javax.imageio.ImageIO;
 import java.io.IOException;
-import java.io.InputStream;
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * The PlayingUI class handles the rendering and management of the game's user interface
@@ -17,55 +37,115 @@ import java.util.Random;
  */
 public class PlayingUI
 {
+    /**
+     * A resolved round as the EDT saw it, handed to the game thread for its effects.
+     */
+    private static final class Reveal
+    {
+        final int outcome;
+        final int playerLives, computerLives;
+        final boolean gameOver;
+
+        Reveal(int outcome, int playerLives, int computerLives, boolean gameOver)
+        {
+            this.outcome = outcome;
+            this.playerLives = playerLives;
+            this.computerLives = computerLives;
+            this.gameOver = gameOver;
+        }
+    }
+
     // Declare instance variables for images and game state
     private BufferedImage playingBG;
-    private BufferedImage[] buttonImages; // Regular button images
-    private BufferedImage[] buttonClickedImages; // Hovered/clicked button images
-    private BufferedImage[] handImages; // Player hand images
-    private BufferedImage[] compHandImages; // Computer hand images
-    private BufferedImage heartImage, emptyHeartImage; // Heart indicators for lives
+    private TextureAtlas atlas; // Every sprite below at its drawn size
+    private int[] buttonRegions; // Regular button regions
+    private int[] buttonClickedRegions; // Hovered/clicked button regions
+    private int[] handRegions; // Player hand regions
+    private int[] compHandRegions; // Computer hand regions
+    private int heartRegion, emptyHeartRegion; // Heart indicators for lives
     private boolean[] isButtonHovered; // Tracks hover state of buttons
     private int currentHand, computerHand; // Current choices of player and computer
     private boolean hasPlayerMadeChoice; // Tracks if player has made a choice
     private String resultText; // Result message for each round
-    private Random random; // RNG for computer's choice
-    private long resultDisplayStartTime; // Time when the result is displayed
+    private long resultDisplayStartTime; // Time when the result is displayed, once the countdown ends. EDT only
 
     // Game state variables
-    private int playerLives, computerLives; // Lives for player and computer
-    private boolean gameOver; // Tracks if the game has ended
+    private final RuleSet rules = RuleSet.getActive(); // Weapons on the buttons, from -Dbbp.rules
+    private SplittableRandom seedSource; // Hands out the seed of each new match
+    private Match match; // Rules, lives and computer RNG of the current match
+    private ReplayRecorder recorder; // Records the inputs of the current match
 
     // Pause menu images and state
-    private BufferedImage pauseButton;
-    private BufferedImage pauseButtonHovered;
+    private int pauseButton;
+    private int pauseButtonHovered;
     private BufferedImage pauseOverlay;
-    private BufferedImage resumeButton;
-    private BufferedImage resumeButtonHovered;
-    private BufferedImage retryButton;
-    private BufferedImage retryButtonHovered;
-    private BufferedImage menuButton;
-    private BufferedImage menuButtonHovered;
+    private int resumeButton;
+    private int resumeButtonHovered;
+    private int retryButton;
+    private int retryButtonHovered;
+    private int menuButton;
+    private int menuButtonHovered;
     private boolean isPaused;
+    private BufferedImage pausedFrame; // Blurred, tinted scene shown under the pause menu, EDT only
     private boolean isPauseButtonHovered;
     private boolean isResumeButtonHovered;
     private boolean isRetryButtonHovered;
     private boolean isMenuButtonHovered;
 
+    private final AssetGroup assets = new AssetGroup(); // Images held while the game is visible
+
+    // "Bato, bato, pik" countdown played before each round is revealed
+    private HandShakeAnimation handShake;
+    private volatile SFX pendingResultSound; // Win/lose sound played once the hands are revealed
+    private volatile Reveal pendingReveal; // Round whose effects play once the hands are revealed
+
+    // Confetti, sparks and heart shards, updated on the game thread
+    private ParticleSystem particles;
+    private long lastUpdateNanos; // Time of the previous update, for the particle time step
+    private volatile int screenWidth, screenHeight; // Size of the last frame drawn
+
+    // Versus modes. Hands are only revealed once both sides have chosen
+    private int mode = playingUICons.MODE_COMPUTER;
+    private int playerOneChoice = -1, playerTwoChoice = -1; // Hidden hot-seat choices
+    private VersusClient versusClient; // Connection to the server in LAN mode
+    private int connectionId; // Ignores events from connections that were already closed
+    private boolean opponentJoined; // LAN: paired with an opponent by the server
+    private boolean waitingForOpponent; // LAN: hand committed, opponent not done yet
+    private String statusText = ""; // Versus state shown while no result is displayed
+
+    // Bracket mode: the player's series are played here, every other pairing is simulated
+    private final BracketUI bracketUI = new BracketUI();
+    private Tournament tournament;
+    private MatchFormat format = MatchFormat.fromProperties();
+    private int entrants = Math.max(TournamentCons.MIN_ENTRANTS, Math.min(TournamentCons.MAX_ENTRANTS,
+            Integer.getInteger(TournamentCons.ENTRANTS_PROPERTY, TournamentCons.DEFAULT_ENTRANTS)));
+    private SplittableRandom opponentRandom; // RNG of the AI opponents' hands
+    private boolean showingBracket; // Bracket drawn instead of the game until Enter is pressed
+    private boolean tournamentStarted; // The format can only be changed before the first series
+    private boolean seriesDecided; // The last game decided the series, the bracket is shown next
+    private String opponentName = ""; // AI opponent of the current series
+    private int lastPlayerHand = -1, lastOpponentHand = -1; // Previous round, for the opponent's style
+
+    // Learning mode: the opponent learns the player's habits on its own thread
+    private LearningOpponent learner;
+    private Future<String> learnerMetrics; // Summarized by the last learner's worker once it was closed
+
     /**
      * Constructor initializes the UI components and game state.
      */
     public PlayingUI()
     {
-        initButtons(); // Initialize button-related arrays
-        loadImages(); // Load required images
+        initButtons(); // Initialize button-related arrays; images are loaded by loadAssets
+        handShake = new HandShakeAnimation();
+        particles = new ParticleSystem(playingUICons.MAX_PARTICLES);
         currentHand = playingUICons.ROCK; // Default hand choice
         computerHand = playingUICons.ROCK; // Default computer hand choice
-        random = new Random(); // RNG for computer's hand
+        // A fixed -Dbbp.seed makes every match of the session reproducible
+        seedSource = new SplittableRandom(Long.getLong(ReplayCons.SEED_PROPERTY, System.nanoTime()));
+        match = new Match(seedSource.nextLong());
+        recorder = new ReplayRecorder();
         hasPlayerMadeChoice = false;
         resultText = "";
-        playerLives = playingUICons.TOTAL_HEARTS;
-        computerLives = playingUICons.TOTAL_HEARTS;
-        gameOver = false;
         isPaused = false;
     }
 
@@ -74,80 +154,253 @@ public class PlayingUI
      */
     private void initButtons()
     {
-        buttonImages = new BufferedImage[playingUICons.TOTAL_RPS_BUTTONS];
-        buttonClickedImages = new BufferedImage[playingUICons.TOTAL_RPS_BUTTONS];
-        handImages = new BufferedImage[playingUICons.TOTAL_RPS_BUTTONS];
-        compHandImages = new BufferedImage[playingUICons.TOTAL_RPS_BUTTONS];
-        isButtonHovered = new boolean[playingUICons.TOTAL_RPS_BUTTONS];
+        int weapons = rules.getWeaponCount();
+        buttonRegions = new int[weapons];
+        buttonClickedRegions = new int[weapons];
+        handRegions = new int[weapons];
+        compHandRegions = new int[weapons];
+        isButtonHovered = new boolean[weapons];
+    }
+
+    /**
+     * Acquires the playing images. Called when the playing state is entered.
+     */
+    public void loadAssets()
+    {
+        if (atlas == null)
+        {
+            loadImages();
+        }
+    }
+
+    /**
+     * Releases the playing images so they can be evicted while the game is not visible.
+     */
+    public void releaseAssets()
+    {
+        assets.releaseAll();
+        handShake.releaseFrames();
+        playingBG = null;
+        pauseOverlay = null;
+        pausedFrame = null;
+        atlas = null;
     }
 
     /**
      * Loads images from file paths defined in the constants.
+     * Every sprite is packed into the atlas, after which the full size images are
+     * released again; only the background and the pause overlay stay held.
      */
     private void loadImages() {
+        AssetGroup sources = new AssetGroup();
         try {
-            // Load background
-            playingBG = loadImage(ImagePaths.PLAYING_BG);
-
-            // Load heart images
-            heartImage = loadImage(ImagePaths.HEART);
-            emptyHeartImage = loadImage(ImagePaths.EMPTY_HEART);
-
-            // Load RPS button images
-            buttonImages[playingUICons.ROCK] = loadImage(ImagePaths.ROCK_BUTTON);
-            buttonImages[playingUICons.PAPER] = loadImage(ImagePaths.PAPER_BUTTON);
-            buttonImages[playingUICons.SCISSORS] = loadImage(ImagePaths.SCISSORS_BUTTON);
-
-            // Load clicked versions
-            buttonClickedImages[playingUICons.ROCK] = loadImage(ImagePaths.ROCK_CLICKED);
-            buttonClickedImages[playingUICons.PAPER] = loadImage(ImagePaths.PAPER_CLICKED);
-            buttonClickedImages[playingUICons.SCISSORS] = loadImage(ImagePaths.SCISSORS_CLICKED);
-
-            // Load player hand images
-            handImages[playingUICons.ROCK] = loadImage(ImagePaths.ROCK_HAND);
-            handImages[playingUICons.PAPER] = loadImage(ImagePaths.PAPER_HAND);
-            handImages[playingUICons.SCISSORS] = loadImage(ImagePaths.SCISSORS_HAND);
-
-            // Load computer hand images
-            compHandImages[playingUICons.ROCK] = loadImage(ImagePaths.ROCK_COMP);
-            compHandImages[playingUICons.PAPER] = loadImage(ImagePaths.PAPER_COMP);
-            compHandImages[playingUICons.SCISSORS] = loadImage(ImagePaths.SCISSORS_COMP);
-
-            // Load pause-related images
-            pauseButton = loadImage(ImagePaths.PAUSE_BUTTON);
-            pauseButtonHovered = loadImage(ImagePaths.PAUSE_BUTTON_HOVER);
-            pauseOverlay = loadImage(ImagePaths.PAUSE_OVERLAY);
-            resumeButton = loadImage(ImagePaths.RESUME_BUTTON);
-            resumeButtonHovered = loadImage(ImagePaths.RESUME_BUTTON_HOVER);
-            retryButton = loadImage(ImagePaths.RETRY_BUTTON);
-            retryButtonHovered = loadImage(ImagePaths.RETRY_BUTTON_HOVER);
-            menuButton = loadImage(ImagePaths.MENU_BUTTON);
-            menuButtonHovered = loadImage(ImagePaths.MENU_BUTTON_HOVER);
+            // Load background and pause overlay, both stretched to the window
+            playingBG = assets.acquire(ImagePaths.PLAYING_BG);
+            pauseOverlay = assets.acquire(ImagePaths.PAUSE_OVERLAY);
+
+            TextureAtlas.Builder builder = new TextureAtlas.Builder();
 
+            // Heart images
+            heartRegion = add(builder, sources, ImagePaths.HEART, playingUICons.HEART_SIZE, playingUICons.HEART_SIZE);
+            emptyHeartRegion = add(builder, sources, ImagePaths.EMPTY_HEART, playingUICons.HEART_SIZE, playingUICons.HEART_SIZE);
 
+            // Button, hovered button, player hand and computer hand of every weapon.
+            // Weapons without art of their own get a drawn tile with their label
+            for (int i = 0; i < rules.getWeaponCount(); i++)
+            {
+                String[] art = getWeaponArt(rules.getWeapon(i));
+                if (art != null)
+                {
+                    buttonRegions[i] = addButton(builder, sources, art[0]);
+                    buttonClickedRegions[i] = addButton(builder, sources, art[1]);
+                    handRegions[i] = addHand(builder, sources, art[2]);
+                    compHandRegions[i] = addHand(builder, sources, art[3]);
+                } else {
+                    String label = rules.getLabel(i);
+                    buttonRegions[i] = builder.add(drawWeaponTile(label, playingUICons.BUTTON_WIDTH, false),
+                            playingUICons.BUTTON_WIDTH, playingUICons.BUTTON_HEIGHT);
+                    buttonClickedRegions[i] = builder.add(drawWeaponTile(label, playingUICons.BUTTON_WIDTH, true),
+                            playingUICons.BUTTON_WIDTH, playingUICons.BUTTON_HEIGHT);
+                    handRegions[i] = compHandRegions[i] = builder.add(drawWeaponHand(label),
+                            playingUICons.HAND_WIDTH, playingUICons.HAND_HEIGHT);
+                }
+            }
+
+            // The fists are also pre-rendered tilted for the hand shake, whatever the weapons
+            handShake.buildFrames(sources.acquire(ImagePaths.ROCK_HAND), sources.acquire(ImagePaths.ROCK_COMP));
+
+            // Pause-related images
+            pauseButton = add(builder, sources, ImagePaths.PAUSE_BUTTON,
+                    playingUICons.PAUSE_BUTTON_SIZE, playingUICons.PAUSE_BUTTON_SIZE);
+            pauseButtonHovered = add(builder, sources, ImagePaths.PAUSE_BUTTON_HOVER,
+                    playingUICons.PAUSE_BUTTON_SIZE, playingUICons.PAUSE_BUTTON_SIZE);
+            resumeButton = addPauseMenuButton(builder, sources, ImagePaths.RESUME_BUTTON);
+            resumeButtonHovered = addPauseMenuButton(builder, sources, ImagePaths.RESUME_BUTTON_HOVER);
+            retryButton = addPauseMenuButton(builder, sources, ImagePaths.RETRY_BUTTON);
+            retryButtonHovered = addPauseMenuButton(builder, sources, ImagePaths.RETRY_BUTTON_HOVER);
+            menuButton = addPauseMenuButton(builder, sources, ImagePaths.MENU_BUTTON);
+            menuButtonHovered = addPauseMenuButton(builder, sources, ImagePaths.MENU_BUTTON_HOVER);
+
+            atlas = builder.build();
         } catch (IOException e) {
             System.out.println("Error loading playing UI images: " + e.getMessage());
             e.printStackTrace();
+        } finally {
+            sources.releaseAll();
+        }
+    }
+
+    /**
+     * Acquires a full size image and adds it to the atlas at the size it is drawn at.
+     *
+     * @return The sprite's atlas region, or -1 if the image could not be loaded
+     */
+    private static int add(TextureAtlas.Builder builder, AssetGroup sources, String path, int width, int height)
+            throws IOException
+    {
+        return builder.add(sources.acquire(path), width, height);
+    }
+
+    private static int addButton(TextureAtlas.Builder builder, AssetGroup sources, String path) throws IOException
+    {
+        return add(builder, sources, path, playingUICons.BUTTON_WIDTH, playingUICons.BUTTON_HEIGHT);
+    }
+
+    private static int addHand(TextureAtlas.Builder builder, AssetGroup sources, String path) throws IOException
+    {
+        return add(builder, sources, path, playingUICons.HAND_WIDTH, playingUICons.HAND_HEIGHT);
+    }
+
+    /**
+     * Retrieves the images of a weapon that has art: button, hovered button, player hand and computer hand.
+     *
+     * @return The image paths, or null if the weapon has none
+     */
+    private static String[] getWeaponArt(String weapon)
+    {
+        switch (weapon) {
+            case "rock":
+                return new String[]{ImagePaths.ROCK_BUTTON, ImagePaths.ROCK_CLICKED, ImagePaths.ROCK_HAND, ImagePaths.ROCK_COMP};
+            case "paper":
+                return new String[]{ImagePaths.PAPER_BUTTON, ImagePaths.PAPER_CLICKED, ImagePaths.PAPER_HAND, ImagePaths.PAPER_COMP};
+            case "scissors":
+                return new String[]{ImagePaths.SCISSORS_BUTTON, ImagePaths.SCISSORS_CLICKED, ImagePaths.SCISSORS_HAND,
+                        ImagePaths.SCISSORS_COMP};
+            default:
+                return null;
         }
     }
 
     /**
-     * Loads an image from the specified file path.
+     * Draws a square tile with a weapon's label, for weapons without art.
      *
-     * @param path The file path of the image.
-     * @return The loaded BufferedImage.
-     * @throws IOException If the image cannot be loaded.
+     * @param size Width and height of the tile
+     * @param hovered Whether to draw the hovered look
+     */
+    private static BufferedImage drawWeaponTile(String label, int size, boolean hovered)
+    {
+        BufferedImage tile = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g = tile.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        int border = Math.max(3, size / 30);
+        g.setColor(Color.BLACK);
+        g.fillRoundRect(0, 0, size, size, size / 5, size / 5);
+        g.setColor(hovered ? new Color(0xA8C8E8) : new Color(0x8CB4DC));
+        g.fillRoundRect(border, border, size - border * 2, size - border * 2, size / 6, size / 6);
+
+        // Largest font, up to a third of the tile, that fits the label
+        int fontSize = size / 3;
+        g.setFont(new Font("Arial", Font.BOLD, fontSize));
+        FontMetrics metrics = g.getFontMetrics();
+        while (fontSize > 8 && metrics.stringWidth(label) > size - border * 4)
+        {
+            g.setFont(new Font("Arial", Font.BOLD, --fontSize));
+            metrics = g.getFontMetrics();
+        }
+        g.setColor(Color.BLACK);
+        g.drawString(label, (size - metrics.stringWidth(label)) / 2,
+                (size - metrics.getHeight()) / 2 + metrics.getAscent());
+        g.dispose();
+        return tile;
+    }
+
+    /**
+     * Draws a weapon's tile in the middle of a hand sized image, where a hand without art is shown.
+     */
+    private static BufferedImage drawWeaponHand(String label)
+    {
+        BufferedImage hand = new BufferedImage(playingUICons.HAND_WIDTH, playingUICons.HAND_HEIGHT, BufferedImage.TYPE_INT_ARGB_PRE);
+        int size = playingUICons.HAND_WIDTH / 2;
+        Graphics2D g = hand.createGraphics();
+        g.drawImage(drawWeaponTile(label, size, false), (hand.getWidth() - size) / 2, (hand.getHeight() - size) / 2, null);
+        g.dispose();
+        return hand;
+    }
+
+    private static int addPauseMenuButton(TextureAtlas.Builder builder, AssetGroup sources, String path) throws IOException
+    {
+        return add(builder, sources, path, playingUICons.PAUSE_MENU_BUTTON_WIDTH, playingUICons.PAUSE_MENU_BUTTON_HEIGHT);
+    }
+
+    /**
+     * Advances the hand shake countdown and the particles. Called from the game loop.
+     * Once the countdown finishes the round result is shown and its sound and effects are played.
      */
-    private BufferedImage loadImage(String path) throws IOException
+    public void update()
     {
-        try (InputStream is = getClass().getResourceAsStream(path))
+        long now = System.nanoTime();
+        // Clamped so particles do not jump after the game was not visible for a while
+        float dt = lastUpdateNanos == 0 ? 0f : Math.min(0.1f, (now - lastUpdateNanos) / 1_000_000_000f);
+        lastUpdateNanos = now;
+
+        if (handShake.update())
         {
-            if (is == null)
+            SFX sound = pendingResultSound;
+            pendingResultSound = null;
+            if (sound != null)
             {
-                System.out.println("Failed to load " + path);
-                return null;
+                sound.play();
+            }
+            Reveal reveal = pendingReveal;
+            pendingReveal = null;
+            if (reveal != null)
+            {
+                playRevealEffects(reveal);
+            }
+        }
+        particles.update(dt, screenHeight);
+    }
+
+    /**
+     * Spawns the effects for a revealed round: sparks at the losing hand,
+     * shards from the heart that was lost, and confetti when the player wins the match.
+     *
+     * @param reveal The round, as copied out by the EDT when it was resolved.
+     */
+    private void playRevealEffects(Reveal reveal)
+    {
+        int outcome = reveal.outcome;
+        int width = screenWidth;
+        float handCenterY = playingUICons.HAND_Y + playingUICons.HAND_HEIGHT / 2f;
+        float heartCenterY = playingUICons.HEART_Y_POSITION + playingUICons.HEART_SIZE / 2f;
+
+        if (outcome == Match.PLAYER_WIN)
+        {
+            particles.emitSparks(width - playingUICons.HAND_X - playingUICons.HAND_WIDTH / 2f, handCenterY,
+                    playingUICons.SPARK_COUNT);
+            particles.emitShards(getComputerHeartX(reveal.computerLives, width) + playingUICons.HEART_SIZE / 2f,
+                    heartCenterY, playingUICons.SHARD_COUNT);
+            if (reveal.gameOver)
+            {
+                particles.emitConfetti(width, playingUICons.CONFETTI_COUNT);
             }
-            return ImageIO.read(is);
+        } else if (outcome == Match.COMPUTER_WIN)
+        {
+            particles.emitSparks(playingUICons.HAND_X + playingUICons.HAND_WIDTH / 2f, handCenterY,
+                    playingUICons.SPARK_COUNT);
+            particles.emitShards(getPlayerHeartX(reveal.playerLives) + playingUICons.HEART_SIZE / 2f,
+                    heartCenterY, playingUICons.SHARD_COUNT);
         }
     }
 
@@ -155,65 +408,148 @@ public class PlayingUI
      * Draws the entire user interface on the screen.
      */
     public void draw(Graphics g, int width, int height)
+    {
+        screenWidth = width;
+        screenHeight = height;
+        if (!isPaused)
+        {
+            pausedFrame = null;
+            drawScene(g, width, height);
+            return;
+        }
+
+        // Nothing under the pause menu moves, so the scene is blurred and tinted once and then only blitted
+        if (pausedFrame == null || pausedFrame.getWidth() != width || pausedFrame.getHeight() != height)
+        {
+            if (width <= 0 || height <= 0) return;
+            pausedFrame = capturePausedFrame(width, height);
+        }
+        g.drawImage(pausedFrame, 0, 0, null);
+        drawPauseMenu(g, width, height);
+    }
+
+    /**
+     * Draws the scene once into an image, then blurs and tints it as the pause menu's backdrop.
+     * All of it is done at 1 / PAUSE_BLUR_SCALE of the size, which a blur hides, and scaled up at the end.
+     */
+    private BufferedImage capturePausedFrame(int width, int height)
+    {
+        int smallWidth = Math.max(1, width / playingUICons.PAUSE_BLUR_SCALE);
+        int smallHeight = Math.max(1, height / playingUICons.PAUSE_BLUR_SCALE);
+        BufferedImage frame = new BufferedImage(smallWidth, smallHeight, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = frame.createGraphics();
+        g.scale((double) smallWidth / width, (double) smallHeight / height);
+        drawScene(g, width, height);
+        g.dispose();
+
+        BufferedImage blurred = FrameBlur.blur(frame, playingUICons.PAUSE_BLUR_RADIUS, playingUICons.PAUSE_BLUR_PASSES);
+        g = blurred.createGraphics();
+        g.scale((double) smallWidth / width, (double) smallHeight / height);
+        drawPauseTint(g, width, height);
+        g.dispose();
+
+        return FrameBlur.scaleUp(blurred, width, height);
+    }
+
+    /**
+     * Draws the game itself: the bracket between series, the hands, buttons and lives otherwise.
+     */
+    private void drawScene(Graphics g, int width, int height)
     {
         drawBackground(g, width, height); // Draw the background
+        if (showingBracket && tournament != null)
+        {
+            bracketUI.draw(g, tournament, getBracketStatus(), width, height);
+            drawPauseButton(g);
+            return;
+        }
         drawHearts(g, width); // Draw the hearts representing lives
         drawHand(g); // Draw the player's hand
         drawComputerHand(g, width); // Draw the computer's hand
-        drawButtons(g, width, height); // Draw the buttons for Rock, Paper, Scissors
+        drawButtons(g, width, height); // Draw a button for every weapon
         drawResult(g, width); // Draw the result of the current round
         drawPauseButton(g); // Draw the pause button
+        particles.draw(g); // Draw the win/lose effects
 
-        // If the game is paused, display the pause overlay and menu buttons
-        if (isPaused)
-        {
-            drawPauseOverlay(g, width, height);
-        }
         // Draw Text
         g.setColor(Color.WHITE);  // Choose a color that stands out against the background
         g.setFont(new Font("Arial", Font.BOLD, 15));  // Set font, style, and size
         g.drawString("Controls:", 20, 380);
-        g.drawString("Q - Bato", 20, 400);
-        g.drawString("W - Papel", 20, 417);
-        g.drawString("E - Gunting", 20, 435);
+        int y = drawWeaponKeys(g, playingUICons.PLAYER_ONE_KEYS, "", 400);
+        if (mode == playingUICons.MODE_HOT_SEAT)
+        {
+            g.drawString("Player 2:", 20, y + 35);
+            drawWeaponKeys(g, playingUICons.PLAYER_TWO_KEYS, "Num ", y + 55);
+        }
+        if (mode == playingUICons.MODE_BRACKET && !seriesDecided)
+        {
+            g.setFont(new Font("Arial", Font.BOLD, playingUICons.CONTINUE_TEXT_SIZE));
+            String series = "vs " + opponentName + "  -  " + tournament.getFormat() + "  -  Games " +
+                    tournament.getPlayerWins() + "-" + tournament.getOpponentWins();
+            FontMetrics metrics = g.getFontMetrics();
+            g.drawString(series, (width - metrics.stringWidth(series)) / 2, playingUICons.HEART_Y_POSITION + playingUICons.HEART_SIZE);
+        }
     }
+    /**
+     * Lists the weapon keys of one player: the letters for the first weapons, then the number keys.
+     *
+     * @param letters The player's letter keys
+     * @param numberPrefix Shown before a number key, e.g. "Num " for the numpad
+     * @param y Baseline of the first line
+     * @return Baseline of the last line
+     */
+    private int drawWeaponKeys(Graphics g, String letters, String numberPrefix, int y)
+    {
+        int lines = Math.min(rules.getWeaponCount(), Math.max(letters.length(), playingUICons.MAX_NUMBER_KEYS));
+        int lineY = y;
+        for (int i = 0; i < lines; i++)
+        {
+            String key = i < letters.length() ? String.valueOf(letters.charAt(i)) : numberPrefix + (i + 1);
+            lineY = y + (int) (i * 17.5);
+            g.drawString(key + " - " + rules.getLabel(i), 20, lineY);
+        }
+        return lineY;
+    }
+
     //Playing
     /**
      * Draws the heart images that represent the player's and computer's lives.
      */
     private void drawHearts(Graphics g, int width) {
+        if (atlas == null) return;
         // Draw player hearts (left side) - moved right to accommodate pause button
-        for (int i = 0; i < playingUICons.TOTAL_HEARTS; i++)
+        for (int i = 0; i < match.getStartingLives(); i++)
         {
-            BufferedImage img = (i < playerLives) ? heartImage : emptyHeartImage;
-            if (img != null)
-            {
-                g.drawImage(img, playingUICons.PAUSE_BUTTON_SIZE + playingUICons.HEART_SPACING * 2 +
-                                (i * (playingUICons.HEART_SIZE + playingUICons.HEART_SPACING)),
-                                playingUICons.HEART_Y_POSITION,
-                                playingUICons.HEART_SIZE,
-                                playingUICons.HEART_SIZE,
-                        null);
-            }
+            int region = (i < match.getPlayerLives()) ? heartRegion : emptyHeartRegion;
+            atlas.draw(g, region, getPlayerHeartX(i), playingUICons.HEART_Y_POSITION);
         }
 
         // Draw hearts for the computer's lives (right side of the screen)
-        for (int i = 0; i < playingUICons.TOTAL_HEARTS; i++)
+        for (int i = 0; i < match.getStartingLives(); i++)
         {
-            BufferedImage img = (i < computerLives) ? heartImage : emptyHeartImage;
-            if (img != null)
-            {
-                g.drawImage(img,
-                        width - ((playingUICons.TOTAL_HEARTS - i) * (playingUICons.HEART_SIZE + playingUICons.HEART_SPACING)),
-                        playingUICons.HEART_Y_POSITION,
-                        playingUICons.HEART_SIZE,
-                        playingUICons.HEART_SIZE,
-                        null);
-            }
+            int region = (i < match.getComputerLives()) ? heartRegion : emptyHeartRegion;
+            atlas.draw(g, region, getComputerHeartX(i, width), playingUICons.HEART_Y_POSITION);
         }
     }
 
 
+    /**
+     * Retrieves the x-coordinate of one of the player's hearts (left side, right of the pause button).
+     */
+    private int getPlayerHeartX(int index)
+    {
+        return playingUICons.PAUSE_BUTTON_SIZE + playingUICons.HEART_SPACING * 2 +
+                (index * (playingUICons.HEART_SIZE + playingUICons.HEART_SPACING));
+    }
+
+    /**
+     * Retrieves the x-coordinate of one of the computer's hearts (right side of the screen).
+     */
+    private int getComputerHeartX(int index, int width)
+    {
+        return width - ((match.getStartingLives() - index) * (playingUICons.HEART_SIZE + playingUICons.HEART_SPACING));
+    }
+
     /**
      * Draws the Background for The Playing State.
      */
@@ -231,16 +567,15 @@ public class PlayingUI
      * Draws the player's hand on the screen.
      */
     private void drawHand(Graphics g) {
-        BufferedImage handImage = handImages[currentHand];
-        if (handImage != null)
+        if (handShake.isRunning())
         {
-
-            g.drawImage(handImage,
-                    playingUICons.HAND_X,
-                    playingUICons.HAND_Y,
-                    playingUICons.HAND_WIDTH,
-                    playingUICons.HAND_HEIGHT,
-                    null);
+            handShake.drawPlayer(g, playingUICons.HAND_X, playingUICons.HAND_Y);
+            return;
+        }
+        // A LAN server playing other rules can send weapons this client does not have
+        if (atlas != null && currentHand < handRegions.length)
+        {
+            atlas.draw(g, handRegions[currentHand], playingUICons.HAND_X, playingUICons.HAND_Y);
         }
     }
 
@@ -249,55 +584,67 @@ public class PlayingUI
      */
     private void drawComputerHand(Graphics g, int width)
     {
-        BufferedImage compHandImage = compHandImages[computerHand];
-        if (compHandImage != null)
+        if (handShake.isRunning())
+        {
+            handShake.drawComputer(g, width - playingUICons.HAND_WIDTH - playingUICons.HAND_X, playingUICons.HAND_Y);
+            return;
+        }
+        if (atlas != null && computerHand < compHandRegions.length)
         {
-            g.drawImage(compHandImage,
-                    width - playingUICons.HAND_WIDTH - playingUICons.HAND_X,
-                    playingUICons.HAND_Y,
-                    playingUICons.HAND_WIDTH,
-                    playingUICons.HAND_HEIGHT,
-                    null);
+            atlas.draw(g, compHandRegions[computerHand],
+                    width - playingUICons.HAND_WIDTH - playingUICons.HAND_X, playingUICons.HAND_Y);
         }
     }
 
     /**
-     * Draws the buttons for selecting Rock, Paper, or Scissors.
+     * Draws a button for every weapon of the rules, see getButtonX and getButtonY for the layout.
      */
     private void drawButtons(Graphics g, int width, int height)
     {
-        // Calculate the center position for the middle (paper) button
-        int centerX = width / 2 - playingUICons.BUTTON_WIDTH / 2;
-        int buttonY = height - playingUICons.BUTTON_Y_FROM_BOTTOM - playingUICons.BUTTON_HEIGHT;
+        for (int i = 0; i < buttonRegions.length; i++)
+        {
+            drawButton(g, i, getButtonX(i, width), getButtonY(i, width, height));
+        }
+    }
 
-        // Draw rock (left of paper)
-        drawButton(g, playingUICons.ROCK,
-                centerX - playingUICons.BUTTON_WIDTH - playingUICons.BUTTON_SPACING,
-                buttonY);
+    /**
+     * Retrieves how many buttons fit in a row. The rows are centered, and as many
+     * rows as needed are stacked up from the bottom, the first row on top.
+     */
+    private int getButtonsPerRow(int width)
+    {
+        int perRow = (width + playingUICons.BUTTON_SPACING) / (playingUICons.BUTTON_WIDTH + playingUICons.BUTTON_SPACING);
+        return Math.max(1, Math.min(buttonRegions.length, perRow));
+    }
 
-        // Draw paper (center)
-        drawButton(g, playingUICons.PAPER,
-                centerX,
-                buttonY);
+    private int getButtonX(int index, int width)
+    {
+        int perRow = getButtonsPerRow(width);
+        int row = index / perRow;
+        int inRow = Math.min(perRow, buttonRegions.length - row * perRow);
+        int rowWidth = inRow * playingUICons.BUTTON_WIDTH + (inRow - 1) * playingUICons.BUTTON_SPACING;
+        return (width - rowWidth) / 2 + (index % perRow) * (playingUICons.BUTTON_WIDTH + playingUICons.BUTTON_SPACING);
+    }
 
-        // Draw scissors (right of paper)
-        drawButton(g, playingUICons.SCISSORS,
-                centerX + playingUICons.BUTTON_WIDTH + playingUICons.BUTTON_SPACING,
-                buttonY);
+    private int getButtonY(int index, int width, int height)
+    {
+        int perRow = getButtonsPerRow(width);
+        int rows = (buttonRegions.length + perRow - 1) / perRow;
+        int bottom = height - playingUICons.BUTTON_Y_FROM_BOTTOM - playingUICons.BUTTON_HEIGHT;
+        return bottom - (rows - 1 - index / perRow) * (playingUICons.BUTTON_HEIGHT + playingUICons.BUTTON_SPACING);
     }
+
     /**
-     * Draws the Hovered buttons for selecting Rock, Paper, or Scissors.
+     * Draws the Hovered buttons for selecting a weapon.
      */
     private void drawButton(Graphics g, int buttonIndex, int x, int y)
     {
-        BufferedImage buttonImage = isButtonHovered[buttonIndex] ?
-                buttonClickedImages[buttonIndex] :
-                buttonImages[buttonIndex];
+        int buttonRegion = isButtonHovered[buttonIndex] ?
+                buttonClickedRegions[buttonIndex] :
+                buttonRegions[buttonIndex];
 
-        if (buttonImage != null) {
-            g.drawImage(buttonImage, x, y,
-                    playingUICons.BUTTON_WIDTH,
-                    playingUICons.BUTTON_HEIGHT, null);
+        if (atlas != null) {
+            atlas.draw(g, buttonRegion, x, y);
         }
     }
 
@@ -305,6 +652,24 @@ public class PlayingUI
      * Draws the result of the current round (Win, Lose, Tie).
      */
     private void drawResult(Graphics g, int width) {
+        // Call out the beats while the hands are shaking, the result comes after
+        if (handShake.isRunning())
+        {
+            String beatText = handShake.getBeatText();
+            g.setFont(new Font("Arial", Font.BOLD, playingUICons.SHAKE_TEXT_SIZE));
+            g.setColor(Color.WHITE);
+            FontMetrics metrics = g.getFontMetrics();
+            g.drawString(beatText, (width - metrics.stringWidth(beatText)) / 2, playingUICons.RESULT_TEXT_Y_POSITION);
+            return;
+        }
+        if (!hasPlayerMadeChoice && !statusText.isEmpty())
+        {
+            g.setFont(new Font("Arial", Font.PLAIN, playingUICons.CONTINUE_TEXT_SIZE));
+            g.setColor(Color.WHITE);
+            FontMetrics metrics = g.getFontMetrics();
+            g.drawString(statusText, (width - metrics.stringWidth(statusText)) / 2, playingUICons.CONTINUE_TEXT_Y_POSITION);
+            return;
+        }
         if (hasPlayerMadeChoice && !resultText.isEmpty())
         {
             // Draw the result text
@@ -319,7 +684,7 @@ public class PlayingUI
             if (currentTime - resultDisplayStartTime > playingUICons.RESULT_DISPLAY_DURATION)
             {
                 g.setFont(new Font("Arial", Font.PLAIN, playingUICons.CONTINUE_TEXT_SIZE));
-                String continueText = gameOver ? "Press ESC to return to pause or Press Enter / Click anywhere to continue" : "Press Enter / Click anywhere to continue";
+                String continueText = match.isGameOver() ? "Press ESC to return to pause or Press Enter / Click anywhere to continue" : "Press Enter / Click anywhere to continue";
                 metrics = g.getFontMetrics();
                 x = (width - metrics.stringWidth(continueText)) / 2;
                 g.drawString(continueText, x, playingUICons.CONTINUE_TEXT_Y_POSITION);
@@ -327,69 +692,63 @@ public class PlayingUI
         }
     }
     /**
-     * Determines the winner of the game based on the player's and computer's choices. Updates the result and lives.
+     * Sets the result text and the end of match sound for a resolved round.
+     * The sound is played when the hand shake reveals the hands.
+     * The round itself, including the lives, is resolved by the Match.
+     *
+     * @param outcome The outcome returned by the Match (TIE, PLAYER_WIN or COMPUTER_WIN).
      */
-    private void determineWinner()
+    private void determineWinner(int outcome)
     {
-        if (currentHand == computerHand)
+        boolean hotSeat = mode == playingUICons.MODE_HOT_SEAT;
+        String opponent = mode == playingUICons.MODE_COMPUTER ? "Computer" : hotSeat ? "Player 2" :
+                mode == playingUICons.MODE_BRACKET ? opponentName : mode == playingUICons.MODE_LEARNING ? "Learning AI" : "Opponent";
+        if (outcome == Match.TIE)
         {
             resultText = "It's a Tie!";
-        } else if ((currentHand == playingUICons.ROCK && computerHand == playingUICons.SCISSORS) ||
-                (currentHand == playingUICons.PAPER && computerHand == playingUICons.ROCK) ||
-                (currentHand == playingUICons.SCISSORS && computerHand == playingUICons.PAPER))
+        } else if (outcome == Match.PLAYER_WIN)
         {
-            resultText = "You Win This Round!";
-            computerLives--;
-            if (computerLives <= 0)
+            resultText = hotSeat ? "Player 1 Wins This Round!" : "You Win This Round!";
+            if (match.isGameOver())
             {
-                resultText = "Game Over - You Win!";
-                SoundManager.getWinSound().play();
-                gameOver = true;
+                resultText = hotSeat ? "Game Over - Player 1 Wins!" : "Game Over - You Win!";
+                pendingResultSound = SoundManager.getWinSound();
             }
         } else {
-            resultText = "Computer Wins This Round!";
-            playerLives--;
-            if (playerLives <= 0)
+            resultText = opponent + " Wins This Round!";
+            if (match.isGameOver())
             {
-                resultText = "Game Over - Computer Wins!";
-                SoundManager.getLoseSound().play();
-                gameOver = true;
+                resultText = "Game Over - " + opponent + " Wins!";
+                // Someone at this keyboard won in hot-seat
+                pendingResultSound = hotSeat ? SoundManager.getWinSound() : SoundManager.getLoseSound();
             }
         }
+        if (seriesDecided)
+        {
+            if (outcome != Match.PLAYER_WIN) resultText = "Knocked Out by " + opponent;
+            else if (tournament.isFinished()) resultText = "You Win the Tournament!";
+            else resultText = "You Win the Series!";
+        }
     }
 
     /**
-     * Determines which button (Rock, Paper, or Scissors) the user clicked based on mouse position.
+     * Determines which weapon's button the user clicked based on mouse position.
      *
      * @param mouseX The x-coordinate of the mouse click.
      * @param mouseY The y-coordinate of the mouse click.
      * @param width The width of the screen.
      * @param height The height of the screen.
-     * @return The index of the clicked button (Rock, Paper, Scissors).
+     * @return The index of the clicked weapon, or -1 if no button was clicked.
      */
     public int getButtonClicked(int mouseX, int mouseY, int width, int height)
+    {
+        for (int i = 0; i < buttonRegions.length; i++)
         {
-        int centerX = width / 2 - playingUICons.BUTTON_WIDTH / 2;
-        int buttonY = height - playingUICons.BUTTON_Y_FROM_BOTTOM - playingUICons.BUTTON_HEIGHT;
-
-        // Check rock button
-        if (isMouseOverButton(mouseX, mouseY, centerX - playingUICons.BUTTON_WIDTH - playingUICons.BUTTON_SPACING, buttonY))
-        {
-            return playingUICons.ROCK;
-        }
-
-        // Check paper button
-        if (isMouseOverButton(mouseX, mouseY, centerX, buttonY))
-        {
-            return playingUICons.PAPER;
-        }
-
-        // Check scissors button
-        if (isMouseOverButton(mouseX, mouseY, centerX + playingUICons.BUTTON_WIDTH + playingUICons.BUTTON_SPACING, buttonY))
-        {
-            return playingUICons.SCISSORS;
+            if (isMouseOverButton(mouseX, mouseY, getButtonX(i, width), getButtonY(i, width, height)))
+            {
+                return i;
+            }
         }
-
         return -1;
     }
 
@@ -410,13 +769,13 @@ public class PlayingUI
     }
 
     /**
-     * Updates the hover state for a specific button (Rock, Paper, or Scissors).
+     * Updates the hover state for a specific button, a weapon of the rules.
      *
-     * @param buttonIndex The index of the button (Rock, Paper, or Scissors).
+     * @param buttonIndex The index of the button, a weapon of the rules.
      * @param hovered A boolean indicating whether the button is hovered over (true) or not (false).
      */
     public void setButtonHovered(int buttonIndex, boolean hovered) {
-        if (buttonIndex >= 0 && buttonIndex < playingUICons.TOTAL_RPS_BUTTONS) {
+        if (buttonIndex >= 0 && buttonIndex < isButtonHovered.length) {
             isButtonHovered[buttonIndex] = hovered;
         }
 
@@ -430,33 +789,152 @@ public class PlayingUI
     public boolean canResetGame()
     {
         return !hasPlayerMadeChoice ||
-                System.currentTimeMillis() - resultDisplayStartTime > playingUICons.RESULT_DISPLAY_DURATION;
+                (!handShake.isRunning() &&
+                System.currentTimeMillis() - resultDisplayStartTime > playingUICons.RESULT_DISPLAY_DURATION);
     }
 
     /**
-     * Sets the player's current hand choice (Rock, Paper, or Scissors) if they haven't already made a choice.
+     * Sets the player's current hand choice if they haven't already made a choice.
      *
-     * @param handIndex The index of the selected hand (Rock, Paper, or Scissors).
+     * @param handIndex The index of the selected hand, a weapon of the rules.
      */
     public void setCurrentHand(int handIndex) {
-        if (!hasPlayerMadeChoice && handIndex >= 0 && handIndex < playingUICons.TOTAL_RPS_BUTTONS) {
+        if (hasPlayerMadeChoice || showingBracket || handIndex < 0 || handIndex >= rules.getWeaponCount()) return;
+
+        if (mode == playingUICons.MODE_HOT_SEAT)
+        {
+            if (playerOneChoice == -1)
+            {
+                playerOneChoice = handIndex;
+                revealWhenBothChosen();
+            }
+        } else if (mode == playingUICons.MODE_LAN)
+        {
+            // The hand is only sent as a commitment, the server asks for it once both sides committed
+            if (versusClient != null && opponentJoined && !waitingForOpponent)
+            {
+                currentHand = handIndex;
+                waitingForOpponent = true;
+                statusText = "Waiting for opponent...";
+                versusClient.commit(handIndex);
+            }
+        } else {
             currentHand = handIndex;
             makeChoice(handIndex);
         }
     }
 
+    /**
+     * Sets player two's hidden choice in hot-seat mode.
+     *
+     * @param handIndex The index of the selected hand, a weapon of the rules.
+     */
+    public void setPlayerTwoHand(int handIndex)
+    {
+        if (mode != playingUICons.MODE_HOT_SEAT || hasPlayerMadeChoice || playerTwoChoice != -1) return;
+        if (handIndex >= 0 && handIndex < rules.getWeaponCount())
+        {
+            playerTwoChoice = handIndex;
+            revealWhenBothChosen();
+        }
+    }
+
+    /**
+     * Resolves the hot-seat round once both players have chosen, otherwise shows who is ready.
+     */
+    private void revealWhenBothChosen()
+    {
+        if (playerOneChoice != -1 && playerTwoChoice != -1)
+        {
+            int outcome = match.resolveRound(playerOneChoice, playerTwoChoice);
+            playerOneChoice = playerTwoChoice = -1;
+            statusText = "";
+            revealRound(match.getPlayerHand(), match.getComputerHand(), outcome);
+        } else {
+            statusText = playerOneChoice != -1 ? "Player 1 is ready" : "Player 2 is ready";
+        }
+    }
+
     /**
      * Processes the player's choice and determines the computer's choice. Then, it triggers the result display.
      *
-     * @param playerChoice The index of the player's selected hand (Rock, Paper, or Scissors).
+     * @param playerChoice The index of the player's selected hand, a weapon of the rules.
      */
     private void makeChoice(int playerChoice)
     {
-        currentHand = playerChoice;
-        computerHand = random.nextInt(playingUICons.TOTAL_RPS_BUTTONS);
+        int outcome;
+        if (mode == playingUICons.MODE_BRACKET)
+        {
+            // Bracket opponents play their own style; only matches against the plain computer are recorded
+            int style = tournament.getStyle(tournament.getPlayerOpponent());
+            int opponentHand = AIOpponent.chooseHand(style, opponentRandom, lastOpponentHand, lastPlayerHand);
+            lastPlayerHand = playerChoice;
+            lastOpponentHand = opponentHand;
+            outcome = match.resolveRound(playerChoice, opponentHand);
+        } else if (mode == playingUICons.MODE_LEARNING)
+        {
+            // Prepared by the learner's thread before the click; not recorded, a replay could not reproduce it
+            int opponentHand = learner.nextHand();
+            outcome = match.resolveRound(playerChoice, opponentHand);
+            learner.observe(playerChoice, opponentHand);
+            statusText = getLearningStatus(); // Shown again before the next round, with the new estimate
+        } else {
+            // Recording starts with the first round, while the match RNG is still at its seed
+            if (recorder.getFile() == null)
+            {
+                recorder.begin(match.getSeed(), match.getRules().getId(), GameState.getTick());
+            }
+            recorder.record(GameState.getTick(), playerChoice);
+            outcome = match.playRound(playerChoice);
+        }
+        StatsStore.recordRound(match.getRules().getId(), playerChoice, match.getComputerHand(), outcome, match.isGameOver());
+        MoveHistory.recordPlayerMove(playerChoice);
+        revealRound(playerChoice, match.getComputerHand(), outcome);
+    }
+
+    /**
+     * Shows a resolved round: starts the countdown, after which the hands and result are revealed.
+     *
+     * @param playerHand The hand on the left (the player, or player 1).
+     * @param opponentHand The hand on the right (the computer, player 2 or the LAN opponent).
+     * @param outcome The outcome from the left side's point of view.
+     */
+    private void revealRound(int playerHand, int opponentHand, int outcome)
+    {
+        currentHand = playerHand;
+        computerHand = opponentHand;
         hasPlayerMadeChoice = true;
-        resultDisplayStartTime = System.currentTimeMillis();
-        determineWinner();
+        if (match.isGameOver())
+        {
+            recordMatchResult(outcome == Match.PLAYER_WIN);
+            if (mode == playingUICons.MODE_BRACKET)
+            {
+                seriesDecided = tournament.recordPlayerGame(outcome == Match.PLAYER_WIN);
+            }
+        }
+        resultDisplayStartTime = System.currentTimeMillis() + handShake.getDuration();
+        determineWinner(outcome);
+        pendingReveal = new Reveal(outcome, match.getPlayerLives(), match.getComputerLives(), match.isGameOver());
+
+        // The round is decided now; the hands and result are revealed after the countdown
+        handShake.start();
+    }
+
+    /**
+     * Adds a finished match to the leaderboard. Both players are ranked in hot-seat mode;
+     * against the computer or a LAN opponent only the local player is.
+     *
+     * @param playerOneWon Whether the left side won the match.
+     */
+    private void recordMatchResult(boolean playerOneWon)
+    {
+        if (mode == playingUICons.MODE_HOT_SEAT)
+        {
+            LeaderboardStore.recordMatch("Player 1", playerOneWon);
+            LeaderboardStore.recordMatch("Player 2", !playerOneWon);
+        } else {
+            LeaderboardStore.recordMatch(LeaderboardStore.getLocalPlayerName(), playerOneWon);
+        }
     }
 
     //Paused
@@ -465,21 +943,15 @@ public class PlayingUI
      */
     private void drawPauseButton(Graphics g)
     {
-        BufferedImage buttonImg = isPauseButtonHovered ? pauseButtonHovered : pauseButton;
-        if (buttonImg != null) {
-            g.drawImage(buttonImg,
-                    playingUICons.PAUSE_BUTTON_X,
-                    playingUICons.PAUSE_BUTTON_Y,
-                    playingUICons.PAUSE_BUTTON_SIZE,
-                    playingUICons.PAUSE_BUTTON_SIZE,
-                    null);
+        int buttonRegion = isPauseButtonHovered ? pauseButtonHovered : pauseButton;
+        if (atlas != null) {
+            atlas.draw(g, buttonRegion, playingUICons.PAUSE_BUTTON_X, playingUICons.PAUSE_BUTTON_Y);
         }
     }
     /**
-     * Draws the pause overlay and menu buttons (Resume, Retry, Menu).
+     * Draws the semi-transparent pause overlay. Only drawn into the captured paused frame.
      */
-    private void drawPauseOverlay(Graphics g, int width, int height) {
-        // Draw semi-transparent overlay
+    private void drawPauseTint(Graphics g, int width, int height) {
         if (pauseOverlay != null) {
             Graphics2D g2d = (Graphics2D) g;
             Composite originalComposite = g2d.getComposite();
@@ -490,45 +962,35 @@ public class PlayingUI
             g.setColor(new Color(0, 0, 0, 180)); // More transparent fallback color
             g.fillRect(0, 0, width, height);
         }
+    }
 
+    /**
+     * Draws the pause menu buttons (Resume, Retry, Menu).
+     */
+    private void drawPauseMenu(Graphics g, int width, int height) {
         // Calculate center positions for buttons (similar to RPS buttons)
         int centerX = width / 2 - playingUICons.PAUSE_MENU_BUTTON_WIDTH / 2;
         int buttonY = height / 2 - playingUICons.PAUSE_MENU_BUTTON_HEIGHT / 2;
 
         // Draw retry button (left)
-        BufferedImage retryImg = isRetryButtonHovered ? retryButtonHovered : retryButton;
-        if (retryImg != null)
+        int retryRegion = isRetryButtonHovered ? retryButtonHovered : retryButton;
+        if (atlas != null)
         {
-            g.drawImage(retryImg,
-                    centerX - playingUICons.PAUSE_MENU_BUTTON_WIDTH - playingUICons.PAUSE_MENU_SPACING,
-                    buttonY,
-                    playingUICons.PAUSE_MENU_BUTTON_WIDTH,
-                    playingUICons.PAUSE_MENU_BUTTON_HEIGHT,
-                    null);
+            atlas.draw(g, retryRegion, centerX - playingUICons.PAUSE_MENU_BUTTON_WIDTH - playingUICons.PAUSE_MENU_SPACING, buttonY);
         }
 
         // Draw menu button (center)
-        BufferedImage menuImg = isMenuButtonHovered ? menuButtonHovered : menuButton;
-        if (menuImg != null)
+        int menuRegion = isMenuButtonHovered ? menuButtonHovered : menuButton;
+        if (atlas != null)
         {
-            g.drawImage(menuImg,
-                    centerX,
-                    buttonY,
-                    playingUICons.PAUSE_MENU_BUTTON_WIDTH,
-                    playingUICons.PAUSE_MENU_BUTTON_HEIGHT,
-                    null);
+            atlas.draw(g, menuRegion, centerX, buttonY);
         }
 
         // Draw resume button (right)
-        BufferedImage resumeImg = isResumeButtonHovered ? resumeButtonHovered : resumeButton;
-        if (resumeImg != null)
+        int resumeRegion = isResumeButtonHovered ? resumeButtonHovered : resumeButton;
+        if (atlas != null)
         {
-            g.drawImage(resumeImg,
-                    centerX + playingUICons.PAUSE_MENU_BUTTON_WIDTH + playingUICons.PAUSE_MENU_SPACING,
-                    buttonY,
-                    playingUICons.PAUSE_MENU_BUTTON_WIDTH,
-                    playingUICons.PAUSE_MENU_BUTTON_HEIGHT,
-                    null);
+            atlas.draw(g, resumeRegion, centerX + playingUICons.PAUSE_MENU_BUTTON_WIDTH + playingUICons.PAUSE_MENU_SPACING, buttonY);
         }
     }
 
@@ -648,6 +1110,16 @@ public class PlayingUI
     public void togglePause()
     {
         isPaused = !isPaused;
+        pausedFrame = null; // Captured again by the next draw
+        if (versusClient != null)
+        {
+            versusClient.sendPause(isPaused);
+        }
+    }
+
+    public int getWeaponCount()
+    {
+        return rules.getWeaponCount();
     }
 
     /**
@@ -666,11 +1138,15 @@ public class PlayingUI
      */
     public void resetGame()
     {
-        if (gameOver)
+        if (mode == playingUICons.MODE_COMPUTER)
         {
-            playerLives = playingUICons.TOTAL_HEARTS;
-            computerLives = playingUICons.TOTAL_HEARTS;
-            gameOver = false;
+            recorder.record(GameState.getTick(), ReplayCons.EVENT_NEXT_ROUND);
+        }
+        match.nextRound(); // In LAN mode the server refills the lives the same way
+        if (seriesDecided)
+        {
+            seriesDecided = false;
+            showingBracket = true;
         }
         hasPlayerMadeChoice = false;
         resultText = "";
@@ -684,13 +1160,35 @@ public class PlayingUI
     public void playAgain()
     {
         // Reset all game state variables
-        playerLives = playingUICons.TOTAL_HEARTS;
-        computerLives = playingUICons.TOTAL_HEARTS;
-        gameOver = false;
+        handShake.stop();
+        pendingResultSound = null;
+        pendingReveal = null;
+        particles.clear();
+        if (mode == playingUICons.MODE_COMPUTER)
+        {
+            recorder.record(GameState.getTick(), ReplayCons.EVENT_RESTART);
+        }
+        match.restart();
         hasPlayerMadeChoice = false;
         resultText = "";
         currentHand = playingUICons.ROCK;
         computerHand = playingUICons.ROCK;
+        playerOneChoice = playerTwoChoice = -1;
+        waitingForOpponent = false;
+        if (seriesDecided)
+        {
+            seriesDecided = false;
+            showingBracket = true;
+        }
+        if (versusClient != null)
+        {
+            statusText = "";
+            if (isPaused) versusClient.sendPause(false);
+            versusClient.sendRetry();
+        } else if (mode == playingUICons.MODE_HOT_SEAT)
+        {
+            statusText = "";
+        }
         isPaused = false;  // Make sure to unpause when retrying
     }
 
@@ -701,10 +1199,320 @@ public class PlayingUI
     {
         playAgain();  // Reset all game state
         isPaused = false;  // Ensure game is unpaused
+
+        // Close the replay and start the next visit with a fresh match
+        recorder.finish();
+        match = new Match(seedSource.nextLong());
+        setMode(playingUICons.MODE_COMPUTER, null);
+    }
+
+    /**
+     * Chooses who the player plays against. Called from the menu before the playing state is entered.
+     *
+     * @param newMode MODE_COMPUTER, MODE_HOT_SEAT, MODE_LAN, MODE_BRACKET or MODE_LEARNING.
+     * @param server Server to connect to as "host:port", only used in LAN mode.
+     */
+    public void setMode(int newMode, String server)
+    {
+        disconnect();
+        if (learner != null)
+        {
+            learnerMetrics = learner.close(); // Never waits, the worker finishes on its own
+            learner = null;
+        }
+        mode = newMode;
+        playerOneChoice = playerTwoChoice = -1;
+        opponentJoined = false;
+        waitingForOpponent = false;
+        statusText = "";
+        tournament = null;
+        showingBracket = false;
+        seriesDecided = false;
+        if (mode == playingUICons.MODE_LAN)
+        {
+            connect(server == null ? VersusCons.DEFAULT_SERVER : server);
+        } else if (mode == playingUICons.MODE_BRACKET)
+        {
+            startTournament();
+        } else if (mode == playingUICons.MODE_LEARNING)
+        {
+            learner = new LearningOpponent(rules, LearningOpponent.difficultyFromProperties(), seedSource.nextLong());
+            statusText = getLearningStatus();
+        }
+    }
+
+    /**
+     * Moves the learning opponent to the next difficulty. Takes effect from the next round.
+     */
+    public void cycleDifficulty()
+    {
+        if (learner == null || isPaused) return;
+        learner.setDifficulty((learner.getDifficulty() + 1) % LearningCons.DIFFICULTY_NAMES.length);
+        statusText = getLearningStatus();
+    }
+
+    /**
+     * Retrieves the update time metrics of the last learning opponent.
+     *
+     * @return The metrics, or null if no learning match was left yet or its worker is still finishing
+     */
+    public String getLearningMetrics()
+    {
+        Future<String> metrics = learnerMetrics;
+        if (metrics == null || !metrics.isDone()) return null;
+        try {
+            return metrics.get();
+        } catch (InterruptedException | ExecutionException e) {
+            return null;
+        }
+    }
+
+    private String getLearningStatus()
+    {
+        String status = "Learning AI - " + LearningCons.DIFFICULTY_NAMES[learner.getDifficulty()];
+        if (learner.getDifficulty() == LearningCons.ADAPTIVE)
+        {
+            DifficultyController controller = learner.getController();
+            status += String.format(" (you win %.0f%% of rounds, aiming for %.0f%%)",
+                    100 * controller.getEstimate(), 100 * controller.getTarget());
+        }
+        return status + "    D - Difficulty";
+    }
+
+    /**
+     * Draws a new bracket in the current format and shows it. The player's
+     * first series starts once the bracket is closed.
+     */
+    private void startTournament()
+    {
+        tournament = new Tournament(entrants, format, seedSource.nextLong(), LeaderboardStore.getLocalPlayerName());
+        match = new Match(seedSource.nextLong(), format.getLives());
+        opponentRandom = new SplittableRandom(seedSource.nextLong());
+        tournamentStarted = false;
+        seriesDecided = false;
+        showingBracket = true;
+        hasPlayerMadeChoice = false;
+        resultText = "";
+        currentHand = playingUICons.ROCK;
+        computerHand = playingUICons.ROCK;
+    }
+
+    public boolean isShowingBracket()
+    {
+        return showingBracket;
+    }
+
+    /**
+     * Leaves the bracket view for the player's next series, or draws a new
+     * bracket once the player is out or the tournament is over.
+     */
+    public void closeBracket()
+    {
+        if (!showingBracket) return;
+        if (!tournament.isPlayerPlaying())
+        {
+            startTournament();
+            return;
+        }
+        tournamentStarted = true;
+        showingBracket = false;
+        opponentName = tournament.getName(tournament.getPlayerOpponent());
+        lastPlayerHand = lastOpponentHand = -1;
+        match.restart();
+    }
+
+    /**
+     * Changes the series length before the first series, redrawing the bracket.
+     */
+    public void cycleBestOf()
+    {
+        if (!canChangeFormat()) return;
+        format = format.withNextBestOf();
+        startTournament();
+    }
+
+    /**
+     * Changes the lives per game before the first series, redrawing the bracket.
+     */
+    public void cycleLives()
+    {
+        if (!canChangeFormat()) return;
+        format = format.withNextLives();
+        startTournament();
+    }
+
+    /**
+     * Doubles the field before the first series, wrapping back to 4 after MAX_ENTRANTS.
+     */
+    public void cycleEntrants()
+    {
+        if (!canChangeFormat()) return;
+        int next = Integer.highestOneBit(entrants) << 1;
+        entrants = next > TournamentCons.MAX_ENTRANTS ? 4 : next;
+        startTournament();
+    }
+
+    private boolean canChangeFormat()
+    {
+        return showingBracket && !tournamentStarted && !isPaused;
+    }
+
+    /**
+     * Retrieves the line under the bracket: the format keys before the first
+     * series, then who the player faces next or how the tournament ended.
+     */
+    private String getBracketStatus()
+    {
+        if (!tournamentStarted)
+        {
+            return "B - Best of " + format.getBestOf() + "    L - Lives " + format.getLives() +
+                    "    N - Entrants " + entrants + "    Enter - Start";
+        }
+        if (tournament.isPlayerPlaying())
+        {
+            return "Next: " + tournament.getName(tournament.getPlayerOpponent()) + "  -  Press Enter to play";
+        }
+        String champion = tournament.getName(tournament.getChampion());
+        return (tournament.getChampion() == Tournament.PLAYER ? "You are the champion!" : "Champion: " + champion) +
+                "  -  Press Enter for a new tournament";
+    }
+
+    public int getMode()
+    {
+        return mode;
+    }
+
+    /**
+     * Connects to a versus server on a background thread, so the EDT never waits on the network.
+     * Every event is handed back to the EDT, where all other game input is handled.
+     */
+    private void connect(String server)
+    {
+        int id = ++connectionId;
+        statusText = "Connecting to " + server + "...";
+        VersusClient.Listener listener = new VersusClient.Listener()
+        {
+            @Override
+            public void onWaiting()
+            {
+                onEdt(id, () -> statusText = "Waiting for an opponent to join...");
+            }
+
+            @Override
+            public void onMatched(int side, int lives, int myRating, int opponentRating)
+            {
+                onEdt(id, () -> {
+                    match.setLives(lives, lives);
+                    opponentJoined = true;
+                    statusText = myRating < 0 ? "" : "Your rating " + myRating + "  -  Opponent's rating " + opponentRating;
+                });
+            }
+
+            @Override
+            public void onOpponentCommitted()
+            {
+                onEdt(id, () -> {
+                    if (!waitingForOpponent && statusText.isEmpty()) statusText = "Opponent is ready";
+                });
+            }
+
+            @Override
+            public void onResult(int myHand, int opponentHand, int outcome, int myLives, int opponentLives, boolean matchOver)
+            {
+                onEdt(id, () -> {
+                    waitingForOpponent = false;
+                    statusText = "";
+                    match.setLives(myLives, opponentLives);
+                    revealRound(myHand, opponentHand, outcome);
+                });
+            }
+
+            @Override
+            public void onOpponentPaused(boolean paused)
+            {
+                onEdt(id, () -> {
+                    if (!waitingForOpponent && !hasPlayerMadeChoice) statusText = paused ? "Opponent paused" : "";
+                });
+            }
+
+            @Override
+            public void onRestart(int lives)
+            {
+                onEdt(id, () -> {
+                    handShake.stop();
+                    pendingResultSound = null;
+                    pendingReveal = null;
+                    match.restart();
+                    match.setLives(lives, lives);
+                    hasPlayerMadeChoice = false;
+                    resultText = "";
+                    currentHand = playingUICons.ROCK;
+                    computerHand = playingUICons.ROCK;
+                    waitingForOpponent = false;
+                    statusText = "";
+                });
+            }
+
+            @Override
+            public void onOpponentLeft()
+            {
+                onEdt(id, () -> {
+                    versusClient = null;
+                    opponentJoined = false;
+                    waitingForOpponent = false;
+                    statusText = "Opponent left the match";
+                });
+            }
+
+            @Override
+            public void onError(String message)
+            {
+                onEdt(id, () -> statusText = message);
+            }
+        };
+
+        Thread connector = new Thread(() -> {
+            try {
+                VersusClient client = new VersusClient(server, LeaderboardStore.getLocalPlayerName(), listener);
+                SwingUtilities.invokeLater(() -> {
+                    if (id == connectionId) versusClient = client;
+                    else client.close(); // Left the game while connecting
+                });
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Could not connect to versus server " + server + ": " + e.getMessage());
+                onEdt(id, () -> statusText = "Could not connect to " + server);
+            }
+        }, "versus-connect");
+        connector.setDaemon(true);
+        connector.start();
+    }
+
+    /**
+     * Runs a connection event on the EDT, unless that connection has been replaced in the meantime.
+     */
+    private void onEdt(int id, Runnable action)
+    {
+        SwingUtilities.invokeLater(() -> {
+            if (id == connectionId)
+            {
+                action.run();
+                pausedFrame = null; // The event may have changed the scene under the pause menu
+            }
+        });
+    }
+
+    private void disconnect()
+    {
+        connectionId++;
+        if (versusClient != null)
+        {
+            versusClient.close();
+            versusClient = null;
+        }
     }
     public boolean isGameOver()
     {
-        return gameOver;
+        return match.isGameOver();
     }
 
 
@@ -0,0 +1,327 @@
+package UI;
+
+import logic.Match;
+import logic.ReplayArchive;
+import logic.ReplayPlayer;
+import logic.RuleSet;
+import utils.AssetGroup;
+import utils.Constants.ArchiveCons;
+import utils.Constants.ImagePaths;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Draws the replay archive: one page of recorded matches, newest first, and the
+ * rounds of the selected one. Finished replay files are folded into the archive on
+ * its own thread each time the screen opens. Matches are streamed out of the archive
+ * and replayed on the game thread only when the page or selection changes, and the
+ * EDT only draws the copied out rows.
+ */
+public class ReplaysUI
+{
+    private static final int DETAIL_COLUMNS = 5;
+
+    /**
+     * One match of the visible page, already formatted.
+     */
+    private static final class Row
+    {
+        final long id;
+        final String date, player, rules, rounds, matches;
+
+        Row(long id, String date, String player, String rules, String rounds, String matches)
+        {
+            this.id = id;
+            this.date = date;
+            this.player = player;
+            this.rules = rules;
+            this.rounds = rounds;
+            this.matches = matches;
+        }
+    }
+
+    /**
+     * One round of the selected match.
+     */
+    private static final class Round
+    {
+        final String hands;
+        final int outcome;
+
+        Round(String hands, int outcome)
+        {
+            this.hands = hands;
+            this.outcome = outcome;
+        }
+    }
+
+    private BufferedImage backgroundImage;
+    private final AssetGroup assets = new AssetGroup(); // Images held while the replays are visible
+
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+    private final ReplayPlayer player = new ReplayPlayer();
+    private final int[] detailHands = new int[ArchiveCons.DETAIL_ROUNDS * 2]; // Player and computer hand of each round
+    private final int[] detailOutcomes = new int[ArchiveCons.DETAIL_ROUNDS];
+    private int detailCount;
+
+    private volatile Future<ReplayArchive> opening; // Compaction started when the screen opened
+    private ReplayArchive archive;                  // Game thread only
+    private volatile int firstRow;                  // Newest-first position of the top row
+    private volatile int selected;                  // Newest-first position of the selected match
+    private volatile boolean dirty;
+
+    // Snapshot drawn by the EDT
+    private volatile Row[] rows = new Row[0];
+    private volatile Round[] detail = new Round[0];
+    private volatile int detailRounds;
+    private volatile long matchCount = -1; // -1 until the archive is open
+    private volatile String error;
+
+    public ReplaysUI()
+    {
+        player.setRoundListener((tick, playerHand, computerHand, outcome) -> {
+            if (detailCount < ArchiveCons.DETAIL_ROUNDS)
+            {
+                detailHands[detailCount * 2] = playerHand;
+                detailHands[detailCount * 2 + 1] = computerHand;
+                detailOutcomes[detailCount++] = outcome;
+            }
+        });
+    }
+
+    /**
+     * Acquires the background and starts folding new replays into the archive. Called when the state is entered.
+     */
+    public void loadAssets()
+    {
+        if (!assets.isLoaded())
+        {
+            try {
+                backgroundImage = assets.acquire(ImagePaths.MENU_BACKGROUND);
+            } catch (IOException e) {
+                System.out.println("Error loading replays UI images: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+        opening = ReplayArchive.compactLocal();
+        showNewest();
+    }
+
+    /**
+     * Releases the background while the replays are not visible.
+     */
+    public void releaseAssets()
+    {
+        assets.releaseAll();
+        backgroundImage = null;
+    }
+
+    /**
+     * Picks up the archive once compaction is done and copies out the visible page when it changed.
+     */
+    public void update()
+    {
+        Future<ReplayArchive> pending = opening;
+        if (pending != null && pending.isDone())
+        {
+            opening = null;
+            try {
+                archive = pending.get();
+                error = null;
+            } catch (InterruptedException | ExecutionException e) {
+                System.err.println("Error opening the replay archive: " + e.getMessage());
+                e.printStackTrace();
+                error = "The replay archive cannot be opened";
+            }
+            dirty = true;
+        }
+        if (archive == null || !dirty) return;
+
+        dirty = false;
+        long size = archive.size();
+        matchCount = size;
+        int top = firstRow;
+        long lowest = Math.max(0, size - top - ArchiveCons.PAGE_SIZE);
+        Row[] page = new Row[(int) Math.max(0, size - top - lowest)];
+        Iterator<ReplayArchive.Record> matches = archive.fromId(lowest);
+        for (int i = page.length - 1; i >= 0 && matches.hasNext(); i--)
+        {
+            ReplayArchive.Record record = matches.next();
+            boolean isSelected = size - 1 - record.getId() == selected;
+            page[i] = describe(record, isSelected);
+        }
+        rows = page;
+    }
+
+    /**
+     * Replays a match for its row, and for the detail line if it is the selected one.
+     */
+    private Row describe(ReplayArchive.Record record, boolean isSelected)
+    {
+        String rounds, matches;
+        detailCount = 0;
+        try {
+            Match match = player.replay(record);
+            rounds = player.getPlayerWins() + " - " + player.getComputerWins() + " - " + player.getTies();
+            matches = player.getMatchesWon() + " - " + player.getMatchesLost();
+            if (isSelected)
+            {
+                setDetail(match.getRules(), player.getRounds());
+            }
+        } catch (IOException e) {
+            rounds = "cannot be replayed";
+            matches = "";
+            if (isSelected)
+            {
+                setDetail(null, 0);
+            }
+        }
+        return new Row(record.getId(), dateFormat.format(new Date(record.getStartTime())), record.getPlayer(),
+                record.getRules(), rounds, matches);
+    }
+
+    private void setDetail(RuleSet rules, int rounds)
+    {
+        Round[] selectedRounds = new Round[rules == null ? 0 : detailCount];
+        for (int i = 0; i < selectedRounds.length; i++)
+        {
+            selectedRounds[i] = new Round(rules.getLabel(detailHands[i * 2]) + " / " + rules.getLabel(detailHands[i * 2 + 1]),
+                    detailOutcomes[i]);
+        }
+        detail = selectedRounds;
+        detailRounds = rounds;
+    }
+
+    public void draw(Graphics g, int width, int height)
+    {
+        if (backgroundImage != null)
+        {
+            g.drawImage(backgroundImage, 0, 0, width, height, null);
+        } else {
+            g.setColor(Color.DARK_GRAY);
+            g.fillRect(0, 0, width, height);
+        }
+        g.setColor(new Color(0, 0, 0, 150));
+        g.fillRect(0, 0, width, height);
+
+        g.setColor(Color.WHITE);
+        g.setFont(new Font("Arial", Font.BOLD, ArchiveCons.TITLE_SIZE));
+        drawCentered(g, "Replays", width, ArchiveCons.TITLE_Y);
+
+        g.setFont(new Font("Arial", Font.PLAIN, ArchiveCons.TEXT_SIZE));
+        long count = matchCount;
+        if (error != null)
+        {
+            drawCentered(g, error, width, ArchiveCons.TABLE_Y + ArchiveCons.ROW_HEIGHT);
+        } else if (count < 0) {
+            drawCentered(g, "Loading...", width, ArchiveCons.TABLE_Y + ArchiveCons.ROW_HEIGHT);
+            return;
+        } else if (count == 0) {
+            drawCentered(g, "Finish a match against the computer to record a replay", width,
+                    ArchiveCons.TABLE_Y + ArchiveCons.ROW_HEIGHT);
+        } else {
+            drawTable(g, width);
+            drawDetail(g, width);
+        }
+
+        g.setColor(Color.WHITE);
+        g.setFont(new Font("Arial", Font.PLAIN, ArchiveCons.TEXT_SIZE));
+        String footer = count + " matches" + (opening != null ? " (adding new replays...)" : "") +
+                "    Up/Down - Select    Home - Newest    ESC - Back";
+        drawCentered(g, footer, width, height - 40);
+    }
+
+    private void drawTable(Graphics g, int width)
+    {
+        int left = (width - ArchiveCons.TABLE_WIDTH) / 2;
+        int[] columns = {left, left + 110, left + 300, left + 500, left + 640, left + 860};
+        int y = ArchiveCons.TABLE_Y;
+
+        g.setColor(Color.LIGHT_GRAY);
+        String[] headers = {"Match", "Date", "Player", "Rules", "Rounds W - L - T", "Games"};
+        for (int c = 0; c < headers.length; c++)
+        {
+            g.drawString(headers[c], columns[c], y);
+        }
+
+        int top = firstRow;
+        int current = selected;
+        Row[] page = rows;
+        for (int i = 0; i < page.length; i++)
+        {
+            Row row = page[i];
+            y += ArchiveCons.ROW_HEIGHT;
+            g.setColor(top + i == current ? Color.YELLOW : Color.WHITE);
+            g.drawString("#" + row.id, columns[0], y);
+            g.drawString(row.date, columns[1], y);
+            g.drawString(row.player, columns[2], y);
+            g.drawString(row.rules, columns[3], y);
+            g.drawString(row.rounds, columns[4], y);
+            g.drawString(row.matches, columns[5], y);
+        }
+    }
+
+    /**
+     * Spells out the first rounds of the selected match under the table, coloured by who won them.
+     */
+    private void drawDetail(Graphics g, int width)
+    {
+        Round[] rounds = detail;
+        if (rounds.length == 0) return;
+        int left = (width - ArchiveCons.TABLE_WIDTH) / 2;
+        int cellWidth = ArchiveCons.TABLE_WIDTH / DETAIL_COLUMNS;
+        int y = ArchiveCons.TABLE_Y + (ArchiveCons.PAGE_SIZE + 1) * ArchiveCons.ROW_HEIGHT;
+
+        g.setFont(new Font("Arial", Font.PLAIN, ArchiveCons.TEXT_SIZE - 6));
+        g.setColor(Color.LIGHT_GRAY);
+        int total = detailRounds;
+        g.drawString("You / Computer" + (total > rounds.length ? ", first " + rounds.length + " of " + total + " rounds" : ""), left, y);
+        for (int i = 0; i < rounds.length; i++)
+        {
+            Round round = rounds[i];
+            g.setColor(round.outcome == Match.PLAYER_WIN ? Color.GREEN : round.outcome == Match.COMPUTER_WIN ? Color.RED : Color.LIGHT_GRAY);
+            g.drawString(round.hands, left + (i % DETAIL_COLUMNS) * cellWidth, y + (i / DETAIL_COLUMNS + 1) * 20);
+        }
+    }
+
+    private static void drawCentered(Graphics g, String text, int width, int y)
+    {
+        FontMetrics metrics = g.getFontMetrics();
+        g.drawString(text, (width - metrics.stringWidth(text)) / 2, y);
+    }
+
+    /**
+     * Moves the selection by a number of matches, clamped to the archive, and scrolls the page to keep it visible.
+     */
+    public void select(int delta)
+    {
+        long count = matchCount;
+        if (count <= 0) return;
+        int target = (int) Math.max(0, Math.min(count - 1, (long) selected + delta));
+        selected = target;
+        if (target < firstRow)
+        {
+            firstRow = target;
+        } else if (target >= firstRow + ArchiveCons.PAGE_SIZE) {
+            firstRow = target - ArchiveCons.PAGE_SIZE + 1;
+        }
+        dirty = true;
+    }
+
+    /**
+     * Selects the newest match.
+     */
+    public void showNewest()
+    {
+        selected = 0;
+        firstRow = 0;
+        dirty = true;
+    }
+}
@@ -1,14 +1,19 @@
 package UI;
 
 import Sound.SoundManager;
+import logic.AIOpponent;
+import logic.MatchCalculator;
+import logic.RuleSet;
+import logic.Strategy;
+import utils.Constants.CalculatorCons;
 import utils.Constants.SettingsUICons;
 import utils.Constants.SettingsImagePaths;
+import utils.AssetGroup;
+import utils.Constants.playingUICons;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
-import java.io.InputStream;
 
 /**
  * SettingsUI manages the audio settings interface for the application.
@@ -18,10 +23,11 @@ import java.io.InputStream;
 public class SettingsUI {
     // Image resources for buttons and background
     private BufferedImage backgroundImage;
-    private BufferedImage[] sfxButtons;          // SFX button images
-    private BufferedImage[] sfxButtonsHovered;   // SFX button hover state images
-    private BufferedImage[] musicButtons;        // Music button images
-    private BufferedImage[] musicButtonsHovered; // Music button hover state images
+    private TextureAtlas atlas;                  // Every button at its drawn size
+    private int[] sfxButtons;                    // Atlas regions of the SFX buttons
+    private int[] sfxButtonsHovered;             // SFX button hover state regions
+    private int[] musicButtons;                  // Music button regions
+    private int[] musicButtonsHovered;           // Music button hover state regions
 
     // Tracking button states and interactions
     private boolean[] isSfxButtonHovered;      // Tracks which SFX buttons are being hovered
@@ -29,24 +35,57 @@ public class SettingsUI {
     private boolean[] isSfxButtonPressed;      // Tracks which SFX buttons are pressed
     private boolean[] isMusicButtonPressed;    // Tracks which music buttons are pressed
 
-    // Current volume states for SFX and music
-    private int currentSfxState = SettingsUICons.UNMUTE_STATE;     // Default to unmuted SFX
-    private int currentMusicState = SettingsUICons.FULL_VOLUME_STATE; // Default to full music volume
+    // Current volume states for SFX and music, picked from the saved volumes
+    private int currentSfxState;
+    private int currentMusicState;
+
+    // Continuous volume sliders below the buttons
+    private VolumeSlider sfxSlider;
+    private VolumeSlider musicSlider;
 
     // Flag to track if settings have been modified
     private boolean settingsChanged = false;
 
+    private final AssetGroup assets = new AssetGroup(); // Images held while the settings are visible
+
+    // Debug panel with the exact odds of the player's habits, toggled with F3
+    private boolean debugPanelVisible;
+    private volatile MatchCalculator[] debugOdds; // Set by the calculation thread, null while calculating
+    private double[] debugRounds;                 // Round distribution against the computer, set before debugOdds
+    private volatile String debugError;
+
     /**
      * Constructor initializes the settings UI:
      * - Sets up image and button arrays
-     * - Loads button images
      * - Initializes sound system
+     * Images are loaded by loadAssets when the settings are shown.
      */
     public SettingsUI()
     {
         initializeArrays();      // Allocate memory for button arrays
-        loadImages();             // Load button and background images
         SoundManager.initializeSounds(); // Initialize sound system
+        sfxSlider = new VolumeSlider("SFX", SettingsUICons.SFX_SLIDER_Y, SoundManager.getSFXVolume());
+        musicSlider = new VolumeSlider("Music", SettingsUICons.MUSIC_SLIDER_Y, SoundManager.getMusicVolume());
+        syncStatesToVolume();     // Match the buttons to the saved volumes
+    }
+
+    /**
+     * Selects the buttons matching the current SoundManager volumes.
+     */
+    private void syncStatesToVolume()
+    {
+        float sfxVolume = SoundManager.getSFXVolume();
+        currentSfxState = sfxVolume <= SettingsUICons.SFX_MUTE_VOLUME ?
+                SettingsUICons.MUTE_STATE : SettingsUICons.UNMUTE_STATE;
+
+        float musicVolume = SoundManager.getMusicVolume();
+        if (musicVolume <= SettingsUICons.MUSIC_MUTE_VOLUME) {
+            currentMusicState = SettingsUICons.MUTE_STATE;
+        } else if (musicVolume <= SettingsUICons.MUSIC_HALF_VOLUME) {
+            currentMusicState = SettingsUICons.HALF_VOLUME_STATE;
+        } else {
+            currentMusicState = SettingsUICons.FULL_VOLUME_STATE;
+        }
     }
 
 
@@ -55,59 +94,91 @@ public class SettingsUI {
      * Uses constants from SettingsUICons to define array sizes
      */
     private void initializeArrays() {
-        sfxButtons = new BufferedImage[SettingsUICons.SFX_BUTTONS];
-        sfxButtonsHovered = new BufferedImage[SettingsUICons.SFX_BUTTONS];
-        musicButtons = new BufferedImage[SettingsUICons.MUSIC_BUTTONS];
-        musicButtonsHovered = new BufferedImage[SettingsUICons.MUSIC_BUTTONS];
+        sfxButtons = new int[SettingsUICons.SFX_BUTTONS];
+        sfxButtonsHovered = new int[SettingsUICons.SFX_BUTTONS];
+        musicButtons = new int[SettingsUICons.MUSIC_BUTTONS];
+        musicButtonsHovered = new int[SettingsUICons.MUSIC_BUTTONS];
         isSfxButtonHovered = new boolean[SettingsUICons.SFX_BUTTONS];
         isMusicButtonHovered = new boolean[SettingsUICons.MUSIC_BUTTONS];
         isSfxButtonPressed = new boolean[SettingsUICons.SFX_BUTTONS];
         isMusicButtonPressed = new boolean[SettingsUICons.MUSIC_BUTTONS];
     }
 
+    /**
+     * Acquires the settings images. Called when the settings state is entered.
+     */
+    public void loadAssets()
+    {
+        if (atlas == null)
+        {
+            loadImages();
+        }
+    }
+
+    /**
+     * Releases the settings images so they can be evicted while the settings are not visible.
+     */
+    public void releaseAssets()
+    {
+        assets.releaseAll();
+        backgroundImage = null;
+        atlas = null;
+    }
+
     /**
      * Load all necessary images for the settings UI
      * Loads background and buttons for SFX and music controls
+     * The buttons are packed into the atlas and their full size images released again
      * Handles potential image loading errors
      */
     private void loadImages() {
+        AssetGroup sources = new AssetGroup();
         try {
             // Load background
-            backgroundImage = loadImage(SettingsImagePaths.SETTINGS_BACKGROUND);
+            backgroundImage = loadImage(assets, SettingsImagePaths.SETTINGS_BACKGROUND);
+
+            TextureAtlas.Builder builder = new TextureAtlas.Builder();
 
             // Load SFX buttons
-            sfxButtons[0] = loadImage(SettingsImagePaths.SFX_MUTE);
-            sfxButtons[1] = loadImage(SettingsImagePaths.SFX_UNMUTE);
-            sfxButtonsHovered[0] = loadImage(SettingsImagePaths.SFX_MUTE_HOVER);
-            sfxButtonsHovered[1] = loadImage(SettingsImagePaths.SFX_UNMUTE_HOVER);
+            sfxButtons[0] = addButton(builder, sources, SettingsImagePaths.SFX_MUTE);
+            sfxButtons[1] = addButton(builder, sources, SettingsImagePaths.SFX_UNMUTE);
+            sfxButtonsHovered[0] = addButton(builder, sources, SettingsImagePaths.SFX_MUTE_HOVER);
+            sfxButtonsHovered[1] = addButton(builder, sources, SettingsImagePaths.SFX_UNMUTE_HOVER);
 
             // Load Music buttons
-            musicButtons[0] = loadImage(SettingsImagePaths.MUSIC_MUTE);
-            musicButtons[1] = loadImage(SettingsImagePaths.MUSIC_HALF);
-            musicButtons[2] = loadImage(SettingsImagePaths.MUSIC_FULL);
-            musicButtonsHovered[0] = loadImage(SettingsImagePaths.MUSIC_MUTE_HOVER);
-            musicButtonsHovered[1] = loadImage(SettingsImagePaths.MUSIC_HALF_HOVER);
-            musicButtonsHovered[2] = loadImage(SettingsImagePaths.MUSIC_FULL_HOVER);
-
+            musicButtons[0] = addButton(builder, sources, SettingsImagePaths.MUSIC_MUTE);
+            musicButtons[1] = addButton(builder, sources, SettingsImagePaths.MUSIC_HALF);
+            musicButtons[2] = addButton(builder, sources, SettingsImagePaths.MUSIC_FULL);
+            musicButtonsHovered[0] = addButton(builder, sources, SettingsImagePaths.MUSIC_MUTE_HOVER);
+            musicButtonsHovered[1] = addButton(builder, sources, SettingsImagePaths.MUSIC_HALF_HOVER);
+            musicButtonsHovered[2] = addButton(builder, sources, SettingsImagePaths.MUSIC_FULL_HOVER);
+
+            atlas = builder.build();
         } catch (IOException e) {
             System.err.println("Error loading settings UI images: " + e.getMessage());
             e.printStackTrace();
+        } finally {
+            sources.releaseAll();
         }
     }
 
+    private static int addButton(TextureAtlas.Builder builder, AssetGroup sources, String path) throws IOException {
+        return builder.add(loadImage(sources, path), SettingsUICons.BUTTON_WIDTH, SettingsUICons.BUTTON_HEIGHT);
+    }
+
     /**
      * Utility method to load image resources safely
+     * @param group Group that holds the image
      * @param path Resource path of the image
      * @return BufferedImage loaded from the resource
      * @throws IOException If image cannot be loaded
      */
-    private BufferedImage loadImage(String path) throws IOException {
-        try (InputStream is = getClass().getResourceAsStream(path)) {
-            if (is == null) {
-                throw new IOException("Cannot find resource: " + path);
-            }
-            return ImageIO.read(is);
+    private static BufferedImage loadImage(AssetGroup group, String path) throws IOException {
+        BufferedImage image = group.acquire(path);
+        if (image == null) {
+            throw new IOException("Cannot find resource: " + path);
         }
+        return image;
     }
 
     public void handleClick(int mouseX, int mouseY, int width) {
@@ -153,6 +224,16 @@ public class SettingsUI {
     }
 
     public void handlePress(int mouseX, int mouseY, int width) {
+        // Sliders take the press before the buttons
+        if (sfxSlider.press(mouseX, mouseY, width)) {
+            applySliderVolume(sfxSlider);
+            return;
+        }
+        if (musicSlider.press(mouseX, mouseY, width)) {
+            applySliderVolume(musicSlider);
+            return;
+        }
+
         // Handle SFX button presses
         int startX = (width - (SettingsUICons.SFX_BUTTONS * (SettingsUICons.BUTTON_WIDTH + SettingsUICons.BUTTON_SPACING))) / 2;
         for (int i = 0; i < SettingsUICons.SFX_BUTTONS; i++) {
@@ -174,7 +255,38 @@ public class SettingsUI {
         }
     }
 
+    /**
+     * Moves a slider being dragged. Only stores the new volume target, the
+     * gain thread eases the clips towards it, so this is cheap on the EDT.
+     */
+    public void handleDrag(int mouseX, int mouseY, int width) {
+        if (sfxSlider.drag(mouseX, width)) {
+            applySliderVolume(sfxSlider);
+        } else if (musicSlider.drag(mouseX, width)) {
+            applySliderVolume(musicSlider);
+        }
+    }
+
+    private void applySliderVolume(VolumeSlider slider) {
+        if (slider == sfxSlider) {
+            SoundManager.setSFXVolume(slider.getValue());
+        } else {
+            SoundManager.setMusicVolume(slider.getValue());
+        }
+        syncStatesToVolume();
+        settingsChanged = true;
+    }
+
     public void handleRelease(int mouseX, int mouseY, int width) {
+        // A finished slider drag is not a button click
+        if (sfxSlider.release()) {
+            playClickSound();  // Preview the new SFX volume
+            return;
+        }
+        if (musicSlider.release()) {
+            return;
+        }
+
         // Reset all pressed states
         for (int i = 0; i < SettingsUICons.SFX_BUTTONS; i++) {
             isSfxButtonPressed[i] = false;
@@ -202,6 +314,7 @@ public class SettingsUI {
                     SoundManager.setSFXVolume(SettingsUICons.SFX_FULL_VOLUME);
                     break;
             }
+            sfxSlider.setValue(SoundManager.getSFXVolume());
         }
     }
 
@@ -218,6 +331,7 @@ public class SettingsUI {
                     SoundManager.setMusicVolume(SettingsUICons.MUSIC_FULL_VOLUME);
                     break;
             }
+            musicSlider.setValue(SoundManager.getMusicVolume());
         }
     }
 
@@ -235,6 +349,9 @@ public class SettingsUI {
             int x = startX + (i * (SettingsUICons.BUTTON_WIDTH + SettingsUICons.BUTTON_SPACING));
             isMusicButtonHovered[i] = isInButton(mouseX, mouseY, x, SettingsUICons.MUSIC_Y_POSITION);
         }
+
+        sfxSlider.setHovered(sfxSlider.contains(mouseX, mouseY, width));
+        musicSlider.setHovered(musicSlider.contains(mouseX, mouseY, width));
     }
 
     public void clearHoverStates() {
@@ -244,6 +361,8 @@ public class SettingsUI {
         for (int i = 0; i < SettingsUICons.MUSIC_BUTTONS; i++) {
             isMusicButtonHovered[i] = false;
         }
+        sfxSlider.setHovered(false);
+        musicSlider.setHovered(false);
     }
 
     public void draw(Graphics g, int width, int height)
@@ -257,15 +376,14 @@ public class SettingsUI {
         int startX = (width - (SettingsUICons.SFX_BUTTONS * (SettingsUICons.BUTTON_WIDTH + SettingsUICons.BUTTON_SPACING))) / 2;
         for (int i = 0; i < SettingsUICons.SFX_BUTTONS; i++) {
             int x = startX + (i * (SettingsUICons.BUTTON_WIDTH + SettingsUICons.BUTTON_SPACING));
-            BufferedImage buttonToDraw;
+            int buttonToDraw;
             if (i == currentSfxState) {
                 buttonToDraw = isSfxButtonHovered[i] ? sfxButtonsHovered[i] : sfxButtons[i];
             } else {
                 buttonToDraw = sfxButtons[i];
             }
-            if (buttonToDraw != null) {
-                g.drawImage(buttonToDraw, x, SettingsUICons.SFX_Y_POSITION,
-                        SettingsUICons.BUTTON_WIDTH, SettingsUICons.BUTTON_HEIGHT, null);
+            if (atlas != null) {
+                atlas.draw(g, buttonToDraw, x, SettingsUICons.SFX_Y_POSITION);
             }
         }
 
@@ -273,17 +391,20 @@ public class SettingsUI {
         startX = (width - (SettingsUICons.MUSIC_BUTTONS * (SettingsUICons.BUTTON_WIDTH + SettingsUICons.BUTTON_SPACING))) / 2;
         for (int i = 0; i < SettingsUICons.MUSIC_BUTTONS; i++) {
             int x = startX + (i * (SettingsUICons.BUTTON_WIDTH + SettingsUICons.BUTTON_SPACING));
-            BufferedImage buttonToDraw;
+            int buttonToDraw;
             if (i == currentMusicState) {
                 buttonToDraw = isMusicButtonHovered[i] ? musicButtonsHovered[i] : musicButtons[i];
             } else {
                 buttonToDraw = musicButtons[i];
             }
-            if (buttonToDraw != null) {
-                g.drawImage(buttonToDraw, x, SettingsUICons.MUSIC_Y_POSITION,
-                        SettingsUICons.BUTTON_WIDTH, SettingsUICons.BUTTON_HEIGHT, null);
+            if (atlas != null) {
+                atlas.draw(g, buttonToDraw, x, SettingsUICons.MUSIC_Y_POSITION);
             }
         }
+        // Draw volume sliders
+        sfxSlider.draw(g, width);
+        musicSlider.draw(g, width);
+
         // Draw "Press ESC to go back" text
         g.setColor(Color.WHITE);  // Choose a color that stands out against the background
         g.setFont(new Font("Arial", Font.BOLD, 20));  // Set font, style, and size
@@ -297,6 +418,104 @@ public class SettingsUI {
         g.drawString("Ferrer, Alex A.", 20, 572);
         g.drawString("Ureta, Donato Jr. G", 20, 590);
         g.drawString("Escanilla, Mark Fermin A.", 20, 605);
+
+        if (debugPanelVisible) {
+            drawDebugPanel(g);
+        }
+    }
+
+    /**
+     * Shows or hides the odds panel. Showing it calculates the odds again off the EDT,
+     * as the player's habits may have changed since it was last shown.
+     */
+    public void toggleDebugPanel() {
+        debugPanelVisible = !debugPanelVisible;
+        if (!debugPanelVisible) {
+            return;
+        }
+        debugOdds = null;
+        debugError = null;
+        Thread calculator = new Thread(() -> {
+            try {
+                RuleSet rules = RuleSet.getActive();
+                Strategy[] opponents = new Strategy[AIOpponent.TOTAL_STYLES + 1];
+                opponents[0] = Strategy.uniform(rules); // The computer of a normal game
+                for (int style = 0; style < AIOpponent.TOTAL_STYLES; style++) {
+                    opponents[style + 1] = Strategy.style(rules, style);
+                }
+                int hearts = playingUICons.TOTAL_HEARTS;
+                int maxLives = Math.max(CalculatorCons.PANEL_MAX_LIVES, hearts);
+                MatchCalculator[] odds = MatchCalculator.sweep(rules, new Strategy[]{Strategy.fromStats(rules)}, opponents, maxLives)[0];
+                debugRounds = odds[0].getRoundDistribution(hearts, hearts, CalculatorCons.MAX_ROUNDS);
+                debugOdds = odds;
+            } catch (RuntimeException e) {
+                System.err.println("Error calculating odds: " + e.getMessage());
+                e.printStackTrace();
+                debugError = e.getMessage();
+            }
+        }, "odds-calculator");
+        calculator.setDaemon(true);
+        calculator.start();
+    }
+
+    /**
+     * Draws the odds panel: the chance the player's habits win against the computer and
+     * each AI style with equal lives, the expected rounds at TOTAL_HEARTS, and how many
+     * rounds a game against the computer takes.
+     */
+    private void drawDebugPanel(Graphics g) {
+        int x = CalculatorCons.PANEL_X, y = CalculatorCons.PANEL_Y;
+        g.setColor(new Color(0, 0, 0, 190));
+        g.fillRect(x, y, CalculatorCons.PANEL_WIDTH, CalculatorCons.PANEL_HEIGHT);
+        g.setColor(Color.WHITE);
+        g.setFont(new Font("Arial", Font.BOLD, 18));
+        g.drawString("Exact odds (F3)", x + 15, y + 28);
+
+        MatchCalculator[] odds = debugOdds;
+        g.setFont(new Font("Monospaced", Font.PLAIN, 14));
+        if (odds == null) {
+            g.drawString(debugError != null ? "Failed: " + debugError : "Calculating...", x + 15, y + 55);
+            return;
+        }
+        int hearts = playingUICons.TOTAL_HEARTS;
+        g.drawString(odds[0].getRules().getId() + ", " + odds[0].getPlayer() + " against", x + 15, y + 55);
+
+        // Chance of winning with equal lives, and the expected rounds at the game's lives
+        int row = y + 85;
+        StringBuilder header = new StringBuilder(String.format("%-9s", "Lives"));
+        for (int lives = 1; lives <= CalculatorCons.PANEL_MAX_LIVES; lives++) {
+            header.append(String.format("%6d", lives));
+        }
+        g.drawString(header.append(String.format("  Rounds@%d", hearts)).toString(), x + 15, row);
+        for (MatchCalculator calculator : odds) {
+            row += 20;
+            StringBuilder line = new StringBuilder(String.format("%-9s", calculator == odds[0] ? "Computer" : calculator.getOpponent().getName()));
+            for (int lives = 1; lives <= CalculatorCons.PANEL_MAX_LIVES; lives++) {
+                line.append(String.format("%5.0f%%", 100 * calculator.getWinProbability(lives, lives)));
+            }
+            line.append(String.format("  %8.2f", calculator.getExpectedRounds(hearts, hearts)));
+            g.drawString(line.toString(), x + 15, row);
+        }
+
+        // Rounds of a game against the computer at the game's lives
+        row += 40;
+        g.drawString("Rounds against the computer, " + hearts + " lives each", x + 15, row);
+        double[] distribution = debugRounds;
+        int bars = Math.min(distribution.length - hearts, 16);
+        double highest = 0;
+        for (int r = hearts; r < hearts + bars; r++) {
+            highest = Math.max(highest, distribution[r]);
+        }
+        int barWidth = (CalculatorCons.PANEL_WIDTH - 30) / Math.max(bars, 1);
+        int baseline = y + CalculatorCons.PANEL_HEIGHT - 30;
+        int maxBar = baseline - row - 30;
+        for (int i = 0; i < bars; i++) {
+            int r = hearts + i;
+            int barHeight = (int) Math.round(maxBar * distribution[r] / highest);
+            int barX = x + 15 + i * barWidth;
+            g.fillRect(barX + 2, baseline - barHeight, barWidth - 4, barHeight);
+            g.drawString(Integer.toString(r), barX + 4, baseline + 18);
+        }
     }
 
     public boolean hasSettingsChanged() {
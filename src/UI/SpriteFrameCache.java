@@ -0,0 +1,71 @@
+package UI;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+
+/**
+ * Pre-renders a sprite at its on-screen size for a range of rotation angles.
+ * Drawing a frame is then a single unscaled blit, with no AffineTransform
+ * or scaling work per frame.
+ */
+public class SpriteFrameCache
+{
+    private final BufferedImage[] frames; // One image per angle step
+    private final float minAngle;         // Angle of the first frame, in degrees
+    private final float angleStep;        // Degrees between two frames
+
+    /**
+     * Renders the frames.
+     *
+     * @param source The full size sprite
+     * @param width Width the sprite is drawn at
+     * @param height Height the sprite is drawn at
+     * @param minAngle Smallest angle, in degrees
+     * @param maxAngle Largest angle, in degrees
+     * @param steps Number of frames between minAngle and maxAngle (at least 1)
+     * @param pivotX Rotation pivot, relative to the drawn width (0.0 left, 1.0 right)
+     * @param pivotY Rotation pivot, relative to the drawn height (0.0 top, 1.0 bottom)
+     */
+    public SpriteFrameCache(BufferedImage source, int width, int height,
+                            float minAngle, float maxAngle, int steps, float pivotX, float pivotY)
+    {
+        this.minAngle = minAngle;
+        this.angleStep = steps > 1 ? (maxAngle - minAngle) / (steps - 1) : 0f;
+        frames = new BufferedImage[Math.max(1, steps)];
+
+        for (int i = 0; i < frames.length; i++)
+        {
+            BufferedImage frame = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+            Graphics2D g2d = frame.createGraphics();
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+            AffineTransform transform = AffineTransform.getRotateInstance(
+                    Math.toRadians(minAngle + i * angleStep), width * pivotX, height * pivotY);
+            g2d.setTransform(transform);
+            g2d.drawImage(source, 0, 0, width, height, null);
+            g2d.dispose();
+            frames[i] = frame;
+        }
+    }
+
+    /**
+     * Retrieves the pre-rendered frame closest to an angle.
+     *
+     * @param angle Rotation in degrees; clamped to the cached range
+     * @return The frame to blit
+     */
+    public BufferedImage frameFor(float angle)
+    {
+        if (angleStep == 0f) return frames[0];
+        int index = Math.round((angle - minAngle) / angleStep);
+        return frames[Math.max(0, Math.min(frames.length - 1, index))];
+    }
+
+    public int getFrameCount()
+    {
+        return frames.length;
+    }
+}
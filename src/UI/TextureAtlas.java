@@ -0,0 +1,151 @@
+package UI;
+
+import utils.Constants.AssetCons;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A screen's sprites packed into one or two large images, each sprite already
+ * scaled to the size it is drawn at.
+ *
+ * Drawing a sprite blits a sub-rectangle of its page with no scaling, so a
+ * frame reads from a couple of images instead of switching between two dozen,
+ * and the accelerated pipelines (OpenGL, XRender, D3D) upload one texture per
+ * page rather than one per sprite. Full-window backgrounds are not packed; they
+ * are stretched to the window and would not fit anyway.
+ */
+public class TextureAtlas
+{
+    private final BufferedImage[] pages;
+    private final int[] page;         // Page of each region
+    private final Rectangle[] bounds; // Where each region is on its page
+
+    private TextureAtlas(BufferedImage[] pages, int[] page, Rectangle[] bounds)
+    {
+        this.pages = pages;
+        this.page = page;
+        this.bounds = bounds;
+    }
+
+    /**
+     * Draws a region at its packed size.
+     *
+     * @param region Index returned by Builder.add; a negative index draws nothing
+     */
+    public void draw(Graphics g, int region, int x, int y)
+    {
+        if (region < 0) return;
+        Rectangle r = bounds[region];
+        g.drawImage(pages[page[region]], x, y, x + r.width, y + r.height,
+                r.x, r.y, r.x + r.width, r.y + r.height, null);
+    }
+
+    public int getPageCount() { return pages.length; }
+    public BufferedImage getPage(int index) { return pages[index]; }
+
+    /**
+     * Collects the sprites of an atlas. Sprites are only scaled and packed by build().
+     */
+    public static class Builder
+    {
+        private final List<BufferedImage> sources = new ArrayList<>();
+        private final List<Dimension> sizes = new ArrayList<>();
+
+        /**
+         * Adds a sprite.
+         *
+         * @param source The full size image, or null if it could not be loaded
+         * @param width Width the sprite is drawn at
+         * @param height Height the sprite is drawn at
+         * @return Index of the sprite's region, or -1 for a null source
+         */
+        public int add(BufferedImage source, int width, int height)
+        {
+            if (source == null) return -1;
+            sources.add(source);
+            sizes.add(new Dimension(width, height));
+            return sources.size() - 1;
+        }
+
+        /**
+         * Packs the sprites in shelves, tallest first: left to right along a shelf,
+         * a new shelf when a row is full and a new page when a page is full.
+         */
+        public TextureAtlas build()
+        {
+            int count = sources.size();
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) order[i] = i;
+            Arrays.sort(order, (a, b) -> sizes.get(b).height - sizes.get(a).height);
+
+            int pad = AssetCons.ATLAS_PADDING; // Keeps filtering on scaled screens from bleeding in neighbours
+            int max = AssetCons.ATLAS_MAX_SIZE;
+            int[] page = new int[count];
+            Rectangle[] bounds = new Rectangle[count];
+            List<Dimension> pageSizes = new ArrayList<>();
+            int x = 0, y = 0, shelfHeight = 0, pageWidth = 0;
+            for (int i : order)
+            {
+                Dimension size = sizes.get(i);
+                if (x + size.width > max && x > 0) // Next shelf
+                {
+                    y += shelfHeight + pad;
+                    x = 0;
+                    shelfHeight = 0;
+                }
+                if (y + size.height > max && y > 0) // Next page
+                {
+                    pageSizes.add(new Dimension(pageWidth, y - pad));
+                    x = y = shelfHeight = pageWidth = 0;
+                }
+                page[i] = pageSizes.size();
+                bounds[i] = new Rectangle(x, y, size.width, size.height);
+                x += size.width + pad;
+                shelfHeight = Math.max(shelfHeight, size.height);
+                pageWidth = Math.max(pageWidth, x - pad);
+            }
+            pageSizes.add(new Dimension(Math.max(1, pageWidth), Math.max(1, y + shelfHeight)));
+
+            BufferedImage[] pages = new BufferedImage[pageSizes.size()];
+            Graphics2D[] graphics = new Graphics2D[pages.length];
+            for (int p = 0; p < pages.length; p++)
+            {
+                pages[p] = new BufferedImage(pageSizes.get(p).width, pageSizes.get(p).height, BufferedImage.TYPE_INT_ARGB_PRE);
+                graphics[p] = pages[p].createGraphics();
+                graphics[p].setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics[p].setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            }
+            for (int i = 0; i < count; i++)
+            {
+                Rectangle r = bounds[i];
+                graphics[page[i]].drawImage(stepDown(sources.get(i), r.width, r.height), r.x, r.y, r.width, r.height, null);
+            }
+            for (Graphics2D g : graphics) g.dispose();
+            return new TextureAtlas(pages, page, bounds);
+        }
+
+        /**
+         * Halves an image until it is less than twice the target size. A single bilinear pass
+         * only looks at four source pixels, so shrinking the 1920 pixel wide menu art to a
+         * 300 pixel button in one go would skip most of them.
+         */
+        private static BufferedImage stepDown(BufferedImage image, int width, int height)
+        {
+            while (image.getWidth() >= width * 2 && image.getHeight() >= height * 2)
+            {
+                BufferedImage half = new BufferedImage(image.getWidth() / 2, image.getHeight() / 2,
+                        BufferedImage.TYPE_INT_ARGB_PRE);
+                Graphics2D g = half.createGraphics();
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.drawImage(image, 0, 0, half.getWidth(), half.getHeight(), null);
+                g.dispose();
+                image = half;
+            }
+            return image;
+        }
+    }
+}
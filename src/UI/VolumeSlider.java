@@ -0,0 +1,119 @@
+package UI;
+
+import utils.Constants.SettingsUICons;
+
+import java.awt.*;
+
+/**
+ * A horizontal slider for a volume between 0.0 and 1.0, centered on the screen.
+ * Only tracks its own position and drag state; the owner applies the value.
+ */
+public final class VolumeSlider
+{
+    private final String label; // Text drawn next to the slider
+    private final int y;        // Top of the clickable area
+    private float value;        // Current value (0.0 to 1.0)
+    private boolean dragging;   // True while the knob is being dragged
+    private boolean hovered;    // True while the mouse is over the slider
+
+    /**
+     * Creates a slider.
+     * @param label Text drawn next to the slider
+     * @param y Top of the slider's clickable area
+     * @param value Initial value (0.0 to 1.0)
+     */
+    public VolumeSlider(String label, int y, float value)
+    {
+        this.label = label;
+        this.y = y;
+        setValue(value);
+    }
+
+    private int getX(int width)
+    {
+        return (width - SettingsUICons.SLIDER_WIDTH) / 2;
+    }
+
+    /**
+     * Checks if a point is on the slider.
+     */
+    public boolean contains(int mouseX, int mouseY, int width)
+    {
+        int x = getX(width);
+        int knobRadius = SettingsUICons.SLIDER_KNOB_SIZE / 2;
+        return mouseX >= x - knobRadius && mouseX <= x + SettingsUICons.SLIDER_WIDTH + knobRadius &&
+                mouseY >= y && mouseY <= y + SettingsUICons.SLIDER_HEIGHT;
+    }
+
+    /**
+     * Starts a drag if the press is on the slider and jumps the knob to the mouse.
+     * @return true if the slider took the press
+     */
+    public boolean press(int mouseX, int mouseY, int width)
+    {
+        if (!contains(mouseX, mouseY, width)) return false;
+        dragging = true;
+        drag(mouseX, width);
+        return true;
+    }
+
+    /**
+     * Moves the knob to the mouse while dragging.
+     * @return true if the value changed
+     */
+    public boolean drag(int mouseX, int width)
+    {
+        if (!dragging) return false;
+        float old = value;
+        setValue((float) (mouseX - getX(width)) / SettingsUICons.SLIDER_WIDTH);
+        return value != old;
+    }
+
+    /**
+     * Ends a drag.
+     * @return true if the slider was being dragged
+     */
+    public boolean release()
+    {
+        boolean wasDragging = dragging;
+        dragging = false;
+        return wasDragging;
+    }
+
+    public void draw(Graphics g, int width)
+    {
+        int x = getX(width);
+        int trackY = y + (SettingsUICons.SLIDER_HEIGHT - SettingsUICons.SLIDER_TRACK_HEIGHT) / 2;
+        int fill = Math.round(value * SettingsUICons.SLIDER_WIDTH);
+
+        // Track and filled part
+        g.setColor(new Color(255, 255, 255, 90));
+        g.fillRect(x, trackY, SettingsUICons.SLIDER_WIDTH, SettingsUICons.SLIDER_TRACK_HEIGHT);
+        g.setColor(Color.WHITE);
+        g.fillRect(x, trackY, fill, SettingsUICons.SLIDER_TRACK_HEIGHT);
+
+        // Knob
+        int knobY = y + (SettingsUICons.SLIDER_HEIGHT - SettingsUICons.SLIDER_KNOB_SIZE) / 2;
+        g.setColor(hovered || dragging ? Color.YELLOW : Color.WHITE);
+        g.fillOval(x + fill - SettingsUICons.SLIDER_KNOB_SIZE / 2, knobY,
+                SettingsUICons.SLIDER_KNOB_SIZE, SettingsUICons.SLIDER_KNOB_SIZE);
+
+        // Label and percentage
+        g.setColor(Color.WHITE);
+        g.setFont(new Font("Arial", Font.BOLD, 16));
+        int textY = y + SettingsUICons.SLIDER_HEIGHT - 6;
+        FontMetrics metrics = g.getFontMetrics();
+        g.drawString(label, x - SettingsUICons.SLIDER_KNOB_SIZE - metrics.stringWidth(label), textY);
+        g.drawString(Math.round(value * 100) + "%", x + SettingsUICons.SLIDER_WIDTH + SettingsUICons.SLIDER_KNOB_SIZE, textY);
+    }
+
+    public float getValue() { return value; }
+
+    public void setValue(float value)
+    {
+        this.value = Math.max(0f, Math.min(1f, value));
+    }
+
+    public void setHovered(boolean hovered) { this.hovered = hovered; }
+    public boolean isDragging() { return dragging; }
+}
@@ -3,26 +3,26 @@ package gamestates;
 import Sound.SoundManager;
 import UI.MenuUI;
 import utils.Constants.GameStates;
+import utils.Constants.VersusCons;
 import utils.Constants.menuButtons;
+import utils.Constants.playingUICons;
 
 import java.awt.*;
 import java.awt.event.*;
 
 /**
  * Main game state class that handles the menu state of the Rock Paper Scissors game.
- * Implements event listeners for mouse input.
+ * Receives its mouse and key input from the InputDispatcher while it is the active state.
  */
-public class GameMenu implements Statemethods, MouseListener, MouseMotionListener {
+public class GameMenu implements Statemethods {
     private MenuUI menuUI;
-    private GameState gameState;
 
     /**
      * Constructor for GameMenu
-     * Initializes the menu UI and game state
+     * Initializes the menu UI
      */
     public GameMenu()
     {
-        this.gameState = gameState;
         menuUI = new MenuUI();
     }
 
@@ -34,6 +34,22 @@ public class GameMenu implements Statemethods, MouseListener, MouseMotionListene
         // Update logic if needed
     }
 
+    /**
+     * Acquires the menu images when the menu becomes visible
+     */
+    @Override
+    public void enter() {
+        menuUI.loadAssets();
+    }
+
+    /**
+     * Releases the menu images while the menu is not visible
+     */
+    @Override
+    public void exit() {
+        menuUI.releaseAssets();
+    }
+
     /**
      * Draws the game menu UI on the screen
      * @param g Graphics object for rendering
@@ -133,15 +149,50 @@ public class GameMenu implements Statemethods, MouseListener, MouseMotionListene
         e.getComponent().repaint();
     }
 
-    // Unused but required interface methods
-    @Override
-    public void keyPressed(KeyEvent e) {}
-    @Override
-    public void keyReleased(KeyEvent e) {}
-    @Override
-    public void mouseEntered(MouseEvent e) {}
+    /**
+     * Starts a versus match: H for hot-seat on this keyboard, L against another client on the LAN.
+     * T starts a tournament against AI opponents, A a game against the learning AI, B opens the leaderboard
+     * and R the replays
+     * @param e KeyEvent containing the key pressed
+     */
     @Override
-    public void mouseDragged(MouseEvent e) {}
+    public void keyPressed(KeyEvent e) {
+        switch (e.getKeyCode()) {
+            case KeyEvent.VK_H:
+                startVersus(playingUICons.MODE_HOT_SEAT);
+                break;
+            case KeyEvent.VK_L:
+                startVersus(playingUICons.MODE_LAN);
+                break;
+            case KeyEvent.VK_T:
+                startVersus(playingUICons.MODE_BRACKET);
+                break;
+            case KeyEvent.VK_A:
+                startVersus(playingUICons.MODE_LEARNING);
+                break;
+            case KeyEvent.VK_B:
+                SoundManager.getClickSound().play();
+                GameState.setState(GameStates.LEADERBOARD);
+                break;
+            case KeyEvent.VK_R:
+                SoundManager.getClickSound().play();
+                GameState.setState(GameStates.REPLAYS);
+                break;
+        }
+    }
 
+    /**
+     * Switches to the playing state in a versus or tournament mode
+     * @param mode MODE_HOT_SEAT, MODE_LAN, MODE_BRACKET or MODE_LEARNING
+     */
+    private void startVersus(int mode) {
+        SoundManager.getClickSound().play();
+        GameState.getPlaying().setMode(mode, System.getProperty(VersusCons.SERVER_PROPERTY, VersusCons.DEFAULT_SERVER));
+        SoundManager.switchToPlayingMusic();
+        GameState.setState(GameStates.PLAYING);
+    }
 
-}
\ No newline at end of file
+    // Unused but required interface methods
+    @Override
+    public void keyReleased(KeyEvent e) {}
+}
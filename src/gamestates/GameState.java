@@ -1,6 +1,10 @@
 package gamestates;
 
+import utils.Constants.GameStates;
+import utils.StartupProfiler;
+
 import java.awt.Graphics;
+import java.util.Arrays;
 import java.util.function.Consumer;
 
 /**
@@ -10,38 +14,92 @@ import java.util.function.Consumer;
 public class GameState
 {
 
-    // Constants representing different game states
-    public static final int MENU = 0;
-    public static final int PLAYING = 1;
-    public static final int SETTINGS = 2;
-
     // Current active state
-    private static int state = 0;
+    private static int state = GameStates.MENU;
+    private static volatile Statemethods current;
+
+    // Registered states, indexed by their state constant
+    private static Statemethods[] states = new Statemethods[0];
 
     // Instances of different game state objects
     private static GameMenu gameMenu;
     private static Playing playing;
     private static Settings settings;
+    private static Leaderboard leaderboard;
+    private static Replays replays;
 
     // Listener for state change events
     private static Consumer<Integer> stateChangeListener;
 
-    // Static block to initialize state objects
+    // Number of game logic updates since launch, written only by the game thread
+    private static volatile long tick = 0;
+
+    // Static block to create and register the state objects.
+    // A new screen only needs a constant in Constants.GameStates and a register call here.
     static
     {
+        long start = StartupProfiler.start();
+        long step = StartupProfiler.start();
         gameMenu = new GameMenu();
+        StartupProfiler.end("GameMenu", step);
+        step = StartupProfiler.start();
         playing = new Playing();
+        StartupProfiler.end("Playing", step);
+        step = StartupProfiler.start();
         settings = new Settings();
+        StartupProfiler.end("Settings", step);
+        step = StartupProfiler.start();
+        leaderboard = new Leaderboard();
+        StartupProfiler.end("Leaderboard", step);
+        step = StartupProfiler.start();
+        replays = new Replays();
+        StartupProfiler.end("Replays", step);
+
+        register(GameStates.MENU, gameMenu);
+        register(GameStates.PLAYING, playing);
+        register(GameStates.SETTINGS, settings);
+        register(GameStates.LEADERBOARD, leaderboard);
+        register(GameStates.REPLAYS, replays);
+        StartupProfiler.end("GameState class init", start);
+    }
+
+    /**
+     * Registers a state object under a state constant.
+     *
+     * @param id The state constant
+     * @param stateObject The state to run while the constant is active
+     */
+    public static void register(int id, Statemethods stateObject)
+    {
+        if (id >= states.length)
+        {
+            states = Arrays.copyOf(states, id + 1);
+        }
+        states[id] = stateObject;
     }
 
     /**
-     * Sets the active game state and notifies the state change listener if available.
+     * Sets the active game state, running the exit hook of the old state and the
+     * enter hook of the new one, and notifies the state change listener if available.
      *
      * @param newState The new state to switch to
      */
     public static void setState(int newState)
     {
+        if (newState < 0 || newState >= states.length || states[newState] == null)
+        {
+            System.err.println("Unknown game state: " + newState);
+            return;
+        }
+
+        Statemethods next = states[newState];
+        if (next != current)
+        {
+            if (current != null) current.exit();
+            next.enter();
+        }
         state = newState;
+        current = next;
         if (stateChangeListener != null) {
             stateChangeListener.accept(newState);
         }
@@ -68,24 +126,57 @@ public class GameState
     }
 
     /**
-     * Renders the active state by delegating the draw call to the appropriate state object.
+     * Retrieves the object of the currently active game state.
+     * Input is forwarded to it by the panel's input dispatcher.
+     *
+     * @return The active state
+     */
+    public static Statemethods getCurrent()
+    {
+        return current;
+    }
+
+    /**
+     * Advances the game by one logic update and updates the active state.
+     * Called from the game loop UPS_SET times per second.
+     */
+    public static void update()
+    {
+        tick++;
+        Statemethods active = current;
+        if (active != null) active.update();
+    }
+
+    /**
+     * Checks if the active state is a still screen the game loop does not have to repaint every frame.
+     */
+    public static boolean isIdle()
+    {
+        Statemethods active = current;
+        return active != null && active.isIdle();
+    }
+
+    /**
+     * Retrieves the number of logic updates since launch.
+     * Used to timestamp player inputs in match replays.
+     *
+     * @return The current game tick
+     */
+    public static long getTick()
+    {
+        return tick;
+    }
+
+    /**
+     * Renders the active state by delegating the draw call to the active state object.
      *
      * @param g Graphics object for rendering
      * @param width Width of the rendering area
      * @param height Height of the rendering area
      */
     public static void render(Graphics g, int width, int height) {
-        switch (state) {
-            case MENU:
-                gameMenu.draw(g, width, height);
-                break;
-            case PLAYING:
-                playing.draw(g, width, height);
-                break;
-            case SETTINGS:
-                settings.draw(g, width, height);
-                break;
-        }
+        Statemethods active = current;
+        if (active != null) active.draw(g, width, height);
     }
 
     /**
@@ -114,4 +205,13 @@ public class GameState
     public static Settings getSettings() {
         return settings;
     }
+
+    /**
+     * Retrieves the instance of the Leaderboard state.
+     *
+     * @return The Leaderboard instance
+     */
+    public static Leaderboard getLeaderboard() {
+        return leaderboard;
+    }
 }
\ No newline at end of file
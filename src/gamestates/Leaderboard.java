@@ -0,0 +1,123 @@
+package gamestates;
+
+import Sound.SoundManager;
+import UI.LeaderboardUI;
+import utils.Constants.GameStates;
+import utils.Constants.LeaderboardCons;
+
+import java.awt.*;
+import java.awt.event.*;
+
+/**
+ * Game state that shows the local leaderboard.
+ * The leaderboard file is only read the first time this state is entered.
+ */
+public class Leaderboard implements Statemethods
+{
+    private LeaderboardUI leaderboardUI;
+
+    /**
+     * Constructor - initializes the leaderboard UI
+     */
+    public Leaderboard()
+    {
+        leaderboardUI = new LeaderboardUI();
+    }
+
+    /**
+     * Refreshes the visible rows from the leaderboard
+     */
+    @Override
+    public void update()
+    {
+        leaderboardUI.update();
+    }
+
+    /**
+     * Acquires the images and starts loading the leaderboard when it becomes visible
+     */
+    @Override
+    public void enter()
+    {
+        leaderboardUI.loadAssets();
+    }
+
+    /**
+     * Releases the images while the leaderboard is not visible
+     */
+    @Override
+    public void exit()
+    {
+        leaderboardUI.releaseAssets();
+    }
+
+    @Override
+    public void draw(Graphics g, int panelWidth, int panelHeight)
+    {
+        leaderboardUI.draw(g, panelWidth, panelHeight);
+    }
+
+    /**
+     * Switches the ordering when a tab is clicked
+     * @param e MouseEvent containing the click position
+     */
+    @Override
+    public void mouseClicked(MouseEvent e)
+    {
+        int tab = leaderboardUI.getTabClicked(e.getX(), e.getY(), e.getComponent().getWidth());
+        if (tab != -1)
+        {
+            SoundManager.getClickSound().play();
+            leaderboardUI.setSort(tab);
+        }
+    }
+
+    /**
+     * Handles the sort, scroll and back keys
+     * @param e KeyEvent containing the key pressed
+     */
+    @Override
+    public void keyPressed(KeyEvent e)
+    {
+        switch (e.getKeyCode()) {
+            case KeyEvent.VK_ESCAPE:
+                SoundManager.getClickSound().play();
+                GameState.setState(GameStates.MENU);
+                break;
+            case KeyEvent.VK_1:
+                leaderboardUI.setSort(LeaderboardCons.SORT_WIN_RATE);
+                break;
+            case KeyEvent.VK_2:
+                leaderboardUI.setSort(LeaderboardCons.SORT_STREAK);
+                break;
+            case KeyEvent.VK_3:
+                leaderboardUI.setSort(LeaderboardCons.SORT_GAMES);
+                break;
+            case KeyEvent.VK_UP:
+                leaderboardUI.scroll(-1);
+                break;
+            case KeyEvent.VK_DOWN:
+                leaderboardUI.scroll(1);
+                break;
+            case KeyEvent.VK_PAGE_UP:
+                leaderboardUI.scroll(-LeaderboardCons.PAGE_SIZE);
+                break;
+            case KeyEvent.VK_PAGE_DOWN:
+                leaderboardUI.scroll(LeaderboardCons.PAGE_SIZE);
+                break;
+            case KeyEvent.VK_Y:
+                leaderboardUI.showLocalPlayer();
+                break;
+        }
+    }
+
+    // Unused but required interface methods
+    @Override
+    public void mousePressed(MouseEvent e) {}
+    @Override
+    public void mouseReleased(MouseEvent e) {}
+    @Override
+    public void mouseMoved(MouseEvent e) {}
+    @Override
+    public void keyReleased(KeyEvent e) {}
+}
@@ -2,16 +2,16 @@ package gamestates;
 
 import Sound.SoundManager;
 import UI.PlayingUI;
-import utils.Constants;
+import utils.Constants.GameStates;
 import utils.Constants.playingUICons;
 import java.awt.*;
 import java.awt.event.*;
 
 /**
  * Main game state class that handles the playing state of the Rock Paper Scissors game.
- * Implements event listeners for mouse and keyboard input.
+ * Receives its mouse and key input from the InputDispatcher while it is the active state.
  */
-public class Playing implements Statemethods, MouseListener, MouseMotionListener, KeyListener {
+public class Playing implements Statemethods {
     private PlayingUI playingUI;
 
     /**
@@ -23,10 +23,35 @@ public class Playing implements Statemethods, MouseListener, MouseMotionListener
 
     /**
      * Update method for game logic
-     * Currently empty as game updates are event-driven
+     * Advances the hand shake animation; the rounds themselves are event-driven
      */
     @Override
     public void update() {
+        playingUI.update();
+    }
+
+    /**
+     * Acquires the game images when the game becomes visible
+     */
+    @Override
+    public void enter() {
+        playingUI.loadAssets();
+    }
+
+    /**
+     * Releases the game images while the game is not visible
+     */
+    @Override
+    public void exit() {
+        playingUI.releaseAssets();
+    }
+
+    /**
+     * The pause menu is a still frame; hovering and clicking repaint it themselves
+     */
+    @Override
+    public boolean isIdle() {
+        return playingUI.isPaused();
     }
 
     /**
@@ -63,7 +88,7 @@ public class Playing implements Statemethods, MouseListener, MouseMotionListener
             );
 
             // Reset all buttons and set the hovered one
-            for (int i = 0; i < playingUICons.TOTAL_RPS_BUTTONS; i++) {
+            for (int i = 0; i < playingUI.getWeaponCount(); i++) {
                 playingUI.setButtonHovered(i, i == buttonHovered);
             }
         }
@@ -91,6 +116,14 @@ public class Playing implements Statemethods, MouseListener, MouseMotionListener
             return;
         }
 
+        // A click leaves the tournament bracket
+        if (playingUI.isShowingBracket()) {
+            SoundManager.getClickSound().play();
+            playingUI.closeBracket();
+            e.getComponent().repaint();
+            return;
+        }
+
         // Handle gameplay button clicks when not paused
         handleGameplayClick(e);
     }
@@ -119,7 +152,7 @@ public class Playing implements Statemethods, MouseListener, MouseMotionListener
                 SoundManager.getClickSound().play();
                 SoundManager.switchToMenuMusic();
                 playingUI.cleanupForMenu();
-                GameState.setState(Constants.GameStates.MENU);
+                GameState.setState(GameStates.MENU);
                 break;
         }
         e.getComponent().repaint();
@@ -152,7 +185,7 @@ public class Playing implements Statemethods, MouseListener, MouseMotionListener
      */
     @Override
     public void mouseExited(MouseEvent e) {
-        for (int i = 0; i < playingUICons.TOTAL_RPS_BUTTONS; i++) {
+        for (int i = 0; i < playingUI.getWeaponCount(); i++) {
             playingUI.setButtonHovered(i, false);
         }
         e.getComponent().repaint();
@@ -169,25 +202,58 @@ public class Playing implements Statemethods, MouseListener, MouseMotionListener
             case KeyEvent.VK_ESCAPE:
                 handleEscapeKey(e);
                 break;
-            case KeyEvent.VK_Q:
-                handleGameplayKey(e, playingUICons.ROCK);
+            case KeyEvent.VK_B:
+                handleFormatKey(e, playingUI::cycleBestOf);
                 break;
-            case KeyEvent.VK_W:
-                handleGameplayKey(e, playingUICons.PAPER);
+            case KeyEvent.VK_L:
+                handleFormatKey(e, playingUI::cycleLives);
                 break;
-            case KeyEvent.VK_E:
-                handleGameplayKey(e, playingUICons.SCISSORS);
+            case KeyEvent.VK_N:
+                handleFormatKey(e, playingUI::cycleEntrants);
+                break;
+            case KeyEvent.VK_D:
+                if (playingUI.getMode() == playingUICons.MODE_LEARNING && !playingUI.isPaused()) {
+                    SoundManager.getClickSound().play();
+                    playingUI.cycleDifficulty();
+                    e.getComponent().repaint();
+                }
                 break;
             case KeyEvent.VK_ENTER:
-                if (playingUI.canResetGame()) {
+                if (playingUI.isShowingBracket()) {
+                    if (playingUI.isPaused()) break;
+                    SoundManager.getClickSound().play();
+                    playingUI.closeBracket();
+                    e.getComponent().repaint();
+                } else if (playingUI.canResetGame()) {
                     SoundManager.getClickSound().play();
                     playingUI.resetGame();
                     e.getComponent().repaint();
                 }
                 break;
+            default:
+                int hand = getWeaponForKey(e.getKeyCode(), false);
+                if (hand >= 0) {
+                    handleGameplayKey(e, hand);
+                } else if ((hand = getWeaponForKey(e.getKeyCode(), true)) >= 0) {
+                    handlePlayerTwoKey(e, hand);
+                }
+                break;
         }
     }
 
+    /**
+     * Maps a key to the weapon it chooses, see playingUICons.PLAYER_ONE_KEYS
+     * @param keyCode The key pressed
+     * @param playerTwo Whether to look at player two's keys
+     * @return The weapon, or -1 if the key chooses none
+     */
+    private static int getWeaponForKey(int keyCode, boolean playerTwo) {
+        int letter = (playerTwo ? playingUICons.PLAYER_TWO_KEYS : playingUICons.PLAYER_ONE_KEYS).indexOf(keyCode);
+        if (letter >= 0) return letter;
+        int number = keyCode - (playerTwo ? KeyEvent.VK_NUMPAD1 : KeyEvent.VK_1);
+        return number >= 0 && number < playingUICons.MAX_NUMBER_KEYS ? number : -1;
+    }
+
     /**
      * Handles the escape key functionality
      * @param e KeyEvent
@@ -202,7 +268,7 @@ public class Playing implements Statemethods, MouseListener, MouseMotionListener
         {
             playingUI.cleanupForMenu();
             SoundManager.switchToMenuMusic();
-            GameState.setState(Constants.GameStates.MENU);
+            GameState.setState(GameStates.MENU);
         }
         // If game is not paused, pause the game
         else {
@@ -212,7 +278,7 @@ public class Playing implements Statemethods, MouseListener, MouseMotionListener
     }
 
     /**
-     * Handles gameplay keys (Q, W, E)
+     * Handles player one's weapon keys (Q, W, E and the number row)
      * @param e KeyEvent
      * @param hand The hand choice corresponding to the key
      */
@@ -222,17 +288,44 @@ public class Playing implements Statemethods, MouseListener, MouseMotionListener
         e.getComponent().repaint();
     }
 
+    /**
+     * Handles player two's weapon keys (I, O, P and the numpad) in hot-seat mode
+     * @param e KeyEvent
+     * @param hand The hand choice corresponding to the key
+     */
+    private void handlePlayerTwoKey(KeyEvent e, int hand) {
+        if (playingUI.isPaused() || playingUI.getMode() != playingUICons.MODE_HOT_SEAT) return;
+        SoundManager.getClickSound().play();
+        playingUI.setPlayerTwoHand(hand);
+        e.getComponent().repaint();
+    }
+
+    /**
+     * Handles the tournament format keys (B, L, N), only used while the bracket is shown
+     * @param e KeyEvent
+     * @param change Changes the format and redraws the bracket
+     */
+    private void handleFormatKey(KeyEvent e, Runnable change) {
+        if (!playingUI.isShowingBracket()) return;
+        SoundManager.getClickSound().play();
+        change.run();
+        e.getComponent().repaint();
+    }
+
+    /**
+     * Chooses the opponent before the playing state is entered
+     * @param mode MODE_COMPUTER, MODE_HOT_SEAT, MODE_LAN, MODE_BRACKET or MODE_LEARNING
+     * @param server Versus server for LAN mode, as "host:port"
+     */
+    public void setMode(int mode, String server) {
+        playingUI.setMode(mode, server);
+    }
+
     // Unused but required interface methods
     @Override
     public void mousePressed(MouseEvent e) {}
     @Override
     public void mouseReleased(MouseEvent e) {}
     @Override
-    public void mouseEntered(MouseEvent e) {}
-    @Override
-    public void mouseDragged(MouseEvent e) {}
-    @Override
-    public void keyTyped(KeyEvent e) {}
-    @Override
     public void keyReleased(KeyEvent e) {}
 }
\ No newline at end of file
@@ -0,0 +1,101 @@
+package gamestates;
+
+import Sound.SoundManager;
+import UI.ReplaysUI;
+import utils.Constants.ArchiveCons;
+import utils.Constants.GameStates;
+
+import java.awt.*;
+import java.awt.event.*;
+
+/**
+ * Game state that browses the replay archive.
+ * Replays recorded since the screen was last opened are folded into the archive as it opens.
+ */
+public class Replays implements Statemethods
+{
+    private ReplaysUI replaysUI;
+
+    /**
+     * Constructor - initializes the replays UI
+     */
+    public Replays()
+    {
+        replaysUI = new ReplaysUI();
+    }
+
+    /**
+     * Refreshes the visible rows from the archive
+     */
+    @Override
+    public void update()
+    {
+        replaysUI.update();
+    }
+
+    /**
+     * Acquires the images and starts compacting the archive when it becomes visible
+     */
+    @Override
+    public void enter()
+    {
+        replaysUI.loadAssets();
+    }
+
+    /**
+     * Releases the images while the replays are not visible
+     */
+    @Override
+    public void exit()
+    {
+        replaysUI.releaseAssets();
+    }
+
+    @Override
+    public void draw(Graphics g, int panelWidth, int panelHeight)
+    {
+        replaysUI.draw(g, panelWidth, panelHeight);
+    }
+
+    /**
+     * Handles the selection and back keys
+     * @param e KeyEvent containing the key pressed
+     */
+    @Override
+    public void keyPressed(KeyEvent e)
+    {
+        switch (e.getKeyCode()) {
+            case KeyEvent.VK_ESCAPE:
+                SoundManager.getClickSound().play();
+                GameState.setState(GameStates.MENU);
+                break;
+            case KeyEvent.VK_UP:
+                replaysUI.select(-1);
+                break;
+            case KeyEvent.VK_DOWN:
+                replaysUI.select(1);
+                break;
+            case KeyEvent.VK_PAGE_UP:
+                replaysUI.select(-ArchiveCons.PAGE_SIZE);
+                break;
+            case KeyEvent.VK_PAGE_DOWN:
+                replaysUI.select(ArchiveCons.PAGE_SIZE);
+                break;
+            case KeyEvent.VK_HOME:
+                replaysUI.showNewest();
+                break;
+        }
+    }
+
+    // Unused but required interface methods
+    @Override
+    public void mouseClicked(MouseEvent e) {}
+    @Override
+    public void mousePressed(MouseEvent e) {}
+    @Override
+    public void mouseReleased(MouseEvent e) {}
+    @Override
+    public void mouseMoved(MouseEvent e) {}
+    @Override
+    public void keyReleased(KeyEvent e) {}
+}
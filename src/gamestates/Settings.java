@@ -9,20 +9,18 @@ import java.awt.event.*;
 
 /**
  * Main game state class that handles the settings state of the Rock Paper Scissors game.
- * Implements event listeners for mouse and key input.
+ * Receives its mouse and key input from the InputDispatcher while it is the active state.
  */
-public class Settings implements Statemethods, MouseListener, MouseMotionListener, KeyListener
+public class Settings implements Statemethods
 {
     private SettingsUI settingsUI;
-    private GameState gameState;
 
     /**
      * Constructor for Settings
-     * Initializes the settings UI and game state
+     * Initializes the settings UI
      */
     public Settings()
     {
-        this.gameState = gameState;
         settingsUI = new SettingsUI();
     }
 
@@ -35,6 +33,22 @@ public class Settings implements Statemethods, MouseListener, MouseMotionListene
         // Update logic if needed
     }
 
+    /**
+     * Acquires the settings images when the settings becomes visible
+     */
+    @Override
+    public void enter() {
+        settingsUI.loadAssets();
+    }
+
+    /**
+     * Releases the settings images while the settings is not visible
+     */
+    @Override
+    public void exit() {
+        settingsUI.releaseAssets();
+    }
+
     /**
      * Draws the settings UI on the screen
      * @param g Graphics object for rendering
@@ -104,7 +118,7 @@ public class Settings implements Statemethods, MouseListener, MouseMotionListene
 
     /**
      * Handles key press events in the settings UI
-     * Allows escape key to return to the main menu
+     * Allows escape key to return to the main menu, and F3 to toggle the odds panel
      * @param e KeyEvent containing information about the key press
      */
     @Override
@@ -113,17 +127,24 @@ public class Settings implements Statemethods, MouseListener, MouseMotionListene
         if (e.getKeyCode() == KeyEvent.VK_ESCAPE) {
             GameState.setState(GameStates.MENU);
             SoundManager.getClickSound().play();
+        } else if (e.getKeyCode() == KeyEvent.VK_F3) {
+            settingsUI.toggleDebugPanel();
+            e.getComponent().repaint();
         }
     }
 
+    /**
+     * Drags a volume slider
+     * @param e MouseEvent containing the current mouse position
+     */
+    @Override
+    public void mouseDragged(MouseEvent e)
+    {
+        settingsUI.handleDrag(e.getX(), e.getY(), e.getComponent().getWidth());
+        e.getComponent().repaint();
+    }
+
     // Unused but required interface methods
     @Override
     public void keyReleased(KeyEvent e) {}
-    @Override
-    public void mouseEntered(MouseEvent e) {}
-    @Override
-    public void mouseDragged(MouseEvent e) {}
-    @Override
-    public void keyTyped(KeyEvent e) {}
-
-}
\ No newline at end of file
+}
@@ -15,4 +15,17 @@ public interface Statemethods
     void mouseMoved(MouseEvent e);
     void keyPressed(KeyEvent e);
     void keyReleased(KeyEvent e);
+
+    // Optional input, ignored unless a state needs it
+    default void mouseDragged(MouseEvent e) {}
+    default void mouseExited(MouseEvent e) {}
+
+    // Called by GameState when the state becomes active / stops being active,
+    // for warming up and releasing the state's resources
+    default void enter() {}
+    default void exit() {}
+
+    // Whether the state shows a still screen that only input changes, like the pause menu.
+    // The game loop then stops repainting it every frame and sleeps instead
+    default boolean isIdle() { return false; }
 }
@@ -0,0 +1,70 @@
+package logic;
+
+import utils.Constants.playingUICons;
+
+import java.util.SplittableRandom;
+
+/**
+ * Playing styles of the tournament's computer opponents.
+ * Every style follows its habit only some of the time and plays a random hand
+ * otherwise, so no two styles can lock each other into endless ties.
+ * Stateless: the caller keeps the last hands, so the same style can play many
+ * matches at once on different threads.
+ */
+public final class AIOpponent
+{
+    public static final int RANDOM = 0;  // Any hand, evenly
+    public static final int ROCKY = 1;   // Favours rock
+    public static final int MIMIC = 2;   // Copies the opponent's last hand
+    public static final int COUNTER = 3; // Plays what beats the opponent's last hand
+    public static final int CYCLER = 4;  // Rock, paper, scissors, in turn (each hand beats the last)
+    public static final int TOTAL_STYLES = 5;
+
+    private static final String[] NAMES = {"Random", "Rocky", "Mimic", "Counter", "Cycler"};
+    static final int HABIT_PERCENT = 60; // How often a style follows its habit, also used by Strategy
+
+    private AIOpponent() {}
+
+    /**
+     * Picks the next hand for a style.
+     *
+     * @param style One of the style constants
+     * @param random RNG of the match being played
+     * @param ownLast This side's previous hand, or -1 in the first round
+     * @param opponentLast The other side's previous hand, or -1 in the first round
+     * @return A weapon of the active rule set
+     */
+    public static int chooseHand(int style, SplittableRandom random, int ownLast, int opponentLast)
+    {
+        int weapons = RuleSet.getActive().getWeaponCount();
+        if (style == RANDOM || random.nextInt(100) >= HABIT_PERCENT)
+        {
+            return random.nextInt(weapons);
+        }
+        switch (style) {
+            case ROCKY:
+                return playingUICons.ROCK;
+            case MIMIC:
+                return opponentLast >= 0 ? opponentLast : random.nextInt(weapons);
+            case COUNTER:
+                return opponentLast >= 0 ? beats(opponentLast) : random.nextInt(weapons);
+            case CYCLER:
+                return ownLast >= 0 ? beats(ownLast) : playingUICons.ROCK;
+            default:
+                return random.nextInt(weapons);
+        }
+    }
+
+    /**
+     * Retrieves a hand that beats the given one (paper beats rock, and so on).
+     */
+    public static int beats(int hand)
+    {
+        return RuleSet.getActive().counter(hand);
+    }
+
+    public static String getName(int style)
+    {
+        return NAMES[style];
+    }
+}
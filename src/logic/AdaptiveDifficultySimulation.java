@@ -0,0 +1,113 @@
+package logic;
+
+import utils.Constants.LearningCons;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Plays synthetic players against the learning opponent at the adaptive difficulty,
+ * without a window, and prints how fast the player's win rate settles at each target.
+ *
+ * Each player plays many sessions with different seeds. The share of decided rounds
+ * the player won is averaged over the sessions in blocks of BLOCK decided rounds, so
+ * the curve shows the controller rather than the luck of one session. A player has
+ * converged from the first block after which every block is within TOLERANCE of the
+ * target. The random player cannot be beaten or helped, so it stays at 0.5 whatever
+ * the target; a target beyond what the opponent can reach against a player pins the
+ * strength at 1 or -1.
+ *
+ * The players are the AI styles, plus one that plays Rocky for the first half of each
+ * session and Counter after, to show the controller following a player who changes.
+ * Every round waits for the opponent to learn the last one, as a human's think time would.
+ *
+ * Usage: java -cp out:res logic.AdaptiveDifficultySimulation [rounds per session] [sessions] [targets...]
+ */
+public class AdaptiveDifficultySimulation
+{
+    private static final int BLOCK = 25;
+    private static final double TOLERANCE = 0.05;
+    private static final int SWITCHER = AIOpponent.TOTAL_STYLES; // Rocky, then Counter
+
+    public static void main(String[] args)
+    {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 400;
+        int sessions = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        double[] targets = {0.3, 0.5, 0.7};
+        if (args.length > 2)
+        {
+            targets = new double[args.length - 2];
+            for (int i = 0; i < targets.length; i++) targets[i] = Double.parseDouble(args[i + 2]);
+        }
+        RuleSet rules = RuleSet.getActive();
+        System.out.println(rules.getId() + ", " + sessions + " sessions of " + rounds + " rounds per player, blocks of " +
+                BLOCK + " decided rounds");
+
+        for (double target : targets)
+        {
+            System.out.println();
+            System.out.printf("Target %.2f%n", target);
+            for (int player = 0; player <= SWITCHER; player++)
+            {
+                simulate(rules, target, player, rounds, sessions);
+            }
+        }
+    }
+
+    private static void simulate(RuleSet rules, double target, int player, int rounds, int sessions)
+    {
+        long[] won = new long[rounds / BLOCK + 1];
+        long[] decided = new long[won.length];
+        double strength = 0;
+        long start = System.nanoTime();
+        for (int session = 0; session < sessions; session++)
+        {
+            SplittableRandom random = new SplittableRandom(session * 1009L + player);
+            DifficultyController controller = new DifficultyController(target);
+            LearningOpponent opponent = new LearningOpponent(rules, LearningCons.ADAPTIVE, random.nextLong(), controller);
+            int playerLast = -1, opponentLast = -1, count = 0;
+            for (int round = 0; round < rounds; round++)
+            {
+                while (!opponent.isReady()) LockSupport.parkNanos(10_000);
+                int style = player != SWITCHER ? player : round < rounds / 2 ? AIOpponent.ROCKY : AIOpponent.COUNTER;
+                int hand = AIOpponent.chooseHand(style, random, playerLast, opponentLast);
+                int opponentHand = opponent.nextHand();
+                opponent.observe(hand, opponentHand);
+                int outcome = rules.outcome(hand, opponentHand);
+                if (outcome != Match.TIE)
+                {
+                    decided[count / BLOCK]++;
+                    if (outcome == Match.PLAYER_WIN) won[count / BLOCK]++;
+                    count++;
+                }
+                playerLast = hand;
+                opponentLast = opponentHand;
+            }
+            strength += controller.getStrength();
+            opponent.close();
+        }
+
+        // Blocks every session filled, and the first after which all stay near the target
+        int blocks = 0;
+        while (blocks < won.length && decided[blocks] >= (long) sessions * BLOCK) blocks++;
+        int converged = blocks;
+        while (converged > 0 && Math.abs((double) won[converged - 1] / decided[converged - 1] - target) <= TOLERANCE) converged--;
+
+        long lastWon = 0, lastDecided = 0;
+        StringBuilder curve = new StringBuilder();
+        for (int b = 0; b < blocks; b++)
+        {
+            curve.append(String.format(" %.2f", (double) won[b] / decided[b]));
+            if (b >= blocks / 2)
+            {
+                lastWon += won[b];
+                lastDecided += decided[b];
+            }
+        }
+        String name = player == SWITCHER ? "Switcher" : AIOpponent.getName(player);
+        System.out.printf("  %-8s %s, second half %.3f, strength %+.2f, %.0f ms per session%n", name,
+                converged < blocks ? "converged after " + converged * BLOCK + " decided rounds" : "did not converge",
+                (double) lastWon / Math.max(1, lastDecided), strength / sessions, (System.nanoTime() - start) / 1e6 / sessions);
+        System.out.println("           " + curve.toString().trim());
+    }
+}
@@ -0,0 +1,103 @@
+package logic;
+
+import utils.Constants.AdaptiveCons;
+
+import java.util.SplittableRandom;
+
+/**
+ * Keeps the share of rounds the player wins near a target by changing how well the
+ * opponent plays.
+ *
+ * The player's win rate is estimated from the decided rounds as a Beta distribution
+ * whose counts fade by DECAY every round, so old rounds count less as the player
+ * improves or tires. The strength of the opponent follows the error of that estimate,
+ * and decides how the opponent blends three hands: the best response to what it
+ * predicts the player plays, a random hand, and the worst response. Strength 1 always
+ * plays the best, 0 is random and -1 always plays the worst, which a player with any
+ * habit beats. Recording a round and blending a hand are O(1).
+ *
+ * Not thread-safe: used on the EDT, or on one simulation thread.
+ */
+public final class DifficultyController
+{
+    private final double target;
+    private double wins, losses; // Faded counts of the decided rounds, with the prior
+    private double strength;
+    private long decided;
+
+    /**
+     * @param target Share of the decided rounds the player should win, between 0 and 1
+     */
+    public DifficultyController(double target)
+    {
+        if (!(target > 0 && target < 1)) throw new IllegalArgumentException("Target win rate must be between 0 and 1: " + target);
+        this.target = target;
+        wins = target * AdaptiveCons.PRIOR_ROUNDS;
+        losses = (1 - target) * AdaptiveCons.PRIOR_ROUNDS;
+    }
+
+    /**
+     * Creates a controller for the target of -Dbbp.targetWinRate.
+     */
+    public static DifficultyController fromProperties()
+    {
+        String value = System.getProperty(AdaptiveCons.TARGET_PROPERTY);
+        if (value != null)
+        {
+            try {
+                return new DifficultyController(Double.parseDouble(value.trim()));
+            } catch (IllegalArgumentException e) {
+                System.err.println("Bad target win rate \"" + value + "\", using " + AdaptiveCons.DEFAULT_TARGET);
+            }
+        }
+        return new DifficultyController(AdaptiveCons.DEFAULT_TARGET);
+    }
+
+    /**
+     * Updates the estimate and the strength with a round's outcome. Ties change neither.
+     *
+     * @param outcome TIE, PLAYER_WIN or COMPUTER_WIN
+     */
+    public void recordRound(int outcome)
+    {
+        if (outcome == Match.TIE) return;
+        wins = wins * AdaptiveCons.DECAY + (outcome == Match.PLAYER_WIN ? 1 : 0);
+        losses = losses * AdaptiveCons.DECAY + (outcome == Match.COMPUTER_WIN ? 1 : 0);
+        decided++;
+        strength = Math.max(-1, Math.min(1, strength + AdaptiveCons.GAIN * (getEstimate() - target)));
+    }
+
+    /**
+     * Picks the hand to play at the current strength.
+     *
+     * @param best Best response to the predicted player hand
+     * @param worst Worst response to it
+     */
+    public int blend(int best, int worst, int weapons, SplittableRandom random)
+    {
+        double u = random.nextDouble();
+        if (strength >= 0) return u < strength ? best : random.nextInt(weapons);
+        return u < -strength ? worst : random.nextInt(weapons);
+    }
+
+    /**
+     * Retrieves the estimated share of the decided rounds the player wins, the mean of the Beta distribution.
+     */
+    public double getEstimate()
+    {
+        return wins / (wins + losses);
+    }
+
+    /**
+     * Retrieves the standard deviation of the Beta distribution, how sure the estimate is.
+     */
+    public double getUncertainty()
+    {
+        double n = wins + losses;
+        return Math.sqrt(wins * losses / (n * n * (n + 1)));
+    }
+
+    public double getTarget() { return target; }
+    public double getStrength() { return strength; }
+    public long getDecidedRounds() { return decided; }
+}
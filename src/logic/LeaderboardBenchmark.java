@@ -0,0 +1,124 @@
+package logic;
+
+import utils.Constants.LeaderboardCons;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+
+/**
+ * Measures the leaderboard rankings at a million players: building them (by insert
+ * and by the sorted build used on load), re-ranking a player after a match (remove,
+ * update, insert in all three orderings) and looking up ranks and pages. Runs in memory, the file is not touched.
+ *
+ * Usage: java logic.LeaderboardBenchmark [players] [updates]
+ */
+public class LeaderboardBenchmark
+{
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static void main(String[] args)
+    {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int updates = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        SplittableRandom random = new SplittableRandom(7);
+
+        RankedSkipList<LeaderboardStore.Player>[] rankings = new RankedSkipList[]{
+                new RankedSkipList<>(LeaderboardStore.BY_WIN_RATE),
+                new RankedSkipList<>(LeaderboardStore.BY_STREAK),
+                new RankedSkipList<>(LeaderboardStore.BY_GAMES)
+        };
+        LeaderboardStore.Player[] players = new LeaderboardStore.Player[count];
+
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++)
+        {
+            LeaderboardStore.Player player = new LeaderboardStore.Player(i, "player" + i);
+            player.matches = 1 + random.nextInt(200);
+            player.wins = random.nextInt(player.matches + 1);
+            player.longestStreak = Math.min(player.wins, random.nextInt(15));
+            players[i] = player;
+            for (RankedSkipList<LeaderboardStore.Player> ranking : rankings) ranking.insert(player);
+        }
+        long build = System.nanoTime() - start;
+
+        // Loading the file instead sorts once per ordering and links each list in order
+        Comparator<LeaderboardStore.Player>[] orderings = new Comparator[]{
+                LeaderboardStore.BY_WIN_RATE, LeaderboardStore.BY_STREAK, LeaderboardStore.BY_GAMES
+        };
+        start = System.nanoTime();
+        for (int sort = 0; sort < LeaderboardCons.TOTAL_SORTS; sort++)
+        {
+            LeaderboardStore.Player[] sorted = players.clone();
+            Arrays.sort(sorted, orderings[sort]);
+            RankedSkipList<LeaderboardStore.Player> bulk = new RankedSkipList<>(orderings[sort]);
+            bulk.buildSorted(sorted, count);
+            for (int i = 0; i < count; i += Math.max(1, count / 1000))
+            {
+                if (bulk.get(i) != rankings[sort].get(i) || bulk.rank(sorted[i]) != i)
+                {
+                    throw new IllegalStateException("Sorted build differs at " + i);
+                }
+            }
+        }
+        long bulkBuild = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < updates; i++)
+        {
+            LeaderboardStore.Player player = players[random.nextInt(count)];
+            for (RankedSkipList<LeaderboardStore.Player> ranking : rankings) ranking.remove(player);
+            player.matches++;
+            if (random.nextBoolean())
+            {
+                player.wins++;
+                player.currentStreak++;
+                player.longestStreak = Math.max(player.longestStreak, player.currentStreak);
+            } else {
+                player.currentStreak = 0;
+            }
+            for (RankedSkipList<LeaderboardStore.Player> ranking : rankings) ranking.insert(player);
+        }
+        long update = System.nanoTime() - start;
+
+        long checksum = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < updates; i++)
+        {
+            checksum += rankings[i % LeaderboardCons.TOTAL_SORTS].rank(players[random.nextInt(count)]);
+        }
+        long rank = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < updates / LeaderboardCons.PAGE_SIZE; i++)
+        {
+            int from = random.nextInt(count - LeaderboardCons.PAGE_SIZE);
+            for (int r = 0; r < LeaderboardCons.PAGE_SIZE; r++)
+            {
+                checksum += rankings[LeaderboardCons.SORT_WIN_RATE].get(from + r).slot;
+            }
+        }
+        long page = System.nanoTime() - start;
+
+        // Sanity check: positions and ranks must agree
+        for (int i = 0; i < 1000; i++)
+        {
+            int index = random.nextInt(count);
+            for (RankedSkipList<LeaderboardStore.Player> ranking : rankings)
+            {
+                if (ranking.rank(ranking.get(index)) != index)
+                {
+                    throw new IllegalStateException("Rank mismatch at " + index);
+                }
+            }
+        }
+
+        System.out.println("Players:            " + count);
+        System.out.println("Build (3 rankings): " + build / 1_000_000 + " ms by insert, " +
+                bulkBuild / 1_000_000 + " ms sorted (as on load)");
+        System.out.println("Record a match:     " + update / updates + " ns (re-rank in all 3 orderings)");
+        System.out.println("Rank lookup:        " + rank / updates + " ns");
+        System.out.println("Page of " + LeaderboardCons.PAGE_SIZE + ":         " +
+                page / (updates / LeaderboardCons.PAGE_SIZE) / 1000 + " us");
+        System.out.println("(checksum " + checksum + ")");
+    }
+}
@@ -0,0 +1,407 @@
+package logic;
+
+import utils.Constants.LeaderboardCons;
+import utils.Constants.StoragePaths;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Local leaderboard of every player who finished a match on this machine.
+ *
+ * Players are kept in one RankedSkipList per ordering (win rate, longest streak,
+ * matches played), so recording a match and looking up a rank are O(log n) even
+ * with a million players. Each player has a fixed-width record in a memory-mapped
+ * file, updated in place after every match. Names are cut to fit their record, and
+ * players are known by the cut name, so a long name finds its record again after a restart.
+ *
+ * Nothing is read until the leaderboard screen is opened or a match is recorded.
+ * Loading and writing run on one background thread; the screen polls isLoaded().
+ */
+public class LeaderboardStore
+{
+    /**
+     * A player's totals. Only changed by the worker thread, under the class lock,
+     * and only while removed from the rankings.
+     */
+    static final class Player
+    {
+        final int slot; // Record index in the file, also the final tie breaker
+        final String name;
+        int matches, wins;
+        int currentStreak, longestStreak; // Matches won in a row
+
+        Player(int slot, String name)
+        {
+            this.slot = slot;
+            this.name = name;
+        }
+    }
+
+    /**
+     * One line of the leaderboard, copied out so the screen can draw it without the lock.
+     */
+    public static final class Row
+    {
+        public final int rank; // 1-based
+        public final String name;
+        public final int matches, wins, longestStreak;
+
+        Row(int rank, Player player)
+        {
+            this.rank = rank;
+            name = player.name;
+            matches = player.matches;
+            wins = player.wins;
+            longestStreak = player.longestStreak;
+        }
+
+        public double getWinRate()
+        {
+            return matches == 0 ? 0 : (double) wins / matches;
+        }
+    }
+
+    // Orderings, best first. Ties fall back to the slot, so no two players compare equal
+    static final Comparator<Player> BY_WIN_RATE = (a, b) -> {
+        int c = Long.compare((long) b.wins * a.matches, (long) a.wins * b.matches);
+        if (c == 0) c = Integer.compare(b.matches, a.matches);
+        return c != 0 ? c : Integer.compare(a.slot, b.slot);
+    };
+    static final Comparator<Player> BY_STREAK = (a, b) -> {
+        int c = Integer.compare(b.longestStreak, a.longestStreak);
+        if (c == 0) c = Integer.compare(b.wins, a.wins);
+        return c != 0 ? c : Integer.compare(a.slot, b.slot);
+    };
+    static final Comparator<Player> BY_GAMES = (a, b) -> {
+        int c = Integer.compare(b.matches, a.matches);
+        if (c == 0) c = Integer.compare(b.wins, a.wins);
+        return c != 0 ? c : Integer.compare(a.slot, b.slot);
+    };
+
+    // Indexed by the SORT_ constants
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final Comparator<Player>[] ORDERINGS = new Comparator[]{BY_WIN_RATE, BY_STREAK, BY_GAMES};
+
+    private static final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "leaderboard-writer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Rankings and players, guarded by the class lock
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final RankedSkipList<Player>[] rankings = new RankedSkipList[]{
+            new RankedSkipList<>(ORDERINGS[0]), new RankedSkipList<>(ORDERINGS[1]), new RankedSkipList<>(ORDERINGS[2])
+    };
+    private static final HashMap<String, Player> players = new HashMap<>(); // By the name as stored
+    private static int recordCount; // Records in the file, the next player's slot
+
+    private static boolean loadQueued;     // Guarded by the class lock
+    private static volatile boolean loaded;
+
+    // Mapped file, only touched by the worker thread
+    private static FileChannel channel;
+    private static MappedByteBuffer mapped;
+
+    /**
+     * Starts loading the leaderboard in the background, if it is not loaded yet.
+     */
+    public static void load()
+    {
+        synchronized (LeaderboardStore.class)
+        {
+            if (loadQueued) return;
+            loadQueued = true;
+        }
+        worker.execute(LeaderboardStore::open);
+    }
+
+    public static boolean isLoaded()
+    {
+        return loaded;
+    }
+
+    /**
+     * Records a finished match. Returns immediately; the leaderboard is updated in the background.
+     *
+     * @param name The player's name, cut to fit its record
+     * @param won Whether the player won the match
+     */
+    public static void recordMatch(String name, boolean won)
+    {
+        load();
+        String stored = fitName(name);
+        worker.execute(() -> apply(stored, won));
+    }
+
+    /**
+     * Retrieves the name the local player is ranked under, already cut to fit its record.
+     */
+    public static String getLocalPlayerName()
+    {
+        return fitName(System.getProperty(LeaderboardCons.PLAYER_PROPERTY, System.getProperty("user.name", "Player")));
+    }
+
+    /**
+     * Copies out one page of the leaderboard.
+     *
+     * @param sort SORT_WIN_RATE, SORT_STREAK or SORT_GAMES
+     * @param from 0-based rank of the first row
+     * @param count Maximum number of rows
+     * @return The rows, empty while the leaderboard is loading
+     */
+    public static synchronized Row[] getPage(int sort, int from, int count)
+    {
+        if (!loaded) return new Row[0];
+        RankedSkipList<Player> ranking = rankings[sort];
+        int end = Math.min(ranking.size(), from + count);
+        Row[] rows = new Row[Math.max(0, end - from)];
+        for (int i = from; i < end; i++)
+        {
+            rows[i - from] = new Row(i + 1, ranking.get(i));
+        }
+        return rows;
+    }
+
+    /**
+     * Retrieves a player's 1-based rank, or -1 if the player has not finished a match.
+     */
+    public static synchronized int getRank(int sort, String name)
+    {
+        Player player = loaded ? players.get(fitName(name)) : null;
+        return player == null ? -1 : rankings[sort].rank(player) + 1;
+    }
+
+    public static synchronized int getPlayerCount()
+    {
+        return loaded ? players.size() : 0;
+    }
+
+    /**
+     * Maps the leaderboard file and ranks the stored players.
+     */
+    private static void open()
+    {
+        try {
+            File file = new File(StoragePaths.LEADERBOARD_FILE);
+            File dir = file.getParentFile();
+            if (!dir.exists() && !dir.mkdirs())
+            {
+                System.err.println("Could not create leaderboard directory: " + dir);
+                return;
+            }
+
+            channel = new RandomAccessFile(file, "rw").getChannel();
+            boolean isNew = channel.size() < LeaderboardCons.HEADER_SIZE;
+            map(Math.max(channel.size(), capacityFor(LeaderboardCons.GROW_RECORDS)));
+
+            if (isNew || mapped.getInt(0) != LeaderboardCons.MAGIC)
+            {
+                if (!isNew)
+                {
+                    System.err.println("Leaderboard file is corrupt, starting over: " + file);
+                }
+                mapped.putInt(0, LeaderboardCons.MAGIC);
+                mapped.putInt(4, LeaderboardCons.VERSION);
+                mapped.putLong(8, 0);
+            }
+
+            long fits = (mapped.capacity() - LeaderboardCons.HEADER_SIZE) / LeaderboardCons.RECORD_SIZE;
+            int count = (int) Math.min(mapped.getLong(8), fits);
+            synchronized (LeaderboardStore.class)
+            {
+                byte[] nameBytes = new byte[LeaderboardCons.NAME_BYTES];
+                Player[] loadedPlayers = new Player[count];
+                int ranked = 0;
+                for (int slot = 0; slot < count; slot++)
+                {
+                    int pos = recordPosition(slot);
+                    int length = Math.min(mapped.get(pos) & 0xFF, LeaderboardCons.NAME_BYTES - 1);
+                    mapped.get(pos + 1, nameBytes, 0, length);
+                    Player player = new Player(slot, new String(nameBytes, 0, length, StandardCharsets.UTF_8));
+                    player.matches = mapped.getInt(pos + LeaderboardCons.NAME_BYTES);
+                    player.wins = mapped.getInt(pos + LeaderboardCons.NAME_BYTES + 4);
+                    player.longestStreak = mapped.getShort(pos + LeaderboardCons.NAME_BYTES + 8);
+                    player.currentStreak = mapped.getShort(pos + LeaderboardCons.NAME_BYTES + 10);
+
+                    Player first = players.get(player.name);
+                    if (first != null)
+                    {
+                        merge(first, player);
+                        continue;
+                    }
+                    players.put(player.name, player);
+                    loadedPlayers[ranked++] = player;
+                }
+                recordCount = count;
+
+                // Sorting once and linking in order is much faster than count inserts
+                for (int sort = 0; sort < LeaderboardCons.TOTAL_SORTS; sort++)
+                {
+                    Player[] sorted = Arrays.copyOf(loadedPlayers, ranked);
+                    Arrays.sort(sorted, ORDERINGS[sort]);
+                    rankings[sort].buildSorted(sorted, ranked);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error opening leaderboard file: " + e.getMessage());
+            e.printStackTrace();
+            mapped = null;
+        } finally {
+            loaded = true; // Without the file the leaderboard still works for this session
+        }
+    }
+
+    /**
+     * Folds a later record of the same stored name into the first one and empties it on disk.
+     * Only files written while long names were kept whole in memory hold such records.
+     */
+    private static void merge(Player first, Player duplicate)
+    {
+        if (duplicate.matches == 0) return; // Merged on an earlier load
+        first.matches += duplicate.matches;
+        first.wins += duplicate.wins;
+        first.longestStreak = Math.max(first.longestStreak, duplicate.longestStreak);
+        first.currentStreak = duplicate.currentStreak; // The later record is the more recent one
+        duplicate.matches = duplicate.wins = duplicate.longestStreak = duplicate.currentStreak = 0;
+        write(first, false);
+        write(duplicate, false);
+    }
+
+    /**
+     * Adds a finished match to a player's totals, re-ranks them and writes their record.
+     *
+     * @param name The player's name as stored, see fitName
+     */
+    private static void apply(String name, boolean won)
+    {
+        Player player;
+        boolean isNew;
+        synchronized (LeaderboardStore.class)
+        {
+            player = players.get(name);
+            isNew = player == null;
+            if (isNew)
+            {
+                player = new Player(recordCount++, name);
+                players.put(name, player);
+            } else {
+                unrank(player);
+            }
+
+            player.matches++;
+            if (won)
+            {
+                player.wins++;
+                player.currentStreak++;
+                player.longestStreak = Math.max(player.longestStreak, player.currentStreak);
+            } else {
+                player.currentStreak = 0;
+            }
+            rank(player);
+        }
+        write(player, isNew);
+    }
+
+    private static void rank(Player player)
+    {
+        for (RankedSkipList<Player> ranking : rankings) ranking.insert(player);
+    }
+
+    private static void unrank(Player player)
+    {
+        for (RankedSkipList<Player> ranking : rankings) ranking.remove(player);
+    }
+
+    /**
+     * Writes a player's record in place, appending it for a new player.
+     */
+    private static void write(Player player, boolean isNew)
+    {
+        if (mapped == null) return; // Leaderboard is kept for this session only
+
+        try {
+            if (recordPosition(player.slot) + LeaderboardCons.RECORD_SIZE > mapped.capacity())
+            {
+                map(capacityFor(player.slot + LeaderboardCons.GROW_RECORDS));
+            }
+
+            int pos = recordPosition(player.slot);
+            if (isNew)
+            {
+                byte[] name = encodeName(player.name);
+                mapped.put(pos, (byte) name.length);
+                mapped.put(pos + 1, name);
+            }
+            mapped.putInt(pos + LeaderboardCons.NAME_BYTES, player.matches);
+            mapped.putInt(pos + LeaderboardCons.NAME_BYTES + 4, player.wins);
+            mapped.putShort(pos + LeaderboardCons.NAME_BYTES + 8, (short) Math.min(player.longestStreak, Short.MAX_VALUE));
+            mapped.putShort(pos + LeaderboardCons.NAME_BYTES + 10, (short) Math.min(player.currentStreak, Short.MAX_VALUE));
+
+            // Count is written last, so a crash never exposes a half written record
+            if (isNew)
+            {
+                mapped.putLong(8, player.slot + 1);
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing leaderboard record: " + e.getMessage());
+            mapped = null;
+        }
+    }
+
+    /**
+     * Cuts a name to what its record can hold.
+     */
+    static String fitName(String name)
+    {
+        return new String(encodeName(name), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Encodes a name as UTF-8, cut at a character boundary to fit its record.
+     */
+    private static byte[] encodeName(String name)
+    {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int length = name.length();
+        while (bytes.length > LeaderboardCons.NAME_BYTES - 1)
+        {
+            length--;
+            if (Character.isLowSurrogate(name.charAt(length)) && length > 0) length--;
+            bytes = name.substring(0, length).getBytes(StandardCharsets.UTF_8);
+        }
+        return bytes;
+    }
+
+    /**
+     * Maps the file with at least the given size.
+     */
+    private static void map(long size) throws IOException
+    {
+        if (size > Integer.MAX_VALUE)
+        {
+            throw new IOException("Leaderboard file is full");
+        }
+        mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    private static int recordPosition(int slot)
+    {
+        return LeaderboardCons.HEADER_SIZE + slot * LeaderboardCons.RECORD_SIZE;
+    }
+
+    private static long capacityFor(long records)
+    {
+        return LeaderboardCons.HEADER_SIZE + records * LeaderboardCons.RECORD_SIZE;
+    }
+}
@@ -0,0 +1,399 @@
+package logic;
+
+import utils.Constants.LearningCons;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A computer opponent that learns how the player plays while the match goes on.
+ *
+ * The model is a softmax regression over hashed context features that predicts the
+ * player's next hand: a bias, the player's last 1 to maxOrder hands, this opponent's
+ * last hand (what the player answers it with), and both last hands together (how the
+ * player reacts to the round).
+ * Every feature holds one weight per hand, so a prediction adds up a few rows and an
+ * update is one gradient step on those rows. The opponent plays the hand with the
+ * best expected result against the prediction.
+ *
+ * All learning runs on a worker thread. After each round the worker learns from it,
+ * replays recent rounds until the difficulty's budget is spent, and publishes the
+ * hand for the next round. The EDT only hands rounds over and reads that hand, a
+ * single volatile read, so it never waits for the model. If the player is faster
+ * than the worker, the EDT gets the hand prepared a round earlier, which is counted
+ * in the metrics. Before the first round the model learns from the end of the
+ * player's MoveHistory.
+ *
+ * At the adaptive difficulty the worker also prepares the worst response, and a
+ * DifficultyController on the EDT blends the two with random hands to keep the
+ * player's win rate near a target.
+ */
+public final class LearningOpponent
+{
+    private static final long HASH = 0x9E3779B97F4A7C15L;
+    // Feature kinds besides the orders
+    private static final int BIAS = 0, ANSWER = LearningCons.LONGEST_ORDER + 1, REACTION = LearningCons.LONGEST_ORDER + 2;
+
+    private final RuleSet rules;
+    private final int weapons;
+    private final int bits;        // Per hand in a context, as in MoveHistory
+    private final ExecutorService worker;
+
+    // Hands for the next round: the best in the low byte, the worst above it, and the
+    // number of rounds they were learned from in the upper bits
+    private volatile long prepared;
+
+    // EDT only
+    private long roundsPlayed;
+    private long stalePlays;       // Rounds played with hands prepared before the last round was learned
+    private int difficultyShown;
+    private final DifficultyController controller; // Blends the hands at the adaptive difficulty
+    private final SplittableRandom blendRandom;
+
+    // Worker only, or before the worker starts
+    private final float[] weights; // [feature row][hand]
+    private final SplittableRandom random;
+    private int difficulty;
+    private long context;          // The player's last hands, newest in the highest bits
+    private int known;             // Hands in the context, at most LONGEST_ORDER
+    private int ownLast = -1;
+    private long rounds;           // Rounds learned from
+
+    // Recent rounds for replay, a ring of REPLAY_ROUNDS
+    private final long[] replayContext = new long[LearningCons.REPLAY_ROUNDS];
+    private final byte[] replayKnown = new byte[LearningCons.REPLAY_ROUNDS];
+    private final byte[] replayOwn = new byte[LearningCons.REPLAY_ROUNDS];
+    private final byte[] replayHand = new byte[LearningCons.REPLAY_ROUNDS];
+    private int replayCount, replayNext;
+
+    // Update times for the metrics, a ring of UPDATE_SAMPLES
+    private final long[] updateNanos = new long[LearningCons.UPDATE_SAMPLES];
+    private long updates, replays;
+
+    // Scratch space of the worker
+    private final int[] features = new int[LearningCons.LONGEST_ORDER + 3];
+    private final float[] probabilities;
+
+    /**
+     * Creates the opponent and starts learning from the player's history on its worker thread.
+     *
+     * @param difficulty Index into LearningCons.DIFFICULTY_NAMES
+     * @param seed Seed for breaking ties between equally good hands
+     */
+    public LearningOpponent(RuleSet rules, int difficulty, long seed)
+    {
+        this(rules, difficulty, seed, DifficultyController.fromProperties());
+    }
+
+    /**
+     * Creates the opponent with the controller the adaptive difficulty uses, e.g. for another target.
+     */
+    LearningOpponent(RuleSet rules, int difficulty, long seed, DifficultyController controller)
+    {
+        this.rules = rules;
+        this.controller = controller;
+        this.difficulty = difficultyShown = checkDifficulty(difficulty);
+        weapons = rules.getWeaponCount();
+        bits = MoveHistory.bitsFor(weapons);
+        weights = new float[(1 << LearningCons.FEATURE_BITS) * weapons];
+        probabilities = new float[weapons];
+        random = new SplittableRandom(seed);
+        int first = random.nextInt(weapons);
+        prepared = -1L << 16 | first << 8 | first; // Until the worker has prepared a hand, counted as stale
+        blendRandom = new SplittableRandom(random.nextLong());
+
+        worker = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "learning-opponent");
+            t.setDaemon(true);
+            return t;
+        });
+        worker.execute(this::warmStart);
+    }
+
+    /**
+     * Reads the difficulty from -Dbbp.difficulty, by name or index.
+     */
+    public static int difficultyFromProperties()
+    {
+        String value = System.getProperty(LearningCons.DIFFICULTY_PROPERTY);
+        if (value == null) return LearningCons.DEFAULT_DIFFICULTY;
+        for (int d = 0; d < LearningCons.DIFFICULTY_NAMES.length; d++)
+        {
+            if (LearningCons.DIFFICULTY_NAMES[d].equalsIgnoreCase(value.trim())) return d;
+        }
+        try {
+            return checkDifficulty(Integer.parseInt(value.trim()));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown difficulty \"" + value + "\", using " +
+                    LearningCons.DIFFICULTY_NAMES[LearningCons.DEFAULT_DIFFICULTY]);
+            return LearningCons.DEFAULT_DIFFICULTY;
+        }
+    }
+
+    private static int checkDifficulty(int difficulty)
+    {
+        if (difficulty < 0 || difficulty >= LearningCons.DIFFICULTY_NAMES.length)
+        {
+            throw new IllegalArgumentException("Unknown difficulty: " + difficulty);
+        }
+        return difficulty;
+    }
+
+    /**
+     * Retrieves the hand to play this round. Never blocks: one volatile read. At the
+     * adaptive difficulty the controller blends the best hand, the worst and a random one.
+     */
+    public int nextHand()
+    {
+        long hands = prepared;
+        if (hands >>> 16 != roundsPlayed) stalePlays++;
+        int best = (int) (hands & 0xFF);
+        if (difficultyShown != LearningCons.ADAPTIVE) return best;
+        return controller.blend(best, (int) (hands >>> 8 & 0xFF), weapons, blendRandom);
+    }
+
+    /**
+     * Hands a played round to the worker, which learns from it and prepares the next hands.
+     * At the adaptive difficulty the controller updates its estimate of the player here.
+     *
+     * @param playerHand The player's hand
+     * @param ownHand The hand this opponent played
+     */
+    public void observe(int playerHand, int ownHand)
+    {
+        roundsPlayed++;
+        if (difficultyShown == LearningCons.ADAPTIVE) controller.recordRound(rules.outcome(playerHand, ownHand));
+        worker.execute(() -> learnRound(playerHand, ownHand));
+    }
+
+    /**
+     * Checks whether the hands for the next round have been learned from every round observed.
+     */
+    boolean isReady()
+    {
+        return prepared >>> 16 == roundsPlayed;
+    }
+
+    public DifficultyController getController() { return controller; }
+
+    /**
+     * Changes how long the worker may think per round and how far back it looks, from the next round on.
+     */
+    public void setDifficulty(int difficulty)
+    {
+        int d = checkDifficulty(difficulty);
+        difficultyShown = d;
+        worker.execute(() -> this.difficulty = d);
+    }
+
+    public int getDifficulty() { return difficultyShown; }
+
+    /**
+     * Stops the worker once it has finished the rounds already handed over. Returns immediately.
+     *
+     * @return The metrics, summarized by the worker after its last round
+     */
+    public Future<String> close()
+    {
+        long stale = stalePlays, played = roundsPlayed;
+        Future<String> metrics = worker.submit(() -> getMetrics(stale, played));
+        worker.shutdown();
+        return metrics;
+    }
+
+    /**
+     * Summarizes the update times of the recent rounds. Worker only.
+     */
+    private String getMetrics(long stalePlays, long roundsPlayed)
+    {
+        int samples = (int) Math.min(updates, updateNanos.length);
+        if (samples == 0) return "no rounds learned";
+        long[] sorted = Arrays.copyOf(updateNanos, samples);
+        Arrays.sort(sorted);
+        long total = 0;
+        for (long nanos : sorted) total += nanos;
+        return String.format("%s, %d updates, %.1f replays each, update p50 %d us, p99 %d us, max %d us, mean %d us, %d of %d plays stale",
+                LearningCons.DIFFICULTY_NAMES[difficulty], updates, (double) replays / updates,
+                sorted[samples / 2] / 1000, sorted[Math.min(samples - 1, (int) (samples * 0.99))] / 1000,
+                sorted[samples - 1] / 1000, total / samples / 1000, stalePlays, roundsPlayed);
+    }
+
+    /**
+     * Learns from the last WARM_START_MOVES moves of the player's history, then prepares the first hand.
+     */
+    private void warmStart()
+    {
+        try {
+            MoveHistory history = MoveHistory.getPlayerHistory();
+            long end = history.size();
+            if (history.getBitsPerMove() == bits)
+            {
+                for (long i = Math.max(0, end - LearningCons.WARM_START_MOVES); i < end; i++)
+                {
+                    int hand = history.get(i);
+                    if (hand < weapons) learn(hand, -1);
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Error reading the move history: " + e.getMessage());
+            e.printStackTrace();
+        }
+        ownLast = -1; // The history holds no hands of this opponent
+        publish();
+    }
+
+    /**
+     * Learns from a round played against the player, replays recent rounds while the
+     * difficulty's budget lasts, and publishes the next hand.
+     */
+    private void learnRound(int playerHand, int ownHand)
+    {
+        long start = System.nanoTime();
+        learn(playerHand, ownHand);
+        rounds++;
+
+        // Newest first, at most once each and with smaller steps the older a round is,
+        // so a player who changes habits is not held to the old ones
+        long deadline = start + LearningCons.BUDGET_NANOS[difficulty];
+        int order = LearningCons.MAX_ORDER[difficulty];
+        float rate = LearningCons.LEARNING_RATE;
+        for (int done = 1; done < replayCount; done++)
+        {
+            if ((done & 15) == 0 && System.nanoTime() >= deadline) break;
+            rate *= LearningCons.REPLAY_FADE;
+            int index = (replayNext - 1 - done + LearningCons.REPLAY_ROUNDS) % LearningCons.REPLAY_ROUNDS;
+            step(replayContext[index], Math.min(replayKnown[index], order), replayOwn[index], replayHand[index], rate);
+            replays++;
+        }
+
+        publish();
+        updateNanos[(int) (updates++ % updateNanos.length)] = System.nanoTime() - start;
+    }
+
+    /**
+     * Takes one step on a new round and moves the context past it.
+     */
+    private void learn(int playerHand, int ownHand)
+    {
+        step(context, Math.min(known, LearningCons.MAX_ORDER[difficulty]), ownLast, playerHand, LearningCons.LEARNING_RATE);
+
+        replayContext[replayNext] = context;
+        replayKnown[replayNext] = (byte) known;
+        replayOwn[replayNext] = (byte) ownLast;
+        replayHand[replayNext] = (byte) playerHand;
+        replayNext = (replayNext + 1) % LearningCons.REPLAY_ROUNDS;
+        replayCount = Math.min(replayCount + 1, LearningCons.REPLAY_ROUNDS);
+
+        context = (context >>> bits) | ((long) playerHand << (64 - bits));
+        known = Math.min(known + 1, LearningCons.LONGEST_ORDER);
+        ownLast = ownHand;
+    }
+
+    /**
+     * One gradient step of the softmax regression towards the hand the player played.
+     */
+    private void step(long context, int order, int ownLast, int playerHand, float rate)
+    {
+        int count = features(context, order, ownLast);
+        predict(count);
+        for (int f = 0; f < count; f++)
+        {
+            int row = features[f] * weapons;
+            for (int h = 0; h < weapons; h++)
+            {
+                weights[row + h] += rate * ((h == playerHand ? 1 : 0) - probabilities[h]);
+            }
+        }
+    }
+
+    /**
+     * Fills features with the rows of a context: the bias, the last 1 to order hands, the answer and the reaction.
+     *
+     * @return The number of features
+     */
+    private int features(long context, int order, int ownLast)
+    {
+        int count = 0;
+        features[count++] = row(BIAS, 0);
+        for (int k = 1; k <= order; k++)
+        {
+            features[count++] = row(k, context >>> (64 - k * bits)); // Last k hands, oldest lowest as in MoveHistory
+        }
+        if (ownLast >= 0 && order > 0)
+        {
+            features[count++] = row(ANSWER, ownLast);
+            features[count++] = row(REACTION, (context >>> (64 - bits)) * weapons + ownLast);
+        }
+        return count;
+    }
+
+    private static int row(int kind, long code)
+    {
+        return (int) (((code + 1) * HASH + kind * 0xC2B2AE3D27D4EB4FL) * HASH >>> (64 - LearningCons.FEATURE_BITS));
+    }
+
+    /**
+     * Fills probabilities with the model's prediction from the given features.
+     */
+    private void predict(int count)
+    {
+        float max = Float.NEGATIVE_INFINITY;
+        for (int h = 0; h < weapons; h++)
+        {
+            float sum = 0;
+            for (int f = 0; f < count; f++) sum += weights[features[f] * weapons + h];
+            probabilities[h] = sum;
+            max = Math.max(max, sum);
+        }
+        float total = 0;
+        for (int h = 0; h < weapons; h++)
+        {
+            probabilities[h] = (float) Math.exp(probabilities[h] - max);
+            total += probabilities[h];
+        }
+        for (int h = 0; h < weapons; h++) probabilities[h] /= total;
+    }
+
+    /**
+     * Prepares the hands with the best and the worst expected result against the predicted next hand.
+     */
+    private void publish()
+    {
+        predict(features(context, Math.min(known, LearningCons.MAX_ORDER[difficulty]), ownLast));
+        prepared = rounds << 16 | (long) pick(-1) << 8 | pick(1);
+    }
+
+    /**
+     * Picks the hand whose expected result against the prediction, times sign, is highest.
+     * Equally good hands are picked evenly.
+     */
+    private int pick(int sign)
+    {
+        int best = 0, ties = 0;
+        float bestValue = Float.NEGATIVE_INFINITY;
+        for (int own = 0; own < weapons; own++)
+        {
+            float value = 0;
+            for (int player = 0; player < weapons; player++)
+            {
+                int outcome = rules.outcome(player, own);
+                if (outcome == Match.COMPUTER_WIN) value += probabilities[player];
+                else if (outcome == Match.PLAYER_WIN) value -= probabilities[player];
+            }
+            value *= sign;
+            if (value > bestValue + 1e-6f)
+            {
+                bestValue = value;
+                best = own;
+                ties = 1;
+            } else if (value > bestValue - 1e-6f && random.nextInt(++ties) == 0)
+            {
+                best = own;
+            }
+        }
+        return best;
+    }
+}
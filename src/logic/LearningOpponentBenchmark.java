@@ -0,0 +1,71 @@
+package logic;
+
+import utils.Constants.LearningCons;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Plays the learning opponent at every difficulty against synthetic players with the
+ * AI styles' habits, and prints how often it beats each of them once it has learned,
+ * followed by its update time metrics. The "random" player cannot be learned, so the
+ * opponent should stay near even against it and win against every other style.
+ *
+ * Rounds are played back to back by default, far faster than anyone clicks, which
+ * shows how often the EDT would get a hand prepared before the last round was learned.
+ * A pace in microseconds between rounds gives the worker time to think.
+ *
+ * As in the game, every opponent first learns from the player's saved history of the
+ * active rules, which is only read.
+ *
+ * Usage: java -cp out:res logic.LearningOpponentBenchmark [rounds] [pace us]
+ */
+public class LearningOpponentBenchmark
+{
+    public static void main(String[] args) throws Exception
+    {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        long paceNanos = args.length > 1 ? Long.parseLong(args[1]) * 1000 : 0;
+        RuleSet rules = RuleSet.getActive();
+        System.out.println(rules.getId() + ", " + rounds + " rounds per player, " + paceNanos / 1000 + " us between rounds");
+
+        for (int difficulty = 0; difficulty < LearningCons.DIFFICULTY_NAMES.length; difficulty++)
+        {
+            System.out.println();
+            System.out.println(LearningCons.DIFFICULTY_NAMES[difficulty]);
+            for (int style = 0; style < AIOpponent.TOTAL_STYLES; style++)
+            {
+                play(rules, difficulty, style, rounds, paceNanos);
+            }
+        }
+    }
+
+    /**
+     * Plays one synthetic player and prints the opponent's share of the decided rounds in the second half.
+     */
+    private static void play(RuleSet rules, int difficulty, int style, int rounds, long paceNanos) throws Exception
+    {
+        SplittableRandom random = new SplittableRandom(style * 31 + difficulty);
+        LearningOpponent opponent = new LearningOpponent(rules, difficulty, random.nextLong());
+        int playerLast = -1, opponentLast = -1;
+        long wins = 0, losses = 0;
+        for (int round = 0; round < rounds; round++)
+        {
+            int player = AIOpponent.chooseHand(style, random, playerLast, opponentLast);
+            int hand = opponent.nextHand();
+            opponent.observe(player, hand);
+            if (round >= rounds / 2)
+            {
+                int outcome = rules.outcome(player, hand);
+                if (outcome == Match.COMPUTER_WIN) wins++;
+                else if (outcome == Match.PLAYER_WIN) losses++;
+            }
+            playerLast = player;
+            opponentLast = hand;
+            if (paceNanos > 0) LockSupport.parkNanos(paceNanos);
+        }
+        System.out.printf("  %-8s opponent won %5.1f%% of the decided rounds  ", AIOpponent.getName(style),
+                100.0 * wins / Math.max(1, wins + losses));
+        System.out.println(opponent.close().get());
+    }
+}
@@ -0,0 +1,151 @@
+package logic;
+
+import utils.Constants.playingUICons;
+
+import java.util.SplittableRandom;
+
+/**
+ * Holds the rules and lives of a single Bato Bato Pik match.
+ * Rounds are resolved by the match's RuleSet, the classic rules unless -Dbbp.rules picks another variant.
+ * Contains no UI or sound code, so the same match can be played from PlayingUI
+ * or simulated headlessly (for example when replaying a recorded match).
+ */
+public final class Match
+{
+    // Round outcomes
+    public static final int TIE = 0;
+    public static final int PLAYER_WIN = 1;
+    public static final int COMPUTER_WIN = 2;
+
+    private final RuleSet rules;           // Weapons and who beats whom
+    private final long seed;               // Seed the computer's RNG was created with
+    private final SplittableRandom random; // Seeded RNG for the computer's choice
+    private final int startingLives;       // Lives each side starts a game with
+
+    private int playerLives, computerLives; // Lives for player and computer
+    private boolean gameOver;               // Tracks if the match has ended
+    private int playerHand, computerHand;   // Hands of the last round played
+
+    /**
+     * Creates a match whose computer choices are fully determined by the seed.
+     *
+     * @param seed Seed for the computer's RNG
+     */
+    public Match(long seed)
+    {
+        this(seed, playingUICons.TOTAL_HEARTS);
+    }
+
+    /**
+     * Creates a match where each side starts with the given number of lives.
+     *
+     * @param seed Seed for the computer's RNG
+     * @param startingLives Lives per side, e.g. from a tournament's MatchFormat
+     */
+    public Match(long seed, int startingLives)
+    {
+        this(seed, startingLives, RuleSet.getActive());
+    }
+
+    /**
+     * Creates a match of a given game variant, e.g. the one a replay was recorded with.
+     *
+     * @param seed Seed for the computer's RNG
+     * @param startingLives Lives per side
+     * @param rules The variant to play
+     */
+    public Match(long seed, int startingLives, RuleSet rules)
+    {
+        this.rules = rules;
+        this.seed = seed;
+        this.startingLives = startingLives;
+        random = new SplittableRandom(seed);
+        restart();
+    }
+
+    /**
+     * Plays a round against a randomly chosen computer hand.
+     *
+     * @param playerHand The player's hand, a weapon of the match's rules
+     * @return The outcome of the round (TIE, PLAYER_WIN or COMPUTER_WIN)
+     */
+    public int playRound(int playerHand)
+    {
+        return resolveRound(playerHand, random.nextInt(rules.getWeaponCount()));
+    }
+
+    /**
+     * Resolves a round between two known hands and updates the lives.
+     *
+     * @param playerHand The player's hand
+     * @param computerHand The computer's hand
+     * @return The outcome of the round (TIE, PLAYER_WIN or COMPUTER_WIN)
+     */
+    public int resolveRound(int playerHand, int computerHand)
+    {
+        this.playerHand = playerHand;
+        this.computerHand = computerHand;
+
+        int outcome = rules.outcome(playerHand, computerHand);
+        if (outcome == PLAYER_WIN)
+        {
+            computerLives--;
+            gameOver = computerLives <= 0;
+        } else if (outcome == COMPUTER_WIN)
+        {
+            playerLives--;
+            gameOver = playerLives <= 0;
+        }
+        return outcome;
+    }
+
+    /**
+     * Prepares for the next round. Lives are only refilled once the match is over.
+     */
+    public void nextRound()
+    {
+        if (gameOver)
+        {
+            playerLives = startingLives;
+            computerLives = startingLives;
+            gameOver = false;
+        }
+        playerHand = playingUICons.ROCK;
+        computerHand = playingUICons.ROCK;
+    }
+
+    /**
+     * Refills both sides' lives and starts the match over.
+     * The RNG keeps its position so a replay stays in step with the original.
+     */
+    public void restart()
+    {
+        playerLives = startingLives;
+        computerLives = startingLives;
+        gameOver = false;
+        playerHand = playingUICons.ROCK;
+        computerHand = playingUICons.ROCK;
+    }
+
+    /**
+     * Overwrites both sides' lives, e.g. with the lives a versus server reports.
+     *
+     * @param playerLives Lives of the player
+     * @param computerLives Lives of the opponent
+     */
+    public void setLives(int playerLives, int computerLives)
+    {
+        this.playerLives = playerLives;
+        this.computerLives = computerLives;
+        gameOver = playerLives <= 0 || computerLives <= 0;
+    }
+
+    public RuleSet getRules() { return rules; }
+    public long getSeed() { return seed; }
+    public int getStartingLives() { return startingLives; }
+    public int getPlayerLives() { return playerLives; }
+    public int getComputerLives() { return computerLives; }
+    public int getPlayerHand() { return playerHand; }
+    public int getComputerHand() { return computerHand; }
+    public boolean isGameOver() { return gameOver; }
+}
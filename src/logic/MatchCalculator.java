@@ -0,0 +1,344 @@
+package logic;
+
+import utils.Constants.CalculatorCons;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Exact odds of a game between two strategies, over the (player lives, computer lives)
+ * states PlayingUI plays through: the chance the player wins, the expected number of
+ * rounds and the distribution of the number of rounds, for any lives up to a maximum.
+ *
+ * The state of a game is both sides' lives and the joint memory state of the two
+ * strategies. A tie leaves the lives alone, so the states with the same lives form a
+ * layer that only decided rounds leave, towards layers computed before it. Leaving a
+ * layer is the same in every layer: ties with the chances T between memory states, then
+ * a win W or a loss L, which is (I - T)^-1 W and (I - T)^-1 L. These are solved once, so
+ * each layer is two matrix-vector products with the layers one life lower. The answers
+ * for every pair of lives up to maxLives are computed up front and kept, so a query is a
+ * table lookup. Memoryless strategies have a single memory state, which makes every
+ * layer a few multiplications.
+ */
+public final class MatchCalculator
+{
+    private final RuleSet rules;
+    private final Strategy player;
+    private final Strategy opponent;
+    private final int maxLives;
+    private final int states;        // Joint memory states, player state * opponent states + opponent state
+
+    // Chance of each kind of round from a joint state into the next one, [from][to]
+    private final double[][] tie, win, loss;
+
+    // Chance of ending the ties in each joint state with a win or a loss into the next one,
+    // (I - tie)^-1 win and (I - tie)^-1 loss, and the expected rounds until then, (I - tie)^-1 1
+    private final double[][] afterWin, afterLoss;
+    private final double[] roundsToDecide;
+
+    // Memo of every lives pair from the start state of the strategies, [player lives][opponent lives]
+    private final double[][] winProbability;
+    private final double[][] expectedRounds;
+
+    /**
+     * Computes the odds for every pair of lives from 1 to maxLives.
+     *
+     * @throws IllegalArgumentException If the strategies do not fit the rules, have too
+     *         many memory states together, or can tie forever
+     */
+    public MatchCalculator(RuleSet rules, Strategy player, Strategy opponent, int maxLives)
+    {
+        int n = rules.getWeaponCount();
+        if (player.getWeaponCount() != n || opponent.getWeaponCount() != n)
+        {
+            throw new IllegalArgumentException("Strategies must play the " + n + " weapons of " + rules.getId());
+        }
+        if (maxLives < 1 || maxLives > CalculatorCons.MAX_LIVES)
+        {
+            throw new IllegalArgumentException("Lives must be from 1 to " + CalculatorCons.MAX_LIVES + ": " + maxLives);
+        }
+        this.rules = rules;
+        this.player = player;
+        this.opponent = opponent;
+        this.maxLives = maxLives;
+        states = player.getStates() * opponent.getStates();
+        if (states > CalculatorCons.MAX_MEMORY_STATES)
+        {
+            throw new IllegalArgumentException(player + " and " + opponent + " have " + states +
+                    " memory states together, at most " + CalculatorCons.MAX_MEMORY_STATES + " are supported");
+        }
+
+        tie = new double[states][states];
+        win = new double[states][states];
+        loss = new double[states][states];
+        buildTransitions();
+
+        double[][] lu = new double[states][];
+        for (int s = 0; s < states; s++)
+        {
+            lu[s] = new double[states];
+            for (int t = 0; t < states; t++) lu[s][t] = (s == t ? 1 : 0) - tie[s][t];
+        }
+        int[] pivots = new int[states];
+        factorize(lu, pivots);
+        afterWin = solveColumns(lu, pivots, win);
+        afterLoss = solveColumns(lu, pivots, loss);
+        roundsToDecide = new double[states];
+        Arrays.fill(roundsToDecide, 1);
+        solve(lu, pivots, roundsToDecide);
+
+        winProbability = new double[maxLives + 1][maxLives + 1];
+        expectedRounds = new double[maxLives + 1][maxLives + 1];
+        solveLayers();
+    }
+
+    /**
+     * Computes calculators for every pair of strategies at once, the pairs in parallel.
+     *
+     * @return result[p][o] for players[p] against opponents[o]
+     */
+    public static MatchCalculator[][] sweep(RuleSet rules, Strategy[] players, Strategy[] opponents, int maxLives)
+    {
+        MatchCalculator[][] result = new MatchCalculator[players.length][opponents.length];
+        IntStream.range(0, players.length * opponents.length).parallel().forEach(k -> {
+            int p = k / opponents.length, o = k % opponents.length;
+            result[p][o] = new MatchCalculator(rules, players[p], opponents[o], maxLives);
+        });
+        return result;
+    }
+
+    /**
+     * Sums up the chance of every hand pair in every joint memory state by where it leads.
+     */
+    private void buildTransitions()
+    {
+        int n = rules.getWeaponCount();
+        int opponentStates = opponent.getStates();
+        for (int s = 0; s < states; s++)
+        {
+            int ps = s / opponentStates, os = s % opponentStates;
+            for (int a = 0; a < n; a++)
+            {
+                double pa = player.probability(ps, a);
+                if (pa == 0) continue;
+                for (int b = 0; b < n; b++)
+                {
+                    double p = pa * opponent.probability(os, b);
+                    if (p == 0) continue;
+                    int next = player.next(ps, a, b) * opponentStates + opponent.next(os, b, a);
+                    switch (rules.outcome(a, b)) {
+                        case Match.PLAYER_WIN:
+                            win[s][next] += p;
+                            break;
+                        case Match.COMPUTER_WIN:
+                            loss[s][next] += p;
+                            break;
+                        default:
+                            tie[s][next] += p;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Factorizes I - tie in place with partial pivoting.
+     *
+     * @throws IllegalArgumentException If the matrix is singular, i.e. some memory state only ever ties
+     */
+    private void factorize(double[][] lu, int[] pivots)
+    {
+        for (int k = 0; k < states; k++)
+        {
+            int best = k;
+            for (int r = k + 1; r < states; r++)
+            {
+                if (Math.abs(lu[r][k]) > Math.abs(lu[best][k])) best = r;
+            }
+            if (Math.abs(lu[best][k]) < CalculatorCons.SINGULAR_PIVOT)
+            {
+                throw new IllegalArgumentException(player + " against " + opponent + " can tie forever");
+            }
+            pivots[k] = best;
+            double[] row = lu[best];
+            lu[best] = lu[k];
+            lu[k] = row;
+            for (int r = k + 1; r < states; r++)
+            {
+                double factor = lu[r][k] /= row[k];
+                if (factor == 0) continue;
+                for (int c = k + 1; c < states; c++) lu[r][c] -= factor * row[c];
+            }
+        }
+    }
+
+    /**
+     * Solves (I - tie) X = B column by column.
+     */
+    private double[][] solveColumns(double[][] lu, int[] pivots, double[][] b)
+    {
+        double[][] x = new double[states][states];
+        double[] column = new double[states];
+        for (int c = 0; c < states; c++)
+        {
+            for (int r = 0; r < states; r++) column[r] = b[r][c];
+            solve(lu, pivots, column);
+            for (int r = 0; r < states; r++) x[r][c] = column[r];
+        }
+        return x;
+    }
+
+    /**
+     * Solves (I - tie) x = b in place.
+     */
+    private void solve(double[][] lu, int[] pivots, double[] b)
+    {
+        for (int k = 0; k < states; k++)
+        {
+            double swap = b[pivots[k]];
+            b[pivots[k]] = b[k];
+            b[k] = swap;
+        }
+        for (int r = 1; r < states; r++)
+        {
+            double sum = b[r];
+            for (int c = 0; c < r; c++) sum -= lu[r][c] * b[c];
+            b[r] = sum;
+        }
+        for (int r = states - 1; r >= 0; r--)
+        {
+            double sum = b[r];
+            for (int c = r + 1; c < states; c++) sum -= lu[r][c] * b[c];
+            b[r] = sum / lu[r][r];
+        }
+    }
+
+    /**
+     * Fills the memo layer by layer, each from the layers one life lower.
+     * A game that is over is won by the side with lives left and takes no more rounds.
+     */
+    private void solveLayers()
+    {
+        // Values of every joint state, [player lives][opponent lives][state]
+        double[][][] wins = new double[maxLives + 1][maxLives + 1][];
+        double[][][] rounds = new double[maxLives + 1][maxLives + 1][];
+        double[] zero = new double[states], one = new double[states];
+        Arrays.fill(one, 1);
+        for (int lives = 0; lives <= maxLives; lives++)
+        {
+            wins[lives][0] = one;
+            wins[0][lives] = zero;
+            rounds[lives][0] = zero;
+            rounds[0][lives] = zero;
+        }
+
+        for (int i = 1; i <= maxLives; i++)
+        {
+            for (int j = 1; j <= maxLives; j++)
+            {
+                double[] w = new double[states];
+                double[] e = new double[states];
+                double[] winsAfterWin = wins[i][j - 1], winsAfterLoss = wins[i - 1][j];
+                double[] roundsAfterWin = rounds[i][j - 1], roundsAfterLoss = rounds[i - 1][j];
+                for (int s = 0; s < states; s++)
+                {
+                    double[] toWin = afterWin[s], toLoss = afterLoss[s];
+                    double sw = 0, se = roundsToDecide[s];
+                    for (int t = 0; t < states; t++)
+                    {
+                        sw += toWin[t] * winsAfterWin[t] + toLoss[t] * winsAfterLoss[t];
+                        se += toWin[t] * roundsAfterWin[t] + toLoss[t] * roundsAfterLoss[t];
+                    }
+                    w[s] = sw;
+                    e[s] = se;
+                }
+                wins[i][j] = w;
+                rounds[i][j] = e;
+                winProbability[i][j] = w[0];
+                expectedRounds[i][j] = e[0];
+            }
+        }
+    }
+
+    /**
+     * Retrieves the chance that the player wins the game.
+     *
+     * @param playerLives Lives the player starts with, 1 to maxLives
+     * @param opponentLives Lives the opponent starts with, 1 to maxLives
+     */
+    public double getWinProbability(int playerLives, int opponentLives)
+    {
+        checkLives(playerLives, opponentLives);
+        return winProbability[playerLives][opponentLives];
+    }
+
+    /**
+     * Retrieves the expected number of rounds of the game, ties included.
+     */
+    public double getExpectedRounds(int playerLives, int opponentLives)
+    {
+        checkLives(playerLives, opponentLives);
+        return expectedRounds[playerLives][opponentLives];
+    }
+
+    /**
+     * Computes the chance that the game ends after exactly r rounds, for every r, by
+     * moving the chances of all states forward one round at a time. Stops once all but
+     * CalculatorCons.TAIL_MASS of the games are over, or after maxRounds.
+     *
+     * @return distribution[r] for r from 0; the chance of a longer game is 1 minus the sum
+     */
+    public double[] getRoundDistribution(int playerLives, int opponentLives, int maxRounds)
+    {
+        checkLives(playerLives, opponentLives);
+        double[][][] mass = new double[playerLives + 1][opponentLives + 1][states];
+        double[][][] next = new double[playerLives + 1][opponentLives + 1][states];
+        mass[playerLives][opponentLives][0] = 1;
+        double[] distribution = new double[maxRounds + 1];
+        double alive = 1;
+        int r = 0;
+        while (r < maxRounds && alive > CalculatorCons.TAIL_MASS)
+        {
+            r++;
+            double ended = 0;
+            for (int i = 1; i <= playerLives; i++)
+            {
+                for (int j = 1; j <= opponentLives; j++)
+                {
+                    double[] from = mass[i][j];
+                    for (int s = 0; s < states; s++)
+                    {
+                        double m = from[s];
+                        if (m == 0) continue;
+                        for (int t = 0; t < states; t++)
+                        {
+                            next[i][j][t] += m * tie[s][t];
+                            if (j > 1) next[i][j - 1][t] += m * win[s][t]; else ended += m * win[s][t];
+                            if (i > 1) next[i - 1][j][t] += m * loss[s][t]; else ended += m * loss[s][t];
+                        }
+                        from[s] = 0;
+                    }
+                }
+            }
+            double[][][] swap = mass;
+            mass = next;
+            next = swap;
+            distribution[r] = ended;
+            alive -= ended;
+        }
+        return Arrays.copyOf(distribution, r + 1);
+    }
+
+    private void checkLives(int playerLives, int opponentLives)
+    {
+        if (playerLives < 1 || playerLives > maxLives || opponentLives < 1 || opponentLives > maxLives)
+        {
+            throw new IllegalArgumentException("Lives must be from 1 to " + maxLives + ": " + playerLives + ", " + opponentLives);
+        }
+    }
+
+    public RuleSet getRules() { return rules; }
+    public Strategy getPlayer() { return player; }
+    public Strategy getOpponent() { return opponent; }
+    public int getMaxLives() { return maxLives; }
+}
@@ -0,0 +1,81 @@
+package logic;
+
+import utils.Constants.TournamentCons;
+import utils.Constants.playingUICons;
+
+/**
+ * How a tournament pairing is played: a best-of-N series of games, each game
+ * played until one side runs out of lives.
+ */
+public final class MatchFormat
+{
+    private final int bestOf; // Odd, so a series always has a winner
+    private final int lives;  // Lives per side in every game
+
+    /**
+     * @param bestOf Games in the series, an odd number from 1 to MAX_BEST_OF
+     * @param lives Lives per side, from 1 to MAX_LIVES
+     */
+    public MatchFormat(int bestOf, int lives)
+    {
+        if (bestOf < 1 || bestOf > TournamentCons.MAX_BEST_OF || bestOf % 2 == 0)
+        {
+            throw new IllegalArgumentException("Best of must be odd and at most " + TournamentCons.MAX_BEST_OF + ": " + bestOf);
+        }
+        if (lives < 1 || lives > TournamentCons.MAX_LIVES)
+        {
+            throw new IllegalArgumentException("Lives must be from 1 to " + TournamentCons.MAX_LIVES + ": " + lives);
+        }
+        this.bestOf = bestOf;
+        this.lives = lives;
+    }
+
+    /**
+     * Reads the format from -Dbbp.bestOf and -Dbbp.lives, falling back to the defaults
+     * for anything missing or out of range.
+     */
+    public static MatchFormat fromProperties()
+    {
+        int bestOf = Integer.getInteger(TournamentCons.BEST_OF_PROPERTY, TournamentCons.DEFAULT_BEST_OF);
+        int lives = Integer.getInteger(TournamentCons.LIVES_PROPERTY, playingUICons.TOTAL_HEARTS);
+        try {
+            return new MatchFormat(bestOf, lives);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Ignoring tournament format: " + e.getMessage());
+            return new MatchFormat(TournamentCons.DEFAULT_BEST_OF, playingUICons.TOTAL_HEARTS);
+        }
+    }
+
+    /**
+     * Retrieves the format with the next longer series, wrapping back to best of 1.
+     */
+    public MatchFormat withNextBestOf()
+    {
+        return new MatchFormat(bestOf + 2 > TournamentCons.MAX_BEST_OF ? 1 : bestOf + 2, lives);
+    }
+
+    /**
+     * Retrieves the format with one more life per game, wrapping back to 1.
+     */
+    public MatchFormat withNextLives()
+    {
+        return new MatchFormat(bestOf, lives % TournamentCons.MAX_LIVES + 1);
+    }
+
+    public int getBestOf() { return bestOf; }
+    public int getLives() { return lives; }
+
+    /**
+     * Retrieves how many games a side must win to take the series.
+     */
+    public int getWinsNeeded()
+    {
+        return bestOf / 2 + 1;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Best of " + bestOf + ", " + lives + (lives == 1 ? " life" : " lives");
+    }
+}
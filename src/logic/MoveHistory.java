@@ -0,0 +1,351 @@
+package logic;
+
+import utils.Constants.HistoryCons;
+import utils.Constants.StoragePaths;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Every move the player ever made under one rule set, for opponent models.
+ *
+ * Moves are packed into the smallest power of two number of bits that holds a
+ * weapon: 2 for the classic rules, 4 up to 16 weapons, 8 beyond that. They live
+ * off the heap in a memory-mapped file (HISTORY_DIR/&lt;rules id&gt;.history), so a
+ * history of billions of moves costs the garbage collector nothing, and opening
+ * it maps the file without reading it. Move i sits at bit (i * bits) % 64 of
+ * little-endian word (i * bits) / 64 after the header, which makes appending a
+ * move and reading the last n moves as one number a couple of word accesses.
+ *
+ * One thread appends at a time. Any thread may read: the count is published
+ * after the move is written, and a segment that is remapped to grow keeps
+ * showing the same pages to readers still holding it. The player's moves are
+ * appended by one background thread, so the file is never opened, mapped or
+ * grown on the EDT.
+ */
+public final class MoveHistory
+{
+    private static final int SEGMENT_WORD_SHIFT = Integer.numberOfTrailingZeros(HistoryCons.SEGMENT_BYTES / 8);
+    private static final long SEGMENT_WORD_MASK = HistoryCons.SEGMENT_BYTES / 8 - 1;
+
+    private static MoveHistory player; // History of the active rules, guarded by the class lock
+
+    // Single thread that appends the player's moves, in the order they were played
+    private static final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "history-writer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final FileChannel channel; // null if the history is kept in memory only
+    private final ByteBuffer header;
+    private final int bits;            // Per move: 1, 2, 4 or 8
+    private final long moveMask;
+
+    private volatile ByteBuffer[] segments; // Replaced, never changed, when the history grows
+    private volatile long size;
+    private long capacityWords;             // Words the segments hold, only used by the appending thread
+
+    private MoveHistory(FileChannel channel, ByteBuffer header, int bits, ByteBuffer[] segments, long size)
+    {
+        this.channel = channel;
+        this.header = header;
+        this.bits = bits;
+        this.segments = segments;
+        this.size = size;
+        moveMask = (1L << bits) - 1;
+        for (ByteBuffer segment : segments) capacityWords += segment.capacity() / 8;
+    }
+
+    /**
+     * Retrieves the player's history under the active rules, opening its file the first time.
+     * If the file cannot be opened the history is kept for this session only.
+     */
+    public static synchronized MoveHistory getPlayerHistory()
+    {
+        if (player == null)
+        {
+            RuleSet rules = RuleSet.getActive();
+            File file = new File(StoragePaths.HISTORY_DIR, rules.getId() + HistoryCons.FILE_EXTENSION);
+            try {
+                player = open(file, rules.getWeaponCount());
+            } catch (IOException e) {
+                System.err.println("Error opening move history, keeping it for this session only: " + e.getMessage());
+                e.printStackTrace();
+                player = inMemory(rules.getWeaponCount());
+            }
+        }
+        return player;
+    }
+
+    /**
+     * Adds a move to the player's history under the active rules. Returns immediately;
+     * the history is opened the first time, and the move written, in the background.
+     *
+     * @param move A weapon of the active rule set
+     */
+    public static void recordPlayerMove(int move)
+    {
+        writer.execute(() -> {
+            try {
+                getPlayerHistory().append(move);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Error recording move: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Opens a history file, creating it if it does not exist. The moves in it are mapped, not read.
+     *
+     * @param weaponCount Number of weapons of the rule set the moves are from
+     * @throws IOException If the file cannot be mapped, or holds moves of a different size
+     */
+    public static MoveHistory open(File file, int weaponCount) throws IOException
+    {
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (!dir.exists() && !dir.mkdirs()) throw new IOException("Could not create history directory: " + dir);
+
+        int bits = bitsFor(weaponCount);
+        FileChannel channel = new RandomAccessFile(file, "rw").getChannel();
+        try {
+            long fileSize = channel.size();
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HistoryCons.HEADER_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (fileSize < HistoryCons.HEADER_SIZE || header.getInt(0) != HistoryCons.MAGIC ||
+                    header.getInt(4) != HistoryCons.VERSION)
+            {
+                if (fileSize >= HistoryCons.HEADER_SIZE)
+                {
+                    System.err.println("Move history is corrupt, starting over: " + file);
+                    channel.truncate(HistoryCons.HEADER_SIZE);
+                }
+                fileSize = HistoryCons.HEADER_SIZE;
+                header.putInt(0, HistoryCons.MAGIC);
+                header.putInt(4, HistoryCons.VERSION);
+                header.putInt(HistoryCons.BITS_OFFSET, bits);
+                header.putLong(HistoryCons.COUNT_OFFSET, 0);
+            }
+            if (header.getInt(HistoryCons.BITS_OFFSET) != bits)
+            {
+                throw new IOException(file + " holds moves of " + header.getInt(HistoryCons.BITS_OFFSET) +
+                        " bits, " + weaponCount + " weapons take " + bits);
+            }
+
+            // Map what the file holds. Moves past the stored count are from a write that never finished
+            long dataBytes = (fileSize - HistoryCons.HEADER_SIZE + 7) & ~7L;
+            int count = (int) ((dataBytes + HistoryCons.SEGMENT_BYTES - 1) / HistoryCons.SEGMENT_BYTES);
+            ByteBuffer[] segments = new ByteBuffer[count];
+            for (int k = 0; k < count; k++)
+            {
+                long start = (long) k * HistoryCons.SEGMENT_BYTES;
+                segments[k] = mapSegment(channel, k, (int) Math.min(HistoryCons.SEGMENT_BYTES, dataBytes - start));
+            }
+            long fits = dataBytes * 8 / bits;
+            long size = Math.min(header.getLong(HistoryCons.COUNT_OFFSET), fits);
+            return new MoveHistory(channel, header, bits, segments, size);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Creates an empty history in direct buffers, off the heap like a file but gone at exit.
+     */
+    public static MoveHistory inMemory(int weaponCount)
+    {
+        ByteBuffer header = ByteBuffer.allocateDirect(HistoryCons.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        return new MoveHistory(null, header, bitsFor(weaponCount), new ByteBuffer[0], 0);
+    }
+
+    /**
+     * Retrieves the bits a move takes with the given number of weapons.
+     */
+    static int bitsFor(int weaponCount)
+    {
+        int needed = 32 - Integer.numberOfLeadingZeros(Math.max(1, weaponCount - 1));
+        return needed <= 1 ? 1 : Integer.highestOneBit(needed - 1) << 1;
+    }
+
+    /**
+     * Adds a move at the end. O(1): the history grows by doubling its last segment.
+     *
+     * @param move A weapon of the rule set
+     * @throws IOException If the file cannot grow; the move is not added
+     */
+    public synchronized void append(int move) throws IOException
+    {
+        if (move < 0 || move > moveMask) throw new IllegalArgumentException("Move does not fit in " + bits + " bits: " + move);
+        long index = size;
+        long bit = index * bits;
+        long word = bit >>> 6;
+        if (word >= capacityWords) grow();
+
+        ByteBuffer segment = segments[(int) (word >>> SEGMENT_WORD_SHIFT)];
+        int pos = (int) (word & SEGMENT_WORD_MASK) << 3;
+        int shift = (int) (bit & 63);
+        // Cleared first: a write that was never counted may have left bits behind
+        segment.putLong(pos, segment.getLong(pos) & ~(moveMask << shift) | (long) move << shift);
+
+        // Count is written last, so a crash never exposes a half written move
+        size = index + 1;
+        header.putLong(HistoryCons.COUNT_OFFSET, index + 1);
+    }
+
+    /**
+     * Adds moves[from..to - 1] at the end, a word at a time, for importing or simulating
+     * long histories. The moves are counted together once they are all written.
+     *
+     * @throws IOException If the file cannot grow; no move is added
+     */
+    public synchronized void append(int[] moves, int from, int to) throws IOException
+    {
+        if (from < 0 || from > to || to > moves.length) throw new IndexOutOfBoundsException("Moves " + from + " to " + to + " of " + moves.length);
+        for (int i = from; i < to; i++)
+        {
+            if (moves[i] < 0 || moves[i] > moveMask) throw new IllegalArgumentException("Move does not fit in " + bits + " bits: " + moves[i]);
+        }
+        if (from == to) return;
+        long index = size;
+        long end = index + (to - from);
+        while ((end * bits - 1) >>> 6 >= capacityWords) grow();
+
+        ByteBuffer[] segments = this.segments;
+        long bit = index * bits;
+        long word = bit >>> 6;
+        int shift = (int) (bit & 63);
+        long value = shift == 0 ? 0 : word(segments, word) & ((1L << shift) - 1); // Moves already in the first word
+        for (int i = from; i < to; i++)
+        {
+            value |= (long) moves[i] << shift;
+            shift += bits;
+            if (shift == 64)
+            {
+                putWord(segments, word++, value);
+                value = 0;
+                shift = 0;
+            }
+        }
+        if (shift > 0) putWord(segments, word, value);
+
+        size = end;
+        header.putLong(HistoryCons.COUNT_OFFSET, end);
+    }
+
+    /**
+     * Retrieves a move.
+     *
+     * @param index From 0, the oldest move, to size() - 1
+     */
+    public int get(long index)
+    {
+        long count = size;
+        if (index < 0 || index >= count) throw new IndexOutOfBoundsException("Move " + index + " of " + count);
+        long bit = index * bits;
+        return (int) (word(segments, bit >>> 6) >>> (bit & 63) & moveMask);
+    }
+
+    /**
+     * Retrieves the n moves before a position as one number, the oldest in the lowest
+     * bits. Two histories that end in the same n moves give the same number, so it
+     * can key a table of what the player did next after each n-gram.
+     *
+     * @param end Position after the last move of the context, at most size()
+     * @param n Number of moves, at most 64 / getBitsPerMove()
+     */
+    public long context(long end, int n)
+    {
+        long count = size;
+        ByteBuffer[] segments = this.segments; // Read after the count, so it holds every move before it
+        if (n < 0 || n * bits > 64) throw new IllegalArgumentException(n + " moves of " + bits + " bits do not fit in a long");
+        if (end < n || end > count) throw new IndexOutOfBoundsException(n + " moves before " + end + " of " + count);
+        if (n == 0) return 0;
+
+        long bit = (end - n) * bits;
+        int length = n * bits;
+        int offset = (int) (bit & 63);
+        long word = bit >>> 6;
+        long value = word(segments, word) >>> offset;
+        if (offset + length > 64) value |= word(segments, word + 1) << (64 - offset);
+        return length == 64 ? value : value & ((1L << length) - 1);
+    }
+
+    /**
+     * Retrieves the last n moves as one number, see context(long, int).
+     */
+    public long context(int n)
+    {
+        return context(size, n);
+    }
+
+    public long size() { return size; }
+    public int getBitsPerMove() { return bits; }
+
+    /**
+     * Writes the mapped moves to the disk and closes the file. The history must not be used afterwards.
+     */
+    public synchronized void close() throws IOException
+    {
+        if (channel == null) return;
+        for (ByteBuffer segment : segments) ((MappedByteBuffer) segment).force();
+        ((MappedByteBuffer) header).force();
+        channel.close();
+    }
+
+    private static long word(ByteBuffer[] segments, long word)
+    {
+        return segments[(int) (word >>> SEGMENT_WORD_SHIFT)].getLong((int) (word & SEGMENT_WORD_MASK) << 3);
+    }
+
+    private static void putWord(ByteBuffer[] segments, long word, long value)
+    {
+        segments[(int) (word >>> SEGMENT_WORD_SHIFT)].putLong((int) (word & SEGMENT_WORD_MASK) << 3, value);
+    }
+
+    /**
+     * Doubles the last segment, or starts a new one once it is full.
+     */
+    private void grow() throws IOException
+    {
+        ByteBuffer[] old = segments;
+        int last = old.length - 1;
+        ByteBuffer[] grown;
+        if (last >= 0 && old[last].capacity() < HistoryCons.SEGMENT_BYTES)
+        {
+            grown = old.clone();
+            grown[last] = resize(last, old[last], Math.min(HistoryCons.SEGMENT_BYTES, old[last].capacity() * 2));
+        } else {
+            grown = Arrays.copyOf(old, old.length + 1);
+            grown[last + 1] = resize(last + 1, null, HistoryCons.MIN_MAP_BYTES);
+        }
+        capacityWords = 0;
+        for (ByteBuffer segment : grown) capacityWords += segment.capacity() / 8;
+        segments = grown;
+    }
+
+    /**
+     * Maps a segment with a new size, or copies it into a bigger direct buffer if there is no file.
+     */
+    private ByteBuffer resize(int index, ByteBuffer segment, int bytes) throws IOException
+    {
+        if (channel != null) return mapSegment(channel, index, bytes);
+        ByteBuffer bigger = ByteBuffer.allocateDirect(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        if (segment != null) bigger.put(segment.duplicate().clear());
+        return bigger;
+    }
+
+    private static ByteBuffer mapSegment(FileChannel channel, int index, int bytes) throws IOException
+    {
+        long position = HistoryCons.HEADER_SIZE + (long) index * HistoryCons.SEGMENT_BYTES;
+        return channel.map(FileChannel.MapMode.READ_WRITE, position, bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
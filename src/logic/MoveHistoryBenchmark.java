@@ -0,0 +1,155 @@
+package logic;
+
+import java.io.File;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.SplittableRandom;
+
+/**
+ * Appends a long history to a temporary file, checks it move by move and n-gram by
+ * n-gram, and times appending one move and many at once, reading contexts and
+ * reopening the file. Also prints the garbage collections and heap growth the
+ * appends caused, which should be none.
+ *
+ * Moves are a hash of their position, so any of them can be checked without a copy.
+ *
+ * Usage: java -cp out:res logic.MoveHistoryBenchmark [moves] [weapons]
+ */
+public class MoveHistoryBenchmark
+{
+    private static final long SINGLE_APPENDS = 10_000_000;
+    private static final int BULK_CHUNK = 1 << 16;
+    private static final int CHECKS = 1_000_000;
+    private static final int CONTEXT_READS = 10_000_000;
+
+    public static void main(String[] args) throws Exception
+    {
+        long moves = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000_000L;
+        int weapons = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        File file = File.createTempFile("bbp", ".history");
+        file.deleteOnExit();
+
+        MoveHistory history = MoveHistory.open(file, weapons);
+        int bits = history.getBitsPerMove();
+        System.out.println("Weapons:    " + weapons + ", " + bits + " bits per move");
+
+        long collections = collections();
+        Runtime runtime = Runtime.getRuntime();
+        long heap = runtime.totalMemory() - runtime.freeMemory();
+
+        // One move at a time, as the game records them, then the rest in bulk
+        long single = Math.min(moves, SINGLE_APPENDS);
+        long start = System.nanoTime();
+        for (long i = 0; i < single; i++)
+        {
+            history.append(move(i, weapons));
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("Append:     %d moves one at a time, %.2f ns per move%n", single, (double) elapsed / single);
+
+        int[] chunk = new int[BULK_CHUNK];
+        start = System.nanoTime();
+        for (long done = single; done < moves; )
+        {
+            int count = (int) Math.min(chunk.length, moves - done);
+            for (int k = 0; k < count; k++) chunk[k] = move(done + k, weapons);
+            history.append(chunk, 0, count);
+            done += count;
+        }
+        elapsed = System.nanoTime() - start;
+        if (moves > single)
+        {
+            System.out.printf("Append:     %d moves in bulk in %.1f s, %.2f ns per move%n", moves - single, elapsed / 1e9,
+                    (double) elapsed / (moves - single));
+        }
+        System.out.printf("File:       %.1f MB for %d moves%n", file.length() / 1e6, history.size());
+        System.out.printf("Heap:       %d collections, %+.1f MB used during the appends%n", collections() - collections,
+                (runtime.totalMemory() - runtime.freeMemory() - heap) / 1e6);
+
+        check(history, weapons);
+        int longest = 64 / bits;
+        for (int n : new int[]{1, 4, longest})
+        {
+            System.out.printf("Context:    n = %2d  %6.2f ns per read in order, %6.2f ns at random%n", n,
+                    timeContexts(history, n, false), timeContexts(history, n, true));
+        }
+
+        long lastContext = history.context(longest);
+        history.close();
+        start = System.nanoTime();
+        MoveHistory reopened = MoveHistory.open(file, weapons);
+        elapsed = System.nanoTime() - start;
+        if (reopened.size() != moves || reopened.context(longest) != lastContext)
+        {
+            throw new IllegalStateException("Reopened history differs: " + reopened.size() + " moves");
+        }
+        check(reopened, weapons);
+        System.out.printf("Reopen:     %.2f ms, %d moves, checked again%n", elapsed / 1e6, reopened.size());
+        reopened.close();
+        if (!file.delete()) System.err.println("Could not delete " + file);
+    }
+
+    /**
+     * The move at a position, a hash of it scaled to the weapons without a division.
+     */
+    private static int move(long i, int weapons)
+    {
+        return (int) (((i + 1) * 0x9E3779B97F4A7C15L >>> 32) * weapons >>> 32);
+    }
+
+    /**
+     * Checks random moves and contexts against the moves they should hold.
+     */
+    private static void check(MoveHistory history, int weapons)
+    {
+        SplittableRandom random = new SplittableRandom(7);
+        long size = history.size();
+        int longest = 64 / history.getBitsPerMove();
+        for (int c = 0; c < CHECKS; c++)
+        {
+            long i = random.nextLong(size);
+            if (history.get(i) != move(i, weapons)) throw new IllegalStateException("Move " + i + " differs");
+
+            int n = (int) Math.min(size, 1 + random.nextInt(longest));
+            long end = n + random.nextLong(size - n + 1);
+            long expected = 0;
+            for (int k = 0; k < n; k++)
+            {
+                expected |= (long) move(end - n + k, weapons) << (k * history.getBitsPerMove());
+            }
+            if (history.context(end, n) != expected) throw new IllegalStateException(n + " moves before " + end + " differ");
+        }
+    }
+
+    /**
+     * Reads the context before CONTEXT_READS positions, one after the other from the start
+     * of the history as a training pass does, or spread over all of it.
+     *
+     * @return Nanoseconds per read
+     */
+    private static double timeContexts(MoveHistory history, int n, boolean random)
+    {
+        long reads = Math.min(CONTEXT_READS, history.size() - n + 1);
+        SplittableRandom positions = new SplittableRandom(11);
+        long best = Long.MAX_VALUE, sink = 0;
+        for (int run = 0; run < 3; run++)
+        {
+            long start = System.nanoTime();
+            for (long i = 0; i < reads; i++)
+            {
+                long end = random ? n + positions.nextLong(history.size() - n + 1) : n + i;
+                sink += history.context(end, n);
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        if (sink == 42) System.out.println(); // Keeps the reads from being optimized away
+        return (double) best / reads;
+    }
+
+    private static long collections()
+    {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) count += Math.max(0, gc.getCollectionCount());
+        return count;
+    }
+}
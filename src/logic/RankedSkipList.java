@@ -0,0 +1,243 @@
+package logic;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+
+/**
+ * Sorted list with O(log n) insert, remove, rank and positional lookup.
+ *
+ * An indexable skip list: every forward link also stores how many elements it
+ * skips, so the position of an element is the sum of the widths walked to reach it.
+ * The comparator must be a total order (no two distinct elements compare equal),
+ * and an element must be removed before anything its order depends on changes.
+ *
+ * Not thread safe; LeaderboardStore guards its lists with its own lock.
+ *
+ * @param <T> Element type
+ */
+public class RankedSkipList<T>
+{
+    private static final int MAX_LEVEL = 24; // Plenty for 4^24 elements at p = 1/4
+
+    private static final class Node<T>
+    {
+        final T value;
+        final Node<T>[] next;
+        final int[] width; // Elements from this node to next[i], counting next[i] itself
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Node(T value, int levels)
+        {
+            this.value = value;
+            next = new Node[levels];
+            width = new int[levels];
+        }
+    }
+
+    private final Comparator<? super T> order;
+    private final Node<T> head = new Node<>(null, MAX_LEVEL);
+    private final SplittableRandom random = new SplittableRandom(0x5EEDL);
+    private int levels = 1;
+    private int size;
+
+    // Scratch for insert and remove, so neither allocates beyond the new node
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final Node<T>[] update = new Node[MAX_LEVEL];
+    private final int[] updatePosition = new int[MAX_LEVEL];
+
+    public RankedSkipList(Comparator<? super T> order)
+    {
+        this.order = order;
+        Arrays.fill(head.width, 1);
+    }
+
+    /**
+     * Walks to the last node before the value on every level, recording it in update.
+     *
+     * @return The position of the node found on the bottom level (0 for the head)
+     */
+    private int findPredecessors(T value)
+    {
+        Node<T> x = head;
+        int position = 0;
+        for (int i = levels - 1; i >= 0; i--)
+        {
+            while (x.next[i] != null && order.compare(x.next[i].value, value) < 0)
+            {
+                position += x.width[i];
+                x = x.next[i];
+            }
+            update[i] = x;
+            updatePosition[i] = position;
+        }
+        return position;
+    }
+
+    public void insert(T value)
+    {
+        int position = findPredecessors(value);
+        int nodeLevels = randomLevels();
+        if (nodeLevels > levels)
+        {
+            for (int i = levels; i < nodeLevels; i++)
+            {
+                update[i] = head;
+                updatePosition[i] = 0;
+                head.next[i] = null;
+                head.width[i] = size + 1;
+            }
+            levels = nodeLevels;
+        }
+
+        Node<T> node = new Node<>(value, nodeLevels);
+        for (int i = 0; i < nodeLevels; i++)
+        {
+            Node<T> before = update[i];
+            int skipped = position - updatePosition[i];
+            node.next[i] = before.next[i];
+            node.width[i] = before.width[i] - skipped;
+            before.next[i] = node;
+            before.width[i] = skipped + 1;
+        }
+        for (int i = nodeLevels; i < levels; i++)
+        {
+            update[i].width[i]++;
+        }
+        size++;
+    }
+
+    /**
+     * Replaces the contents with already sorted elements in O(n), linking each
+     * level from left to right instead of searching for every element.
+     *
+     * @param sorted Elements in this list's order
+     * @param count Number of elements to take from the array
+     */
+    public void buildSorted(T[] sorted, int count)
+    {
+        clear();
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Node<T>[] tails = new Node[MAX_LEVEL];
+        int[] tailPosition = new int[MAX_LEVEL];
+        Arrays.fill(tails, head);
+
+        for (int k = 0; k < count; k++)
+        {
+            int position = k + 1;
+            int nodeLevels = randomLevels();
+            levels = Math.max(levels, nodeLevels);
+            Node<T> node = new Node<>(sorted[k], nodeLevels);
+            for (int i = 0; i < nodeLevels; i++)
+            {
+                tails[i].next[i] = node;
+                tails[i].width[i] = position - tailPosition[i];
+                tails[i] = node;
+                tailPosition[i] = position;
+            }
+        }
+        size = count;
+        for (int i = 0; i < MAX_LEVEL; i++)
+        {
+            tails[i].width[i] = size + 1 - tailPosition[i]; // Distance to the end
+        }
+    }
+
+    /**
+     * Removes an element.
+     *
+     * @return false if the element was not in the list
+     */
+    public boolean remove(T value)
+    {
+        findPredecessors(value);
+        Node<T> node = update[0].next[0];
+        if (node == null || order.compare(node.value, value) != 0)
+        {
+            return false;
+        }
+
+        for (int i = 0; i < levels; i++)
+        {
+            Node<T> before = update[i];
+            if (before.next[i] == node)
+            {
+                before.width[i] += node.width[i] - 1;
+                before.next[i] = node.next[i];
+            } else {
+                before.width[i]--;
+            }
+        }
+        while (levels > 1 && head.next[levels - 1] == null)
+        {
+            levels--;
+        }
+        size--;
+        return true;
+    }
+
+    /**
+     * Retrieves the 0-based position of an element, or -1 if it is not in the list.
+     */
+    public int rank(T value)
+    {
+        Node<T> x = head;
+        int position = 0;
+        for (int i = levels - 1; i >= 0; i--)
+        {
+            while (x.next[i] != null && order.compare(x.next[i].value, value) < 0)
+            {
+                position += x.width[i];
+                x = x.next[i];
+            }
+        }
+        Node<T> next = x.next[0];
+        return next != null && order.compare(next.value, value) == 0 ? position : -1;
+    }
+
+    /**
+     * Retrieves the element at a 0-based position.
+     */
+    public T get(int index)
+    {
+        if (index < 0 || index >= size)
+        {
+            throw new IndexOutOfBoundsException("Index " + index + " out of " + size);
+        }
+        int target = index + 1;
+        Node<T> x = head;
+        int position = 0;
+        for (int i = levels - 1; i >= 0; i--)
+        {
+            while (x.next[i] != null && position + x.width[i] <= target)
+            {
+                position += x.width[i];
+                x = x.next[i];
+            }
+        }
+        return x.value;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public void clear()
+    {
+        Arrays.fill(head.next, null);
+        Arrays.fill(head.width, 1);
+        levels = 1;
+        size = 0;
+    }
+
+    private int randomLevels()
+    {
+        int nodeLevels = 1;
+        while (nodeLevels < MAX_LEVEL && (random.nextInt() & 3) == 0)
+        {
+            nodeLevels++;
+        }
+        return nodeLevels;
+    }
+}
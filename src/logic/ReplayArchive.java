@@ -0,0 +1,1159 @@
+package logic;
+
+import utils.Constants.ArchiveCons;
+import utils.Constants.ReplayCons;
+import utils.Constants.RuleCons;
+import utils.Constants.StoragePaths;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Stores recorded matches by the million in a few segment files, and streams them
+ * back without reading more than the matches asked for.
+ *
+ * A match is its seed, start time, player, rule set and inputs; the computer's hands
+ * come back from the seed. Inputs are packed at MoveHistory.bitsFor(weapons + 1) bits
+ * each, 2 bits for the classic rules: a hand is its index and the last code escapes
+ * to a second code for EVENT_NEXT_ROUND or EVENT_RESTART. The ticks between inputs
+ * follow as varints, as in a ReplayRecorder file.
+ *
+ * Segment layout, see ArchiveCons for the header:
+ *   per match: zigzag varint start time delta (from the block's for its first match), long seed, varint player, varint rules,
+ *              varint input codes, varint tick bytes, packed codes, varint tick deltas
+ *   index: int blocks, per block (long start time, long newest start so far, int offset);
+ *          int rule sets, per rule set (u16 length + UTF-8 id, u8 weapons);
+ *          int players, per player (u16 length + UTF-8 name, int postings offset, int postings count);
+ *          postings: per player, varint deltas of the match numbers they played
+ *
+ * Match ids are consecutive across the segments, so a match is found by id with a
+ * binary search of the segments and of the index blocks, then read through at most
+ * INDEX_INTERVAL - 1 matches. The blocks also keep the newest start time so far,
+ * which finds the first match since a date the same way, and the postings find a
+ * player's matches. Segments are written once, then memory-mapped read-only; only
+ * their index is read onto the heap.
+ *
+ * Compaction runs on one background thread. It folds finished ReplayRecorder files
+ * into a new segment, deleting them once it is on disk, and merges runs of
+ * MERGE_FANIN segments of the same size tier, so each match is rewritten about
+ * log8(SEGMENT_MATCHES) times at most. A merged segment is written to a temporary
+ * file and renamed, and opening the archive drops any segment a newer one covers,
+ * so a crash never loses or doubles a match.
+ *
+ * Readers never lock: they stream from a snapshot of the segments. Appending and
+ * compacting are synchronized.
+ */
+public final class ReplayArchive
+{
+    // One thread shared by all archives, so compaction never runs on the EDT or the game thread
+    private static final ExecutorService compactor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "replay-archive");
+        t.setDaemon(true);
+        return t;
+    });
+    private static final int MAX_SEGMENT_BYTES = 1 << 30; // Offsets into a mapped segment are ints
+    private static ReplayArchive local;
+
+    /**
+     * One archived match. Its inputs are only unpacked when asked for.
+     */
+    public static final class Record
+    {
+        private final long id, startTime, seed;
+        private final String player, rules;
+        private final int weapons;
+
+        // Packed inputs in a mapped segment, or the unpacked ones of a match not archived yet
+        private final ByteBuffer buffer;
+        private final int codesOffset, codeCount, ticksOffset, tickBytes;
+        private int[] events;
+        private long[] ticks;
+
+        private Record(long id, long startTime, long seed, String player, String rules, int weapons,
+                       ByteBuffer buffer, int codesOffset, int codeCount, int ticksOffset, int tickBytes)
+        {
+            this.id = id;
+            this.startTime = startTime;
+            this.seed = seed;
+            this.player = player;
+            this.rules = rules;
+            this.weapons = weapons;
+            this.buffer = buffer;
+            this.codesOffset = codesOffset;
+            this.codeCount = codeCount;
+            this.ticksOffset = ticksOffset;
+            this.tickBytes = tickBytes;
+        }
+
+        /**
+         * Creates a match to append.
+         *
+         * @param events Hands and ReplayCons event codes, in order
+         * @param ticks Tick of each event, counted from the start of the match
+         */
+        Record(long startTime, long seed, String player, String rules, int weapons, int[] events, long[] ticks)
+        {
+            this(-1, startTime, seed, player, rules, weapons, null, 0, 0, 0, 0);
+            this.events = events;
+            this.ticks = ticks;
+        }
+
+        /**
+         * Retrieves the match's inputs: hands, EVENT_NEXT_ROUND and EVENT_RESTART, in order.
+         */
+        public int[] getEvents()
+        {
+            if (events == null) unpack();
+            return events;
+        }
+
+        /**
+         * Retrieves the tick of each input, counted from the start of the match.
+         */
+        public long[] getTicks()
+        {
+            if (ticks == null) unpack();
+            return ticks;
+        }
+
+        private void unpack()
+        {
+            int width = MoveHistory.bitsFor(weapons + 1);
+            int[] codes = new int[codeCount];
+            for (int i = 0; i < codeCount; i++) codes[i] = readBits(buffer, codesOffset, i * width, width);
+            int events = 0;
+            for (int i = 0; i < codeCount; i++, events++)
+            {
+                if (codes[i] == weapons) i++; // Escape, the next code is the event
+            }
+            int[] unpacked = new int[events];
+            for (int i = 0, e = 0; i < codeCount; i++)
+            {
+                if (codes[i] != weapons) unpacked[e++] = codes[i];
+                else unpacked[e++] = codes[++i] == 0 ? ReplayCons.EVENT_NEXT_ROUND : ReplayCons.EVENT_RESTART;
+            }
+            long[] times = new long[events];
+            int[] position = {ticksOffset};
+            long tick = 0;
+            for (int e = 0; e < events; e++)
+            {
+                tick += readVarLong(buffer, position);
+                times[e] = tick;
+            }
+            this.events = unpacked;
+            this.ticks = times;
+        }
+
+        public long getId() { return id; }
+        public long getStartTime() { return startTime; }
+        public long getSeed() { return seed; }
+        public String getPlayer() { return player; }
+        public String getRules() { return rules; }
+        public int getWeaponCount() { return weapons; }
+    }
+
+    /**
+     * A mapped segment and its index.
+     */
+    private static final class Segment
+    {
+        final File file;
+        final int generation;
+        final MappedByteBuffer buffer;
+        final long firstId;
+        final int count;
+        final long newest;    // Newest start time in the segment
+        long newestThrough;   // Newest start time in this segment and every one before it
+
+        long[] blockTimes, blockNewest;
+        int[] blockOffsets;
+        String[] rules;
+        int[] weapons;
+        String[] players;
+        int[] sortedPlayers;  // Player indices in name order
+        int[] postingsOffset, postingsCount;
+
+        Segment(File file, int generation) throws IOException
+        {
+            this.file = file;
+            this.generation = generation;
+            try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel())
+            {
+                if (channel.size() > MAX_SEGMENT_BYTES) throw new IOException("Segment too large: " + file);
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            if (buffer.capacity() < ArchiveCons.HEADER_SIZE || buffer.getInt(0) != ArchiveCons.MAGIC)
+            {
+                throw new IOException("Not a replay archive segment: " + file);
+            }
+            if ((buffer.get(4) & 0xFF) != ArchiveCons.VERSION)
+            {
+                throw new IOException("Unsupported segment version " + (buffer.get(4) & 0xFF) + ": " + file);
+            }
+            firstId = buffer.getLong(5);
+            count = buffer.getInt(13);
+            newest = buffer.getLong(17);
+            readIndex((int) buffer.getLong(25));
+        }
+
+        private void readIndex(int offset)
+        {
+            ByteBuffer in = buffer.duplicate();
+            in.position(offset);
+            int blocks = in.getInt();
+            blockTimes = new long[blocks];
+            blockNewest = new long[blocks];
+            blockOffsets = new int[blocks];
+            for (int b = 0; b < blocks; b++)
+            {
+                blockTimes[b] = in.getLong();
+                blockNewest[b] = in.getLong();
+                blockOffsets[b] = in.getInt();
+            }
+            rules = new String[in.getInt()];
+            weapons = new int[rules.length];
+            for (int r = 0; r < rules.length; r++)
+            {
+                rules[r] = readString(in);
+                weapons[r] = in.get() & 0xFF;
+            }
+            players = new String[in.getInt()];
+            postingsOffset = new int[players.length];
+            postingsCount = new int[players.length];
+            for (int p = 0; p < players.length; p++)
+            {
+                players[p] = readString(in);
+                postingsOffset[p] = in.getInt();
+                postingsCount[p] = in.getInt();
+            }
+            int postingsStart = in.position();
+            for (int p = 0; p < players.length; p++) postingsOffset[p] += postingsStart;
+            sortedPlayers = sortedIndices(players);
+        }
+
+        /**
+         * Finds a player by name, or -1.
+         */
+        int findPlayer(String name)
+        {
+            int low = 0, high = sortedPlayers.length - 1;
+            while (low <= high)
+            {
+                int mid = (low + high) >>> 1;
+                int c = players[sortedPlayers[mid]].compareTo(name);
+                if (c == 0) return sortedPlayers[mid];
+                if (c < 0) low = mid + 1;
+                else high = mid - 1;
+            }
+            return -1;
+        }
+
+        /**
+         * Finds the first block that may hold a match started at or after a time.
+         */
+        int firstBlockSince(long time)
+        {
+            int low = 0, high = blockNewest.length;
+            while (low < high)
+            {
+                int mid = (low + high) >>> 1;
+                if (blockNewest[mid] < time) low = mid + 1;
+                else high = mid;
+            }
+            return low;
+        }
+    }
+
+    /**
+     * Reads matches one after another from a snapshot of the segments, from a match number on.
+     */
+    private static class Reader
+    {
+        final Segment[] view;
+        int segment;      // Index into the view
+        int ordinal;      // Next match within the segment
+        int[] position = new int[1];
+        long previousTime;
+
+        Reader(Segment[] view, int segment, int block)
+        {
+            this.view = view;
+            this.segment = segment;
+            if (segment < view.length) seekBlock(block);
+        }
+
+        void seekBlock(int block)
+        {
+            Segment s = view[segment];
+            if (block >= s.blockOffsets.length)
+            {
+                ordinal = s.count;
+                return;
+            }
+            ordinal = block * ArchiveCons.INDEX_INTERVAL;
+            position[0] = s.blockOffsets[block];
+            previousTime = s.blockTimes[block];
+        }
+
+        /**
+         * Moves to a match of the current segment, reading through from the nearest block.
+         */
+        void seek(int target)
+        {
+            int block = target / ArchiveCons.INDEX_INTERVAL;
+            if (ordinal > target || ordinal / ArchiveCons.INDEX_INTERVAL != block) seekBlock(block);
+            while (ordinal < target) skip();
+        }
+
+        /**
+         * Reads the next match, moving to the next segment at the end of one; null after the last.
+         */
+        Record read()
+        {
+            while (segment < view.length && ordinal >= view[segment].count)
+            {
+                if (++segment < view.length) seekBlock(0);
+            }
+            if (segment >= view.length) return null;
+
+            Segment s = view[segment];
+            ByteBuffer buffer = s.buffer;
+            if (ordinal % ArchiveCons.INDEX_INTERVAL == 0) previousTime = s.blockTimes[ordinal / ArchiveCons.INDEX_INTERVAL];
+            long time = previousTime + zigzagDecode(readVarLong(buffer, position));
+            previousTime = time;
+            long seed = buffer.getLong(position[0]);
+            position[0] += 8;
+            int player = (int) readVarLong(buffer, position);
+            int rules = (int) readVarLong(buffer, position);
+            int codes = (int) readVarLong(buffer, position);
+            int tickBytes = (int) readVarLong(buffer, position);
+            int codesOffset = position[0];
+            int codeBytes = (codes * MoveHistory.bitsFor(s.weapons[rules] + 1) + 7) / 8;
+            position[0] += codeBytes + tickBytes;
+            return new Record(s.firstId + ordinal++, time, seed, s.players[player], s.rules[rules], s.weapons[rules],
+                    buffer, codesOffset, codes, codesOffset + codeBytes, tickBytes);
+        }
+
+        void skip()
+        {
+            Segment s = view[segment];
+            if (ordinal % ArchiveCons.INDEX_INTERVAL == 0) previousTime = s.blockTimes[ordinal / ArchiveCons.INDEX_INTERVAL];
+            previousTime += zigzagDecode(readVarLong(s.buffer, position));
+            position[0] += 8;
+            readVarLong(s.buffer, position);
+            int rules = (int) readVarLong(s.buffer, position);
+            int codes = (int) readVarLong(s.buffer, position);
+            int tickBytes = (int) readVarLong(s.buffer, position);
+            position[0] += (codes * MoveHistory.bitsFor(s.weapons[rules] + 1) + 7) / 8 + tickBytes;
+            ordinal++;
+        }
+    }
+
+    private final File dir;
+    private volatile Segment[] segments = new Segment[0];
+
+    /**
+     * Opens an archive, creating its directory if needed. Only the segments' indexes are read.
+     *
+     * @param dir Directory of the segment files
+     * @throws IOException If the directory or a segment cannot be read
+     */
+    public ReplayArchive(File dir) throws IOException
+    {
+        this.dir = dir;
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Could not create replay archive: " + dir);
+
+        // Keep the newest generation of every range of ids, and drop what a crash left behind
+        List<Segment> found = new ArrayList<>();
+        File[] files = dir.listFiles();
+        for (File file : files != null ? files : new File[0])
+        {
+            String name = file.getName();
+            if (name.endsWith(".tmp"))
+            {
+                deleteQuietly(file);
+            } else if (name.startsWith(ArchiveCons.FILE_PREFIX) && name.endsWith(ArchiveCons.FILE_EXTENSION)) {
+                String[] parts = name.substring(ArchiveCons.FILE_PREFIX.length(),
+                        name.length() - ArchiveCons.FILE_EXTENSION.length()).split("_");
+                found.add(new Segment(file, parts.length > 1 ? Integer.parseInt(parts[1]) : 0));
+            }
+        }
+        found.sort((a, b) -> a.firstId != b.firstId ? Long.compare(a.firstId, b.firstId) : Integer.compare(b.generation, a.generation));
+        List<Segment> kept = new ArrayList<>();
+        long nextId = 0;
+        for (Segment segment : found)
+        {
+            if (segment.firstId < nextId)
+            {
+                deleteQuietly(segment.file); // Merged into a newer segment
+                continue;
+            }
+            kept.add(segment);
+            nextId = segment.firstId + segment.count;
+        }
+        publish(kept.toArray(new Segment[0]));
+    }
+
+    /**
+     * Retrieves the archive of this machine's replays, opening it on first use.
+     *
+     * @throws IOException If the archive cannot be opened
+     */
+    public static synchronized ReplayArchive getLocal() throws IOException
+    {
+        if (local == null) local = new ReplayArchive(new File(StoragePaths.ARCHIVE_DIR));
+        return local;
+    }
+
+    /**
+     * Opens this machine's archive and folds the finished replays into it, on the archive thread.
+     * The archive is returned even if folding fails, since what it already holds can still be read.
+     */
+    public static Future<ReplayArchive> compactLocal()
+    {
+        return compactor.submit(() -> {
+            ReplayArchive archive = getLocal();
+            try {
+                archive.compact(new File(StoragePaths.REPLAY_DIR), LeaderboardStore.getLocalPlayerName(), ArchiveCons.SETTLE_MS);
+            } catch (IOException e) {
+                System.err.println("Error compacting replay archive " + archive.dir);
+                e.printStackTrace();
+            }
+            return archive;
+        });
+    }
+
+    private void publish(Segment[] view)
+    {
+        long newest = Long.MIN_VALUE;
+        for (Segment segment : view)
+        {
+            newest = Math.max(newest, segment.newest);
+            segment.newestThrough = newest;
+        }
+        segments = view;
+    }
+
+    /**
+     * Retrieves the number of archived matches, which is also the next match id.
+     */
+    public long size()
+    {
+        Segment[] view = segments;
+        return view.length == 0 ? 0 : view[view.length - 1].firstId + view[view.length - 1].count;
+    }
+
+    public int getSegmentCount()
+    {
+        return segments.length;
+    }
+
+    /**
+     * Streams the matches from an id on, in id order. O(log n) to the first one.
+     */
+    public Iterator<Record> fromId(long id)
+    {
+        Segment[] view = segments;
+        int low = 0, high = view.length;
+        while (low < high) // First segment ending after the id
+        {
+            int mid = (low + high) >>> 1;
+            if (view[mid].firstId + view[mid].count <= id) low = mid + 1;
+            else high = mid;
+        }
+        Reader reader = new Reader(view, low, 0);
+        if (low < view.length) reader.seek((int) Math.max(0, id - view[low].firstId));
+        return iterator(reader, Long.MIN_VALUE);
+    }
+
+    /**
+     * Retrieves one match by id, or null if there is none.
+     */
+    public Record get(long id)
+    {
+        if (id < 0) return null;
+        Iterator<Record> it = fromId(id);
+        if (!it.hasNext()) return null;
+        Record record = it.next();
+        return record.getId() == id ? record : null;
+    }
+
+    /**
+     * Streams the matches started at or after a time, in id order. O(log n) to the first one.
+     *
+     * @param time Start time in ms since the epoch
+     */
+    public Iterator<Record> since(long time)
+    {
+        Segment[] view = segments;
+        int low = 0, high = view.length;
+        while (low < high) // First segment that may hold such a match
+        {
+            int mid = (low + high) >>> 1;
+            if (view[mid].newestThrough < time) low = mid + 1;
+            else high = mid;
+        }
+        Reader reader = new Reader(view, low, low < view.length ? view[low].firstBlockSince(time) : 0);
+        return iterator(reader, time);
+    }
+
+    /**
+     * Streams one player's matches, in id order. O(log p) per segment to find them.
+     */
+    public Iterator<Record> byPlayer(String player)
+    {
+        Segment[] view = segments;
+        return new Iterator<Record>()
+        {
+            final Reader reader = new Reader(view, view.length, 0);
+            final int[] postings = new int[1];
+            int segment = -1;
+            int remaining, ordinal;
+
+            @Override
+            public boolean hasNext()
+            {
+                while (remaining == 0)
+                {
+                    if (++segment >= view.length) return false;
+                    int index = view[segment].findPlayer(player);
+                    if (index == -1) continue;
+                    postings[0] = view[segment].postingsOffset[index];
+                    remaining = view[segment].postingsCount[index];
+                    ordinal = 0;
+                    reader.segment = segment;
+                    reader.seekBlock(0);
+                }
+                return true;
+            }
+
+            @Override
+            public Record next()
+            {
+                if (!hasNext()) throw new NoSuchElementException();
+                ordinal += (int) readVarLong(view[reader.segment].buffer, postings);
+                remaining--;
+                reader.seek(ordinal);
+                return reader.read();
+            }
+        };
+    }
+
+    private static Iterator<Record> iterator(Reader reader, long since)
+    {
+        return new Iterator<Record>()
+        {
+            Record next = advance();
+
+            private Record advance()
+            {
+                Record record;
+                do {
+                    record = reader.read();
+                } while (record != null && record.getStartTime() < since);
+                return record;
+            }
+
+            @Override
+            public boolean hasNext()
+            {
+                return next != null;
+            }
+
+            @Override
+            public Record next()
+            {
+                if (next == null) throw new NoSuchElementException();
+                Record record = next;
+                next = advance();
+                return record;
+            }
+        };
+    }
+
+    /**
+     * Appends matches in new segments, of up to SEGMENT_MATCHES each.
+     *
+     * @return The id of the first one
+     * @throws IOException If a segment cannot be written; the archive is unchanged
+     */
+    public synchronized long append(List<Record> records) throws IOException
+    {
+        long firstId = size();
+        Iterator<Record> it = records.iterator();
+        List<Segment> view = new ArrayList<>(Arrays.asList(segments));
+        while (it.hasNext())
+        {
+            view.add(writeSegment(size(view), 0, it, ArchiveCons.SEGMENT_MATCHES, false));
+        }
+        publish(view.toArray(new Segment[0]));
+        return firstId;
+    }
+
+    private static long size(List<Segment> view)
+    {
+        return view.isEmpty() ? 0 : view.get(view.size() - 1).firstId + view.get(view.size() - 1).count;
+    }
+
+    /**
+     * Folds finished replay files into the archive and merges small segments, on the archive thread.
+     *
+     * @param looseDir Directory of the ReplayRecorder files
+     * @param player Name the folded matches are archived under
+     * @param settleMillis Files modified more recently than this are left alone
+     * @return The number of files folded, when done
+     */
+    public Future<Integer> compactInBackground(File looseDir, String player, long settleMillis)
+    {
+        return compactor.submit(() -> {
+            try {
+                return compact(looseDir, player, settleMillis);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Error compacting replay archive " + dir);
+                e.printStackTrace();
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * Folds finished replay files into the archive and merges small segments, on the calling thread.
+     * Files that cannot be read are reported and left where they are.
+     *
+     * @return The number of files folded
+     */
+    public synchronized int compact(File looseDir, String player, long settleMillis) throws IOException
+    {
+        int folded = fold(looseDir, player, settleMillis);
+        merge();
+        return folded;
+    }
+
+    private int fold(File looseDir, String player, long settleMillis) throws IOException
+    {
+        File[] files = looseDir.listFiles((d, name) -> name.endsWith(ReplayCons.FILE_EXTENSION));
+        if (files == null || files.length == 0) return 0;
+
+        long settled = System.currentTimeMillis() - settleMillis;
+        List<Record> records = new ArrayList<>();
+        List<File> sources = new ArrayList<>();
+        for (File file : files)
+        {
+            if (file.lastModified() > settled || ReplayRecorder.isRecording(file)) continue;
+            try {
+                records.add(readReplayFile(file, player));
+                sources.add(file);
+            } catch (IOException e) {
+                System.err.println("Skipping replay " + file + ": " + e.getMessage());
+            }
+        }
+        records.sort((a, b) -> a.getStartTime() != b.getStartTime() ? Long.compare(a.getStartTime(), b.getStartTime())
+                : Long.compare(a.getSeed(), b.getSeed()));
+        records = notArchived(records); // Files folded before a crash are only deleted now
+        if (!records.isEmpty()) append(records);
+        for (File file : sources) deleteQuietly(file);
+        return sources.size();
+    }
+
+    /**
+     * Leaves out the matches that are archived already, by start time and seed. Archived matches
+     * are in id order, not start time order, so every one since the oldest of the list is looked
+     * up in it, in one pass. As the files folded are recent that is the end of the archive.
+     *
+     * @param records Matches sorted by start time, then seed
+     */
+    private List<Record> notArchived(List<Record> records)
+    {
+        if (records.isEmpty()) return records;
+        boolean[] archived = new boolean[records.size()];
+        Iterator<Record> it = since(records.get(0).getStartTime());
+        while (it.hasNext())
+        {
+            Record record = it.next();
+            int low = 0, high = records.size() - 1;
+            while (low <= high)
+            {
+                int mid = (low + high) >>> 1;
+                Record candidate = records.get(mid);
+                int c = candidate.getStartTime() != record.getStartTime()
+                        ? Long.compare(candidate.getStartTime(), record.getStartTime())
+                        : Long.compare(candidate.getSeed(), record.getSeed());
+                if (c == 0)
+                {
+                    archived[mid] = true;
+                    break;
+                }
+                if (c < 0) low = mid + 1;
+                else high = mid - 1;
+            }
+        }
+        List<Record> fresh = new ArrayList<>();
+        for (int i = 0; i < archived.length; i++)
+        {
+            if (!archived[i]) fresh.add(records.get(i));
+        }
+        return fresh;
+    }
+
+    /**
+     * Merges every run of MERGE_FANIN segments of the same size tier, as long as runs are left.
+     */
+    private void merge() throws IOException
+    {
+        HashSet<File> tooLarge = new HashSet<>(); // First segments of runs that do not fit one segment
+        boolean merged = true;
+        while (merged)
+        {
+            merged = false;
+            Segment[] view = segments;
+            for (int start = 0; start + ArchiveCons.MERGE_FANIN <= view.length && !merged; start++)
+            {
+                int tier = tier(view[start].count);
+                long total = 0;
+                int end = start;
+                while (end < view.length && end - start < ArchiveCons.MERGE_FANIN && tier(view[end].count) == tier)
+                {
+                    total += view[end++].count;
+                }
+                if (end - start < ArchiveCons.MERGE_FANIN || total > ArchiveCons.SEGMENT_MATCHES ||
+                        tooLarge.contains(view[start].file)) continue;
+
+                int generation = 0;
+                for (int i = start; i < end; i++) generation = Math.max(generation, view[i].generation + 1);
+                Reader reader = new Reader(Arrays.copyOfRange(view, start, end), 0, 0);
+                Iterator<Record> records = iterator(reader, Long.MIN_VALUE);
+                Segment segment = writeSegment(view[start].firstId, generation, records, (int) total, true);
+                if (segment == null)
+                {
+                    tooLarge.add(view[start].file); // Left as they are
+                    continue;
+                }
+
+                Segment[] next = new Segment[view.length - (end - start) + 1];
+                System.arraycopy(view, 0, next, 0, start);
+                next[start] = segment;
+                System.arraycopy(view, end, next, start + 1, view.length - end);
+                publish(next);
+                for (int i = start; i < end; i++) deleteQuietly(view[i].file); // Streams still reading them keep their mapping
+                merged = true;
+            }
+        }
+    }
+
+    private static int tier(int count)
+    {
+        int tier = 0;
+        while (count >= ArchiveCons.MERGE_FANIN)
+        {
+            count /= ArchiveCons.MERGE_FANIN;
+            tier++;
+        }
+        return tier;
+    }
+
+    /**
+     * Writes up to limit matches to a new segment, through a temporary file, and maps it.
+     * A segment stops at half of MAX_SEGMENT_BYTES, which may come before the limit.
+     *
+     * @param whole Whether to write all limit matches or nothing: if they do not fit,
+     *              the temporary file is deleted and null is returned
+     */
+    private Segment writeSegment(long firstId, int generation, Iterator<Record> records, int limit, boolean whole)
+            throws IOException
+    {
+        File file = new File(dir, String.format("%s%016x_%d%s", ArchiveCons.FILE_PREFIX, firstId, generation,
+                ArchiveCons.FILE_EXTENSION));
+        File temp = new File(dir, file.getName() + ".tmp");
+
+        HashMap<String, Integer> ruleIndex = new HashMap<>(), playerIndex = new HashMap<>();
+        List<String> rules = new ArrayList<>(), players = new ArrayList<>();
+        List<Integer> weapons = new ArrayList<>();
+        List<Sink> postings = new ArrayList<>();
+        int[] lastPosting = new int[16];
+        List<long[]> blocks = new ArrayList<>(); // start time, newest so far, offset
+
+        int count = 0;
+        try (RandomAccessFile raf = new RandomAccessFile(temp, "rw"); FileChannel channel = raf.getChannel())
+        {
+            raf.setLength(0);
+            Sink out = new Sink(channel);
+            out.position = ArchiveCons.HEADER_SIZE;
+            Sink inputs = new Sink(null);
+            long previousTime = 0, newest = Long.MIN_VALUE;
+            while (count < limit && out.position < MAX_SEGMENT_BYTES / 2 && records.hasNext())
+            {
+                Record record = records.next();
+                if (count % ArchiveCons.INDEX_INTERVAL == 0)
+                {
+                    blocks.add(new long[]{record.getStartTime(), 0, out.position});
+                    previousTime = record.getStartTime();
+                }
+                Integer rule = ruleIndex.get(record.getRules());
+                if (rule == null)
+                {
+                    rule = rules.size();
+                    ruleIndex.put(record.getRules(), rule);
+                    rules.add(record.getRules());
+                    weapons.add(record.getWeaponCount());
+                }
+                Integer player = playerIndex.get(record.getPlayer());
+                if (player == null)
+                {
+                    player = players.size();
+                    playerIndex.put(record.getPlayer(), player);
+                    players.add(record.getPlayer());
+                    postings.add(new Sink(null));
+                    if (player == lastPosting.length) lastPosting = Arrays.copyOf(lastPosting, player * 2);
+                }
+                postings.get(player).varLong(count - lastPosting[player]);
+                lastPosting[player] = count;
+
+                inputs.position = 0;
+                int codes = packInputs(record, inputs);
+                int codeBytes = (codes * MoveHistory.bitsFor(record.getWeaponCount() + 1) + 7) / 8;
+
+                out.varLong(zigzagEncode(record.getStartTime() - previousTime));
+                previousTime = record.getStartTime();
+                newest = Math.max(newest, record.getStartTime());
+                out.putLong(record.getSeed());
+                out.varLong(player);
+                out.varLong(rule);
+                out.varLong(codes);
+                out.varLong(inputs.position - codeBytes);
+                out.put(inputs.bytes, 0, (int) inputs.position);
+                blocks.get(blocks.size() - 1)[1] = newest;
+                count++;
+            }
+
+            long indexOffset = out.position;
+            out.putInt(blocks.size());
+            for (long[] block : blocks)
+            {
+                out.putLong(block[0]);
+                out.putLong(block[1]);
+                out.putInt((int) block[2]);
+            }
+            out.putInt(rules.size());
+            for (int r = 0; r < rules.size(); r++)
+            {
+                out.putString(rules.get(r));
+                out.put((byte) (int) weapons.get(r));
+            }
+            out.putInt(players.size());
+            int postingsOffset = 0;
+            for (int p = 0; p < players.size(); p++)
+            {
+                out.putString(players.get(p));
+                out.putInt(postingsOffset);
+                out.putInt(countVarLongs(postings.get(p)));
+                postingsOffset += (int) postings.get(p).position;
+            }
+            for (Sink posting : postings) out.put(posting.bytes, 0, (int) posting.position);
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(ArchiveCons.HEADER_SIZE);
+            header.putInt(ArchiveCons.MAGIC).put((byte) ArchiveCons.VERSION).putLong(firstId).putInt(count)
+                    .putLong(count == 0 ? Long.MIN_VALUE : newest).putLong(indexOffset);
+            header.flip();
+            channel.write(header, 0);
+            channel.force(true);
+        }
+        if (whole && count < limit)
+        {
+            deleteQuietly(temp);
+            return null;
+        }
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return new Segment(file, generation);
+    }
+
+    /**
+     * Writes a match's packed codes, LSB first, followed by its tick deltas. A match read
+     * from a segment is copied as it is, without unpacking it.
+     *
+     * @return The number of codes
+     */
+    private static int packInputs(Record record, Sink inputs) throws IOException
+    {
+        int weapons = record.getWeaponCount();
+        int width = MoveHistory.bitsFor(weapons + 1);
+        if (record.buffer != null)
+        {
+            int length = (record.codeCount * width + 7) / 8 + record.tickBytes;
+            byte[] bytes = new byte[length];
+            record.buffer.get(record.codesOffset, bytes);
+            inputs.put(bytes, 0, length);
+            return record.codeCount;
+        }
+
+        int[] events = record.getEvents();
+        long[] ticks = record.getTicks();
+        long[] packed = new long[(events.length * 2 * width + 63) / 64];
+        int codes = 0;
+        for (int event : events)
+        {
+            if (event < weapons)
+            {
+                codes = writeBits(packed, codes, width, event);
+            } else if (event == ReplayCons.EVENT_NEXT_ROUND || event == ReplayCons.EVENT_RESTART) {
+                codes = writeBits(packed, codes, width, weapons);
+                codes = writeBits(packed, codes, width, event == ReplayCons.EVENT_NEXT_ROUND ? 0 : 1);
+            } else {
+                throw new IOException("Unknown replay event " + event);
+            }
+        }
+        int codeBytes = (codes * width + 7) / 8;
+        for (int i = 0; i < codeBytes; i++) inputs.put((byte) (packed[i >>> 3] >>> ((i & 7) * 8)));
+        long previous = 0;
+        for (long tick : ticks)
+        {
+            inputs.varLong(Math.max(0, tick - previous));
+            previous = Math.max(previous, tick);
+        }
+        return codes;
+    }
+
+    private static int countVarLongs(Sink sink)
+    {
+        int count = 0;
+        for (int i = 0; i < sink.position; i++) if ((sink.bytes[i] & 0x80) == 0) count++;
+        return count;
+    }
+
+    /**
+     * Reads a ReplayRecorder file of either version into a match to archive.
+     */
+    static Record readReplayFile(File file, String player) throws IOException
+    {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+        {
+            if (in.readInt() != ReplayCons.MAGIC) throw new IOException("Not a replay file");
+            int version = in.readUnsignedByte();
+            if (version != ReplayCons.VERSION && version != ReplayCons.VERSION_CLASSIC_ONLY)
+            {
+                throw new IOException("Unsupported replay version " + version);
+            }
+            long seed = in.readLong();
+            long startTime = in.readLong();
+            boolean legacy = version == ReplayCons.VERSION_CLASSIC_ONLY;
+            RuleSet rules = RuleSet.get(legacy ? RuleCons.DEFAULT_RULES : in.readUTF());
+
+            int[] events = new int[64];
+            long[] ticks = new long[64];
+            int count = 0;
+            long tick = 0;
+            while (true)
+            {
+                int event;
+                try {
+                    tick += ReplayPlayer.readVarLong(in);
+                    event = in.readUnsignedByte();
+                } catch (EOFException e) {
+                    break; // End of the recording, or an event cut short by a crash
+                }
+                if (legacy && event == ReplayCons.V1_EVENT_NEXT_ROUND) event = ReplayCons.EVENT_NEXT_ROUND;
+                else if (legacy && event == ReplayCons.V1_EVENT_RESTART) event = ReplayCons.EVENT_RESTART;
+                if (event >= rules.getWeaponCount() && event != ReplayCons.EVENT_NEXT_ROUND && event != ReplayCons.EVENT_RESTART)
+                {
+                    throw new IOException("Unknown replay event " + event);
+                }
+                if (count == events.length)
+                {
+                    events = Arrays.copyOf(events, count * 2);
+                    ticks = Arrays.copyOf(ticks, count * 2);
+                }
+                events[count] = event;
+                ticks[count++] = tick;
+            }
+            return new Record(startTime, seed, player, rules.getId(), rules.getWeaponCount(),
+                    Arrays.copyOf(events, count), Arrays.copyOf(ticks, count));
+        }
+    }
+
+    /**
+     * Byte output that either grows in memory or streams to a channel through a small buffer.
+     */
+    private static final class Sink
+    {
+        final FileChannel channel;
+        byte[] bytes = new byte[64 * 1024];
+        int used;      // Bytes of the buffer not yet written to the channel
+        long position; // Bytes written in all, or the length in memory
+
+        Sink(FileChannel channel)
+        {
+            this.channel = channel;
+        }
+
+        void put(byte b) throws IOException
+        {
+            if (channel == null)
+            {
+                if (position == bytes.length) bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                bytes[(int) position++] = b;
+                return;
+            }
+            if (used == bytes.length) flush();
+            bytes[used++] = b;
+            position++;
+        }
+
+        void put(byte[] source, int offset, int length) throws IOException
+        {
+            if (channel == null)
+            {
+                if (position + length > bytes.length) bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, (int) position + length));
+                System.arraycopy(source, offset, bytes, (int) position, length);
+                position += length;
+                return;
+            }
+            while (length > 0)
+            {
+                if (used == bytes.length) flush();
+                int chunk = Math.min(length, bytes.length - used);
+                System.arraycopy(source, offset, bytes, used, chunk);
+                used += chunk;
+                position += chunk;
+                offset += chunk;
+                length -= chunk;
+            }
+        }
+
+        void putInt(int value) throws IOException
+        {
+            for (int shift = 24; shift >= 0; shift -= 8) put((byte) (value >>> shift));
+        }
+
+        void putLong(long value) throws IOException
+        {
+            putInt((int) (value >>> 32));
+            putInt((int) value);
+        }
+
+        void putString(String value) throws IOException
+        {
+            byte[] utf = value.getBytes(StandardCharsets.UTF_8);
+            int length = Math.min(utf.length, 0xFFFF);
+            put((byte) (length >>> 8));
+            put((byte) length);
+            put(utf, 0, length);
+        }
+
+        void varLong(long value) throws IOException
+        {
+            while ((value & ~0x7FL) != 0)
+            {
+                put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            put((byte) value);
+        }
+
+        void flush() throws IOException
+        {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, used);
+            while (buffer.hasRemaining()) channel.write(buffer, position - used + buffer.position());
+            used = 0;
+        }
+    }
+
+    private static int writeBits(long[] packed, int codes, int width, int value)
+    {
+        long bit = (long) codes * width;
+        packed[(int) (bit >>> 6)] |= (long) value << (bit & 63); // Widths divide 64, so a code never straddles words
+        return codes + 1;
+    }
+
+    private static int readBits(ByteBuffer buffer, int offset, int bit, int width)
+    {
+        int value = 0;
+        for (int i = 0; i < width; i += 8 - ((bit + i) & 7))
+        {
+            int b = buffer.get(offset + ((bit + i) >>> 3)) & 0xFF;
+            value |= (b >>> ((bit + i) & 7)) << i;
+        }
+        return value & ((1 << width) - 1);
+    }
+
+    /**
+     * Reads an unsigned LEB128 varint at a position, and moves the position past it.
+     */
+    private static long readVarLong(ByteBuffer buffer, int[] position)
+    {
+        long value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = buffer.get(position[0]++);
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static long zigzagEncode(long value)
+    {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long zigzagDecode(long value)
+    {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static String readString(ByteBuffer in)
+    {
+        byte[] utf = new byte[in.getShort() & 0xFFFF];
+        in.get(utf);
+        return new String(utf, StandardCharsets.UTF_8);
+    }
+
+    private static int[] sortedIndices(String[] names)
+    {
+        Integer[] order = new Integer[names.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> names[a].compareTo(names[b]));
+        int[] sorted = new int[order.length];
+        for (int i = 0; i < order.length; i++) sorted[i] = order[i];
+        return sorted;
+    }
+
+    private static void deleteQuietly(File file)
+    {
+        if (!file.delete() && file.exists())
+        {
+            System.err.println("Could not delete " + file + ", it is removed the next time the archive opens");
+        }
+    }
+
+    public File getDirectory()
+    {
+        return dir;
+    }
+}
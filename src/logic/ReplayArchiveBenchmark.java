@@ -0,0 +1,187 @@
+package logic;
+
+import utils.Constants.ArchiveCons;
+import utils.Constants.ReplayCons;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Fills a replay archive in a temporary directory with synthetic matches and prints
+ * how small it is, how fast it is written, how fast a match is found by id, date and
+ * player, and how fast the whole archive streams. Every match streamed back is checked
+ * against a hash of what was written.
+ *
+ * Matches are appended in batches, as compaction folds the replays of a few sessions
+ * at a time, and each batch is followed by a compaction so the segments are merged
+ * as they would be in use.
+ *
+ * Usage: java -cp out:res logic.ReplayArchiveBenchmark [matches] [players] [batch]
+ */
+public class ReplayArchiveBenchmark
+{
+    private static final int SEEKS = 10_000;
+
+    public static void main(String[] args) throws IOException
+    {
+        int matches = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int players = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int batch = args.length > 2 ? Integer.parseInt(args[2]) : 4096;
+        RuleSet rules = RuleSet.getActive();
+        File dir = Files.createTempDirectory("replay-archive").toFile();
+        File noLooseReplays = new File(dir, "none");
+        System.out.println(matches + " matches of " + rules.getId() + " by " + players + " players, appended " + batch + " at a time");
+
+        try {
+            SplittableRandom random = new SplittableRandom(7);
+            long[] hashes = new long[matches];
+            long[] startTimes = new long[matches];
+            long time = 1_700_000_000_000L, events = 0, legacyBytes = 0;
+            ReplayArchive archive = new ReplayArchive(dir);
+            long start = System.nanoTime();
+            for (int first = 0; first < matches; first += batch)
+            {
+                List<ReplayArchive.Record> records = new ArrayList<>();
+                for (int i = first; i < Math.min(matches, first + batch); i++)
+                {
+                    time += random.nextInt(120_000);
+                    ReplayArchive.Record record = generate(random, rules, time, "player" + random.nextInt(players));
+                    hashes[i] = hash(record);
+                    startTimes[i] = time;
+                    events += record.getEvents().length;
+                    legacyBytes += legacySize(record);
+                    records.add(record);
+                }
+                archive.append(records);
+                archive.compact(noLooseReplays, null, 0); // Nothing to fold, merges the segments
+            }
+            double writeSeconds = (System.nanoTime() - start) / 1e9;
+            long bytes = 0;
+            File[] files = dir.listFiles();
+            for (File file : files != null ? files : new File[0]) bytes += file.length();
+
+            System.out.printf("Wrote %d matches in %.2f s (%.0f matches/s), %d segments%n", archive.size(), writeSeconds,
+                    matches / writeSeconds, archive.getSegmentCount());
+            System.out.printf("  %d bytes: %.1f per match, %.2f per event; one version 2 file per match would hold %.1f per match%n",
+                    bytes, (double) bytes / matches, (double) bytes / events, (double) legacyBytes / matches);
+
+            // Reopen, so the seeks and streams read the segments from their mappings
+            archive = new ReplayArchive(dir);
+            long[] byId = new long[SEEKS], byDate = new long[SEEKS], byPlayer = new long[SEEKS];
+            for (int i = 0; i < SEEKS; i++)
+            {
+                int id = random.nextInt(matches);
+                long t0 = System.nanoTime();
+                ReplayArchive.Record record = archive.get(id);
+                long t1 = System.nanoTime();
+                if (record == null || hash(record) != hashes[id]) throw new IllegalStateException("Match " + id + " read back wrong");
+                Iterator<ReplayArchive.Record> since = archive.since(startTimes[id]);
+                ReplayArchive.Record first = since.next();
+                long t2 = System.nanoTime();
+                if (first.getStartTime() != startTimes[id]) throw new IllegalStateException("Seek to " + startTimes[id] + " found " + first.getStartTime());
+                Iterator<ReplayArchive.Record> player = archive.byPlayer("player" + random.nextInt(players));
+                if (player.hasNext()) player.next();
+                long t3 = System.nanoTime();
+                byId[i] = t1 - t0;
+                byDate[i] = t2 - t1;
+                byPlayer[i] = t3 - t2;
+            }
+            System.out.println("  seek by id     " + latencies(byId));
+            System.out.println("  seek by date   " + latencies(byDate));
+            System.out.println("  seek by player " + latencies(byPlayer));
+
+            start = System.nanoTime();
+            long count = 0;
+            for (Iterator<ReplayArchive.Record> it = archive.fromId(0); it.hasNext(); count++)
+            {
+                ReplayArchive.Record record = it.next();
+                if (hash(record) != hashes[(int) record.getId()]) throw new IllegalStateException("Match " + record.getId() + " read back wrong");
+            }
+            double streamSeconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("  streamed and checked %d matches in %.2f s (%.0f matches/s)%n", count, streamSeconds, count / streamSeconds);
+
+            start = System.nanoTime();
+            ReplayPlayer replayer = new ReplayPlayer();
+            long rounds = 0;
+            for (Iterator<ReplayArchive.Record> it = archive.fromId(0); it.hasNext(); )
+            {
+                replayer.replay(it.next());
+                rounds += replayer.getRounds();
+            }
+            double replaySeconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("  replayed %d rounds in %.2f s (%.0f matches/s)%n", rounds, replaySeconds, count / replaySeconds);
+        } finally {
+            File[] files = dir.listFiles();
+            for (File file : files != null ? files : new File[0]) file.delete();
+            dir.delete();
+        }
+    }
+
+    /**
+     * Plays a match of a few rounds with think times like a person's, restarting it now and then.
+     */
+    private static ReplayArchive.Record generate(SplittableRandom random, RuleSet rules, long startTime, String player)
+    {
+        int rounds = 3 + random.nextInt(10);
+        int[] events = new int[rounds * 2 + 1];
+        long[] ticks = new long[events.length];
+        int count = 0;
+        long tick = 0;
+        for (int round = 0; round < rounds; round++)
+        {
+            tick += 40 + random.nextInt(200);
+            events[count] = random.nextInt(rules.getWeaponCount());
+            ticks[count++] = tick;
+            tick += 60 + random.nextInt(60);
+            events[count] = random.nextInt(20) == 0 ? ReplayCons.EVENT_RESTART : ReplayCons.EVENT_NEXT_ROUND;
+            ticks[count++] = tick;
+        }
+        return new ReplayArchive.Record(startTime, random.nextLong(), player, rules.getId(), rules.getWeaponCount(),
+                Arrays.copyOf(events, count), Arrays.copyOf(ticks, count));
+    }
+
+    private static long hash(ReplayArchive.Record record)
+    {
+        long hash = record.getSeed() * 31 + record.getStartTime();
+        hash = hash * 31 + record.getPlayer().hashCode();
+        for (int event : record.getEvents()) hash = hash * 31 + event;
+        for (long tick : record.getTicks()) hash = hash * 31 + tick;
+        return hash;
+    }
+
+    /**
+     * Size of the match as a ReplayRecorder file, not counting the file system's own overhead.
+     */
+    private static long legacySize(ReplayArchive.Record record)
+    {
+        long size = 4 + 1 + 8 + 8 + 2 + record.getRules().getBytes(StandardCharsets.UTF_8).length;
+        long previous = 0;
+        for (long tick : record.getTicks())
+        {
+            long delta = tick - previous;
+            previous = tick;
+            size += 1 + Math.max(1, (64 - Long.numberOfLeadingZeros(delta) + 6) / 7);
+        }
+        return size;
+    }
+
+    private static String latencies(long[] nanos)
+    {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return "p50 " + micros(sorted, 0.5) + " us, p99 " + micros(sorted, 0.99) + " us, max " +
+                sorted[sorted.length - 1] / 1000 + " us (" + ArchiveCons.INDEX_INTERVAL + " matches per index block)";
+    }
+
+    private static double micros(long[] sorted, double percentile)
+    {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * percentile))] / 100 / 10.0;
+    }
+}
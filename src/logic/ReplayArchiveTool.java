@@ -0,0 +1,170 @@
+package logic;
+
+import utils.Constants.ArchiveCons;
+import utils.Constants.StoragePaths;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+
+/**
+ * Command line access to a replay archive, without any window. Matches are streamed
+ * from the mapped segments one at a time, so even a whole archive is never loaded.
+ *
+ * Usage: java -cp out:res logic.ReplayArchiveTool [-d archive dir] command
+ *   compact [replay dir] [player]   fold finished replay files into the archive and merge segments;
+ *                                   best run with the game closed
+ *   list [--from id | --since yyyy-mm-dd | --player name] [--limit n]
+ *   replay id... [-v]               replay matches and print their rounds
+ *   stats                           stream every match and print totals
+ */
+public class ReplayArchiveTool
+{
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")
+            .withZone(ZoneId.systemDefault());
+
+    public static void main(String[] args)
+    {
+        File dir = new File(StoragePaths.ARCHIVE_DIR);
+        int arg = 0;
+        if (args.length > 1 && args[0].equals("-d"))
+        {
+            dir = new File(args[1]);
+            arg = 2;
+        }
+        if (arg >= args.length)
+        {
+            System.err.println("Usage: ReplayArchiveTool [-d archive dir] compact|list|replay|stats ...");
+            return;
+        }
+        try {
+            ReplayArchive archive = new ReplayArchive(dir);
+            String command = args[arg++];
+            switch (command) {
+                case "compact":
+                    compact(archive, args, arg);
+                    break;
+                case "list":
+                    list(archive, args, arg);
+                    break;
+                case "replay":
+                    replay(archive, args, arg);
+                    break;
+                case "stats":
+                    stats(archive);
+                    break;
+                default:
+                    System.err.println("Unknown command: " + command);
+                    break;
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Replay archive error: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private static void compact(ReplayArchive archive, String[] args, int arg) throws IOException
+    {
+        File looseDir = new File(arg < args.length ? args[arg] : StoragePaths.REPLAY_DIR);
+        String player = arg + 1 < args.length ? args[arg + 1] : LeaderboardStore.getLocalPlayerName();
+        long start = System.nanoTime();
+        int folded = archive.compact(looseDir, player, ArchiveCons.SETTLE_MS);
+        System.out.println("Folded " + folded + " replays from " + looseDir + " in " + (System.nanoTime() - start) / 1_000_000 +
+                " ms, " + archive.size() + " matches in " + archive.getSegmentCount() + " segments");
+    }
+
+    private static void list(ReplayArchive archive, String[] args, int arg)
+    {
+        Iterator<ReplayArchive.Record> matches = archive.fromId(0);
+        int limit = 50;
+        for (; arg + 1 < args.length; arg += 2)
+        {
+            String value = args[arg + 1];
+            switch (args[arg]) {
+                case "--from":
+                    matches = archive.fromId(Long.parseLong(value));
+                    break;
+                case "--since":
+                    matches = archive.since(LocalDate.parse(value).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli());
+                    break;
+                case "--player":
+                    matches = archive.byPlayer(value);
+                    break;
+                case "--limit":
+                    limit = Integer.parseInt(value);
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[arg]);
+                    return;
+            }
+        }
+        ReplayPlayer player = new ReplayPlayer();
+        for (int i = 0; i < limit && matches.hasNext(); i++)
+        {
+            System.out.println(describe(matches.next(), player));
+        }
+    }
+
+    private static void replay(ReplayArchive archive, String[] args, int arg) throws IOException
+    {
+        ReplayPlayer player = new ReplayPlayer();
+        for (int i = arg; i < args.length; i++) if (args[i].equals("-v")) player.setVerbose(true);
+        for (; arg < args.length; arg++)
+        {
+            if (args[arg].equals("-v")) continue;
+            ReplayArchive.Record record = archive.get(Long.parseLong(args[arg]));
+            if (record == null)
+            {
+                System.err.println("No match " + args[arg] + " in the archive");
+                continue;
+            }
+            System.out.println(describe(record, player));
+        }
+    }
+
+    private static void stats(ReplayArchive archive) throws IOException
+    {
+        long start = System.nanoTime();
+        long matches = 0, rounds = 0, won = 0, lost = 0, events = 0;
+        ReplayPlayer player = new ReplayPlayer();
+        for (Iterator<ReplayArchive.Record> it = archive.fromId(0); it.hasNext(); )
+        {
+            ReplayArchive.Record record = it.next();
+            player.replay(record);
+            matches++;
+            events += record.getEvents().length;
+            rounds += player.getRounds();
+            won += player.getPlayerWins();
+            lost += player.getComputerWins();
+        }
+        long bytes = 0;
+        File[] files = archive.getDirectory().listFiles();
+        for (File file : files != null ? files : new File[0]) bytes += file.length();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d matches in %d segments, %d bytes (%.1f per match, %.2f per event)%n", matches,
+                archive.getSegmentCount(), bytes, (double) bytes / Math.max(1, matches), (double) bytes / Math.max(1, events));
+        System.out.printf("%d rounds, %d won, %d lost; streamed and replayed in %.2f s (%.0f matches/s)%n",
+                rounds, won, lost, seconds, matches / seconds);
+    }
+
+    /**
+     * Replays a match and sums it up on one line.
+     */
+    static String describe(ReplayArchive.Record record, ReplayPlayer player)
+    {
+        String result;
+        try {
+            player.replay(record);
+            result = player.getRounds() + " rounds (" + player.getPlayerWins() + " won, " + player.getComputerWins() +
+                    " lost, " + player.getTies() + " tied), " + player.getMatchesWon() + "-" + player.getMatchesLost() + " in matches";
+        } catch (IOException e) {
+            result = "cannot be replayed: " + e.getMessage();
+        }
+        return "#" + record.getId() + "  " + DATE_FORMAT.format(Instant.ofEpochMilli(record.getStartTime())) + "  " +
+                record.getPlayer() + "  " + record.getRules() + "  " + result;
+    }
+}
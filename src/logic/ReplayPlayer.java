@@ -0,0 +1,210 @@
+package logic;
+
+import utils.Constants.ReplayCons;
+import utils.Constants.RuleCons;
+import utils.Constants.playingUICons;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * Replays a match recorded by ReplayRecorder without any window or sound.
+ * Rounds are resolved as fast as the log can be read, so a match replays
+ * thousands of times faster than it was played.
+ *
+ * Usage: java logic.ReplayPlayer [-v] replay.bbpr ...
+ */
+public class ReplayPlayer
+{
+    /**
+     * Told about every round as it is replayed.
+     */
+    public interface RoundListener
+    {
+        void round(long tick, int playerHand, int computerHand, int outcome);
+    }
+
+    private int rounds, playerWins, computerWins, ties; // Round counts of the last replay
+    private int matchesWon, matchesLost;                // Finished matches of the last replay
+    private long lastTick;                              // Tick of the last event
+    private boolean verbose;                            // Print every round while replaying
+    private boolean legacyEvents;                       // Version 1 event codes
+    private RoundListener roundListener;                // Null if no one listens
+
+    /**
+     * Replays a recorded match.
+     *
+     * @param file The replay file
+     * @return The match in the state it was left in when recording stopped
+     * @throws IOException If the file cannot be read or is not a replay
+     */
+    public Match replay(File file) throws IOException
+    {
+        rounds = playerWins = computerWins = ties = matchesWon = matchesLost = 0;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+        {
+            if (in.readInt() != ReplayCons.MAGIC)
+            {
+                throw new IOException("Not a replay file: " + file);
+            }
+            int version = in.readUnsignedByte();
+            if (version != ReplayCons.VERSION && version != ReplayCons.VERSION_CLASSIC_ONLY)
+            {
+                throw new IOException("Unsupported replay version " + version + ": " + file);
+            }
+            long seed = in.readLong();
+            in.readLong(); // Start time, not needed for replaying
+            // Version 1 replays predate the rule sets and are classic
+            RuleSet rules = RuleSet.get(version == ReplayCons.VERSION ? in.readUTF() : RuleCons.DEFAULT_RULES);
+            legacyEvents = version == ReplayCons.VERSION_CLASSIC_ONLY;
+
+            Match match = new Match(seed, playingUICons.TOTAL_HEARTS, rules);
+            lastTick = 0;
+
+            while (true)
+            {
+                long delta;
+                int event;
+                try {
+                    delta = readVarLong(in);
+                    event = in.readUnsignedByte();
+                } catch (EOFException e) {
+                    break; // End of the recording, or an event cut short by a crash
+                }
+                lastTick += delta;
+                applyEvent(match, event);
+            }
+            return match;
+        }
+    }
+
+    /**
+     * Replays an archived match.
+     *
+     * @param record The match, as streamed from a ReplayArchive
+     * @return The match in the state it was left in when recording stopped
+     * @throws IOException If the match's rule set is unknown or it holds an unknown event
+     */
+    public Match replay(ReplayArchive.Record record) throws IOException
+    {
+        rounds = playerWins = computerWins = ties = matchesWon = matchesLost = 0;
+        legacyEvents = false; // Archived events are always in the current codes
+        lastTick = 0;
+
+        Match match = new Match(record.getSeed(), playingUICons.TOTAL_HEARTS, RuleSet.get(record.getRules()));
+        int[] events = record.getEvents();
+        long[] ticks = record.getTicks();
+        for (int i = 0; i < events.length; i++)
+        {
+            lastTick = ticks[i];
+            applyEvent(match, events[i]);
+        }
+        return match;
+    }
+
+    /**
+     * Applies one recorded event to the match.
+     */
+    private void applyEvent(Match match, int event) throws IOException
+    {
+        if (legacyEvents && event == ReplayCons.V1_EVENT_NEXT_ROUND) event = ReplayCons.EVENT_NEXT_ROUND;
+        else if (legacyEvents && event == ReplayCons.V1_EVENT_RESTART) event = ReplayCons.EVENT_RESTART;
+
+        if (event < match.getRules().getWeaponCount())
+        {
+            int outcome = match.playRound(event);
+            rounds++;
+            switch (outcome) {
+                case Match.PLAYER_WIN:
+                    playerWins++;
+                    if (match.isGameOver()) matchesWon++;
+                    break;
+                case Match.COMPUTER_WIN:
+                    computerWins++;
+                    if (match.isGameOver()) matchesLost++;
+                    break;
+                default:
+                    ties++;
+                    break;
+            }
+            if (roundListener != null)
+            {
+                roundListener.round(lastTick, match.getPlayerHand(), match.getComputerHand(), outcome);
+            }
+            if (verbose)
+            {
+                System.out.println("tick " + lastTick + ": player " + match.getPlayerHand() +
+                        " vs computer " + match.getComputerHand() +
+                        " -> lives " + match.getPlayerLives() + "/" + match.getComputerLives());
+            }
+        } else if (event == ReplayCons.EVENT_NEXT_ROUND)
+        {
+            match.nextRound();
+        } else if (event == ReplayCons.EVENT_RESTART)
+        {
+            match.restart();
+        } else {
+            throw new IOException("Unknown replay event " + event + " at tick " + lastTick);
+        }
+    }
+
+    /**
+     * Reads an unsigned LEB128 varint.
+     */
+    static long readVarLong(DataInputStream in) throws IOException
+    {
+        long value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    public void setVerbose(boolean verbose) { this.verbose = verbose; }
+    public void setRoundListener(RoundListener listener) { this.roundListener = listener; }
+    public int getRounds() { return rounds; }
+    public int getPlayerWins() { return playerWins; }
+    public int getComputerWins() { return computerWins; }
+    public int getTies() { return ties; }
+    public int getMatchesWon() { return matchesWon; }
+    public int getMatchesLost() { return matchesLost; }
+    public long getLastTick() { return lastTick; }
+
+    /**
+     * Replays the given files and prints a summary of each.
+     */
+    public static void main(String[] args)
+    {
+        ReplayPlayer player = new ReplayPlayer();
+        for (String arg : args)
+        {
+            if (arg.equals("-v"))
+            {
+                player.setVerbose(true);
+                continue;
+            }
+            try {
+                long start = System.nanoTime();
+                Match match = player.replay(new File(arg));
+                long elapsedMicros = (System.nanoTime() - start) / 1000;
+
+                System.out.println(arg + ": seed " + match.getSeed() +
+                        ", " + player.getRounds() + " rounds (" + player.getPlayerWins() + " won, " +
+                        player.getComputerWins() + " lost, " + player.getTies() + " tied), " +
+                        player.getMatchesWon() + "-" + player.getMatchesLost() + " in matches, " +
+                        player.getLastTick() + " ticks replayed in " + elapsedMicros + " us");
+            } catch (IOException e) {
+                System.err.println("Error replaying " + arg + ": " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package logic;
+
+import utils.Constants.ReplayCons;
+import utils.Constants.StoragePaths;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records a match as a compact binary log: the seed, then every player input
+ * together with the game tick it happened on.
+ *
+ * File layout:
+ *   int magic, byte version, long seed, long start time (ms), id of the RuleSet as written by writeUTF
+ *   then per event: varint tick delta, byte event (a hand, EVENT_NEXT_ROUND or EVENT_RESTART)
+ * Version 1 files have no rules id, were always classic, and used 3 and 4 as the event codes.
+ *
+ * Events are appended to a preallocated buffer on the calling thread; full
+ * buffers are written to disk by a single background thread. A match still being
+ * recorded when the game exits is finished by a shutdown hook.
+ */
+public class ReplayRecorder
+{
+    // One writer thread shared by all recorders, so disk I/O never runs on the EDT
+    private static final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "replay-writer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Files still being recorded or written, which the replay archive must not fold yet
+    private static final Set<File> recording = ConcurrentHashMap.newKeySet();
+
+    // Recorders with a match in progress, finished on exit so their buffered events are not lost
+    private static final Set<ReplayRecorder> active = ConcurrentHashMap.newKeySet();
+    private static volatile boolean closed;
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            closed = true;
+            for (ReplayRecorder recorder : active) recorder.finish();
+            writer.shutdown();
+            try {
+                writer.awaitTermination(ReplayCons.SHUTDOWN_WAIT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "replay-shutdown"));
+    }
+
+    // Buffers handed back by the writer once their contents are on disk
+    private final ConcurrentLinkedQueue<byte[]> spareBuffers = new ConcurrentLinkedQueue<>();
+
+    private File file;          // File of the match being recorded, null when idle
+    private byte[] buffer;      // Buffer currently being filled
+    private int position;       // Write position within the buffer
+    private long lastTick;      // Tick of the previous event, events store the delta
+
+    public ReplayRecorder()
+    {
+        buffer = new byte[ReplayCons.BUFFER_SIZE];
+    }
+
+    /**
+     * Starts recording a new match. Finishes the previous one if still open.
+     * Does nothing once the game is exiting.
+     *
+     * @param seed Seed of the match being recorded
+     * @param rules Id of the match's RuleSet
+     * @param tick Game tick the match starts on
+     */
+    public synchronized void begin(long seed, String rules, long tick)
+    {
+        finish();
+        if (closed) return;
+
+        long startTime = System.currentTimeMillis();
+        file = new File(StoragePaths.REPLAY_DIR,
+                "replay_" + startTime + "_" + Long.toHexString(seed) + ReplayCons.FILE_EXTENSION);
+        lastTick = tick;
+        recording.add(file);
+        active.add(this);
+
+        // Written the way ReplayPlayer reads it, with readUTF for the rules id
+        ByteArrayOutputStream header = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(header))
+        {
+            out.writeInt(ReplayCons.MAGIC);
+            out.writeByte(ReplayCons.VERSION);
+            out.writeLong(seed);
+            out.writeLong(startTime);
+            out.writeUTF(rules);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Rules id cannot be recorded: " + rules, e); // Only an id over 64 KB fails
+        }
+        byte[] bytes = header.toByteArray();
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    /**
+     * Appends an event to the log. Does nothing if no match is being recorded.
+     *
+     * @param tick Game tick the event happened on
+     * @param event Hand index or one of the ReplayCons event codes
+     */
+    public synchronized void record(long tick, int event)
+    {
+        if (file == null) return;
+
+        // Longest event is a 10 byte varint plus the event byte
+        if (position > buffer.length - 11)
+        {
+            flush();
+        }
+
+        long delta = Math.max(0, tick - lastTick);
+        lastTick = tick;
+        while ((delta & ~0x7FL) != 0)
+        {
+            buffer[position++] = (byte) ((delta & 0x7F) | 0x80);
+            delta >>>= 7;
+        }
+        buffer[position++] = (byte) delta;
+        buffer[position++] = (byte) event;
+    }
+
+    /**
+     * Ends the current recording and writes what is left of it in the background.
+     */
+    public synchronized void finish()
+    {
+        if (file == null) return;
+        flush();
+        File done = file;
+        writer.execute(() -> recording.remove(done)); // After its last buffer is written
+        file = null;
+        active.remove(this);
+    }
+
+    /**
+     * Hands the filled part of the buffer to the writer thread and continues on a spare buffer.
+     */
+    private void flush()
+    {
+        if (position == 0) return;
+
+        final byte[] full = buffer;
+        final int length = position;
+        final File target = file;
+
+        byte[] spare = spareBuffers.poll();
+        buffer = (spare != null) ? spare : new byte[ReplayCons.BUFFER_SIZE];
+        position = 0;
+
+        writer.execute(() -> {
+            try
+            {
+                File dir = target.getParentFile();
+                if (!dir.exists() && !dir.mkdirs())
+                {
+                    System.err.println("Could not create replay directory: " + dir);
+                    return;
+                }
+                try (FileOutputStream out = new FileOutputStream(target, true))
+                {
+                    out.write(full, 0, length);
+                }
+            } catch (IOException e) {
+                System.err.println("Error writing replay: " + target);
+                e.printStackTrace();
+            } finally {
+                spareBuffers.offer(full);
+            }
+        });
+    }
+
+    /**
+     * Checks whether a file is being recorded, or still has buffers waiting to be written.
+     */
+    public static boolean isRecording(File file)
+    {
+        return recording.contains(file);
+    }
+
+    /**
+     * Returns the file of the match currently being recorded.
+     *
+     * @return The replay file, or null if nothing is being recorded
+     */
+    public synchronized File getFile()
+    {
+        return file;
+    }
+}
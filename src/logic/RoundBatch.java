@@ -0,0 +1,206 @@
+package logic;
+
+import java.util.stream.IntStream;
+
+/**
+ * Resolves large batches of rounds at once, for balancing runs and AI training
+ * that play far more rounds than a match ever does.
+ *
+ * Hands are given as two int arrays, the player's and the opponent's, and every
+ * round is resolved exactly as Match.resolveRound does it: Match.TIE, PLAYER_WIN
+ * or COMPUTER_WIN by the rule set's outcome, a win costing the other side a life.
+ * Balanced variants in their file's order, classic included, are resolved with
+ * arithmetic on the weapon indices: with d = player - opponent wrapped into
+ * [0, n), the round is a tie if d is 0 and the player wins if d is at most n / 2.
+ * That loop has no branches and no table loads, so the JIT compiles it to SIMD
+ * instructions. Other variants go through the outcome table one round at a time.
+ *
+ * Hands must be weapons of the rule set; they are not checked.
+ */
+public final class RoundBatch
+{
+    // Rounds per task of the parallel methods, large enough to amortize the fork
+    private static final int CHUNK = 1 << 16;
+
+    private RoundBatch() {}
+
+    /**
+     * Rounds counted by outcome, and the lives they cost each side.
+     */
+    public static final class Tally
+    {
+        public final long ties;
+        public final long playerWins;
+        public final long opponentWins;
+
+        Tally(long ties, long playerWins, long opponentWins)
+        {
+            this.ties = ties;
+            this.playerWins = playerWins;
+            this.opponentWins = opponentWins;
+        }
+
+        public long getRounds() { return ties + playerWins + opponentWins; }
+
+        /** Lives the player gains, never positive: one is lost for every round the opponent wins. */
+        public long getPlayerLivesDelta() { return -opponentWins; }
+
+        /** Lives the opponent gains, never positive: one is lost for every round the player wins. */
+        public long getOpponentLivesDelta() { return -playerWins; }
+
+        Tally plus(Tally other)
+        {
+            return new Tally(ties + other.ties, playerWins + other.playerWins, opponentWins + other.opponentWins);
+        }
+
+        @Override
+        public String toString()
+        {
+            return ties + " ties, " + playerWins + " player wins, " + opponentWins + " opponent wins";
+        }
+    }
+
+    /**
+     * Resolves rounds from..to - 1 into outcomes[from..to - 1].
+     *
+     * @param playerHands The player's weapon of each round
+     * @param opponentHands The opponent's weapon of each round
+     * @param outcomes Receives Match.TIE, PLAYER_WIN or COMPUTER_WIN per round
+     */
+    public static void resolve(RuleSet rules, int[] playerHands, int[] opponentHands, int[] outcomes, int from, int to)
+    {
+        checkRange(playerHands, opponentHands, from, to);
+        if (outcomes.length < to) throw new IndexOutOfBoundsException("Outcomes end before " + to);
+        switch (rules.getCycle()) {
+            case 1:
+                resolveCycle(rules.getWeaponCount(), playerHands, opponentHands, outcomes, from, to);
+                break;
+            case -1:
+                // Beating the next weapons is the same with the difference taken the other way
+                resolveCycle(rules.getWeaponCount(), opponentHands, playerHands, outcomes, from, to);
+                break;
+            default:
+                resolveTable(rules, playerHands, opponentHands, outcomes, from, to);
+        }
+    }
+
+    /**
+     * Same as resolve, with the range split into chunks resolved on the common fork join pool.
+     */
+    public static void resolveParallel(RuleSet rules, int[] playerHands, int[] opponentHands, int[] outcomes, int from, int to)
+    {
+        checkRange(playerHands, opponentHands, from, to);
+        if (outcomes.length < to) throw new IndexOutOfBoundsException("Outcomes end before " + to);
+        int chunks = (int) (((long) to - from + CHUNK - 1) / CHUNK);
+        IntStream.range(0, chunks).parallel().forEach(c -> {
+            int start = from + c * CHUNK;
+            resolve(rules, playerHands, opponentHands, outcomes, start, start + Math.min(to - start, CHUNK));
+        });
+    }
+
+    /**
+     * Counts the outcomes of rounds from..to - 1 without storing them.
+     */
+    public static Tally tally(RuleSet rules, int[] playerHands, int[] opponentHands, int from, int to)
+    {
+        checkRange(playerHands, opponentHands, from, to);
+        switch (rules.getCycle()) {
+            case 1:
+                return tallyCycle(rules.getWeaponCount(), playerHands, opponentHands, from, to);
+            case -1:
+                return tallyCycle(rules.getWeaponCount(), opponentHands, playerHands, from, to);
+            default:
+                return tallyTable(rules, playerHands, opponentHands, from, to);
+        }
+    }
+
+    /**
+     * Same as tally, with the range split into chunks counted on the common fork join pool.
+     */
+    public static Tally tallyParallel(RuleSet rules, int[] playerHands, int[] opponentHands, int from, int to)
+    {
+        checkRange(playerHands, opponentHands, from, to);
+        int chunks = (int) (((long) to - from + CHUNK - 1) / CHUNK);
+        return IntStream.range(0, chunks).parallel()
+                .mapToObj(c -> {
+                    int start = from + c * CHUNK;
+                    return tally(rules, playerHands, opponentHands, start, start + Math.min(to - start, CHUNK));
+                })
+                .reduce(new Tally(0, 0, 0), Tally::plus);
+    }
+
+    private static void checkRange(int[] playerHands, int[] opponentHands, int from, int to)
+    {
+        if (from < 0 || from > to || to > playerHands.length || to > opponentHands.length)
+        {
+            throw new IndexOutOfBoundsException("Rounds " + from + " to " + to + " of " +
+                    Math.min(playerHands.length, opponentHands.length));
+        }
+    }
+
+    /**
+     * Resolves rounds of a balanced variant, d being a - b for one that beats the
+     * weapons before and b - a for one that beats those after. Kept free of branches
+     * and of loads other than the hands, so it vectorizes. The C2 in JDK 17 only does
+     * so with the loss taken from a signed shift; two unsigned shifts added together
+     * keep the loop scalar once it is inlined.
+     */
+    private static void resolveCycle(int n, int[] a, int[] b, int[] outcomes, int from, int to)
+    {
+        int half = n >> 1;
+        for (int i = from; i < to; i++)
+        {
+            int d = a[i] - b[i];
+            d += (d >> 31) & n;                         // Wrapped into [0, n)
+            int decided = -d >>> 31;                    // 1 unless a tie
+            int lost = (half - d) >> 31;                // -1 if d is past the half the player beats
+            outcomes[i] = decided - lost;               // TIE 0, PLAYER_WIN 1, COMPUTER_WIN 2
+        }
+    }
+
+    /**
+     * Resolves rounds one table load at a time, for variants that are not balanced.
+     */
+    static void resolveTable(RuleSet rules, int[] playerHands, int[] opponentHands, int[] outcomes, int from, int to)
+    {
+        for (int i = from; i < to; i++)
+        {
+            outcomes[i] = rules.outcome(playerHands[i], opponentHands[i]);
+        }
+    }
+
+    /**
+     * Counts the rounds of a balanced variant, see resolveCycle.
+     */
+    private static Tally tallyCycle(int n, int[] a, int[] b, int from, int to)
+    {
+        int half = n >> 1;
+        long decided = 0, lost = 0;
+        // Sums are kept in ints per block so the loop stays a plain int reduction
+        for (int start = from, end; start < to; start = end)
+        {
+            end = start + Math.min(to - start, CHUNK);
+            int blockDecided = 0, blockLost = 0;
+            for (int i = start; i < end; i++)
+            {
+                int d = a[i] - b[i];
+                d += (d >> 31) & n;
+                blockDecided += -d >>> 31;
+                blockLost += (half - d) >>> 31;
+            }
+            decided += blockDecided;
+            lost += blockLost;
+        }
+        return new Tally((to - from) - decided, decided - lost, lost);
+    }
+
+    static Tally tallyTable(RuleSet rules, int[] playerHands, int[] opponentHands, int from, int to)
+    {
+        long[] counts = new long[3]; // By outcome constant
+        for (int i = from; i < to; i++)
+        {
+            counts[rules.outcome(playerHands[i], opponentHands[i])]++;
+        }
+        return new Tally(counts[Match.TIE], counts[Match.PLAYER_WIN], counts[Match.COMPUTER_WIN]);
+    }
+}
@@ -0,0 +1,147 @@
+package logic;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Checks RoundBatch against RuleSet.outcome and times its paths over 10^6 to 10^9 rounds:
+ *
+ *   scalar    the outcome table, one round at a time
+ *   vector    resolve, the branch-free arithmetic the JIT turns into SIMD for balanced variants
+ *   parallel  resolveParallel, the same split over the common fork join pool
+ *   tally     tally and tallyParallel, counting outcomes without storing them
+ *
+ * Rounds are played through a buffer of random hands that is resolved again until
+ * the count is reached, so a billion rounds fit in a small heap. The default buffer
+ * stays in the L2 cache, which times the arithmetic; with a buffer of millions of
+ * rounds (-Dbuffer=4194304) every path runs at the speed of memory instead. Run
+ * with -XX:-UseSuperWord to see the arithmetic path without SIMD.
+ *
+ * Usage: java [-Dbuffer=rounds] -cp out:res logic.RoundBatchBenchmark [max rounds] [rules ids...]
+ */
+public class RoundBatchBenchmark
+{
+    private static final int BUFFER = Integer.getInteger("buffer", 1 << 14); // Rounds, 192 KB with the outcomes
+    private static final long WARMUP = 200_000_000;
+    private static final String[] DEFAULT_RULES = {"classic", "rps15", "rpsls"};
+
+    public static void main(String[] args) throws Exception
+    {
+        long maxRounds = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000_000L;
+        String[] ids = args.length > 1 ? Arrays.copyOfRange(args, 1, args.length) : DEFAULT_RULES;
+        System.out.println("Threads:    " + Runtime.getRuntime().availableProcessors());
+
+        for (String id : ids)
+        {
+            RuleSet rules = RuleSet.get(id);
+            int[] player = randomHands(rules.getWeaponCount(), 1);
+            int[] opponent = randomHands(rules.getWeaponCount(), 2);
+            int[] outcomes = new int[BUFFER];
+            check(rules, player, opponent, outcomes);
+            System.out.println();
+            System.out.println(id + " (" + rules.getWeaponCount() + " weapons, " +
+                    (rules.getCycle() != 0 ? "arithmetic" : "table") + "), checked against RuleSet.outcome");
+            Batch[] paths = {
+                    (from, to) -> RoundBatch.resolveTable(rules, player, opponent, outcomes, from, to),
+                    (from, to) -> RoundBatch.resolve(rules, player, opponent, outcomes, from, to),
+                    (from, to) -> RoundBatch.resolveParallel(rules, player, opponent, outcomes, from, to),
+                    (from, to) -> sink += RoundBatch.tally(rules, player, opponent, from, to).ties,
+                    (from, to) -> sink += RoundBatch.tallyParallel(rules, player, opponent, from, to).ties
+            };
+            for (Batch path : paths) time(WARMUP, 1, path); // Out of the measurement, so every path is compiled
+
+            System.out.println("Rounds           scalar    vector  parallel     tally  tally par   (ns per round)");
+            for (long rounds = 1_000_000; rounds <= maxRounds; rounds *= 10)
+            {
+                int runs = rounds < 1_000_000_000 ? 5 : 1;
+                System.out.printf("%-13d", rounds);
+                for (Batch path : paths) System.out.printf(" %9.3f", time(rounds, runs, path));
+                System.out.println();
+            }
+        }
+    }
+
+    private static long sink; // Keeps the tallies from being optimized away
+
+    private interface Batch
+    {
+        void run(int from, int to);
+    }
+
+    /**
+     * Checks every path against resolving each round with RuleSet.outcome, on the whole buffer and on an odd slice.
+     */
+    private static void check(RuleSet rules, int[] player, int[] opponent, int[] outcomes)
+    {
+        long[] counts = new long[3];
+        int[] expected = new int[BUFFER];
+        for (int i = 0; i < BUFFER; i++)
+        {
+            expected[i] = rules.outcome(player[i], opponent[i]);
+            counts[expected[i]]++;
+        }
+        RoundBatch.resolve(rules, player, opponent, outcomes, 0, BUFFER);
+        if (!Arrays.equals(expected, outcomes)) throw new IllegalStateException(rules.getId() + ": resolve differs");
+        Arrays.fill(outcomes, -1);
+        RoundBatch.resolveParallel(rules, player, opponent, outcomes, 0, BUFFER);
+        if (!Arrays.equals(expected, outcomes)) throw new IllegalStateException(rules.getId() + ": resolveParallel differs");
+        Arrays.fill(outcomes, -1);
+        RoundBatch.resolveTable(rules, player, opponent, outcomes, 0, BUFFER);
+        if (!Arrays.equals(expected, outcomes)) throw new IllegalStateException(rules.getId() + ": resolveTable differs");
+
+        checkTally(rules, RoundBatch.tally(rules, player, opponent, 0, BUFFER), counts);
+        checkTally(rules, RoundBatch.tallyParallel(rules, player, opponent, 0, BUFFER), counts);
+
+        // A slice that starts and ends off any chunk boundary
+        int from = 12_345, to = BUFFER - 678;
+        Arrays.fill(counts, 0);
+        for (int i = from; i < to; i++) counts[expected[i]]++;
+        checkTally(rules, RoundBatch.tallyParallel(rules, player, opponent, from, to), counts);
+        Arrays.fill(outcomes, -1);
+        RoundBatch.resolveParallel(rules, player, opponent, outcomes, from, to);
+        for (int i = 0; i < BUFFER; i++)
+        {
+            if (outcomes[i] != (i >= from && i < to ? expected[i] : -1))
+            {
+                throw new IllegalStateException(rules.getId() + ": resolveParallel wrote round " + i + " wrong");
+            }
+        }
+    }
+
+    private static void checkTally(RuleSet rules, RoundBatch.Tally tally, long[] counts)
+    {
+        if (tally.ties != counts[Match.TIE] || tally.playerWins != counts[Match.PLAYER_WIN] ||
+                tally.opponentWins != counts[Match.COMPUTER_WIN] || tally.getPlayerLivesDelta() != -counts[Match.COMPUTER_WIN])
+        {
+            throw new IllegalStateException(rules.getId() + ": tally " + tally + " differs from " + Arrays.toString(counts));
+        }
+    }
+
+    private static int[] randomHands(int n, long seed)
+    {
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] hands = new int[BUFFER];
+        for (int i = 0; i < BUFFER; i++) hands[i] = random.nextInt(n);
+        return hands;
+    }
+
+    /**
+     * Resolves the given number of rounds through the buffer.
+     *
+     * @return Nanoseconds per round, best run
+     */
+    private static double time(long rounds, int runs, Batch batch)
+    {
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < runs; run++)
+        {
+            long start = System.nanoTime();
+            for (long done = 0; done < rounds; done += BUFFER)
+            {
+                batch.run(0, (int) Math.min(BUFFER, rounds - done));
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return (double) best / rounds;
+    }
+}
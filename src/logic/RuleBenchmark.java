@@ -0,0 +1,150 @@
+package logic;
+
+import utils.Constants.RuleCons;
+import utils.Constants.playingUICons;
+
+import java.util.SplittableRandom;
+
+/**
+ * Checks the rule files and times resolving rounds with rule sets of growing size,
+ * next to the if chain the classic rules used to be resolved with.
+ *
+ * Each rule set is checked against its definition first: every weapon ties with
+ * itself, and of two different weapons exactly one wins, from either side. Then
+ * the same number of random rounds is resolved with each; a table lookup costs
+ * the same whatever the number of weapons.
+ *
+ * Usage: java -cp out:res logic.RuleBenchmark [rounds] [runs]
+ */
+public class RuleBenchmark
+{
+    private static final String[] FILES = {"classic", "rpsls", "rps7", "rps15"};
+    private static final int[] GENERATED_SIZES = {3, 5, 7, 15, 31, 63};
+
+    public static void main(String[] args) throws Exception
+    {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 1 << 20;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        for (String id : FILES)
+        {
+            RuleSet rules = RuleSet.get(id);
+            check(rules);
+            System.out.println("Loaded:     " + id + " (" + rules.getName() + ", " + rules.getWeaponCount() + " weapons)");
+        }
+        check(RuleSet.get(RuleCons.DEFAULT_RULES));
+        for (int a = 0; a < 3; a++)
+        {
+            for (int b = 0; b < 3; b++)
+            {
+                if (RuleSet.get(RuleCons.DEFAULT_RULES).outcome(a, b) != ifChain(a, b))
+                {
+                    throw new IllegalStateException("Classic rules differ from the old if chain at " + a + " vs " + b);
+                }
+            }
+        }
+        System.out.println("Checked:    every pair has one winner, classic matches the old rules");
+
+        double chain = timeIfChain(rounds, runs);
+        System.out.printf("If chain:   %2d weapons  %5.2f ns per round%n", 3, chain);
+        for (int n : GENERATED_SIZES)
+        {
+            String[] weapons = new String[n];
+            for (int i = 0; i < n; i++) weapons[i] = "w" + i;
+            RuleSet rules = RuleSet.balanced("n" + n, n + " weapons", weapons, weapons, false);
+            check(rules);
+            System.out.printf("Table:      %2d weapons  %5.2f ns per round%n", n, timeTable(rules, rounds, runs));
+        }
+    }
+
+    /**
+     * Checks that weapons tie with themselves and that every other pair has exactly one winner.
+     */
+    private static void check(RuleSet rules)
+    {
+        int n = rules.getWeaponCount();
+        for (int a = 0; a < n; a++)
+        {
+            if (rules.outcome(a, a) != Match.TIE) throw new IllegalStateException(rules.getId() + ": " + a + " does not tie itself");
+            for (int b = 0; b < n; b++)
+            {
+                if (a == b) continue;
+                int ab = rules.outcome(a, b), ba = rules.outcome(b, a);
+                boolean oneWinner = (ab == Match.PLAYER_WIN && ba == Match.COMPUTER_WIN) ||
+                        (ab == Match.COMPUTER_WIN && ba == Match.PLAYER_WIN);
+                if (!oneWinner) throw new IllegalStateException(rules.getId() + ": " + a + " vs " + b + " is not decided");
+            }
+            if (rules.outcome(rules.counter(a), a) != Match.PLAYER_WIN)
+            {
+                throw new IllegalStateException(rules.getId() + ": counter of " + a + " does not beat it");
+            }
+        }
+    }
+
+    /**
+     * Random rounds over n weapons, player hands in the first half and opponent hands in the second.
+     */
+    private static int[] randomRounds(int n, int rounds)
+    {
+        SplittableRandom random = new SplittableRandom(42);
+        int[] hands = new int[rounds * 2];
+        for (int i = 0; i < hands.length; i++) hands[i] = random.nextInt(n);
+        return hands;
+    }
+
+    /**
+     * @return Nanoseconds per round, best run
+     */
+    private static double timeTable(RuleSet rules, int rounds, int runs)
+    {
+        int[] hands = randomRounds(rules.getWeaponCount(), rounds);
+        long best = Long.MAX_VALUE;
+        int sink = 0;
+        for (int run = 0; run < runs; run++)
+        {
+            long start = System.nanoTime();
+            for (int i = 0; i < rounds; i++)
+            {
+                sink += rules.outcome(hands[i], hands[rounds + i]);
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        if (sink == 42) System.out.println(); // Keeps the loop from being optimized away
+        return (double) best / rounds;
+    }
+
+    private static double timeIfChain(int rounds, int runs)
+    {
+        int[] hands = randomRounds(3, rounds);
+        long best = Long.MAX_VALUE;
+        int sink = 0;
+        for (int run = 0; run < runs; run++)
+        {
+            long start = System.nanoTime();
+            for (int i = 0; i < rounds; i++)
+            {
+                sink += ifChain(hands[i], hands[rounds + i]);
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        if (sink == 42) System.out.println();
+        return (double) best / rounds;
+    }
+
+    /**
+     * How Match resolved rounds before rule sets.
+     */
+    private static int ifChain(int playerHand, int computerHand)
+    {
+        if (playerHand == computerHand)
+        {
+            return Match.TIE;
+        } else if ((playerHand == playingUICons.ROCK && computerHand == playingUICons.SCISSORS) ||
+                (playerHand == playingUICons.PAPER && computerHand == playingUICons.ROCK) ||
+                (playerHand == playingUICons.SCISSORS && computerHand == playingUICons.PAPER))
+        {
+            return Match.PLAYER_WIN;
+        }
+        return Match.COMPUTER_WIN;
+    }
+}
@@ -0,0 +1,367 @@
+package logic;
+
+import utils.Constants.RuleCons;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The weapons of a game variant and which of them beats which, e.g. classic Rock
+ * Paper Scissors or Rock Paper Scissors Lizard Spock.
+ *
+ * Variants are read from /rules/&lt;id&gt;.rules on the class path, and the one the game
+ * plays is picked with -Dbbp.rules (classic by default). A file names the weapons
+ * in order and either lists what each weapon beats or says that each weapon beats
+ * the half of the others before or after it, which is how the balanced odd-sized
+ * variants are defined:
+ *
+ *   name = Rock Paper Scissors Lizard Spock
+ *   weapons = rock, paper, scissors, lizard, spock
+ *   labels = Rock, Paper, Scissors, Lizard, Spock   (optional, for the UI)
+ *   rock beats scissors, lizard
+ *   ...
+ *   or: each beats previous | each beats next
+ *
+ * Every pair of different weapons needs exactly one winner. A variant is compiled
+ * into a dense table of outcomes with a power of two stride, so resolving a round
+ * is one array load whatever the number of weapons. Immutable, so one instance is
+ * shared by every match, the tournament's worker threads included.
+ */
+public final class RuleSet
+{
+    private static final Map<String, RuleSet> loaded = new HashMap<>(); // By id, guarded by the class lock
+    private static volatile RuleSet active;
+
+    private final String id;
+    private final String name;
+    private final String[] weapons; // Ids, lower case
+    private final String[] labels;  // Shown in the UI
+    private final int shift;        // log2 of the table's stride
+    private final byte[] outcomes;  // Match.TIE, PLAYER_WIN or COMPUTER_WIN at [player << shift | opponent]
+    private final long[] beatenBy;  // Bit w of beatenBy[v] is set if weapon w beats weapon v
+    private final int cycle;        // 1 if each weapon beats the half before it, -1 the half after it, 0 otherwise
+
+    private RuleSet(String id, String name, String[] weapons, String[] labels, boolean[][] beats)
+    {
+        this.id = id;
+        this.name = name;
+        this.weapons = weapons;
+        this.labels = labels;
+        int n = weapons.length;
+        shift = 32 - Integer.numberOfLeadingZeros(Math.max(1, n - 1));
+        outcomes = new byte[n << shift];
+        beatenBy = new long[n];
+        for (int a = 0; a < n; a++)
+        {
+            for (int b = 0; b < n; b++)
+            {
+                outcomes[a << shift | b] = (byte) (beats[a][b] ? Match.PLAYER_WIN : beats[b][a] ? Match.COMPUTER_WIN : Match.TIE);
+                if (beats[a][b]) beatenBy[b] |= 1L << a;
+            }
+        }
+        cycle = isCycle(beats, 1) ? 1 : isCycle(beats, -1) ? -1 : 0;
+    }
+
+    /**
+     * Checks whether each weapon beats the n / 2 weapons before it (step 1) or after it (step -1).
+     */
+    private static boolean isCycle(boolean[][] beats, int step)
+    {
+        int n = beats.length;
+        if (n % 2 == 0) return false;
+        for (int a = 0; a < n; a++)
+        {
+            for (int k = 1; k <= n / 2; k++)
+            {
+                if (!beats[a][Math.floorMod(a - step * k, n)]) return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Resolves a round.
+     *
+     * @param playerHand The player's weapon
+     * @param opponentHand The opponent's weapon
+     * @return Match.TIE, PLAYER_WIN or COMPUTER_WIN
+     * @throws IllegalArgumentException If either hand is not a weapon of this variant; the table
+     *         has unused entries up to its power of two stride, which would read as a tie
+     */
+    public int outcome(int playerHand, int opponentHand)
+    {
+        if (playerHand < 0 || playerHand >= weapons.length || opponentHand < 0 || opponentHand >= weapons.length)
+        {
+            throw new IllegalArgumentException("No such weapon in " + id + ": " + playerHand + " against " + opponentHand);
+        }
+        return outcomes[playerHand << shift | opponentHand];
+    }
+
+    /**
+     * Retrieves the first weapon, in the file's order, that beats the given one.
+     */
+    public int counter(int hand)
+    {
+        return Long.numberOfTrailingZeros(beatenBy[hand]);
+    }
+
+    /**
+     * Finds a weapon by its id, label or index, ignoring case.
+     *
+     * @return The weapon, or -1 if there is no such weapon
+     */
+    public int indexOf(String text)
+    {
+        String key = text.trim().toLowerCase();
+        for (int i = 0; i < weapons.length; i++)
+        {
+            if (weapons[i].equals(key) || labels[i].toLowerCase().equals(key) || key.equals(Integer.toString(i)))
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Tells whether the variant is balanced and in which direction, which lets a
+     * round be resolved with arithmetic on the weapon indices instead of the table.
+     *
+     * @return 1 if each weapon beats the (n - 1) / 2 weapons before it, wrapping around,
+     *         -1 if it beats those after it, 0 if the variant is not balanced in its file's order
+     */
+    int getCycle() { return cycle; }
+
+    public String getId() { return id; }
+    public String getName() { return name; }
+    public int getWeaponCount() { return weapons.length; }
+    public String getWeapon(int hand) { return weapons[hand]; }
+    public String getLabel(int hand) { return labels[hand]; }
+
+    /**
+     * Retrieves the variant the game plays, chosen with -Dbbp.rules.
+     * Falls back to the classic rules if the chosen variant cannot be loaded.
+     */
+    public static RuleSet getActive()
+    {
+        RuleSet rules = active;
+        if (rules == null)
+        {
+            synchronized (RuleSet.class)
+            {
+                if (active == null)
+                {
+                    String id = System.getProperty(RuleCons.RULES_PROPERTY, RuleCons.DEFAULT_RULES);
+                    try {
+                        active = get(id);
+                    } catch (IOException e) {
+                        System.err.println("Error loading rules " + id + ", playing the classic rules: " + e.getMessage());
+                        active = classic();
+                    }
+                }
+                rules = active;
+            }
+        }
+        return rules;
+    }
+
+    /**
+     * Retrieves a variant by id, loading it from the class path the first time.
+     *
+     * @throws IOException If there is no such variant or its file is invalid
+     */
+    public static synchronized RuleSet get(String id) throws IOException
+    {
+        RuleSet rules = loaded.get(id);
+        if (rules == null)
+        {
+            if (!id.matches("[a-z0-9_-]+")) throw new IOException("Bad rules id: " + id);
+            String path = RuleCons.RULES_DIR + id + RuleCons.FILE_EXTENSION;
+            try (InputStream in = RuleSet.class.getResourceAsStream(path))
+            {
+                if (in == null)
+                {
+                    // The classic rules do not depend on the data files being there
+                    if (id.equals(RuleCons.DEFAULT_RULES)) return classic();
+                    throw new IOException("Rules not found: " + path);
+                }
+                rules = parse(id, new InputStreamReader(in, StandardCharsets.UTF_8));
+            }
+            loaded.put(id, rules);
+        }
+        return rules;
+    }
+
+    /**
+     * The classic rules, rock = 0, paper = 1 and scissors = 2, as the original game had them.
+     */
+    private static synchronized RuleSet classic()
+    {
+        RuleSet rules = loaded.get(RuleCons.DEFAULT_RULES);
+        if (rules == null)
+        {
+            rules = balanced(RuleCons.DEFAULT_RULES, "Rock Paper Scissors", new String[]{"rock", "paper", "scissors"},
+                    new String[]{"Bato", "Papel", "Gunting"}, false);
+            loaded.put(RuleCons.DEFAULT_RULES, rules);
+        }
+        return rules;
+    }
+
+    /**
+     * Creates a balanced variant: each weapon beats the (n - 1) / 2 weapons before it,
+     * or after it, wrapping around. Every weapon then wins against exactly as many as it loses to.
+     *
+     * @param weapons An odd number of weapon ids
+     * @param labels Labels of the weapons
+     * @param beatsNext Whether each weapon beats the ones after it instead of before it
+     */
+    public static RuleSet balanced(String id, String name, String[] weapons, String[] labels, boolean beatsNext)
+    {
+        int n = weapons.length;
+        if (n % 2 == 0 || n > RuleCons.MAX_WEAPONS)
+        {
+            throw new IllegalArgumentException("A balanced variant needs an odd number of weapons up to " +
+                    RuleCons.MAX_WEAPONS + ", got " + n);
+        }
+        boolean[][] beats = new boolean[n][n];
+        for (int a = 0; a < n; a++)
+        {
+            for (int k = 1; k <= n / 2; k++)
+            {
+                beats[a][Math.floorMod(beatsNext ? a + k : a - k, n)] = true;
+            }
+        }
+        return new RuleSet(id, name, weapons, labels, beats);
+    }
+
+    /**
+     * Reads a variant from its file format, see the class comment.
+     *
+     * @throws IOException If the file cannot be read, or with the line of the first mistake in it
+     */
+    public static RuleSet parse(String id, Reader reader) throws IOException
+    {
+        String name = id;
+        String[] weapons = null, labels = null;
+        String each = null;
+        List<String[]> beatLines = new ArrayList<>();
+        List<Integer> beatLineNumbers = new ArrayList<>();
+
+        BufferedReader in = new BufferedReader(reader);
+        String line;
+        int lineNumber = 0;
+        while ((line = in.readLine()) != null)
+        {
+            lineNumber++;
+            int comment = line.indexOf('#');
+            if (comment >= 0) line = line.substring(0, comment);
+            line = line.trim();
+            if (line.isEmpty()) continue;
+
+            int equals = line.indexOf('=');
+            if (equals >= 0)
+            {
+                String key = line.substring(0, equals).trim();
+                String value = line.substring(equals + 1).trim();
+                switch (key) {
+                    case "name":
+                        name = value;
+                        break;
+                    case "weapons":
+                        weapons = splitList(value.toLowerCase());
+                        break;
+                    case "labels":
+                        labels = splitList(value);
+                        break;
+                    default:
+                        throw new IOException(id + ":" + lineNumber + ": unknown key " + key);
+                }
+                continue;
+            }
+
+            String[] words = line.split("\\s+", 3);
+            if (words.length < 3 || !words[1].equals("beats"))
+            {
+                throw new IOException(id + ":" + lineNumber + ": expected \"<weapon> beats <weapons>\"");
+            }
+            if (words[0].equals("each"))
+            {
+                each = words[2].trim();
+                if (!each.equals("previous") && !each.equals("next"))
+                {
+                    throw new IOException(id + ":" + lineNumber + ": expected \"each beats previous\" or \"each beats next\"");
+                }
+            } else {
+                beatLines.add(new String[]{words[0].toLowerCase(), words[2].toLowerCase()});
+                beatLineNumbers.add(lineNumber);
+            }
+        }
+
+        if (weapons == null || weapons.length < 2) throw new IOException(id + ": at least two weapons are needed");
+        if (weapons.length > RuleCons.MAX_WEAPONS) throw new IOException(id + ": more than " + RuleCons.MAX_WEAPONS + " weapons");
+        if (new HashSet<>(Arrays.asList(weapons)).size() != weapons.length) throw new IOException(id + ": duplicate weapon");
+        if (labels == null)
+        {
+            labels = new String[weapons.length];
+            for (int i = 0; i < weapons.length; i++)
+            {
+                labels[i] = Character.toUpperCase(weapons[i].charAt(0)) + weapons[i].substring(1);
+            }
+        } else if (labels.length != weapons.length)
+        {
+            throw new IOException(id + ": " + labels.length + " labels for " + weapons.length + " weapons");
+        }
+
+        if (each != null)
+        {
+            if (!beatLines.isEmpty()) throw new IOException(id + ": \"each beats\" cannot be mixed with a list of wins");
+            if (weapons.length % 2 == 0) throw new IOException(id + ": \"each beats " + each + "\" needs an odd number of weapons");
+            return balanced(id, name, weapons, labels, each.equals("next"));
+        }
+
+        List<String> order = Arrays.asList(weapons);
+        boolean[][] beats = new boolean[weapons.length][weapons.length];
+        for (int i = 0; i < beatLines.size(); i++)
+        {
+            String where = id + ":" + beatLineNumbers.get(i) + ": ";
+            int winner = order.indexOf(beatLines.get(i)[0]);
+            if (winner < 0) throw new IOException(where + "unknown weapon " + beatLines.get(i)[0]);
+            for (String loserName : splitList(beatLines.get(i)[1]))
+            {
+                int loser = order.indexOf(loserName);
+                if (loser < 0) throw new IOException(where + "unknown weapon " + loserName);
+                if (loser == winner) throw new IOException(where + loserName + " cannot beat itself");
+                if (beats[loser][winner]) throw new IOException(where + loserName + " already beats " + weapons[winner]);
+                beats[winner][loser] = true;
+            }
+        }
+        for (int a = 0; a < weapons.length; a++)
+        {
+            for (int b = a + 1; b < weapons.length; b++)
+            {
+                if (!beats[a][b] && !beats[b][a])
+                {
+                    throw new IOException(id + ": no winner between " + weapons[a] + " and " + weapons[b]);
+                }
+            }
+        }
+        return new RuleSet(id, name, weapons, labels, beats);
+    }
+
+    private static String[] splitList(String value)
+    {
+        String[] items = value.split(",");
+        for (int i = 0; i < items.length; i++) items[i] = items[i].trim();
+        return items;
+    }
+}
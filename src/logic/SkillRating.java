@@ -0,0 +1,141 @@
+package logic;
+
+import utils.Constants.RatingCons;
+
+/**
+ * A player's Glicko-2 skill rating: the rating, how sure it is (the deviation) and
+ * how erratic the player is (the volatility).
+ *
+ * A match is one rating period, and its decided rounds are the games of that period,
+ * all against the same opponent. Rounds are decided by RuleSet.outcome, the same rules
+ * as every other mode; ties say nothing about skill and are left out, as in
+ * DifficultyController. Both players are rated from each other's rating before the
+ * match, so the order they are updated in does not matter.
+ *
+ * Immutable, so a rating can be read from any thread.
+ */
+public final class SkillRating
+{
+    private static final SkillRating INITIAL = new SkillRating(RatingCons.INITIAL_RATING,
+            RatingCons.INITIAL_DEVIATION, RatingCons.INITIAL_VOLATILITY);
+
+    private final double rating, deviation, volatility;
+
+    public SkillRating(double rating, double deviation, double volatility)
+    {
+        this.rating = rating;
+        this.deviation = deviation;
+        this.volatility = volatility;
+    }
+
+    /**
+     * Retrieves the rating of a player who has not played yet.
+     */
+    public static SkillRating initial()
+    {
+        return INITIAL;
+    }
+
+    /**
+     * Rates a rating period against one opponent, following Glickman's Glicko-2 paper.
+     * A period without decided rounds only makes the rating less sure.
+     *
+     * @param opponent The opponent's rating before the period
+     * @param wins Rounds this player won
+     * @param losses Rounds this player lost
+     * @return The rating after the period
+     */
+    public SkillRating rate(SkillRating opponent, int wins, int losses)
+    {
+        double phi = deviation / RatingCons.SCALE;
+        int rounds = wins + losses;
+        if (rounds == 0)
+        {
+            return new SkillRating(rating, Math.sqrt(phi * phi + volatility * volatility) * RatingCons.SCALE, volatility);
+        }
+        double mu = (rating - RatingCons.INITIAL_RATING) / RatingCons.SCALE;
+        double opponentMu = (opponent.rating - RatingCons.INITIAL_RATING) / RatingCons.SCALE;
+        double g = g(opponent.deviation / RatingCons.SCALE);
+        double expected = 1 / (1 + Math.exp(-g * (mu - opponentMu)));
+
+        // Every round is against the same opponent, so the sums over the games are products
+        double v = 1 / (rounds * g * g * expected * (1 - expected));
+        double scoreSum = g * (wins - rounds * expected);
+        double delta = v * scoreSum;
+
+        double sigma = newVolatility(phi, v, delta);
+        double phiStar = Math.sqrt(phi * phi + sigma * sigma);
+        double newPhi = 1 / Math.sqrt(1 / (phiStar * phiStar) + 1 / v);
+        double newMu = mu + newPhi * newPhi * scoreSum;
+        return new SkillRating(newMu * RatingCons.SCALE + RatingCons.INITIAL_RATING, newPhi * RatingCons.SCALE, sigma);
+    }
+
+    /**
+     * Finds the new volatility with the Illinois algorithm, step 5 of the paper.
+     */
+    private double newVolatility(double phi, double v, double delta)
+    {
+        double a = Math.log(volatility * volatility);
+        double phi2 = phi * phi;
+        double delta2 = delta * delta;
+        double tau2 = RatingCons.TAU * RatingCons.TAU;
+
+        double lower = a, upper;
+        if (delta2 > phi2 + v)
+        {
+            upper = Math.log(delta2 - phi2 - v);
+        } else {
+            int k = 1;
+            while (volatilityEquation(a - k * RatingCons.TAU, a, phi2, v, delta2, tau2) < 0) k++;
+            upper = a - k * RatingCons.TAU;
+        }
+        double fLower = volatilityEquation(lower, a, phi2, v, delta2, tau2);
+        double fUpper = volatilityEquation(upper, a, phi2, v, delta2, tau2);
+        while (Math.abs(upper - lower) > RatingCons.CONVERGENCE)
+        {
+            double c = lower + (lower - upper) * fLower / (fUpper - fLower);
+            double fC = volatilityEquation(c, a, phi2, v, delta2, tau2);
+            if (fC * fUpper <= 0)
+            {
+                lower = upper;
+                fLower = fUpper;
+            } else {
+                fLower /= 2;
+            }
+            upper = c;
+            fUpper = fC;
+        }
+        return Math.exp(lower / 2);
+    }
+
+    private static double volatilityEquation(double x, double a, double phi2, double v, double delta2, double tau2)
+    {
+        double ex = Math.exp(x);
+        double d = phi2 + v + ex;
+        return ex * (delta2 - phi2 - v - ex) / (2 * d * d) - (x - a) / tau2;
+    }
+
+    private static double g(double phi)
+    {
+        return 1 / Math.sqrt(1 + 3 * phi * phi / (Math.PI * Math.PI));
+    }
+
+    /**
+     * Retrieves the chance this player wins a decided round against an opponent.
+     */
+    public double expectedScore(SkillRating opponent)
+    {
+        double g = g(opponent.deviation / RatingCons.SCALE);
+        return 1 / (1 + Math.exp(-g * (rating - opponent.rating) / RatingCons.SCALE));
+    }
+
+    public double getRating() { return rating; }
+    public double getDeviation() { return deviation; }
+    public double getVolatility() { return volatility; }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%.0f +/- %.0f", rating, 2 * deviation);
+    }
+}
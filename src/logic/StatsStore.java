@@ -0,0 +1,362 @@
+package logic;
+
+import utils.Constants.StatsCons;
+import utils.Constants.StoragePaths;
+import utils.Constants.RuleCons;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps match statistics across restarts.
+ * Every round is appended as a fixed-width record to a memory-mapped file, and
+ * the aggregates (win rate, choice distribution, streaks) are kept in memory so
+ * every query is O(1). Each round records its rule set as an index into the ids
+ * kept in the file header, and the choice distribution only counts rounds of the
+ * active one, since hand 3 is a different weapon (or none) in each variant.
+ *
+ * All file access and aggregate updates run on one background thread, so
+ * recording a round from the EDT never waits for the disk.
+ */
+public class StatsStore
+{
+    // Single thread that owns the file and the aggregates, so records stay in order
+    private static final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "stats-writer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Mapped file, only touched by the worker thread
+    private static FileChannel channel;
+    private static MappedByteBuffer mapped;
+    private static long recordCount;
+    private static final String[] ruleIds = new String[StatsCons.RULE_SLOTS]; // Rule sets the records refer to
+    private static int ruleCount;
+    private static int activeRules = StatsCons.UNKNOWN_RULES; // Index of the active rule set, once it has a round
+
+    // Aggregates, written by the worker thread and read under the class lock
+    private static long rounds, wins, losses, ties;
+    private static long matchesWon, matchesLost;
+    private static final long[] handCounts = new long[RuleCons.MAX_WEAPONS]; // Rounds of the active rule set only
+    private static long activeRounds;
+    private static int currentStreak;      // > 0 rounds won in a row, < 0 rounds lost in a row
+    private static int longestWinStreak;
+    private static int longestLoseStreak;
+
+    // Open the file and rebuild the aggregates before any round is recorded
+    static {
+        worker.execute(StatsStore::open);
+    }
+
+    /**
+     * Records a finished round. Returns immediately; the record is written in the background.
+     *
+     * @param rules Id of the RuleSet the round was played with
+     * @param playerHand The player's hand
+     * @param computerHand The computer's hand
+     * @param outcome The outcome (Match.TIE, PLAYER_WIN or COMPUTER_WIN)
+     * @param matchOver Whether this round ended the match
+     */
+    public static void recordRound(String rules, int playerHand, int computerHand, int outcome, boolean matchOver)
+    {
+        final int time = (int) (System.currentTimeMillis() / 1000);
+        final int flags = matchOver ? StatsCons.FLAG_MATCH_OVER : 0;
+        worker.execute(() -> append(time, playerHand, computerHand, outcome, flags, ruleIndex(rules)));
+    }
+
+    /**
+     * Maps the stats file and replays the stored records into the aggregates.
+     */
+    private static void open()
+    {
+        try {
+            File file = new File(StoragePaths.STATS_FILE);
+            File dir = file.getParentFile();
+            if (!dir.exists() && !dir.mkdirs())
+            {
+                System.err.println("Could not create stats directory: " + dir);
+                return;
+            }
+
+            channel = new RandomAccessFile(file, "rw").getChannel();
+            int version = readVersion();
+            if (version == StatsCons.VERSION_CLASSIC_ONLY || version == StatsCons.VERSION_RULE_HASHES)
+            {
+                channel.close();
+                upgrade(file, version);
+                channel = new RandomAccessFile(file, "rw").getChannel();
+            }
+            boolean isNew = channel.size() < StatsCons.HEADER_SIZE;
+            map(Math.max(channel.size(), capacityFor(StatsCons.GROW_RECORDS)));
+
+            if (isNew || mapped.getInt(0) != StatsCons.MAGIC)
+            {
+                if (!isNew)
+                {
+                    System.err.println("Stats file is corrupt, starting over: " + file);
+                }
+                mapped.putInt(0, StatsCons.MAGIC);
+                mapped.putInt(4, StatsCons.VERSION);
+                mapped.putLong(8, 0);
+                mapped.putInt(StatsCons.RULE_COUNT_OFFSET, 0);
+            }
+
+            String active = RuleSet.getActive().getId();
+            ruleCount = Math.max(0, Math.min(StatsCons.RULE_SLOTS, mapped.getInt(StatsCons.RULE_COUNT_OFFSET)));
+            for (int i = 0; i < ruleCount; i++)
+            {
+                int pos = StatsCons.RULE_TABLE_OFFSET + i * StatsCons.RULE_ID_BYTES;
+                byte[] id = new byte[Math.min(mapped.get(pos) & 0xFF, StatsCons.RULE_ID_BYTES - 1)];
+                mapped.get(pos + 1, id);
+                ruleIds[i] = new String(id, StandardCharsets.UTF_8);
+                if (ruleIds[i].equals(active)) activeRules = i;
+            }
+
+            // Records past the stored count are from a write that never finished
+            long stored = mapped.getLong(8);
+            long fits = (mapped.capacity() - StatsCons.HEADER_SIZE) / StatsCons.RECORD_SIZE;
+            recordCount = Math.min(stored, fits);
+            for (long i = 0; i < recordCount; i++)
+            {
+                int pos = StatsCons.HEADER_SIZE + (int) i * StatsCons.RECORD_SIZE;
+                aggregate(mapped.get(pos + 4), mapped.get(pos + 5), mapped.get(pos + 6), mapped.get(pos + 7), mapped.getInt(pos + 8));
+            }
+        } catch (IOException e) {
+            System.err.println("Error opening stats file: " + e.getMessage());
+            e.printStackTrace();
+            mapped = null;
+        }
+    }
+
+    /**
+     * Retrieves the version of an existing stats file, or -1 if it is new or not a stats file.
+     */
+    private static int readVersion() throws IOException
+    {
+        ByteBuffer header = ByteBuffer.allocate(8);
+        if (channel.read(header, 0) < header.capacity() || header.getInt(0) != StatsCons.MAGIC) return -1;
+        return header.getInt(4);
+    }
+
+    /**
+     * Rewrites an older file as current records. Version 1 records were all played with the classic rules.
+     * Version 2 records hold the hash of their rules id, which is matched against the classic and the
+     * active rule set; rounds of any other rule set keep counting towards the totals as UNKNOWN_RULES.
+     * The file is replaced only once the new one is complete.
+     */
+    private static void upgrade(File file, int version) throws IOException
+    {
+        boolean classicOnly = version == StatsCons.VERSION_CLASSIC_ONLY;
+        int oldRecordSize = classicOnly ? StatsCons.CLASSIC_ONLY_RECORD_SIZE : StatsCons.RECORD_SIZE;
+        String active = RuleSet.getActive().getId();
+        String[] ids = active.equals(RuleCons.DEFAULT_RULES) ? new String[]{RuleCons.DEFAULT_RULES}
+                : new String[]{RuleCons.DEFAULT_RULES, active};
+
+        File temp = new File(file.getPath() + ".tmp");
+        long upgraded = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp))))
+        {
+            in.readInt();
+            in.readInt();
+            long stored = in.readLong();
+            long fits = (file.length() - StatsCons.OLD_HEADER_SIZE) / oldRecordSize;
+            long count = Math.min(stored, fits);
+            out.writeInt(StatsCons.MAGIC);
+            out.writeInt(StatsCons.VERSION);
+            out.writeLong(count);
+            out.writeInt(ids.length);
+            out.writeInt(0);
+            for (int i = 0; i < StatsCons.RULE_SLOTS; i++)
+            {
+                byte[] id = i < ids.length ? ids[i].getBytes(StandardCharsets.UTF_8) : new byte[0];
+                out.writeByte(id.length);
+                out.write(id);
+                out.write(new byte[StatsCons.RULE_ID_BYTES - 1 - id.length]);
+            }
+
+            byte[] record = new byte[StatsCons.CLASSIC_ONLY_RECORD_SIZE];
+            for (; upgraded < count; upgraded++)
+            {
+                in.readFully(record);
+                int rules = 0; // The classic rules
+                if (!classicOnly)
+                {
+                    int hash = in.readInt();
+                    rules = StatsCons.UNKNOWN_RULES;
+                    for (int i = 0; i < ids.length; i++)
+                    {
+                        if (ids[i].hashCode() == hash) rules = i;
+                    }
+                }
+                out.write(record);
+                out.writeInt(rules);
+            }
+        }
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        System.out.println("Upgraded " + upgraded + " stats records to version " + StatsCons.VERSION);
+    }
+
+    /**
+     * Retrieves the index of a rule set in the file header, adding it the first time one of its rounds is recorded.
+     *
+     * @return The index, or UNKNOWN_RULES if the header has no room left for it
+     */
+    private static int ruleIndex(String id)
+    {
+        for (int i = 0; i < ruleCount; i++)
+        {
+            if (ruleIds[i].equals(id)) return i;
+        }
+        byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+        if (ruleCount == StatsCons.RULE_SLOTS || bytes.length >= StatsCons.RULE_ID_BYTES) return StatsCons.UNKNOWN_RULES;
+
+        int index = ruleCount;
+        if (mapped != null)
+        {
+            // Count is written last, as for the records
+            int pos = StatsCons.RULE_TABLE_OFFSET + index * StatsCons.RULE_ID_BYTES;
+            mapped.put(pos, (byte) bytes.length);
+            mapped.put(pos + 1, bytes);
+            mapped.putInt(StatsCons.RULE_COUNT_OFFSET, index + 1);
+        }
+        ruleIds[index] = id;
+        ruleCount++;
+        if (id.equals(RuleSet.getActive().getId())) activeRules = index;
+        return index;
+    }
+
+    /**
+     * Writes one record at the end of the mapped file and updates the aggregates.
+     */
+    private static void append(int time, int playerHand, int computerHand, int outcome, int flags, int rules)
+    {
+        aggregate(playerHand, computerHand, outcome, flags, rules);
+        if (mapped == null) return; // Stats are kept for this session only
+
+        try {
+            long end = StatsCons.HEADER_SIZE + (recordCount + 1) * StatsCons.RECORD_SIZE;
+            if (end > mapped.capacity())
+            {
+                map(capacityFor(recordCount + StatsCons.GROW_RECORDS));
+            }
+
+            int pos = StatsCons.HEADER_SIZE + (int) recordCount * StatsCons.RECORD_SIZE;
+            mapped.putInt(pos, time);
+            mapped.put(pos + 4, (byte) playerHand);
+            mapped.put(pos + 5, (byte) computerHand);
+            mapped.put(pos + 6, (byte) outcome);
+            mapped.put(pos + 7, (byte) flags);
+            mapped.putInt(pos + 8, rules);
+
+            // Count is written last, so a crash never exposes a half written record
+            recordCount++;
+            mapped.putLong(8, recordCount);
+        } catch (IOException e) {
+            System.err.println("Error writing stats record: " + e.getMessage());
+            mapped = null;
+        }
+    }
+
+    /**
+     * Maps the file with at least the given size.
+     */
+    private static void map(long size) throws IOException
+    {
+        if (size > Integer.MAX_VALUE)
+        {
+            throw new IOException("Stats file is full");
+        }
+        mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    private static long capacityFor(long records)
+    {
+        return StatsCons.HEADER_SIZE + records * StatsCons.RECORD_SIZE;
+    }
+
+    /**
+     * Adds one round to the in-memory aggregates.
+     */
+    private static synchronized void aggregate(int playerHand, int computerHand, int outcome, int flags, int rules)
+    {
+        rounds++;
+        if (rules != StatsCons.UNKNOWN_RULES && rules == activeRules && playerHand >= 0 && playerHand < handCounts.length)
+        {
+            handCounts[playerHand]++;
+            activeRounds++;
+        }
+
+        boolean matchOver = (flags & StatsCons.FLAG_MATCH_OVER) != 0;
+        if (outcome == Match.PLAYER_WIN)
+        {
+            wins++;
+            if (matchOver) matchesWon++;
+            currentStreak = currentStreak > 0 ? currentStreak + 1 : 1;
+            longestWinStreak = Math.max(longestWinStreak, currentStreak);
+        } else if (outcome == Match.COMPUTER_WIN)
+        {
+            losses++;
+            if (matchOver) matchesLost++;
+            currentStreak = currentStreak < 0 ? currentStreak - 1 : -1;
+            longestLoseStreak = Math.max(longestLoseStreak, -currentStreak);
+        } else {
+            ties++;
+        }
+    }
+
+    // O(1) queries over everything recorded so far
+    public static synchronized long getRounds() { return rounds; }
+    public static synchronized long getWins() { return wins; }
+    public static synchronized long getLosses() { return losses; }
+    public static synchronized long getTies() { return ties; }
+    public static synchronized long getMatchesWon() { return matchesWon; }
+    public static synchronized long getMatchesLost() { return matchesLost; }
+    public static synchronized int getCurrentStreak() { return currentStreak; }
+    public static synchronized int getLongestWinStreak() { return longestWinStreak; }
+    public static synchronized int getLongestLoseStreak() { return longestLoseStreak; }
+
+    /**
+     * Retrieves the fraction of decided rounds (ties excluded) the player won.
+     *
+     * @return The win rate between 0.0 and 1.0, or 0.0 if no round was decided
+     */
+    public static synchronized double getWinRate()
+    {
+        long decided = wins + losses;
+        return decided == 0 ? 0.0 : (double) wins / decided;
+    }
+
+    /**
+     * Retrieves how often the player chose a hand in the rounds played with the active rule set.
+     *
+     * @param hand A weapon of the active rule set
+     * @return The fraction of those rounds the hand was chosen, between 0.0 and 1.0
+     */
+    public static synchronized double getChoiceShare(int hand)
+    {
+        if (activeRounds == 0 || hand < 0 || hand >= handCounts.length) return 0.0;
+        return (double) handCounts[hand] / activeRounds;
+    }
+}
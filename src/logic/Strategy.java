@@ -0,0 +1,226 @@
+package logic;
+
+import utils.Constants.playingUICons;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * How one side picks its hands, for the exact odds of MatchCalculator.
+ *
+ * A strategy is a small Markov chain: it is always in one of a few memory states,
+ * draws its hand from that state's distribution, and moves to the next state by
+ * the two hands just played. A fixed or mixed strategy has a single state; the
+ * tournament's AI styles remember one of the last hands, so each has one state
+ * per weapon plus the state before the first round. State 0 is always the start.
+ * Immutable, so calculators on different threads can share one.
+ */
+public final class Strategy
+{
+    private final String name;
+    private final int style;        // AIOpponent style this is, or -1
+    private final int weapons;
+    private final double[][] hands; // hands[state][hand], every row sums to 1
+    private final int[] next;       // State after [state][ownHand][otherHand], flattened; null with one state
+
+    private Strategy(String name, int style, int weapons, double[][] hands, int[] next)
+    {
+        this.name = name;
+        this.style = style;
+        this.weapons = weapons;
+        this.hands = hands;
+        this.next = next;
+    }
+
+    /**
+     * Creates a memoryless strategy that plays each weapon with a fixed probability.
+     *
+     * @param weights One non-negative weight per weapon, not all zero; they need not sum to 1
+     */
+    public static Strategy mixed(String name, double[] weights)
+    {
+        double total = 0;
+        for (double weight : weights)
+        {
+            if (!(weight >= 0) || Double.isInfinite(weight)) throw new IllegalArgumentException("Bad weight in " + name + ": " + weight);
+            total += weight;
+        }
+        if (total <= 0) throw new IllegalArgumentException(name + " plays no weapon");
+        double[] row = new double[weights.length];
+        for (int hand = 0; hand < row.length; hand++) row[hand] = weights[hand] / total;
+        return new Strategy(name, -1, weights.length, new double[][]{row}, null);
+    }
+
+    /**
+     * Creates the strategy that always plays one weapon.
+     */
+    public static Strategy pure(RuleSet rules, int hand)
+    {
+        double[] weights = new double[rules.getWeaponCount()];
+        weights[hand] = 1;
+        return mixed(rules.getLabel(hand), weights);
+    }
+
+    /**
+     * Creates the strategy that plays every weapon equally often, as the game's computer does.
+     */
+    public static Strategy uniform(RuleSet rules)
+    {
+        double[] weights = new double[rules.getWeaponCount()];
+        Arrays.fill(weights, 1);
+        return mixed("Uniform", weights);
+    }
+
+    /**
+     * Creates the player's strategy from the hands StatsStore counted, or uniform before any round.
+     */
+    public static Strategy fromStats(RuleSet rules)
+    {
+        double[] weights = new double[rules.getWeaponCount()];
+        double total = 0;
+        for (int hand = 0; hand < weights.length; hand++)
+        {
+            weights[hand] = StatsStore.getChoiceShare(hand);
+            total += weights[hand];
+        }
+        return total > 0 ? mixed("Your habits", weights) : uniform(rules);
+    }
+
+    /**
+     * Creates one of the AI styles exactly as AIOpponent.chooseHand plays it: its habit
+     * HABIT_PERCENT of the time and a uniform hand otherwise.
+     *
+     * @param style One of the AIOpponent style constants
+     */
+    public static Strategy style(RuleSet rules, int style)
+    {
+        int n = rules.getWeaponCount();
+        double habit = AIOpponent.HABIT_PERCENT / 100.0;
+        String name = AIOpponent.getName(style);
+        switch (style) {
+            case AIOpponent.RANDOM:
+                return new Strategy(name, style, n, new double[][]{habitRow(n, 0, -1)}, null);
+            case AIOpponent.ROCKY:
+                return new Strategy(name, style, n, new double[][]{habitRow(n, habit, playingUICons.ROCK)}, null);
+            case AIOpponent.MIMIC:
+            case AIOpponent.COUNTER:
+            case AIOpponent.CYCLER:
+            {
+                // State 0 before the first round, state 1 + h once the remembered hand is h
+                double[][] hands = new double[n + 1][];
+                boolean remembersOwn = style == AIOpponent.CYCLER;
+                hands[0] = remembersOwn ? habitRow(n, habit, playingUICons.ROCK) : habitRow(n, 0, -1);
+                for (int h = 0; h < n; h++)
+                {
+                    hands[h + 1] = habitRow(n, habit, style == AIOpponent.MIMIC ? h : rules.counter(h));
+                }
+                int[] next = new int[(n + 1) * n * n];
+                for (int state = 0; state <= n; state++)
+                {
+                    for (int own = 0; own < n; own++)
+                    {
+                        for (int other = 0; other < n; other++)
+                        {
+                            next[(state * n + own) * n + other] = 1 + (remembersOwn ? own : other);
+                        }
+                    }
+                }
+                return new Strategy(name, style, n, hands, next);
+            }
+            default:
+                throw new IllegalArgumentException("Unknown style: " + style);
+        }
+    }
+
+    /**
+     * A uniform hand, with the habit's hand played habit of the time on top.
+     */
+    private static double[] habitRow(int n, double habit, int hand)
+    {
+        double[] row = new double[n];
+        Arrays.fill(row, (1 - habit) / n);
+        if (hand >= 0) row[hand] += habit;
+        return row;
+    }
+
+    /**
+     * Reads a strategy from text: "uniform", an AI style name (rocky, mimic, counter,
+     * cycler, random), a weapon to always play, or comma separated weights per weapon.
+     *
+     * @throws IllegalArgumentException If the text is none of these
+     */
+    public static Strategy parse(String text, RuleSet rules)
+    {
+        String key = text.trim().toLowerCase();
+        if (key.equals("uniform")) return uniform(rules);
+        for (int style = 0; style < AIOpponent.TOTAL_STYLES; style++)
+        {
+            if (AIOpponent.getName(style).toLowerCase().equals(key)) return style(rules, style);
+        }
+        int hand = rules.indexOf(key);
+        if (hand >= 0 && !key.contains(",")) return pure(rules, hand);
+
+        String[] parts = key.split(",");
+        if (parts.length != rules.getWeaponCount())
+        {
+            throw new IllegalArgumentException("Unknown strategy \"" + text + "\": expected uniform, a style, a weapon or " +
+                    rules.getWeaponCount() + " weights");
+        }
+        double[] weights = new double[parts.length];
+        try {
+            for (int i = 0; i < parts.length; i++) weights[i] = Double.parseDouble(parts[i].trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad weights \"" + text + "\": " + e.getMessage());
+        }
+        return mixed(text.trim(), weights);
+    }
+
+    public String getName() { return name; }
+    public int getStates() { return hands.length; }
+    public int getWeaponCount() { return weapons; }
+
+    /**
+     * @return The AIOpponent style this strategy is, or -1
+     */
+    public int getStyle() { return style; }
+
+    /**
+     * Retrieves the probability of playing a hand in a memory state.
+     */
+    public double probability(int state, int hand)
+    {
+        return hands[state][hand];
+    }
+
+    /**
+     * Retrieves the memory state after a round.
+     *
+     * @param ownHand This side's hand in the round
+     * @param otherHand The other side's hand
+     */
+    public int next(int state, int ownHand, int otherHand)
+    {
+        return next == null ? 0 : next[(state * weapons + ownHand) * weapons + otherHand];
+    }
+
+    /**
+     * Draws a hand in a memory state, for checking the exact odds against simulated games.
+     */
+    public int sample(SplittableRandom random, int state)
+    {
+        double u = random.nextDouble();
+        double[] row = hands[state];
+        for (int hand = 0; hand < row.length - 1; hand++)
+        {
+            u -= row[hand];
+            if (u < 0) return hand;
+        }
+        return row.length - 1;
+    }
+
+    @Override
+    public String toString()
+    {
+        return name;
+    }
+}
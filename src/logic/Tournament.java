@@ -0,0 +1,282 @@
+package logic;
+
+import utils.Constants.TournamentCons;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * A single-elimination bracket of AI opponents, optionally with the local
+ * player as entrant 0.
+ *
+ * The bracket is kept as one int array per round: slots[r][i] is the entrant
+ * in slot i of round r, and the winner of the pairing (2p, 2p + 1) moves to
+ * slots[r + 1][p]. Pairings between two AIs are simulated, each with an RNG
+ * derived from the tournament seed and its position, so a round can be resolved
+ * in parallel and still come out the same every time. The player's own series
+ * is played in PlayingUI and reported through recordPlayerGame.
+ */
+public final class Tournament
+{
+    public static final int PLAYER = 0;    // Entrant id of the local player
+    public static final int PENDING = -1;  // Slot whose pairing is not decided yet
+    public static final int BYE = -2;      // Empty slot, the other side advances
+
+    private final int entrants;
+    private final MatchFormat format;
+    private final long seed;
+    private final boolean hasPlayer;
+    private final String playerName;
+
+    private final int[][] slots;  // slots[round][slot], the last round holds the champion
+    private final int[][] scores; // Series score of slots[round][slot]'s win, packed by packScore
+    private int currentRound;      // First round with undecided pairings
+    private int playerSlot;        // Player's slot in the current round
+    private int playerWins, opponentWins; // Games won in the player's current series
+
+    /**
+     * Creates the bracket and resolves every pairing up to the player's first series.
+     * Without a player that is the whole bracket.
+     *
+     * @param entrants Number of entrants, from MIN_ENTRANTS to MAX_ENTRANTS
+     * @param format Series format of every pairing
+     * @param seed Seed the AI styles and simulated pairings are derived from
+     * @param playerName Name of the local player, or null for an AI-only bracket
+     */
+    public Tournament(int entrants, MatchFormat format, long seed, String playerName)
+    {
+        if (entrants < TournamentCons.MIN_ENTRANTS || entrants > TournamentCons.MAX_ENTRANTS)
+        {
+            throw new IllegalArgumentException("Entrants must be from " + TournamentCons.MIN_ENTRANTS +
+                    " to " + TournamentCons.MAX_ENTRANTS + ": " + entrants);
+        }
+        this.entrants = entrants;
+        this.format = format;
+        this.seed = seed;
+        this.playerName = playerName;
+        hasPlayer = playerName != null;
+
+        int size = Integer.highestOneBit(entrants - 1) << 1; // Smallest power of two that fits everyone
+        int rounds = Integer.numberOfTrailingZeros(size);
+        slots = new int[rounds + 1][];
+        scores = new int[rounds + 1][];
+        for (int r = 0; r <= rounds; r++)
+        {
+            slots[r] = new int[size >> r];
+            scores[r] = new int[size >> r];
+            Arrays.fill(slots[r], PENDING);
+        }
+        seed(size);
+        resolveRound();
+    }
+
+    /**
+     * Fills the first round in entrant order, so the player always starts in slot 0
+     * and stays at the top of the bracket. The byes go to the last pairings,
+     * at most one per pairing, so every pairing has someone to advance.
+     */
+    private void seed(int size)
+    {
+        int fullPairs = size / 2 - (size - entrants);
+        int next = 0;
+        for (int p = 0; p < size / 2; p++)
+        {
+            slots[0][2 * p] = next++;
+            slots[0][2 * p + 1] = p < fullPairs ? next++ : BYE;
+        }
+    }
+
+    /**
+     * Decides every pairing of the current round that does not need the player, in parallel,
+     * then keeps advancing while the player is not playing (eliminated, or given a bye).
+     */
+    private void resolveRound()
+    {
+        while (currentRound < getRoundCount())
+        {
+            int round = currentRound;
+            IntStream.range(0, slots[round].length / 2).parallel().forEach(p -> resolvePair(round, p));
+
+            if (hasPlayer && slots[round][playerSlot] == PLAYER)
+            {
+                if (slots[round + 1][playerSlot / 2] == PENDING) return; // Waiting for the player's series
+                playerSlot /= 2; // Bye, straight into the next round
+            }
+            currentRound++;
+        }
+    }
+
+    /**
+     * Decides one pairing unless the player is in it. Only writes slot p of the next round,
+     * so pairings of the same round never touch each other's data.
+     */
+    private void resolvePair(int round, int p)
+    {
+        int a = slots[round][2 * p];
+        int b = slots[round][2 * p + 1];
+        int winner;
+        int score = 0;
+        if (b == BYE || a == BYE)
+        {
+            winner = b == BYE ? a : b;
+        } else if (hasPlayer && (a == PLAYER || b == PLAYER))
+        {
+            return;
+        } else {
+            // The seed depends only on the tournament and the position, not on the thread
+            SplittableRandom random = new SplittableRandom(seed ^ ((long) round << 32 | p) * 0x9E3779B97F4A7C15L);
+            int aWins = 0, bWins = 0;
+            Match game = new Match(seed, format.getLives());
+            while (aWins < format.getWinsNeeded() && bWins < format.getWinsNeeded())
+            {
+                if (playGame(game, getStyle(a), getStyle(b), random)) aWins++;
+                else bWins++;
+                game.restart(); // Also refills a game cut off at MAX_ROUNDS_PER_GAME
+            }
+            winner = aWins > bWins ? a : b;
+            score = packScore(Math.max(aWins, bWins), Math.min(aWins, bWins));
+        }
+        slots[round + 1][p] = winner;
+        scores[round + 1][p] = score;
+    }
+
+    /**
+     * Simulates one game between two AI styles.
+     *
+     * @return true if the first style won
+     */
+    private static boolean playGame(Match game, int styleA, int styleB, SplittableRandom random)
+    {
+        int lastA = -1, lastB = -1;
+        for (int i = 0; i < TournamentCons.MAX_ROUNDS_PER_GAME && !game.isGameOver(); i++)
+        {
+            int handA = AIOpponent.chooseHand(styleA, random, lastA, lastB);
+            int handB = AIOpponent.chooseHand(styleB, random, lastB, lastA);
+            game.resolveRound(handA, handB);
+            lastA = handA;
+            lastB = handB;
+        }
+        if (game.getPlayerLives() != game.getComputerLives())
+        {
+            return game.getPlayerLives() > game.getComputerLives();
+        }
+        return random.nextBoolean();
+    }
+
+    /**
+     * Adds a finished game of the player's current series.
+     * Once the series is decided the bracket moves on to the next round.
+     *
+     * @param won Whether the player won the game
+     * @return true if this game decided the series
+     */
+    public boolean recordPlayerGame(boolean won)
+    {
+        if (!isPlayerPlaying()) return false;
+
+        if (won) playerWins++;
+        else opponentWins++;
+        if (playerWins < format.getWinsNeeded() && opponentWins < format.getWinsNeeded())
+        {
+            return false;
+        }
+
+        int pair = playerSlot / 2;
+        slots[currentRound + 1][pair] = won ? PLAYER : getPlayerOpponent();
+        scores[currentRound + 1][pair] = packScore(Math.max(playerWins, opponentWins), Math.min(playerWins, opponentWins));
+        playerWins = opponentWins = 0;
+        playerSlot = pair;
+        currentRound++;
+        resolveRound();
+        return true;
+    }
+
+    /**
+     * Retrieves whether the player has a series left to play.
+     */
+    public boolean isPlayerPlaying()
+    {
+        return hasPlayer && currentRound < getRoundCount() && slots[currentRound][playerSlot] == PLAYER;
+    }
+
+    /**
+     * Retrieves the player's opponent in the current round, or PENDING if the player is not playing.
+     */
+    public int getPlayerOpponent()
+    {
+        return isPlayerPlaying() ? slots[currentRound][playerSlot ^ 1] : PENDING;
+    }
+
+    /**
+     * Retrieves the champion, or PENDING while the final is undecided.
+     */
+    public int getChampion()
+    {
+        return slots[getRoundCount()][0];
+    }
+
+    /**
+     * Counts the entrants still in the tournament.
+     */
+    public int getRemaining()
+    {
+        if (currentRound >= getRoundCount()) return 1;
+        int remaining = 0;
+        for (int entrant : slots[currentRound])
+        {
+            if (entrant >= 0) remaining++;
+        }
+        return remaining;
+    }
+
+    /**
+     * Retrieves the AI style of an entrant. Derived from the seed, so it is never stored.
+     */
+    public int getStyle(int entrant)
+    {
+        long mixed = (seed + entrant) * 0x9E3779B97F4A7C15L;
+        return (int) Long.remainderUnsigned(mixed ^ (mixed >>> 29), AIOpponent.TOTAL_STYLES);
+    }
+
+    public String getName(int entrant)
+    {
+        if (entrant == BYE) return "(bye)";
+        if (entrant == PENDING) return "";
+        if (hasPlayer && entrant == PLAYER) return playerName;
+        return "CPU " + entrant + " (" + AIOpponent.getName(getStyle(entrant)) + ")";
+    }
+
+    /**
+     * Retrieves the entrant in a slot, BYE, or PENDING if that slot's pairing is undecided.
+     */
+    public int getEntrant(int round, int slot)
+    {
+        return slots[round][slot];
+    }
+
+    /**
+     * Retrieves the games won by the winner and the loser of the pairing that filled a slot.
+     *
+     * @return {winner's games, loser's games}, or null for a bye or an undecided pairing
+     */
+    public int[] getScore(int round, int slot)
+    {
+        int score = scores[round][slot];
+        return score == 0 ? null : new int[]{score >>> 8, score & 0xFF};
+    }
+
+    private static int packScore(int winnerGames, int loserGames)
+    {
+        return winnerGames << 8 | loserGames;
+    }
+
+    public int getRoundCount() { return slots.length - 1; }
+    public int getCurrentRound() { return currentRound; }
+    public int getEntrants() { return entrants; }
+    public MatchFormat getFormat() { return format; }
+    public int getPlayerWins() { return playerWins; }
+    public int getOpponentWins() { return opponentWins; }
+    public boolean isFinished() { return getChampion() != PENDING; }
+    public boolean hasPlayer() { return hasPlayer; }
+}
@@ -0,0 +1,55 @@
+package logic;
+
+import utils.Constants.TournamentCons;
+
+/**
+ * Times resolving a full AI-only bracket, the event-day case: every pairing of
+ * a 65k entrant field, round by round, each round in parallel.
+ * Also checks that the same seed always crowns the same champion.
+ *
+ * Usage: java logic.TournamentBenchmark [entrants] [bestOf] [lives] [runs]
+ */
+public class TournamentBenchmark
+{
+    public static void main(String[] args)
+    {
+        int entrants = args.length > 0 ? Integer.parseInt(args[0]) : TournamentCons.MAX_ENTRANTS;
+        int bestOf = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int lives = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        int runs = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        MatchFormat format = new MatchFormat(bestOf, lives);
+
+        // Warm up, so the timed runs measure compiled code
+        for (int i = 0; i < 5; i++)
+        {
+            new Tournament(entrants, format, i, null);
+        }
+
+        long best = Long.MAX_VALUE, total = 0;
+        int champion = Tournament.PENDING;
+        for (int i = 0; i < runs; i++)
+        {
+            long start = System.nanoTime();
+            Tournament tournament = new Tournament(entrants, format, 42, null);
+            long elapsed = System.nanoTime() - start;
+            best = Math.min(best, elapsed);
+            total += elapsed;
+
+            if (!tournament.isFinished())
+            {
+                throw new IllegalStateException("Bracket was not resolved");
+            }
+            if (champion != Tournament.PENDING && tournament.getChampion() != champion)
+            {
+                throw new IllegalStateException("Same seed, different champion");
+            }
+            champion = tournament.getChampion();
+        }
+
+        Tournament tournament = new Tournament(entrants, format, 42, null);
+        System.out.println("Entrants:   " + entrants + " (" + tournament.getRoundCount() + " rounds, " + format + ")");
+        System.out.println("Threads:    " + Runtime.getRuntime().availableProcessors());
+        System.out.println("Resolve:    " + total / runs / 1_000_000 + " ms average, " + best / 1_000_000 + " ms best");
+        System.out.println("Champion:   " + tournament.getName(champion));
+    }
+}
@@ -1,5 +1,11 @@
 package main;
 
+import gamestates.GameState;
+import utils.StartupProfiler;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
 /**
  * Main game class that handles the game loop and core initialization
  * Implementation of the game "Bato Bato Pik" (Rock Paper Scissors)
@@ -9,22 +15,45 @@ public class BatoBatoPikGame implements Runnable
     private GameWindow gameWindow;
     private GamePanel gamePanel;
     private Thread gameThread;
-    // Constants for frame rate and update rate
-    private final int FPS_SET = 60;  // Frames per second for rendering
-    private final int UPS_SET = 120; // Updates per second for game logic
 
     /**
      * Constructor initializes the game components and starts the game loop
      */
     public BatoBatoPikGame()
     {
-
+        long start = StartupProfiler.start();
         gamePanel = new GamePanel();
+        StartupProfiler.end("create panel", start);
+
+        if (GraphicsEnvironment.isHeadless())
+        {
+            renderOffscreenFrame();
+            return;
+        }
+
+        start = StartupProfiler.start();
         gameWindow = new GameWindow(gamePanel);
+        StartupProfiler.end("create window", start);
         gamePanel.requestFocus();
         startGameLoop();
     }
 
+    /**
+     * Without a display there is no window to paint. The first frame is drawn into an
+     * image instead, so the CDS training run also works on a build machine.
+     */
+    private void renderOffscreenFrame()
+    {
+        System.out.println("No display available, rendering the first frame offscreen");
+        BufferedImage frame = new BufferedImage(GameWindow.WIDTH, GameWindow.HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = frame.createGraphics();
+        long start = StartupProfiler.start();
+        GameState.render(g, frame.getWidth(), frame.getHeight());
+        StartupProfiler.end("paint first frame", start);
+        g.dispose();
+        StartupProfiler.firstFramePainted();
+    }
+
     /**
      * Creates and starts the game thread
      */
@@ -37,60 +66,15 @@ public class BatoBatoPikGame implements Runnable
      * Update method for game logic
      */
     public void update() {
-        // Update logic here
+        GameState.update();
     }
 
     /**
      * Main game loop implementation
-     * Handles timing for updates and frame rendering
-     * Maintains consistent game speed and frame rate
+     * Runs updates and frames at the rates of the current power mode, see GameLoop
      */
     @Override
     public void run() {
-        // Calculate time per frame and update in nanoseconds
-        double timePerFrame = 1000000000.0 / FPS_SET;
-        double timePerUpdate = 1000000000.0 / UPS_SET;
-
-        long previousTime = System.nanoTime();
-
-        // FPS and UPS counting variables
-        int frames = 0;
-        int updates = 0;
-        long lastCheck = System.currentTimeMillis();
-
-        // Delta accumulators for updates and frames
-        double deltaU = 0;
-        double deltaF = 0;
-
-        while (true) {
-            long currentTime = System.nanoTime();
-
-            // Calculate time passed and accumulate in deltas
-            deltaU += (currentTime - previousTime) / timePerUpdate;
-            deltaF += (currentTime - previousTime) / timePerFrame;
-            previousTime = currentTime;
-
-            // Update game logic if enough time has passed
-            if (deltaU >= 1) {
-                update();
-                updates++;
-                deltaU--;
-            }
-
-            // Render frame if enough time has passed
-            if (deltaF >= 1) {
-                gamePanel.repaint();
-                frames++;
-                deltaF--;
-            }
-
-            // Print FPS and UPS every second
-            if (System.currentTimeMillis() - lastCheck >= 1000) {
-                lastCheck = System.currentTimeMillis();
-                System.out.println("FPS: " + frames + " UPS:" + updates);
-                frames = 0;
-                updates = 0;
-            }
-        }
+        new GameLoop(this::update, gamePanel::repaint, true).run();
     }
-}
\ No newline at end of file
+}
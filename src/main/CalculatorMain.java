@@ -0,0 +1,147 @@
+package main;
+
+import logic.AIOpponent;
+import logic.Match;
+import logic.MatchCalculator;
+import logic.RuleSet;
+import logic.Strategy;
+import utils.Constants.CalculatorCons;
+import utils.Constants.playingUICons;
+
+import java.util.SplittableRandom;
+
+/**
+ * Prints the exact odds of MatchCalculator for tuning TOTAL_HEARTS: the player's chance
+ * of winning and the expected rounds for every pair of lives, and the distribution of
+ * the number of rounds at TOTAL_HEARTS, against each opponent. The opponents are
+ * calculated in parallel. Then plays simulated games through Match to check the exact
+ * odds, with the styles choosing their hands through AIOpponent as in the tournament.
+ *
+ * Strategies are "uniform", an AI style (random, rocky, mimic, counter, cycler), a weapon,
+ * or comma separated weights per weapon, see Strategy.parse. Rules follow -Dbbp.rules.
+ *
+ * Usage: java -cp out:res main.CalculatorMain [max lives] [player] [opponents...]
+ */
+public class CalculatorMain
+{
+    private static final int SIMULATED_GAMES = 200_000;
+
+    public static void main(String[] args)
+    {
+        RuleSet rules = RuleSet.getActive();
+        int maxLives = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        Strategy player = args.length > 1 ? Strategy.parse(args[1], rules) : Strategy.uniform(rules);
+        Strategy[] opponents;
+        if (args.length > 2)
+        {
+            opponents = new Strategy[args.length - 2];
+            for (int i = 0; i < opponents.length; i++) opponents[i] = Strategy.parse(args[i + 2], rules);
+        } else
+        {
+            opponents = new Strategy[AIOpponent.TOTAL_STYLES];
+            for (int style = 0; style < opponents.length; style++) opponents[style] = Strategy.style(rules, style);
+        }
+        int hearts = Math.min(playingUICons.TOTAL_HEARTS, maxLives);
+
+        long start = System.nanoTime();
+        MatchCalculator[] calculators = MatchCalculator.sweep(rules, new Strategy[]{player}, opponents, maxLives)[0];
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%s, %s against %d opponents, lives 1 to %d: calculated in %.2f ms%n",
+                rules.getId(), player, opponents.length, maxLives, elapsed / 1e6);
+
+        for (MatchCalculator calculator : calculators)
+        {
+            System.out.println();
+            System.out.println(player + " against " + calculator.getOpponent());
+            printTable(calculator, "Chance the player wins, player lives down, opponent lives across", false);
+            printTable(calculator, "Expected rounds", true);
+            printDistribution(calculator, hearts);
+        }
+
+        System.out.println();
+        System.out.printf("Simulated: %d games each at %d lives%n", SIMULATED_GAMES, hearts);
+        for (MatchCalculator calculator : calculators)
+        {
+            simulate(calculator, hearts);
+        }
+    }
+
+    private static void printTable(MatchCalculator calculator, String title, boolean rounds)
+    {
+        int maxLives = calculator.getMaxLives();
+        System.out.println("  " + title);
+        System.out.print("       ");
+        for (int j = 1; j <= maxLives; j++) System.out.printf("%8d", j);
+        System.out.println();
+        for (int i = 1; i <= maxLives; i++)
+        {
+            System.out.printf("  %3d  ", i);
+            for (int j = 1; j <= maxLives; j++)
+            {
+                System.out.printf(rounds ? "%8.3f" : "%8.4f",
+                        rounds ? calculator.getExpectedRounds(i, j) : calculator.getWinProbability(i, j));
+            }
+            System.out.println();
+        }
+    }
+
+    private static void printDistribution(MatchCalculator calculator, int lives)
+    {
+        double[] distribution = calculator.getRoundDistribution(lives, lives, CalculatorCons.MAX_ROUNDS);
+        double mean = 0, total = 0;
+        int median = -1, p90 = -1, p99 = -1;
+        for (int r = 0; r < distribution.length; r++)
+        {
+            mean += r * distribution[r];
+            total += distribution[r];
+            if (median < 0 && total >= 0.5) median = r;
+            if (p90 < 0 && total >= 0.9) p90 = r;
+            if (p99 < 0 && total >= 0.99) p99 = r;
+        }
+        System.out.printf("  Rounds at %d lives: mean %.3f (expected %.3f), median %d, p90 %d, p99 %d, most %d%n",
+                lives, mean, calculator.getExpectedRounds(lives, lives), median, p90, p99, distribution.length - 1);
+        StringBuilder line = new StringBuilder("  P(rounds):");
+        for (int r = lives; r < Math.min(distribution.length, lives + 8); r++)
+        {
+            line.append(String.format(" %d=%.4f", r, distribution[r]));
+        }
+        System.out.println(line);
+    }
+
+    /**
+     * Plays games through Match and compares the share the player won with the exact chance.
+     */
+    private static void simulate(MatchCalculator calculator, int lives)
+    {
+        Strategy player = calculator.getPlayer();
+        Strategy opponent = calculator.getOpponent();
+        SplittableRandom random = new SplittableRandom(1);
+        Match match = new Match(random.nextLong(), lives, calculator.getRules());
+        long wins = 0, rounds = 0;
+        for (int game = 0; game < SIMULATED_GAMES; game++)
+        {
+            match.restart();
+            int playerState = 0, opponentState = 0, playerLast = -1, opponentLast = -1;
+            while (!match.isGameOver())
+            {
+                int a = player.sample(random, playerState);
+                int b = opponent.getStyle() >= 0
+                        ? AIOpponent.chooseHand(opponent.getStyle(), random, opponentLast, playerLast)
+                        : opponent.sample(random, opponentState);
+                match.resolveRound(a, b);
+                playerState = player.next(playerState, a, b);
+                opponentState = opponent.next(opponentState, b, a);
+                playerLast = a;
+                opponentLast = b;
+                rounds++;
+            }
+            if (match.getComputerLives() <= 0) wins++;
+        }
+        double exact = calculator.getWinProbability(lives, lives);
+        double share = (double) wins / SIMULATED_GAMES;
+        double error = Math.sqrt(exact * (1 - exact) / SIMULATED_GAMES);
+        System.out.printf("  %-12s won %.4f, exact %.4f (%+.2f standard errors), %.3f rounds, exact %.3f%n",
+                opponent, share, exact, error > 0 ? (share - exact) / error : 0,
+                (double) rounds / SIMULATED_GAMES, calculator.getExpectedRounds(lives, lives));
+    }
+}
@@ -0,0 +1,161 @@
+package main;
+
+import utils.Constants.PowerCons;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Runs logic updates and frames at the rates of the current power mode.
+ *
+ * Between ticks the thread sleeps until the next update or frame is due rather
+ * than spinning, so an active game uses a fraction of a core and a parked one
+ * none at all. The accumulators carry the remainder of every interval over, so
+ * sleeping late by a fraction of a millisecond delays a tick but does not change
+ * the rate. Every second the loop prints its rates, how often it woke up and the
+ * CPU time the process used, which together are what decides its energy use.
+ */
+public class GameLoop implements Runnable
+{
+    private final Runnable update;
+    private final Runnable render;
+    private final boolean report;
+    private volatile boolean running = true;
+
+    // Totals since the loop started, written only by the loop thread
+    private volatile long updates, frames, wakeups;
+
+    /**
+     * @param update Advances the game by one logic update
+     * @param render Requests a frame
+     * @param report Whether to print the rates every second
+     */
+    public GameLoop(Runnable update, Runnable render, boolean report)
+    {
+        this.update = update;
+        this.render = render;
+        this.report = report;
+    }
+
+    @Override
+    public void run()
+    {
+        PowerManager.setLoopThread(Thread.currentThread());
+        int mode = PowerManager.getMode();
+        long previousTime = System.nanoTime();
+
+        // Delta accumulators for updates and frames, in ticks of the current mode
+        double deltaU = 0;
+        double deltaF = 0;
+
+        // Counts of the current report interval
+        long lastCheck = previousTime;
+        long lastUpdates = 0, lastFrames = 0, lastWakeups = 0;
+        long lastCpu = getProcessCpuTime();
+
+        while (running)
+        {
+            long currentTime = System.nanoTime();
+            int ups = PowerCons.UPS[mode];
+            int fps = PowerCons.FPS[mode];
+
+            // Time since the last iteration passed in the mode it was spent in
+            deltaU += (currentTime - previousTime) * ups / 1e9;
+            deltaF += (currentTime - previousTime) * fps / 1e9;
+            previousTime = currentTime;
+
+            int newMode = PowerManager.getMode();
+            if (newMode != mode)
+            {
+                // A new mode starts with a frame, and without a backlog of the old mode's ticks
+                mode = newMode;
+                ups = PowerCons.UPS[mode];
+                fps = PowerCons.FPS[mode];
+                deltaU = Math.min(deltaU, 1);
+                deltaF = fps > 0 ? 1 : 0;
+            }
+
+            // Update game logic if enough time has passed
+            if (deltaU >= 1)
+            {
+                update.run();
+                updates++;
+                deltaU--;
+            }
+
+            // Render frame if enough time has passed. Frames are not caught up;
+            // repaint requests would be coalesced anyway
+            if (deltaF >= 1)
+            {
+                render.run();
+                frames++;
+                deltaF = deltaF >= 2 ? 0 : deltaF - 1;
+            }
+
+            if (report && currentTime - lastCheck >= 1_000_000_000L)
+            {
+                long cpu = getProcessCpuTime();
+                double seconds = (currentTime - lastCheck) / 1e9;
+                System.out.printf("FPS: %d UPS:%d (%s, %.0f wakeups/s, %.0f ms CPU/s)%n",
+                        Math.round((frames - lastFrames) / seconds), Math.round((updates - lastUpdates) / seconds),
+                        PowerCons.MODE_NAMES[mode], (wakeups - lastWakeups) / seconds,
+                        cpu < 0 ? -1 : (cpu - lastCpu) / 1e6 / seconds);
+                lastCheck = currentTime;
+                lastUpdates = updates;
+                lastFrames = frames;
+                lastWakeups = wakeups;
+                lastCpu = cpu;
+            }
+
+            // Sleep until the next update or frame is due
+            if (deltaU < 1 && deltaF < 1)
+            {
+                double untilUpdate = ups > 0 ? (1 - deltaU) * 1e9 / ups : Double.MAX_VALUE;
+                double untilFrame = fps > 0 ? (1 - deltaF) * 1e9 / fps : Double.MAX_VALUE;
+                double wait = Math.min(untilUpdate, untilFrame);
+                PowerManager.sleep(wait == Double.MAX_VALUE ? Long.MAX_VALUE : Math.max(1, (long) wait));
+                wakeups++;
+            }
+        }
+    }
+
+    /**
+     * Ends the loop after its current iteration.
+     */
+    public void stop()
+    {
+        running = false;
+        PowerManager.wake();
+    }
+
+    public long getUpdates() { return updates; }
+    public long getFrames() { return frames; }
+    public long getWakeups() { return wakeups; }
+
+    /**
+     * Retrieves the CPU time used by the whole process, all threads and the GC included.
+     *
+     * @return Nanoseconds, or -1 if the JVM does not report it
+     */
+    public static long getProcessCpuTime()
+    {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean)
+        {
+            return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+        }
+        return -1;
+    }
+
+    /**
+     * Retrieves the CPU time used by one thread.
+     *
+     * @return Nanoseconds, or -1 if the JVM does not measure thread CPU time
+     */
+    public static long getThreadCpuTime(Thread thread)
+    {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        return threads.isThreadCpuTimeSupported() ? threads.getThreadCpuTime(thread.threadId()) : -1;
+    }
+}
@@ -1,9 +1,9 @@
 package main;
 
 import gamestates.GameState;
+import utils.StartupProfiler;
 import javax.swing.*;
 import java.awt.*;
-import java.awt.event.*;
 
 
 /**
@@ -12,10 +12,7 @@ import java.awt.event.*;
  */
 public class GamePanel extends JPanel {
     private int panelWidth = 0, panelHeight = 0;
-    // Current active input listeners
-    private MouseListener currentMouseListener;
-    private MouseMotionListener currentMotionListener;
-    private KeyListener currentKeyListener;
+    private boolean painted; // Set after the first frame, which ends the startup timeline
 
     /**
      * Constructor sets up the panel and initializes input handling
@@ -24,57 +21,12 @@ public class GamePanel extends JPanel {
         setFocusable(true);
         requestFocusInWindow();
 
-        // Set up state change listener to handle input updates
-        GameState.setStateChangeListener(this::updateListeners);
-
-        // Initialize listeners based on starting state
-        updateListeners(GameState.getCurrentState());
-    }
-
-    /**
-     * Updates input listeners when game state changes
-     * Removes old listeners and adds new ones based on current game state
-     * @param newState The new game state to switch to
-     */
-    private void updateListeners(int newState)
-    {
-        // Remove any existing listeners first
-        if (currentMouseListener != null) {
-            removeMouseListener(currentMouseListener);
-        }
-        if (currentMotionListener != null) {
-            removeMouseMotionListener(currentMotionListener);
-        }
-        if (currentKeyListener != null) {
-            removeKeyListener(currentKeyListener);
-        }
-
-        // Set appropriate listeners based on game state
-        switch (newState) {
-            case GameState.MENU:
-                currentMouseListener = GameState.getGameMenu();
-                currentMotionListener = GameState.getGameMenu();
-                break;
-            case GameState.PLAYING:
-                currentMouseListener = GameState.getPlaying();
-                currentMotionListener = GameState.getPlaying();
-                currentKeyListener = GameState.getPlaying();
-                break;
-            case GameState.SETTINGS:
-                currentMouseListener = GameState.getSettings();
-                currentMotionListener = GameState.getSettings();
-                currentKeyListener = GameState.getSettings();
-                break;
-        }
-
-        // Add the new listeners to the panel
-        addMouseListener(currentMouseListener);
-        addMouseMotionListener(currentMotionListener);
-
-        // Only add key listener if it's not null
-        if (currentKeyListener != null) {
-            addKeyListener(currentKeyListener);
-        }
+        // One dispatcher for the whole game; it forwards input to the active state,
+        // so listeners no longer have to be swapped on every state change
+        InputDispatcher inputDispatcher = new InputDispatcher();
+        addMouseListener(inputDispatcher);
+        addMouseMotionListener(inputDispatcher);
+        addKeyListener(inputDispatcher);
     }
 
     /**
@@ -87,6 +39,16 @@ public class GamePanel extends JPanel {
         super.paintComponent(g);
         panelWidth = getWidth();
         panelHeight = getHeight();
+        if (painted)
+        {
+            GameState.render(g, panelWidth, panelHeight);
+            return;
+        }
+
+        long start = StartupProfiler.start();
         GameState.render(g, panelWidth, panelHeight);
+        StartupProfiler.end("paint first frame", start);
+        painted = true;
+        StartupProfiler.firstFramePainted();
     }
-}
\ No newline at end of file
+}
@@ -7,6 +7,10 @@ import javax.swing.*;
  * Handles window-specific settings and initialization
  */
 public class GameWindow {
+    // Initial window size
+    public static final int WIDTH = 1530;
+    public static final int HEIGHT = 890;
+
     private JFrame jframe;
 
     /**
@@ -23,9 +27,12 @@ public class GameWindow {
 
         // Configure window properties
         jframe.pack();
-        jframe.setSize(1530, 890);  // Set initial window size
+        jframe.setSize(WIDTH, HEIGHT);  // Set initial window size
         jframe.setLocationRelativeTo(null);  // Center window on screen
         jframe.setResizable(true);  // Allow window resizing
         jframe.setVisible(true);  // Make window visible
+
+        // Slows the game loop down while the window is minimized or in the background
+        PowerManager.install(jframe);
     }
 }
\ No newline at end of file
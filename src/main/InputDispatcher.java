@@ -0,0 +1,73 @@
+package main;
+
+import gamestates.GameState;
+import gamestates.Statemethods;
+
+import java.awt.event.*;
+
+/**
+ * Single set of input listeners that stays on the panel for the whole game
+ * and forwards every event to whichever state is currently active.
+ * Clicks and keys also wake the game loop, since they may end a low power mode such as the pause menu.
+ */
+public class InputDispatcher implements MouseListener, MouseMotionListener, KeyListener
+{
+    @Override
+    public void mouseClicked(MouseEvent e) {
+        Statemethods state = GameState.getCurrent();
+        if (state != null) state.mouseClicked(e);
+        PowerManager.wake();
+    }
+
+    @Override
+    public void mousePressed(MouseEvent e) {
+        Statemethods state = GameState.getCurrent();
+        if (state != null) state.mousePressed(e);
+        PowerManager.wake();
+    }
+
+    @Override
+    public void mouseReleased(MouseEvent e) {
+        Statemethods state = GameState.getCurrent();
+        if (state != null) state.mouseReleased(e);
+        PowerManager.wake();
+    }
+
+    @Override
+    public void mouseExited(MouseEvent e) {
+        Statemethods state = GameState.getCurrent();
+        if (state != null) state.mouseExited(e);
+    }
+
+    @Override
+    public void mouseMoved(MouseEvent e) {
+        Statemethods state = GameState.getCurrent();
+        if (state != null) state.mouseMoved(e);
+    }
+
+    @Override
+    public void mouseDragged(MouseEvent e) {
+        Statemethods state = GameState.getCurrent();
+        if (state != null) state.mouseDragged(e);
+    }
+
+    @Override
+    public void keyPressed(KeyEvent e) {
+        Statemethods state = GameState.getCurrent();
+        if (state != null) state.keyPressed(e);
+        PowerManager.wake();
+    }
+
+    @Override
+    public void keyReleased(KeyEvent e) {
+        Statemethods state = GameState.getCurrent();
+        if (state != null) state.keyReleased(e);
+        PowerManager.wake();
+    }
+
+    // Unused but required interface methods
+    @Override
+    public void mouseEntered(MouseEvent e) {}
+    @Override
+    public void keyTyped(KeyEvent e) {}
+}
@@ -0,0 +1,269 @@
+package main;
+
+import utils.Constants.StartupCons;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Packaged launch mode: starts the game in a child JVM that maps a class data
+ * sharing (AppCDS) archive, so Swing, AWT, ImageIO and javax.sound classes are
+ * loaded pre-parsed instead of from the JDK's modules.
+ *
+ * CDS only archives classes from JAR files, so the classes and resources on
+ * the class path are first packed into CDS_DIR/game.jar (again whenever a file
+ * changes). A training run then starts the game from the jar with
+ * -XX:ArchiveClassesAtExit and exits after the first frame, which leaves every
+ * class needed until then in the archive. Later launches reuse it.
+ *
+ * Usage: java -cp out:res main.Launcher [--retrain] [--compare [runs]]
+ *   --retrain  Rebuild the archive even if it is up to date
+ *   --compare  Measure the first frame with and without the archive instead of playing
+ */
+public class Launcher
+{
+    private static final File JAR = new File(StartupCons.CDS_DIR, "game.jar");
+    // Archives only work with the JVM that wrote them
+    private static final File ARCHIVE = new File(StartupCons.CDS_DIR,
+            "game-" + Runtime.version().toString().replaceAll("[^A-Za-z0-9.]", "_") + ".jsa");
+
+    public static void main(String[] args) throws IOException, InterruptedException
+    {
+        List<String> options = Arrays.asList(args);
+        File dir = new File(StartupCons.CDS_DIR);
+        if (!dir.exists() && !dir.mkdirs())
+        {
+            System.err.println("Could not create " + dir + ", starting without an archive");
+            Main.main(args);
+            return;
+        }
+
+        boolean repacked = packIfStale();
+        if (repacked || options.contains("--retrain") || ARCHIVE.lastModified() < JAR.lastModified())
+        {
+            train();
+        }
+
+        if (options.contains("--compare"))
+        {
+            int index = options.indexOf("--compare");
+            int runs = index + 1 < args.length ? Integer.parseInt(args[index + 1]) : StartupCons.COMPARE_RUNS;
+            compare(runs);
+            return;
+        }
+
+        List<String> command = javaCommand();
+        if (ARCHIVE.exists()) command.add("-XX:SharedArchiveFile=" + ARCHIVE);
+        command.add("main.Main");
+        Process game = new ProcessBuilder(command).inheritIO().start();
+        System.exit(game.waitFor());
+    }
+
+    /**
+     * Packs the class path into the game jar unless it is newer than every file on the class path.
+     *
+     * @return true if the jar was written
+     */
+    private static boolean packIfStale() throws IOException
+    {
+        String[] classPath = System.getProperty("java.class.path").split(File.pathSeparator);
+        long newest = 0;
+        for (String entry : classPath)
+        {
+            newest = Math.max(newest, newestModified(new File(entry).toPath()));
+        }
+        if (JAR.exists() && JAR.lastModified() >= newest) return false;
+
+        long start = System.nanoTime();
+        File temp = new File(JAR.getPath() + ".tmp");
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, "main.Main");
+        Set<String> written = new HashSet<>(); // Earlier class path entries win, as they would at run time
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(temp), manifest))
+        {
+            written.add(JarFile.MANIFEST_NAME);
+            for (String entry : classPath)
+            {
+                File file = new File(entry);
+                if (file.isDirectory()) addDirectory(out, file.toPath(), written);
+                else if (file.isFile()) addJar(out, file, written);
+            }
+        }
+        Files.move(temp.toPath(), JAR.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        System.out.println("Packed " + written.size() + " files into " + JAR + " in " +
+                (System.nanoTime() - start) / 1_000_000 + " ms");
+        return true;
+    }
+
+    private static long newestModified(Path path) throws IOException
+    {
+        if (!Files.exists(path)) return 0;
+        try (Stream<Path> files = Files.walk(path))
+        {
+            return files.mapToLong(p -> p.toFile().lastModified()).max().orElse(0);
+        }
+    }
+
+    private static void addDirectory(JarOutputStream out, Path root, Set<String> written) throws IOException
+    {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(root))
+        {
+            files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        for (Path file : files)
+        {
+            String name = root.relativize(file).toString().replace(File.separatorChar, '/');
+            if (!written.add(name)) continue;
+            try (InputStream in = new FileInputStream(file.toFile()))
+            {
+                out.putNextEntry(new JarEntry(name));
+                in.transferTo(out);
+                out.closeEntry();
+            }
+        }
+    }
+
+    private static void addJar(JarOutputStream out, File file, Set<String> written) throws IOException
+    {
+        try (JarFile jar = new JarFile(file))
+        {
+            Enumeration<JarEntry> entries = jar.entries();
+            while (entries.hasMoreElements())
+            {
+                JarEntry entry = entries.nextElement();
+                if (entry.isDirectory() || !written.add(entry.getName())) continue;
+                try (InputStream in = jar.getInputStream(entry))
+                {
+                    out.putNextEntry(new JarEntry(entry.getName()));
+                    in.transferTo(out);
+                    out.closeEntry();
+                }
+            }
+        }
+    }
+
+    /**
+     * Starts the game from the jar once, up to the first frame, and keeps the classes it loaded.
+     */
+    private static void train() throws IOException, InterruptedException
+    {
+        long start = System.nanoTime();
+        File temp = new File(ARCHIVE.getPath() + ".tmp");
+        Files.deleteIfExists(temp.toPath());
+
+        List<String> command = javaCommand();
+        command.add("-XX:ArchiveClassesAtExit=" + temp);
+        command.add("-D" + StartupCons.EXIT_PROPERTY + "=true");
+        command.add("main.Main");
+        Process training = new ProcessBuilder(command).redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+        int exitCode = training.waitFor();
+
+        if (exitCode != 0 || !temp.exists())
+        {
+            System.err.println("CDS training run failed (exit code " + exitCode + "), starting without an archive");
+            Files.deleteIfExists(ARCHIVE.toPath());
+            return;
+        }
+        Files.move(temp.toPath(), ARCHIVE.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        System.out.println("Wrote " + ARCHIVE + " (" + ARCHIVE.length() / 1024 + " KB) in " +
+                (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    /**
+     * Launches the game up to its first frame, alternating without and with the archive,
+     * and reports the median time of each.
+     */
+    private static void compare(int runs) throws IOException, InterruptedException
+    {
+        if (!ARCHIVE.exists())
+        {
+            System.err.println("No archive to compare against");
+            return;
+        }
+        double[] without = new double[runs];
+        double[] with = new double[runs];
+        for (int i = 0; i < runs; i++)
+        {
+            without[i] = timeFirstFrame(false);
+            with[i] = timeFirstFrame(true);
+            System.out.printf("Run %d: %.1f ms without, %.1f ms with the archive%n", i + 1, without[i], with[i]);
+        }
+        double before = median(without), after = median(with);
+        System.out.printf("First frame (median of %d): %.1f ms without, %.1f ms with the archive, %.0f%% faster%n",
+                runs, before, after, 100 * (before - after) / before);
+    }
+
+    private static double timeFirstFrame(boolean useArchive) throws IOException, InterruptedException
+    {
+        List<String> command = javaCommand();
+        if (useArchive) command.add("-XX:SharedArchiveFile=" + ARCHIVE);
+        command.add("-D" + StartupCons.PROFILE_PROPERTY + "=true");
+        command.add("-D" + StartupCons.EXIT_PROPERTY + "=true");
+        command.add("main.Main");
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+
+        double firstFrame = Double.NaN;
+        try (BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream())))
+        {
+            String line;
+            while ((line = out.readLine()) != null)
+            {
+                if (line.startsWith(StartupCons.FIRST_FRAME_PREFIX))
+                {
+                    firstFrame = Double.parseDouble(line.substring(StartupCons.FIRST_FRAME_PREFIX.length()));
+                }
+            }
+        }
+        process.waitFor();
+        return firstFrame;
+    }
+
+    /**
+     * Retrieves the command for a child JVM running from the game jar. The
+     * launcher's own -Dbbp.* settings (seed, server, player name, ...) are passed on.
+     */
+    private static List<String> javaCommand()
+    {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        for (String name : System.getProperties().stringPropertyNames())
+        {
+            if (name.startsWith("bbp.")) command.add("-D" + name + "=" + System.getProperty(name));
+        }
+        command.add("-cp");
+        command.add(JAR.getPath());
+        return command;
+    }
+
+    private static double median(double[] values)
+    {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int mid = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[mid] : (sorted[mid - 1] + sorted[mid]) / 2;
+    }
+}
@@ -1,6 +1,8 @@
 package main;
 
 import gamestates.GameState;
+import utils.Constants.GameStates;
+import utils.StartupProfiler;
 
 /**
  * Main entry point for the Bato Bato Pik game
@@ -14,7 +16,10 @@ public class Main
 
     public static void main(String[] args)
     {
-        GameState.setState(GameState.MENU);  // Set initial game state
+        StartupProfiler.mainEntered();
+        long start = StartupProfiler.start();
+        GameState.setState(GameStates.MENU);  // Set initial game state
+        StartupProfiler.end("enter the menu", start);
         new BatoBatoPikGame();  // Create and start game
     }
 }
@@ -0,0 +1,118 @@
+package main;
+
+import gamestates.GameState;
+import utils.Constants.GameStates;
+import utils.Constants.PowerCons;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * Runs the game loop in every power mode for a few seconds, drawing the game screen
+ * into an offscreen image, and prints the energy-relevant figures of each: updates,
+ * frames and wakeups per second and the CPU time of the loop thread and the process.
+ * The loop as it was before power modes, which spun between ticks, runs first for comparison.
+ *
+ * Usage: java -Djava.awt.headless=true -cp out:res main.PowerBenchmark [seconds per mode]
+ */
+public class PowerBenchmark
+{
+    private static final int WIDTH = GameWindow.WIDTH, HEIGHT = GameWindow.HEIGHT;
+    private static final BufferedImage screen = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+
+    public static void main(String[] args) throws InterruptedException
+    {
+        double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 3;
+        GameState.setState(GameStates.PLAYING);
+        render(); // Loads the screen's assets before anything is timed
+
+        System.out.println("Mode         UPS    FPS  wakeups/s  loop CPU  process CPU");
+        measure("spinning", seconds, -1);
+        for (int mode = 0; mode < PowerCons.MODE_NAMES.length; mode++)
+        {
+            measure(PowerCons.MODE_NAMES[mode], seconds, mode);
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Runs a loop for a while and prints its figures.
+     *
+     * @param mode The power mode to force, or -1 for the spinning loop
+     */
+    private static void measure(String name, double seconds, int mode) throws InterruptedException
+    {
+        GameLoop loop = new GameLoop(GameState::update, PowerBenchmark::render, false);
+        SpinningLoop spinning = new SpinningLoop();
+        Thread thread = new Thread(mode < 0 ? spinning : loop, "game-loop");
+        PowerManager.forceMode(mode);
+        thread.start();
+        Thread.sleep(500); // Settle in, out of the measurement
+
+        long updates = mode < 0 ? spinning.updates : loop.getUpdates();
+        long frames = mode < 0 ? spinning.frames : loop.getFrames();
+        long wakeups = mode < 0 ? spinning.iterations : loop.getWakeups();
+        long threadCpu = GameLoop.getThreadCpuTime(thread);
+        long processCpu = GameLoop.getProcessCpuTime();
+        long start = System.nanoTime();
+        Thread.sleep((long) (seconds * 1000));
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        updates = (mode < 0 ? spinning.updates : loop.getUpdates()) - updates;
+        frames = (mode < 0 ? spinning.frames : loop.getFrames()) - frames;
+        wakeups = (mode < 0 ? spinning.iterations : loop.getWakeups()) - wakeups;
+        threadCpu = GameLoop.getThreadCpuTime(thread) - threadCpu;
+        processCpu = GameLoop.getProcessCpuTime() - processCpu;
+
+        spinning.running = false;
+        loop.stop();
+        thread.join();
+        System.out.printf("%-10s %5.0f  %5.0f  %9.0f  %7.1f%%  %10.1f%%%n", name, updates / elapsed, frames / elapsed,
+                wakeups / elapsed, threadCpu / 1e7 / elapsed, processCpu / 1e7 / elapsed);
+    }
+
+    private static void render()
+    {
+        Graphics2D g = screen.createGraphics();
+        GameState.render(g, WIDTH, HEIGHT);
+        g.dispose();
+    }
+
+    /**
+     * The game loop before power modes: 120 updates and 60 frames a second, checking
+     * the clock again right away in between.
+     */
+    private static class SpinningLoop implements Runnable
+    {
+        volatile boolean running = true;
+        volatile long updates, frames, iterations;
+
+        @Override
+        public void run()
+        {
+            double timePerFrame = 1e9 / PowerCons.FPS[PowerCons.ACTIVE];
+            double timePerUpdate = 1e9 / PowerCons.UPS[PowerCons.ACTIVE];
+            long previousTime = System.nanoTime();
+            double deltaU = 0, deltaF = 0;
+            while (running)
+            {
+                long currentTime = System.nanoTime();
+                deltaU += (currentTime - previousTime) / timePerUpdate;
+                deltaF += (currentTime - previousTime) / timePerFrame;
+                previousTime = currentTime;
+                if (deltaU >= 1)
+                {
+                    GameState.update();
+                    updates++;
+                    deltaU--;
+                }
+                if (deltaF >= 1)
+                {
+                    render();
+                    frames++;
+                    deltaF--;
+                }
+                iterations++;
+            }
+        }
+    }
+}
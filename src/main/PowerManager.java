@@ -0,0 +1,133 @@
+package main;
+
+import Sound.SoundManager;
+import gamestates.GameState;
+import utils.Constants.PowerCons;
+
+import java.awt.Window;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Picks the power mode of the game loop (see PowerCons) from the window and the active screen.
+ *
+ * The loop asks for the mode on every iteration and sleeps between ticks. Window
+ * and input events wake it, so a change to a faster mode takes effect right away
+ * instead of after the slow mode's next tick. Minimizing the window also pauses
+ * the music, and restoring it resumes the track where it stopped.
+ */
+public class PowerManager
+{
+    // Window state, written on the EDT and read by the game loop
+    private static volatile boolean focused = true;
+    private static volatile boolean iconified = false;
+
+    // Mode set by a benchmark instead of the window, -1 if none
+    private static volatile int forcedMode = -1;
+
+    // Thread running the game loop, woken on window and input events
+    private static volatile Thread loopThread;
+
+    /**
+     * Listens to a window's focus and minimize events.
+     */
+    public static void install(Window window)
+    {
+        WindowAdapter listener = new WindowAdapter()
+        {
+            @Override
+            public void windowIconified(WindowEvent e)
+            {
+                iconified = true;
+                SoundManager.suspendMusic();
+                wake();
+            }
+
+            @Override
+            public void windowDeiconified(WindowEvent e)
+            {
+                iconified = false;
+                SoundManager.resumeMusic();
+                wake();
+            }
+
+            @Override
+            public void windowGainedFocus(WindowEvent e)
+            {
+                focused = true;
+                wake();
+            }
+
+            @Override
+            public void windowLostFocus(WindowEvent e)
+            {
+                focused = false;
+                wake();
+            }
+        };
+        window.addWindowListener(listener);
+        window.addWindowFocusListener(listener);
+    }
+
+    /**
+     * Retrieves the mode the game loop should run in, the slowest one that applies.
+     *
+     * @return One of the mode constants in PowerCons
+     */
+    public static int getMode()
+    {
+        int forced = forcedMode;
+        if (forced >= 0) return forced;
+        if (!PowerCons.ENABLED) return PowerCons.ACTIVE;
+        if (iconified) return PowerCons.PARKED;
+        if (GameState.isIdle()) return PowerCons.PAUSED;
+        if (!focused) return PowerCons.BACKGROUND;
+        return PowerCons.ACTIVE;
+    }
+
+    /**
+     * Runs the game loop in one mode whatever the window does, for benchmarks.
+     *
+     * @param mode A mode constant, or -1 to follow the window again
+     */
+    public static void forceMode(int mode)
+    {
+        forcedMode = mode;
+        wake();
+    }
+
+    /**
+     * Registers the thread that runs the game loop, so events can wake it.
+     */
+    static void setLoopThread(Thread thread)
+    {
+        loopThread = thread;
+    }
+
+    /**
+     * Wakes the game loop so it picks up a new mode at once. Safe to call from any thread.
+     */
+    public static void wake()
+    {
+        Thread thread = loopThread;
+        if (thread != null) LockSupport.unpark(thread);
+    }
+
+    /**
+     * Sleeps on the game loop thread until a deadline or until woken.
+     *
+     * @param nanos Time to sleep, or Long.MAX_VALUE to sleep until woken
+     */
+    static void sleep(long nanos)
+    {
+        if (nanos == Long.MAX_VALUE)
+        {
+            LockSupport.park();
+        }
+        else
+        {
+            LockSupport.parkNanos(nanos);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package main;
+
+import server.MatchServer;
+import utils.Constants.ServerCons;
+
+import java.io.IOException;
+
+/**
+ * Entry point for running Bato Bato Pik as a headless service, without the Swing window.
+ *
+ * Usage: java -Djava.awt.headless=true main.ServerMain [httpPort] [webSocketPort]
+ */
+public class ServerMain
+{
+    public static void main(String[] args) throws IOException, InterruptedException
+    {
+        int httpPort = args.length > 0 ? Integer.parseInt(args[0]) : ServerCons.HTTP_PORT;
+        int webSocketPort = args.length > 1 ? Integer.parseInt(args[1]) : ServerCons.WEBSOCKET_PORT;
+
+        MatchServer server = new MatchServer(httpPort, webSocketPort);
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop, "match-server-shutdown"));
+        System.out.println("Match server: http://localhost:" + server.getHttpPort() + "/matches, " +
+                "ws://localhost:" + server.getWebSocketPort());
+
+        Thread.currentThread().join(); // Serve until the process is stopped
+    }
+}
@@ -0,0 +1,105 @@
+package net;
+
+import utils.Constants.MatchmakingCons;
+import utils.Constants.RatingCons;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Runs players through the matchmaking queue and prints how fast it pairs them,
+ * how long they wait and how far apart the pairs are rated.
+ *
+ * Players are rated around 1500 with a spread of 350. They join all at once, as after
+ * a server restart, and then at each of several rates per second, with exponential
+ * gaps between them. Waits are measured on a simulated clock, so the slow rates do not
+ * take hours; pairs per second is the wall clock throughput of the queue itself.
+ *
+ * Usage: java -cp out:res net.MatchmakingBenchmark [players] [arrivals per second...]
+ */
+public class MatchmakingBenchmark
+{
+    private static final double RATING_SPREAD = 350;
+
+    public static void main(String[] args)
+    {
+        int players = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        double[] rates = {0, 1, 10, 100, 1000}; // 0: everyone at once
+        if (args.length > 1)
+        {
+            rates = new double[args.length - 1];
+            for (int i = 0; i < rates.length; i++) rates[i] = Double.parseDouble(args[i + 1]);
+        }
+        System.out.println(players + " players, buckets of " + MatchmakingCons.BUCKET_WIDTH + " points, window " +
+                (int) MatchmakingCons.BASE_WINDOW + " + " + (int) MatchmakingCons.WIDEN_STEP + " per " +
+                MatchmakingCons.WIDEN_NANOS / 1_000_000 + " ms, anyone after " +
+                MatchmakingCons.MAX_STEPS * MatchmakingCons.WIDEN_NANOS / 1_000_000 + " ms");
+        run(players, rates[0], 1); // Warm up
+        for (double rate : rates) run(players, rate, 42);
+    }
+
+    private static void run(int players, double rate, long seed)
+    {
+        SplittableRandom random = new SplittableRandom(seed);
+        double[] ratings = new double[players];
+        long[] arrivals = new long[players];
+        long clock = 0;
+        for (int i = 0; i < players; i++)
+        {
+            ratings[i] = RatingCons.INITIAL_RATING + random.nextGaussian() * RATING_SPREAD;
+            if (rate > 0) clock += (long) (-Math.log(1 - random.nextDouble()) / rate * 1e9);
+            arrivals[i] = clock;
+        }
+
+        long[] waits = new long[players];
+        double[] gaps = new double[players / 2];
+        int[] counts = new int[2]; // Players paired, pairs
+        MatchmakingQueue<Integer> queue = new MatchmakingQueue<>((first, second, now) -> {
+            waits[counts[0]++] = now - first.getJoined();
+            waits[counts[0]++] = now - second.getJoined();
+            gaps[counts[1]++] = Math.abs(first.getRating() - second.getRating());
+        });
+
+        int peak = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < players; i++)
+        {
+            queue.poll(arrivals[i]);
+            queue.enqueue(i, ratings[i], arrivals[i]);
+            peak = Math.max(peak, queue.size());
+        }
+        // No one else is coming: let the windows of whoever is left widen until they pair
+        long now = arrivals[players - 1];
+        while (queue.size() > 1)
+        {
+            now = Math.max(now, queue.nextRetry());
+            queue.poll(now);
+        }
+        long elapsed = System.nanoTime() - start;
+        if (seed == 1) return;
+
+        long[] sortedWaits = Arrays.copyOf(waits, counts[0]);
+        Arrays.sort(sortedWaits);
+        double[] sortedGaps = Arrays.copyOf(gaps, counts[1]);
+        Arrays.sort(sortedGaps);
+        System.out.println();
+        System.out.println(rate > 0 ? String.format("%.0f joining per second", rate) : "Everyone at once");
+        System.out.printf("  %d pairs in %d ms, %.0f pairs/s, %.0f ns per player, peak %d waiting, %d left alone%n",
+                counts[1], elapsed / 1_000_000, counts[1] / (elapsed / 1e9), (double) elapsed / players, peak, queue.size());
+        System.out.println("  wait   p50 " + millis(sortedWaits, 0.5) + " ms, p90 " + millis(sortedWaits, 0.9) +
+                " ms, p99 " + millis(sortedWaits, 0.99) + " ms, p99.9 " + millis(sortedWaits, 0.999) +
+                " ms, max " + sortedWaits[sortedWaits.length - 1] / 1_000_000 + " ms");
+        System.out.printf("  rating gap p50 %.0f, p90 %.0f, p99 %.0f, max %.0f%n", percentile(sortedGaps, 0.5),
+                percentile(sortedGaps, 0.9), percentile(sortedGaps, 0.99), sortedGaps[sortedGaps.length - 1]);
+    }
+
+    private static long millis(long[] sorted, double percentile)
+    {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * percentile))] / 1_000_000;
+    }
+
+    private static double percentile(double[] sorted, double percentile)
+    {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * percentile))];
+    }
+}
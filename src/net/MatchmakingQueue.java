@@ -0,0 +1,266 @@
+package net;
+
+import utils.Constants.MatchmakingCons;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * Pairs waiting players of similar skill, without anyone waiting forever.
+ *
+ * Waiting players are indexed by rating in buckets of BUCKET_WIDTH points, each a
+ * queue in arrival order, kept in a TreeMap of the non-empty buckets. A player who
+ * joins is paired right away with the nearest waiting player below or above, if
+ * their ratings are within the wider of their two windows. A window starts narrow
+ * and widens every WIDEN_NANOS of waiting; players are retried when it does, in the
+ * order of a heap of retry times. Once a player has waited MAX_STEPS widenings,
+ * the next player to join is paired with them, whatever their ratings, which
+ * bounds the wait. Joining, leaving and each retry are O(log n).
+ *
+ * Times are passed in as System.nanoTime() values, so a simulation can run on its own
+ * clock. All methods are synchronized, so the queue can be shared in-process; the
+ * versus server only uses it from its selector thread.
+ *
+ * @param <T> What is queued, e.g. a connection
+ */
+public final class MatchmakingQueue<T>
+{
+    /**
+     * Told about every pair, from the thread that made it.
+     */
+    public interface Listener<T>
+    {
+        void paired(Ticket<T> first, Ticket<T> second, long now);
+    }
+
+    /**
+     * A place in the queue.
+     */
+    public static final class Ticket<T>
+    {
+        private final T player;
+        private final double rating;
+        private final long joined;
+        private final int bucket;
+        private long retryAt;
+        private boolean queued; // Waited in the queue, rather than paired as it joined
+        private boolean done;   // Paired or cancelled
+
+        private Ticket(T player, double rating, long joined)
+        {
+            this.player = player;
+            this.rating = rating;
+            this.joined = joined;
+            bucket = (int) Math.floor(rating / MatchmakingCons.BUCKET_WIDTH);
+        }
+
+        public T getPlayer() { return player; }
+        public double getRating() { return rating; }
+        public long getJoined() { return joined; }
+        public boolean isDone() { return done; }
+    }
+
+    private final Listener<T> listener;
+    private final TreeMap<Integer, ArrayDeque<Ticket<T>>> buckets = new TreeMap<>();
+    private final PriorityQueue<Ticket<T>> retries = new PriorityQueue<>((a, b) -> Long.compare(a.retryAt, b.retryAt));
+    private final ArrayDeque<Ticket<T>> overdue = new ArrayDeque<>(); // Waited MAX_STEPS widenings, oldest first
+    private int size;
+    private long pairs;
+
+    public MatchmakingQueue(Listener<T> listener)
+    {
+        this.listener = listener;
+    }
+
+    /**
+     * Adds a player, pairing them right away if someone near their rating is waiting.
+     *
+     * @return The player's ticket, already done if they were paired
+     */
+    public synchronized Ticket<T> enqueue(T player, double rating, long now)
+    {
+        Ticket<T> ticket = new Ticket<>(player, rating, now);
+        Ticket<T> match = firstLive(overdue, null);
+        if (match == null) match = nearest(ticket, now);
+        if (match != null)
+        {
+            pair(match, ticket, now);
+            return ticket;
+        }
+        buckets.computeIfAbsent(ticket.bucket, b -> new ArrayDeque<>()).add(ticket);
+        ticket.queued = true;
+        ticket.retryAt = now + MatchmakingCons.WIDEN_NANOS;
+        retries.add(ticket);
+        size++;
+        return ticket;
+    }
+
+    /**
+     * Takes a waiting player out of the queue.
+     *
+     * @return False if they had already been paired or cancelled
+     */
+    public synchronized boolean cancel(Ticket<T> ticket)
+    {
+        if (ticket.done) return false;
+        ticket.done = true;
+        size--;
+        return true; // Dropped from the buckets and heaps as it reaches their heads
+    }
+
+    /**
+     * Retries every player whose window has widened by now.
+     *
+     * @return The number of pairs made
+     */
+    public synchronized int poll(long now)
+    {
+        long before = pairs;
+        Ticket<T> ticket;
+        while ((ticket = retries.peek()) != null && ticket.retryAt <= now)
+        {
+            retries.poll();
+            if (ticket.done) continue;
+            Ticket<T> match = nearest(ticket, now);
+            if (match != null)
+            {
+                pair(ticket, match, now);
+            } else if (steps(ticket, now) < MatchmakingCons.MAX_STEPS) {
+                ticket.retryAt = ticket.joined + (steps(ticket, now) + 1) * MatchmakingCons.WIDEN_NANOS;
+                retries.add(ticket);
+            } else {
+                overdue.add(ticket); // Alone in the queue, the next player to join is theirs
+            }
+        }
+        return (int) (pairs - before);
+    }
+
+    /**
+     * Retrieves when poll next has something to do, or Long.MAX_VALUE if never.
+     */
+    public synchronized long nextRetry()
+    {
+        while (!retries.isEmpty() && retries.peek().done) retries.poll();
+        return retries.isEmpty() ? Long.MAX_VALUE : retries.peek().retryAt;
+    }
+
+    /**
+     * Finds the waiting player nearest in rating to a ticket whom it may be paired with.
+     * Only the oldest player of the nearest bucket on either side is considered.
+     */
+    private Ticket<T> nearest(Ticket<T> ticket, long now)
+    {
+        Ticket<T> best = null;
+        double bestGap = Double.MAX_VALUE;
+        Integer key = ticket.bucket;
+        while (key != null) // Own bucket or the nearest below with someone live in it
+        {
+            Ticket<T> candidate = head(key, ticket);
+            if (candidate != null)
+            {
+                best = candidate;
+                bestGap = Math.abs(candidate.rating - ticket.rating);
+                break;
+            }
+            key = buckets.lowerKey(key);
+        }
+        key = buckets.higherKey(ticket.bucket);
+        while (key != null)
+        {
+            Ticket<T> candidate = head(key, ticket);
+            if (candidate != null)
+            {
+                if (Math.abs(candidate.rating - ticket.rating) < bestGap) best = candidate;
+                break;
+            }
+            key = buckets.higherKey(key);
+        }
+        if (best == null) return null;
+        double window = Math.max(window(ticket, now), window(best, now));
+        return Math.abs(best.rating - ticket.rating) <= window ? best : null;
+    }
+
+    /**
+     * Retrieves the oldest live player of a bucket other than the given one, dropping
+     * finished tickets from the front and the bucket once it is empty.
+     */
+    private Ticket<T> head(int key, Ticket<T> exclude)
+    {
+        ArrayDeque<Ticket<T>> bucket = buckets.get(key);
+        if (bucket == null) return null;
+        while (!bucket.isEmpty() && bucket.peek().done) bucket.poll();
+        if (bucket.isEmpty())
+        {
+            buckets.remove(key);
+            return null;
+        }
+        return firstLive(bucket, exclude);
+    }
+
+    private static <T> Ticket<T> firstLive(ArrayDeque<Ticket<T>> queue, Ticket<T> exclude)
+    {
+        while (!queue.isEmpty() && queue.peek().done) queue.poll();
+        for (Ticket<T> ticket : queue)
+        {
+            if (!ticket.done && ticket != exclude) return ticket;
+        }
+        return null;
+    }
+
+    private static int steps(Ticket<?> ticket, long now)
+    {
+        return (int) Math.min(MatchmakingCons.MAX_STEPS, (now - ticket.joined) / MatchmakingCons.WIDEN_NANOS);
+    }
+
+    private static double window(Ticket<?> ticket, long now)
+    {
+        int steps = steps(ticket, now);
+        return steps >= MatchmakingCons.MAX_STEPS ? Double.MAX_VALUE :
+                MatchmakingCons.BASE_WINDOW + steps * MatchmakingCons.WIDEN_STEP;
+    }
+
+    /**
+     * Pairs two tickets, at most one of which was never queued.
+     */
+    private void pair(Ticket<T> first, Ticket<T> second, long now)
+    {
+        first.done = second.done = true;
+        if (first.queued) size--;
+        if (second.queued) size--;
+        pairs++;
+        listener.paired(first, second, now);
+    }
+
+    /**
+     * Retrieves the number of players waiting.
+     */
+    public synchronized int size()
+    {
+        return size;
+    }
+
+    /**
+     * Retrieves the number of pairs made so far.
+     */
+    public synchronized long getPairs()
+    {
+        return pairs;
+    }
+
+    /**
+     * Retrieves the number of players waiting in each non-empty bucket, by the bucket's lowest rating.
+     */
+    public synchronized TreeMap<Integer, Integer> getBucketSizes()
+    {
+        TreeMap<Integer, Integer> sizes = new TreeMap<>();
+        for (Map.Entry<Integer, ArrayDeque<Ticket<T>>> entry : buckets.entrySet())
+        {
+            int live = 0;
+            for (Ticket<T> ticket : entry.getValue()) if (!ticket.done) live++;
+            if (live > 0) sizes.put(entry.getKey() * MatchmakingCons.BUCKET_WIDTH, live);
+        }
+        return sizes;
+    }
+}
@@ -0,0 +1,222 @@
+package net;
+
+import logic.RuleSet;
+import utils.Constants.VersusCons;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+
+/**
+ * Connection from the game to a VersusServer.
+ * Frames are read on a daemon thread and handed to the Listener on that thread,
+ * so UI code should move them to the EDT itself.
+ *
+ * The client takes care of the commit-reveal exchange: commit() sends only the
+ * hash of the hand, the hand is revealed when the server asks for it, and the
+ * opponent's revealed hand is checked against the hash they committed.
+ */
+public final class VersusClient
+{
+    /**
+     * Receives the events of a versus match.
+     */
+    public interface Listener
+    {
+        void onWaiting();
+        /**
+         * @param myRating The server's rating of this player, -1 from a server that does not rate
+         * @param opponentRating The server's rating of the opponent, -1 likewise
+         */
+        void onMatched(int side, int lives, int myRating, int opponentRating);
+        void onOpponentCommitted();
+        void onResult(int myHand, int opponentHand, int outcome, int myLives, int opponentLives, boolean matchOver);
+        void onOpponentPaused(boolean paused);
+        void onRestart(int lives);
+        void onOpponentLeft();
+        void onError(String message);
+    }
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final Socket socket;
+    private final OutputStream out;
+    private final DataInputStream in;
+    private final Listener listener;
+
+    // Current round, only touched under the client's lock
+    private int myHand = -1;
+    private byte[] myNonce;
+    private byte[] opponentCommit;
+
+    private volatile boolean closed;
+
+    /**
+     * Connects to a server and asks to be paired with an opponent.
+     *
+     * @param address Server as "host:port" (the port defaults to VersusCons.DEFAULT_PORT)
+     * @param playerName Name the server keeps this player's skill rating under
+     * @param listener Receives the match events
+     * @throws IOException If the server cannot be reached
+     */
+    public VersusClient(String address, String playerName, Listener listener) throws IOException
+    {
+        this.listener = listener;
+        String host = address;
+        int port = VersusCons.DEFAULT_PORT;
+        int colon = address.lastIndexOf(':');
+        if (colon >= 0)
+        {
+            host = address.substring(0, colon);
+            port = Integer.parseInt(address.substring(colon + 1));
+        }
+
+        socket = new Socket();
+        socket.connect(new InetSocketAddress(host, port), 5000);
+        socket.setTcpNoDelay(true);
+        out = socket.getOutputStream();
+        in = new DataInputStream(socket.getInputStream());
+
+        Thread reader = new Thread(this::readLoop, "versus-client");
+        reader.setDaemon(true);
+        reader.start();
+        send(VersusCons.HELLO, VersusProtocol.encodeName(playerName));
+    }
+
+    /**
+     * Commits to a hand for the current round. Ignored if a hand is already committed.
+     */
+    public synchronized void commit(int hand)
+    {
+        if (myHand != -1) return;
+        myHand = hand;
+        myNonce = new byte[VersusCons.NONCE_SIZE];
+        RANDOM.nextBytes(myNonce);
+        send(VersusCons.COMMIT, VersusProtocol.commitment(hand, myNonce));
+    }
+
+    public void sendPause(boolean paused)
+    {
+        send(VersusCons.PAUSE, (byte) (paused ? 1 : 0));
+    }
+
+    public void sendRetry()
+    {
+        send(VersusCons.RETRY);
+    }
+
+    public void close()
+    {
+        closed = true;
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private synchronized void send(int type, byte... payload)
+    {
+        if (closed) return;
+        try {
+            ByteBuffer frame = VersusProtocol.frame(type, payload);
+            out.write(frame.array(), 0, frame.limit());
+            out.flush();
+        } catch (IOException e) {
+            System.err.println("Failed to send to versus server: " + e.getMessage());
+            close();
+        }
+    }
+
+    private void readLoop()
+    {
+        byte[] payload = new byte[VersusCons.MAX_FRAME];
+        try {
+            while (!closed)
+            {
+                int type = in.readUnsignedByte();
+                int length = in.readUnsignedByte();
+                in.readFully(payload, 0, length);
+                handle(type, payload, length);
+            }
+        } catch (IOException e) {
+            if (!closed)
+            {
+                closed = true;
+                listener.onOpponentLeft();
+            }
+        }
+    }
+
+    private void handle(int type, byte[] payload, int length)
+    {
+        switch (type) {
+            case VersusCons.WAITING:
+                listener.onWaiting();
+                break;
+            case VersusCons.MATCHED:
+                boolean rated = length >= 6;
+                listener.onMatched(payload[0], payload[1], rated ? VersusProtocol.readShort(payload, 2) : -1,
+                        rated ? VersusProtocol.readShort(payload, 4) : -1);
+                break;
+            case VersusCons.OPP_COMMIT:
+                synchronized (this) {
+                    opponentCommit = VersusProtocol.slice(payload, 0, VersusCons.HASH_SIZE);
+                }
+                listener.onOpponentCommitted();
+                break;
+            case VersusCons.REVEAL_REQUEST:
+                synchronized (this) {
+                    if (myHand == -1) return;
+                    byte[] reveal = new byte[1 + VersusCons.NONCE_SIZE];
+                    reveal[0] = (byte) myHand;
+                    System.arraycopy(myNonce, 0, reveal, 1, VersusCons.NONCE_SIZE);
+                    send(VersusCons.REVEAL, reveal);
+                }
+                break;
+            case VersusCons.RESULT:
+                int opponentHand = payload[1];
+                byte[] opponentNonce = VersusProtocol.slice(payload, 6, VersusCons.NONCE_SIZE);
+                synchronized (this) {
+                    boolean honest = opponentHand >= 0 && opponentHand < RuleSet.getActive().getWeaponCount() &&
+                            VersusProtocol.verify(opponentCommit, opponentHand, opponentNonce);
+                    myHand = -1;
+                    myNonce = null;
+                    opponentCommit = null;
+                    if (!honest)
+                    {
+                        listener.onError("Opponent's hand does not match their commitment");
+                        close();
+                        return;
+                    }
+                }
+                listener.onResult(payload[0], opponentHand, payload[2], payload[3], payload[4], payload[5] != 0);
+                break;
+            case VersusCons.OPP_PAUSE:
+                listener.onOpponentPaused(payload[0] != 0);
+                break;
+            case VersusCons.RESTART:
+                synchronized (this) {
+                    myHand = -1;
+                    myNonce = null;
+                    opponentCommit = null;
+                }
+                listener.onRestart(payload[0]);
+                break;
+            case VersusCons.OPP_LEFT:
+                closed = true;
+                listener.onOpponentLeft();
+                break;
+            case VersusCons.ERROR:
+                int code = length > 0 ? payload[0] : 0;
+                listener.onError(code == VersusCons.ERROR_BAD_REVEAL ? "A hand did not match its commitment"
+                        : code == VersusCons.ERROR_REVEAL_TIMEOUT ? "Timed out revealing the hand" : "Server error");
+                break;
+            default:
+                break;
+        }
+    }
+}
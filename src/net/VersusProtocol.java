@@ -0,0 +1,118 @@
+package net;
+
+import logic.Match;
+import utils.Constants.VersusCons;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * Helpers shared by VersusServer and VersusClient for the versus wire protocol.
+ * Message types and sizes are defined in Constants.VersusCons.
+ *
+ * Hands are exchanged with commit-reveal: a client first sends a hash of its hand
+ * and a random nonce, and only reveals the hand once both sides have committed.
+ * The opponent's hash is forwarded, so each client can check the other's reveal too.
+ */
+public class VersusProtocol
+{
+    /**
+     * Builds a frame ready to be written.
+     *
+     * @param type Message type
+     * @param payload Payload bytes (at most 255)
+     * @return A buffer positioned at the start of the frame
+     */
+    public static ByteBuffer frame(int type, byte... payload)
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(2 + payload.length);
+        buffer.put((byte) type).put((byte) payload.length).put(payload);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Computes the commitment for a hand.
+     *
+     * @param hand The hand being committed to
+     * @param nonce Random bytes that keep the hand from being guessed from the hash
+     * @return SHA-256 of the hand followed by the nonce
+     */
+    public static byte[] commitment(int hand, byte[] nonce)
+    {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((byte) hand);
+            digest.update(nonce);
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Checks a revealed hand against an earlier commitment.
+     */
+    public static boolean verify(byte[] commitment, int hand, byte[] nonce)
+    {
+        return commitment != null && nonce != null && nonce.length == VersusCons.NONCE_SIZE &&
+                MessageDigest.isEqual(commitment, commitment(hand, nonce));
+    }
+
+    /**
+     * Turns an outcome around, for the other side of the match.
+     */
+    public static int flipOutcome(int outcome)
+    {
+        if (outcome == Match.PLAYER_WIN) return Match.COMPUTER_WIN;
+        if (outcome == Match.COMPUTER_WIN) return Match.PLAYER_WIN;
+        return outcome;
+    }
+
+    /**
+     * Encodes a player name for HELLO, cut to MAX_NAME_BYTES of UTF-8 without splitting a character.
+     */
+    public static byte[] encodeName(String name)
+    {
+        if (name == null) return new byte[0];
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= VersusCons.MAX_NAME_BYTES) return bytes;
+        int end = VersusCons.MAX_NAME_BYTES;
+        while (end > 0 && (bytes[end] & 0xC0) == 0x80) end--; // Back to the start of a character
+        return Arrays.copyOf(bytes, end);
+    }
+
+    /**
+     * Decodes the player name of a HELLO.
+     *
+     * @return The name, or null if the client sent none
+     */
+    public static String decodeName(byte[] payload)
+    {
+        String name = new String(payload, 0, Math.min(payload.length, VersusCons.MAX_NAME_BYTES), StandardCharsets.UTF_8).trim();
+        return name.isEmpty() ? null : name;
+    }
+
+    /**
+     * Encodes a rating as an unsigned 16-bit big-endian number, clamped to fit.
+     */
+    public static void writeRating(byte[] payload, int offset, double rating)
+    {
+        int value = (int) Math.max(0, Math.min(0xFFFF, Math.round(rating)));
+        payload[offset] = (byte) (value >>> 8);
+        payload[offset + 1] = (byte) value;
+    }
+
+    public static int readShort(byte[] payload, int offset)
+    {
+        return (payload[offset] & 0xFF) << 8 | payload[offset + 1] & 0xFF;
+    }
+
+    public static byte[] slice(byte[] payload, int from, int length)
+    {
+        return Arrays.copyOfRange(payload, from, from + length);
+    }
+}
@@ -0,0 +1,479 @@
+package net;
+
+import logic.Match;
+import logic.RuleSet;
+import logic.SkillRating;
+import utils.Constants.VersusCons;
+import utils.Constants.playingUICons;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+
+/**
+ * Hosts versus matches between clients on the LAN.
+ * Every connection of every match is served by one selector thread, so a single
+ * machine can host hundreds of matches at once.
+ *
+ * Clients are paired by skill through a MatchmakingQueue. Each player has a Glicko-2
+ * SkillRating, kept under the name they send with HELLO for as long as the server
+ * runs; a client without a name plays at the initial rating and is not rated. A match
+ * is rated as one rating period from its decided rounds when it ends, restarts or is
+ * left, unless both sides have the same name.
+ *
+ * The server holds the authoritative Match: it verifies each reveal against the
+ * commit, resolves the round with the same rules as the single player game, and
+ * sends both sides the result and lives. Once both sides have committed, each has
+ * REVEAL_TIMEOUT_NANOS to reveal; a side that has not forfeits the round and is
+ * dropped, so a client that never reveals cannot stall the match.
+ *
+ * Usage: java net.VersusServer [port]
+ */
+public final class VersusServer implements Runnable
+{
+    /**
+     * One connected client.
+     */
+    private static class Peer
+    {
+        final SocketChannel channel;
+        final ByteBuffer in = ByteBuffer.allocate(VersusCons.MAX_FRAME * 2);
+        final ArrayDeque<ByteBuffer> out = new ArrayDeque<>();
+        SelectionKey key;
+        ServerMatch match; // Null while waiting for an opponent
+        int side;          // 0 or 1 within the match
+        String name;       // Null if the client sent none
+        MatchmakingQueue.Ticket<Peer> ticket; // Place in the queue, done once paired
+
+        Peer(SocketChannel channel)
+        {
+            this.channel = channel;
+        }
+    }
+
+    /**
+     * A match between two peers.
+     */
+    private static class ServerMatch
+    {
+        final Peer[] peers = new Peer[2];
+        final Match match = new Match(0); // Seed unused, both hands come from the players
+        final byte[][] commits = new byte[2][];
+        final byte[][] nonces = new byte[2][];
+        final int[] hands = {-1, -1};
+        final int[] roundsWon = new int[2]; // Decided rounds since the match was last rated
+        long revealDeadline;                // 0 unless waiting for reveals
+
+        void clearRound()
+        {
+            commits[0] = commits[1] = null;
+            nonces[0] = nonces[1] = null;
+            hands[0] = hands[1] = -1;
+            revealDeadline = 0;
+        }
+    }
+
+    /**
+     * When a match's reveals are due. Stale once the match has moved on to another round.
+     */
+    private static class RevealDeadline
+    {
+        final ServerMatch match;
+        final long at;
+
+        RevealDeadline(ServerMatch match, long at)
+        {
+            this.match = match;
+            this.at = at;
+        }
+    }
+
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final MatchmakingQueue<Peer> queue = new MatchmakingQueue<>((first, second, now) ->
+            pair(first.getPlayer(), second.getPlayer()));
+    private final HashMap<String, SkillRating> ratings = new HashMap<>();
+    private final ArrayDeque<RevealDeadline> revealDeadlines = new ArrayDeque<>(); // In deadline order, the timeout is fixed
+    private volatile boolean running = true;
+    private int activeMatches;
+
+    /**
+     * Opens the listening socket.
+     *
+     * @param port Port to listen on, 0 for any free port
+     * @throws IOException If the port cannot be opened
+     */
+    public VersusServer(int port) throws IOException
+    {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    public int getPort()
+    {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Starts serving on a daemon thread.
+     */
+    public Thread start()
+    {
+        Thread thread = new Thread(this, "versus-server");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    public void stop()
+    {
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * Selector loop: accepts clients, reads frames and flushes pending writes.
+     */
+    @Override
+    public void run()
+    {
+        try {
+            while (running)
+            {
+                long wake = Math.min(queue.nextRetry(), revealDeadlines.isEmpty() ? Long.MAX_VALUE : revealDeadlines.peek().at);
+                if (wake == Long.MAX_VALUE) selector.select();
+                else selector.select(Math.max(1, (wake - System.nanoTime() + 999_999) / 1_000_000));
+                long now = System.nanoTime();
+                queue.poll(now); // Widens the windows of whoever has waited long enough
+                expireReveals(now);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext())
+                {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+
+                    if (key.isAcceptable())
+                    {
+                        accept();
+                        continue;
+                    }
+                    Peer peer = (Peer) key.attachment();
+                    try {
+                        if (key.isReadable()) read(peer);
+                        if (key.isValid() && key.isWritable()) flush(peer);
+                    } catch (IOException e) {
+                        disconnect(peer);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Versus server stopped: " + e.getMessage());
+        } finally {
+            try {
+                for (SelectionKey key : selector.keys()) key.channel().close();
+                selector.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void accept() throws IOException
+    {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) return;
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        Peer peer = new Peer(channel);
+        peer.key = channel.register(selector, SelectionKey.OP_READ, peer);
+    }
+
+    /**
+     * Reads what is available and handles every complete frame.
+     */
+    private void read(Peer peer) throws IOException
+    {
+        if (peer.channel.read(peer.in) < 0)
+        {
+            disconnect(peer);
+            return;
+        }
+        peer.in.flip();
+        while (peer.in.remaining() >= 2)
+        {
+            int type = peer.in.get(peer.in.position()) & 0xFF;
+            int length = peer.in.get(peer.in.position() + 1) & 0xFF;
+            if (peer.in.remaining() < 2 + length) break;
+
+            peer.in.position(peer.in.position() + 2);
+            byte[] payload = new byte[length];
+            peer.in.get(payload);
+            handle(peer, type, payload);
+            if (!peer.channel.isOpen()) return;
+        }
+        peer.in.compact();
+    }
+
+    /**
+     * Handles one message from a client. Messages that make no sense in the
+     * current state of the match are ignored.
+     */
+    private void handle(Peer peer, int type, byte[] payload) throws IOException
+    {
+        ServerMatch sm = peer.match;
+        switch (type) {
+            case VersusCons.HELLO:
+                if (sm != null || peer.ticket != null && !peer.ticket.isDone()) return;
+                peer.name = VersusProtocol.decodeName(payload);
+                peer.ticket = queue.enqueue(peer, getRating(peer.name).getRating(), System.nanoTime());
+                if (!peer.ticket.isDone()) send(peer, VersusCons.WAITING);
+                break;
+            case VersusCons.COMMIT:
+                if (sm == null || sm.commits[peer.side] != null || payload.length != VersusCons.HASH_SIZE) return;
+                sm.commits[peer.side] = payload;
+                send(other(peer), VersusCons.OPP_COMMIT, payload);
+                if (sm.commits[1 - peer.side] != null)
+                {
+                    sm.revealDeadline = System.nanoTime() + VersusCons.REVEAL_TIMEOUT_NANOS;
+                    revealDeadlines.add(new RevealDeadline(sm, sm.revealDeadline));
+                    send(sm.peers[0], VersusCons.REVEAL_REQUEST);
+                    send(sm.peers[1], VersusCons.REVEAL_REQUEST);
+                }
+                break;
+            case VersusCons.REVEAL:
+                if (sm == null || sm.commits[0] == null || sm.commits[1] == null || sm.hands[peer.side] != -1) return;
+                if (payload.length != 1 + VersusCons.NONCE_SIZE) return;
+                int hand = payload[0];
+                byte[] nonce = VersusProtocol.slice(payload, 1, VersusCons.NONCE_SIZE);
+                if (hand < 0 || hand >= RuleSet.getActive().getWeaponCount() ||
+                        !VersusProtocol.verify(sm.commits[peer.side], hand, nonce))
+                {
+                    send(other(peer), VersusCons.ERROR, (byte) VersusCons.ERROR_BAD_REVEAL);
+                    send(peer, VersusCons.ERROR, (byte) VersusCons.ERROR_BAD_REVEAL);
+                    disconnect(peer);
+                    return;
+                }
+                sm.hands[peer.side] = hand;
+                sm.nonces[peer.side] = nonce;
+                if (sm.hands[1 - peer.side] != -1)
+                {
+                    resolve(sm);
+                }
+                break;
+            case VersusCons.PAUSE:
+                if (sm == null || payload.length != 1) return;
+                send(other(peer), VersusCons.OPP_PAUSE, payload[0]);
+                break;
+            case VersusCons.RETRY:
+                if (sm == null) return;
+                rate(sm);
+                sm.match.restart();
+                sm.clearRound();
+                send(sm.peers[0], VersusCons.RESTART, (byte) sm.match.getPlayerLives());
+                send(sm.peers[1], VersusCons.RESTART, (byte) sm.match.getComputerLives());
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Starts a match between two players the queue has paired, and tells each their ratings.
+     */
+    private void pair(Peer first, Peer second)
+    {
+        ServerMatch sm = new ServerMatch();
+        sm.peers[0] = first;
+        sm.peers[1] = second;
+        first.match = second.match = sm;
+        first.side = 0;
+        second.side = 1;
+        activeMatches++;
+        for (Peer peer : sm.peers)
+        {
+            if (peer.match != sm) return; // The first could not be told and has left
+            byte[] payload = {(byte) peer.side, (byte) playingUICons.TOTAL_HEARTS, 0, 0, 0, 0};
+            VersusProtocol.writeRating(payload, 2, getRating(peer.name).getRating());
+            VersusProtocol.writeRating(payload, 4, getRating(other(peer).name).getRating());
+            try {
+                send(peer, VersusCons.MATCHED, payload);
+            } catch (IOException e) {
+                disconnect(peer);
+            }
+        }
+    }
+
+    /**
+     * Rates the rounds of a match decided since it was last rated, as one Glicko-2 rating period.
+     */
+    private void rate(ServerMatch sm)
+    {
+        String first = sm.peers[0].name, second = sm.peers[1].name;
+        int won = sm.roundsWon[0], lost = sm.roundsWon[1];
+        sm.roundsWon[0] = sm.roundsWon[1] = 0;
+        if (won + lost == 0 || first != null && first.equals(second)) return;
+
+        SkillRating a = getRating(first), b = getRating(second);
+        if (first != null) ratings.put(first, a.rate(b, won, lost));
+        if (second != null) ratings.put(second, b.rate(a, lost, won));
+    }
+
+    /**
+     * Retrieves a player's rating, the initial one if they have not been rated. Only accurate from the server thread.
+     *
+     * @param name Name the player sent with HELLO, or null
+     */
+    public SkillRating getRating(String name)
+    {
+        SkillRating rating = name != null ? ratings.get(name) : null;
+        return rating != null ? rating : SkillRating.initial();
+    }
+
+    /**
+     * Resolves a fully revealed round and sends each side the result from its own point of view.
+     * Side 0 is the match's "player", side 1 its "computer".
+     */
+    private void resolve(ServerMatch sm) throws IOException
+    {
+        Match match = sm.match;
+        match.nextRound(); // Refills the lives if the previous round ended the match
+        int outcome = match.resolveRound(sm.hands[0], sm.hands[1]);
+        if (outcome == Match.PLAYER_WIN) sm.roundsWon[0]++;
+        else if (outcome == Match.COMPUTER_WIN) sm.roundsWon[1]++;
+        if (match.isGameOver()) rate(sm);
+        byte over = (byte) (match.isGameOver() ? 1 : 0);
+
+        send(sm.peers[0], VersusCons.RESULT, concat(new byte[]{
+                (byte) sm.hands[0], (byte) sm.hands[1], (byte) outcome,
+                (byte) match.getPlayerLives(), (byte) match.getComputerLives(), over}, sm.nonces[1]));
+        send(sm.peers[1], VersusCons.RESULT, concat(new byte[]{
+                (byte) sm.hands[1], (byte) sm.hands[0], (byte) VersusProtocol.flipOutcome(outcome),
+                (byte) match.getComputerLives(), (byte) match.getPlayerLives(), over}, sm.nonces[0]));
+        sm.clearRound();
+    }
+
+    /**
+     * Drops every side that has not revealed by its match's deadline. The round counts as
+     * won by the side that did reveal, so leaving rather than revealing a loss does not pay.
+     */
+    private void expireReveals(long now)
+    {
+        while (!revealDeadlines.isEmpty() && revealDeadlines.peek().at - now <= 0)
+        {
+            RevealDeadline deadline = revealDeadlines.poll();
+            ServerMatch sm = deadline.match;
+            if (sm.revealDeadline != deadline.at) continue; // Revealed in time, or the match is over
+
+            sm.revealDeadline = 0;
+            for (int side = 0; side < 2; side++)
+            {
+                if (sm.hands[side] != -1 && sm.hands[1 - side] == -1) sm.roundsWon[side]++;
+            }
+            for (Peer peer : sm.peers)
+            {
+                if (sm.hands[peer.side] != -1) continue;
+                try {
+                    send(peer, VersusCons.ERROR, (byte) VersusCons.ERROR_REVEAL_TIMEOUT);
+                } catch (IOException ignored) {
+                    // Dropped below either way
+                }
+                disconnect(peer);
+            }
+        }
+    }
+
+    private static byte[] concat(byte[] a, byte[] b)
+    {
+        byte[] result = new byte[a.length + b.length];
+        System.arraycopy(a, 0, result, 0, a.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+    private static Peer other(Peer peer)
+    {
+        return peer.match.peers[1 - peer.side];
+    }
+
+    /**
+     * Queues a frame and writes as much of it as the socket takes right away.
+     */
+    private void send(Peer peer, int type, byte... payload) throws IOException
+    {
+        if (peer == null || !peer.channel.isOpen()) return;
+        peer.out.add(VersusProtocol.frame(type, payload));
+        flush(peer);
+    }
+
+    private void flush(Peer peer) throws IOException
+    {
+        while (!peer.out.isEmpty())
+        {
+            ByteBuffer buffer = peer.out.peek();
+            peer.channel.write(buffer);
+            if (buffer.hasRemaining()) break; // Socket full, wait for OP_WRITE
+            peer.out.poll();
+        }
+        if (peer.key.isValid())
+        {
+            peer.key.interestOps(peer.out.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+    }
+
+    /**
+     * Closes a client and tells its opponent.
+     */
+    private void disconnect(Peer peer)
+    {
+        if (peer.ticket != null) queue.cancel(peer.ticket);
+        ServerMatch sm = peer.match;
+        if (sm != null)
+        {
+            rate(sm);
+            sm.revealDeadline = 0;
+            peer.match = null;
+            Peer opponent = sm.peers[1 - peer.side];
+            if (opponent != null && opponent.match == sm)
+            {
+                opponent.match = null;
+                activeMatches--;
+                try {
+                    send(opponent, VersusCons.OPP_LEFT);
+                } catch (IOException e) {
+                    disconnect(opponent);
+                }
+            }
+        }
+        peer.key.cancel();
+        try {
+            peer.channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Retrieves the number of matches currently being played. Only accurate from the server thread.
+     */
+    public int getActiveMatches()
+    {
+        return activeMatches;
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : VersusCons.DEFAULT_PORT;
+        VersusServer server = new VersusServer(port);
+        System.out.println("Versus server listening on port " + server.getPort());
+        server.run();
+    }
+}
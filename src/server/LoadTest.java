@@ -0,0 +1,248 @@
+package server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.SplittableRandom;
+
+/**
+ * Drives many simulated players against a MatchServer over loopback HTTP and
+ * reports the round latency percentiles.
+ *
+ * Every player has its own match and plays its rounds one after another. Players
+ * share a fixed set of keep-alive connections, which caps the requests on the wire
+ * (each connection needs a file descriptor on both ends when the server runs in
+ * this JVM). The client is a small single-threaded NIO loop, so nearly all the
+ * CPU time measured goes to the server.
+ *
+ * Usage: java server.LoadTest [players] [rounds] [connections] [http://host:port]
+ * Without a URL a server is started in this JVM.
+ */
+public class LoadTest
+{
+    /**
+     * One simulated player: creates a match, then plays its rounds.
+     */
+    private static class Player
+    {
+        final SplittableRandom random;
+        long matchId = -1;
+        int roundsLeft;
+
+        Player(long seed, int rounds)
+        {
+            random = new SplittableRandom(seed);
+            roundsLeft = rounds;
+        }
+    }
+
+    /**
+     * A keep-alive connection carrying one player's request at a time.
+     */
+    private static class Connection
+    {
+        final SocketChannel channel;
+        final ByteBuffer in = ByteBuffer.allocate(4096);
+        SelectionKey key;
+        ByteBuffer out;
+        Player player; // Player whose request is on the wire, null when idle
+        long sentAt;
+
+        Connection(SocketChannel channel)
+        {
+            this.channel = channel;
+        }
+    }
+
+    private final InetSocketAddress address;
+    private final String host;
+    private final ArrayDeque<Player> ready = new ArrayDeque<>();
+    private final long[] latencies;
+    private int recorded, failures, remaining;
+
+    private LoadTest(URI base, int players, int rounds)
+    {
+        host = base.getHost() + ":" + base.getPort();
+        address = new InetSocketAddress(base.getHost(), base.getPort());
+        latencies = new long[players * rounds];
+        remaining = players;
+        SplittableRandom seeds = new SplittableRandom(42);
+        for (int i = 0; i < players; i++)
+        {
+            ready.add(new Player(seeds.nextLong(), rounds));
+        }
+    }
+
+    /**
+     * Plays every player's rounds over the given number of connections.
+     */
+    private void run(int connections) throws IOException
+    {
+        Selector selector = Selector.open();
+        for (int i = 0; i < connections; i++)
+        {
+            SocketChannel channel = SocketChannel.open(address);
+            channel.setOption(java.net.StandardSocketOptions.TCP_NODELAY, true);
+            channel.configureBlocking(false);
+            Connection connection = new Connection(channel);
+            connection.key = channel.register(selector, 0, connection);
+            sendNext(connection);
+        }
+
+        while (remaining > 0)
+        {
+            selector.select();
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext())
+            {
+                SelectionKey key = keys.next();
+                keys.remove();
+                Connection connection = (Connection) key.attachment();
+                if (key.isWritable())
+                {
+                    write(connection);
+                } else if (key.isReadable())
+                {
+                    read(connection);
+                }
+            }
+        }
+
+        for (SelectionKey key : selector.keys()) key.channel().close();
+        selector.close();
+    }
+
+    /**
+     * Puts the next waiting player's request on an idle connection.
+     */
+    private void sendNext(Connection connection) throws IOException
+    {
+        Player player = ready.poll();
+        connection.player = player;
+        if (player == null)
+        {
+            connection.key.interestOps(0); // No players left waiting
+            return;
+        }
+        String path = player.matchId < 0 ? "/matches" : "/matches/" + player.matchId + "/rounds?hand=" + player.random.nextInt(3);
+        connection.out = ByteBuffer.wrap(("POST " + path + " HTTP/1.1\r\nHost: " + host +
+                "\r\nContent-Length: 0\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        connection.sentAt = System.nanoTime();
+        write(connection);
+    }
+
+    private void write(Connection connection) throws IOException
+    {
+        connection.channel.write(connection.out);
+        connection.key.interestOps(connection.out.hasRemaining() ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+    }
+
+    /**
+     * Reads a response; once it is complete, records it and moves the player on.
+     */
+    private void read(Connection connection) throws IOException
+    {
+        if (connection.channel.read(connection.in) < 0)
+        {
+            throw new IOException("Server closed a connection");
+        }
+        String text = new String(connection.in.array(), 0, connection.in.position(), StandardCharsets.US_ASCII);
+        int headerEnd = text.indexOf("\r\n\r\n");
+        if (headerEnd < 0) return;
+        int lengthAt = text.toLowerCase().indexOf("content-length:");
+        int bodyLength = 0;
+        if (lengthAt >= 0 && lengthAt < headerEnd)
+        {
+            bodyLength = Integer.parseInt(text.substring(lengthAt + 15, text.indexOf("\r\n", lengthAt)).trim());
+        }
+        if (text.length() < headerEnd + 4 + bodyLength) return;
+
+        long nanos = System.nanoTime() - connection.sentAt;
+        int status = Integer.parseInt(text.substring(9, 12));
+        String body = text.substring(headerEnd + 4, headerEnd + 4 + bodyLength);
+        connection.in.clear();
+
+        Player player = connection.player;
+        if (status >= 300)
+        {
+            failures++;
+            remaining--;
+        } else if (player.matchId < 0)
+        {
+            player.matchId = parseId(body);
+            ready.add(player);
+        } else {
+            latencies[recorded++] = nanos;
+            if (--player.roundsLeft > 0) ready.add(player);
+            else remaining--;
+        }
+        sendNext(connection);
+    }
+
+    private static long parseId(String json)
+    {
+        int start = json.indexOf("\"id\":") + 5;
+        int end = start;
+        while (end < json.length() && Character.isDigit(json.charAt(end))) end++;
+        return Long.parseLong(json.substring(start, end));
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        int players = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int connections = args.length > 2 ? Integer.parseInt(args[2]) : 1_000;
+
+        MatchServer server = null;
+        URI base;
+        if (args.length > 3)
+        {
+            base = URI.create(args[3]);
+        } else {
+            server = new MatchServer(0, 0);
+            server.start();
+            base = URI.create("http://127.0.0.1:" + server.getHttpPort());
+        }
+
+        try {
+            // Short warm up so the JIT has compiled the request path
+            new LoadTest(base, Math.min(players, 1_000), 20).run(Math.min(connections, 100));
+
+            LoadTest test = new LoadTest(base, players, rounds);
+            long start = System.nanoTime();
+            test.run(Math.min(connections, players));
+            long elapsed = System.nanoTime() - start;
+
+            long[] sorted = Arrays.copyOf(test.latencies, test.recorded);
+            Arrays.sort(sorted);
+            System.out.println("Players:       " + players + " (" + rounds + " rounds each, " + connections + " connections)");
+            System.out.println("Rounds:        " + test.recorded + " in " + elapsed / 1_000_000 + " ms (" +
+                    (long) (test.recorded / (elapsed / 1e9)) + " rounds/s)");
+            System.out.println("Failures:      " + test.failures);
+            if (test.recorded > 0)
+            {
+                System.out.println("Round latency: p50 " + micros(sorted, 0.50) + " us, p99 " + micros(sorted, 0.99) +
+                        " us, max " + sorted[sorted.length - 1] / 1000 + " us");
+            }
+            if (server != null)
+            {
+                System.out.println("Matches held:  " + server.getRegistry().size());
+            }
+        } finally {
+            if (server != null) server.stop();
+        }
+    }
+
+    private static long micros(long[] sorted, double percentile)
+    {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * percentile))] / 1000;
+    }
+}
@@ -0,0 +1,146 @@
+package server;
+
+import logic.Match;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds every match served by the MatchServer, keyed by match id.
+ *
+ * The map is split into a power of two number of shards, each a plain HashMap
+ * behind its own lock, so requests for different matches rarely wait on each
+ * other. A match itself is only ever used while holding its Entry's lock.
+ */
+public class MatchRegistry
+{
+    /**
+     * A match and the time it was last played, used to drop abandoned matches.
+     */
+    public static class Entry
+    {
+        public final long id;
+        public final Match match;
+        volatile long lastUsed;
+
+        Entry(long id, Match match)
+        {
+            this.id = id;
+            this.match = match;
+            lastUsed = System.currentTimeMillis();
+        }
+
+        public void touch()
+        {
+            lastUsed = System.currentTimeMillis();
+        }
+    }
+
+    private final HashMap<Long, Entry>[] shards;
+    private final int mask;
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final SplittableRandom seedSource = new SplittableRandom();
+
+    /**
+     * @param shardCount Number of shards, rounded up to a power of two
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public MatchRegistry(int shardCount)
+    {
+        int count = Integer.highestOneBit(Math.max(1, shardCount - 1)) << 1;
+        shards = new HashMap[count];
+        for (int i = 0; i < count; i++)
+        {
+            shards[i] = new HashMap<>();
+        }
+        mask = count - 1;
+    }
+
+    /**
+     * Creates a match with a fresh seed.
+     */
+    public Entry create()
+    {
+        long seed;
+        synchronized (seedSource)
+        {
+            seed = seedSource.nextLong();
+        }
+        Entry entry = new Entry(nextId.getAndIncrement(), new Match(seed));
+        HashMap<Long, Entry> shard = shardFor(entry.id);
+        synchronized (shard)
+        {
+            shard.put(entry.id, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Retrieves a match, or null if there is no match with that id.
+     */
+    public Entry get(long id)
+    {
+        HashMap<Long, Entry> shard = shardFor(id);
+        synchronized (shard)
+        {
+            return shard.get(id);
+        }
+    }
+
+    public Entry remove(long id)
+    {
+        HashMap<Long, Entry> shard = shardFor(id);
+        synchronized (shard)
+        {
+            return shard.remove(id);
+        }
+    }
+
+    /**
+     * Drops the matches nobody has played since the given time. Locks one shard at a time.
+     *
+     * @return The number of matches dropped
+     */
+    public int removeIdle(long unusedSince)
+    {
+        int removed = 0;
+        for (HashMap<Long, Entry> shard : shards)
+        {
+            synchronized (shard)
+            {
+                Iterator<Entry> entries = shard.values().iterator();
+                while (entries.hasNext())
+                {
+                    if (entries.next().lastUsed < unusedSince)
+                    {
+                        entries.remove();
+                        removed++;
+                    }
+                }
+            }
+        }
+        return removed;
+    }
+
+    public int size()
+    {
+        int size = 0;
+        for (HashMap<Long, Entry> shard : shards)
+        {
+            synchronized (shard)
+            {
+                size += shard.size();
+            }
+        }
+        return size;
+    }
+
+    private HashMap<Long, Entry> shardFor(long id)
+    {
+        // Ids are sequential, mix the bits so neighbouring ids land in different shards
+        long h = id * 0x9E3779B97F4A7C15L;
+        return shards[(int) (h >>> 32) & mask];
+    }
+}
@@ -0,0 +1,313 @@
+package server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import logic.Match;
+import logic.RuleSet;
+import utils.Constants.ServerCons;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves Bato Bato Pik matches against the computer without any UI.
+ * The rules and lives are the same Match the Swing game plays.
+ *
+ * HTTP (JSON responses):
+ *   POST   /matches                     creates a match
+ *   GET    /matches/{id}                current lives
+ *   POST   /matches/{id}/rounds?hand=H  plays a round, H is a weapon of the active rule set (-Dbbp.rules)
+ *                                       by index, id or label, e.g. 0-2, rock/paper/scissors or bato/papel/gunting
+ *   DELETE /matches/{id}                ends a match
+ *
+ * WebSocket (text messages, one match per connection):
+ *   "new"     creates or restarts the connection's match
+ *   "play H"  plays a round
+ *
+ * Requests run on virtual threads, one per request or WebSocket connection.
+ */
+public class MatchServer
+{
+    static {
+        // The JDK server writes the headers and body separately; with Nagle's algorithm on, every
+        // response would wait out the client's delayed ACK (about 40 ms on loopback)
+        setDefault("sun.net.httpserver.nodelay", "true");
+        // By default it closes keep-alive connections past the first 200 idle ones,
+        // and a player between two rounds holds an idle connection
+        setDefault("sun.net.httpserver.maxIdleConnections", String.valueOf(ServerCons.MAX_IDLE_CONNECTIONS));
+    }
+
+    private static void setDefault(String property, String value)
+    {
+        if (System.getProperty(property) == null)
+        {
+            System.setProperty(property, value);
+        }
+    }
+
+    private final MatchRegistry registry = new MatchRegistry(ServerCons.MATCH_SHARDS);
+    private final HttpServer http;
+    private final ServerSocket webSocket;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "match-sweeper");
+        t.setDaemon(true);
+        return t;
+    });
+    private volatile boolean running;
+
+    /**
+     * Opens both ports. Pass 0 for either port to use any free port.
+     *
+     * @throws IOException If a port cannot be opened
+     */
+    public MatchServer(int httpPort, int webSocketPort) throws IOException
+    {
+        http = HttpServer.create(new InetSocketAddress(httpPort), ServerCons.BACKLOG);
+        http.createContext("/matches", this::handleHttp);
+        http.setExecutor(executor);
+        webSocket = new ServerSocket(webSocketPort, ServerCons.BACKLOG);
+    }
+
+    public void start()
+    {
+        running = true;
+        http.start();
+        Thread acceptor = new Thread(this::acceptWebSockets, "websocket-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        sweeper.scheduleWithFixedDelay(() -> {
+            int removed = registry.removeIdle(System.currentTimeMillis() - ServerCons.MATCH_IDLE_TIMEOUT_MS);
+            if (removed > 0)
+            {
+                System.out.println("Dropped " + removed + " idle matches");
+            }
+        }, ServerCons.SWEEP_INTERVAL_MS, ServerCons.SWEEP_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop()
+    {
+        running = false;
+        http.stop(0);
+        try {
+            webSocket.close();
+        } catch (IOException ignored) {
+        }
+        sweeper.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    public int getHttpPort()
+    {
+        return http.getAddress().getPort();
+    }
+
+    public int getWebSocketPort()
+    {
+        return webSocket.getLocalPort();
+    }
+
+    public MatchRegistry getRegistry()
+    {
+        return registry;
+    }
+
+    /**
+     * Plays one round of a match and describes it as JSON.
+     * A round played after the match ended starts the next match, like pressing Enter in the game.
+     */
+    static String playRound(MatchRegistry.Entry entry, int hand)
+    {
+        Match match = entry.match;
+        synchronized (entry)
+        {
+            entry.touch();
+            match.nextRound();
+            int outcome = match.playRound(hand);
+            return "{\"id\":" + entry.id +
+                    ",\"playerHand\":" + match.getPlayerHand() +
+                    ",\"computerHand\":" + match.getComputerHand() +
+                    ",\"outcome\":\"" + outcomeName(outcome) + "\"" +
+                    ",\"playerLives\":" + match.getPlayerLives() +
+                    ",\"computerLives\":" + match.getComputerLives() +
+                    ",\"gameOver\":" + match.isGameOver() + "}";
+        }
+    }
+
+    static String describe(MatchRegistry.Entry entry)
+    {
+        synchronized (entry)
+        {
+            return "{\"id\":" + entry.id +
+                    ",\"playerLives\":" + entry.match.getPlayerLives() +
+                    ",\"computerLives\":" + entry.match.getComputerLives() +
+                    ",\"gameOver\":" + entry.match.isGameOver() + "}";
+        }
+    }
+
+    static String outcomeName(int outcome)
+    {
+        if (outcome == Match.PLAYER_WIN) return "player";
+        if (outcome == Match.COMPUTER_WIN) return "computer";
+        return "tie";
+    }
+
+    /**
+     * Parses a hand given as its index, its name or its label (rock, bato, ...).
+     *
+     * @return The hand, or -1 if it is not a hand
+     */
+    static int parseHand(String text)
+    {
+        if (text == null) return -1;
+        return RuleSet.getActive().indexOf(text);
+    }
+
+    /**
+     * Builds the error for a hand that is not a weapon, listing the active rule set's weapons.
+     */
+    static String handError()
+    {
+        RuleSet rules = RuleSet.getActive();
+        StringBuilder message = new StringBuilder("hand must be 0-").append(rules.getWeaponCount() - 1).append(" or ");
+        for (int i = 0; i < rules.getWeaponCount(); i++)
+        {
+            if (i > 0) message.append(", ");
+            message.append(rules.getWeapon(i));
+        }
+        return error(message.toString());
+    }
+
+    /**
+     * Builds an error response. The message is escaped, weapon names come from rule files.
+     */
+    static String error(String message)
+    {
+        StringBuilder json = new StringBuilder("{\"error\":\"");
+        for (int i = 0; i < message.length(); i++)
+        {
+            char c = message.charAt(i);
+            if (c == '"' || c == '\\')
+            {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append("\"}").toString();
+    }
+
+    // HTTP
+
+    private void handleHttp(HttpExchange exchange) throws IOException
+    {
+        try {
+            String method = exchange.getRequestMethod();
+            String[] parts = exchange.getRequestURI().getPath().split("/"); // "", "matches", id, "rounds"
+
+            if (parts.length == 2 && method.equals("POST"))
+            {
+                respond(exchange, 201, describe(registry.create()));
+                return;
+            }
+            long id = parts.length >= 3 ? parseId(parts[2]) : -1;
+            MatchRegistry.Entry entry = id > 0 ? registry.get(id) : null;
+            if (entry == null)
+            {
+                respond(exchange, 404, error("no such match"));
+                return;
+            }
+
+            if (parts.length == 3 && method.equals("GET"))
+            {
+                respond(exchange, 200, describe(entry));
+            } else if (parts.length == 3 && method.equals("DELETE"))
+            {
+                registry.remove(id);
+                respond(exchange, 204, null);
+            } else if (parts.length == 4 && parts[3].equals("rounds") && method.equals("POST"))
+            {
+                int hand = parseHand(queryParameter(exchange.getRequestURI().getRawQuery(), "hand"));
+                if (hand < 0)
+                {
+                    respond(exchange, 400, handError());
+                } else {
+                    respond(exchange, 200, playRound(entry, hand));
+                }
+            } else {
+                respond(exchange, 405, error("unsupported request"));
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException
+    {
+        exchange.getRequestBody().readAllBytes(); // Drain so the connection can be kept alive
+        if (json == null)
+        {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody())
+        {
+            out.write(body);
+        }
+    }
+
+    private static long parseId(String text)
+    {
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String queryParameter(String query, String name)
+    {
+        if (query == null) return null;
+        for (String pair : query.split("&"))
+        {
+            int eq = pair.indexOf('=');
+            if (eq > 0 && pair.substring(0, eq).equals(name))
+            {
+                return pair.substring(eq + 1);
+            }
+        }
+        return null;
+    }
+
+    // WebSocket
+
+    private void acceptWebSockets()
+    {
+        while (running)
+        {
+            try {
+                Socket socket = webSocket.accept();
+                socket.setTcpNoDelay(true);
+                executor.execute(new WebSocketSession(socket, registry));
+            } catch (IOException e) {
+                if (running)
+                {
+                    System.err.println("WebSocket accept failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package server;
+
+import utils.Constants.ServerCons;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * One WebSocket connection to the MatchServer (RFC 6455, text messages only).
+ * Each connection plays its own match, which is removed when the connection closes.
+ */
+class WebSocketSession implements Runnable
+{
+    private static final String ACCEPT_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+
+    // Frame opcodes
+    private static final int TEXT = 0x1, CLOSE = 0x8, PING = 0x9, PONG = 0xA;
+
+    private final Socket socket;
+    private final MatchRegistry registry;
+    private MatchRegistry.Entry entry; // The connection's match, created by "new"
+
+    WebSocketSession(Socket socket, MatchRegistry registry)
+    {
+        this.socket = socket;
+        this.registry = registry;
+    }
+
+    @Override
+    public void run()
+    {
+        try (Socket s = socket)
+        {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+            OutputStream out = new BufferedOutputStream(s.getOutputStream());
+            if (!handshake(in, out)) return;
+
+            byte[] payload = new byte[ServerCons.MAX_WS_MESSAGE];
+            while (true)
+            {
+                int first = in.readUnsignedByte();
+                int second = in.readUnsignedByte();
+                int opcode = first & 0x0F;
+                long length = second & 0x7F;
+                if (length == 126) length = in.readUnsignedShort();
+                else if (length == 127) length = in.readLong();
+                if ((second & 0x80) == 0 || (first & 0x80) == 0 || length > payload.length)
+                {
+                    // Clients must mask, and fragmented or oversized messages are not supported
+                    sendFrame(out, CLOSE, new byte[]{0x03, (byte) 0xF0}, 2); // 1008 policy violation
+                    return;
+                }
+                byte[] mask = new byte[4];
+                in.readFully(mask);
+                int n = (int) length;
+                in.readFully(payload, 0, n);
+                for (int i = 0; i < n; i++)
+                {
+                    payload[i] ^= mask[i & 3];
+                }
+
+                if (opcode == CLOSE)
+                {
+                    sendFrame(out, CLOSE, payload, Math.min(n, 2));
+                    return;
+                } else if (opcode == PING)
+                {
+                    sendFrame(out, PONG, payload, n);
+                } else if (opcode == TEXT)
+                {
+                    byte[] reply = handle(new String(payload, 0, n, StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8);
+                    sendFrame(out, TEXT, reply, reply.length);
+                }
+            }
+        } catch (IOException e) {
+            // Connection dropped, nothing to tell
+        } finally {
+            if (entry != null)
+            {
+                registry.remove(entry.id);
+            }
+        }
+    }
+
+    /**
+     * Handles one command and returns the JSON reply.
+     */
+    private String handle(String message)
+    {
+        String command = message.trim();
+        if (command.equals("new"))
+        {
+            if (entry != null) registry.remove(entry.id);
+            entry = registry.create();
+            return MatchServer.describe(entry);
+        }
+        if (command.startsWith("play "))
+        {
+            if (entry == null) return MatchServer.error("send new first");
+            int hand = MatchServer.parseHand(command.substring(5));
+            if (hand < 0) return MatchServer.handError();
+            return MatchServer.playRound(entry, hand);
+        }
+        return MatchServer.error("unknown command");
+    }
+
+    /**
+     * Reads the upgrade request and answers it.
+     *
+     * @return false if the request was not a WebSocket upgrade
+     */
+    private static boolean handshake(DataInputStream in, OutputStream out) throws IOException
+    {
+        String key = null;
+        String line;
+        while (!(line = readLine(in)).isEmpty())
+        {
+            int colon = line.indexOf(':');
+            if (colon > 0 && line.substring(0, colon).trim().equalsIgnoreCase("Sec-WebSocket-Key"))
+            {
+                key = line.substring(colon + 1).trim();
+            }
+        }
+        if (key == null)
+        {
+            out.write("HTTP/1.1 400 Bad Request\r\nContent-Length: 0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            return false;
+        }
+
+        String accept;
+        try {
+            MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+            accept = Base64.getEncoder().encodeToString(sha1.digest((key + ACCEPT_GUID).getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 not available", e);
+        }
+        out.write(("HTTP/1.1 101 Switching Protocols\r\n" +
+                "Upgrade: websocket\r\n" +
+                "Connection: Upgrade\r\n" +
+                "Sec-WebSocket-Accept: " + accept + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+        return true;
+    }
+
+    private static String readLine(DataInputStream in) throws IOException
+    {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != '\n')
+        {
+            if (c < 0) throw new IOException("Connection closed during handshake");
+            if (c != '\r') line.append((char) c);
+            if (line.length() > ServerCons.MAX_WS_MESSAGE) throw new IOException("Header line too long");
+        }
+        return line.toString();
+    }
+
+    /**
+     * Writes one unmasked, unfragmented frame.
+     */
+    private static void sendFrame(OutputStream out, int opcode, byte[] payload, int length) throws IOException
+    {
+        out.write(0x80 | opcode);
+        if (length < 126)
+        {
+            out.write(length);
+        } else {
+            out.write(126);
+            out.write(length >>> 8);
+            out.write(length);
+        }
+        out.write(payload, 0, length);
+        out.flush();
+    }
+}
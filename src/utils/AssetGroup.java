@@ -0,0 +1,52 @@
+package utils;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The images one screen holds through the AssetManager.
+ * A screen acquires its images when it is entered and releases them all at once on exit.
+ */
+public class AssetGroup
+{
+    private final List<String> paths = new ArrayList<>(); // Paths acquired and not yet released
+
+    /**
+     * Acquires an image for this screen.
+     *
+     * @param path Resource path of the image
+     * @return The decoded image, or null if the resource does not exist
+     * @throws IOException If the image cannot be read
+     */
+    public BufferedImage acquire(String path) throws IOException
+    {
+        BufferedImage image = AssetManager.acquire(path);
+        if (image != null)
+        {
+            paths.add(path);
+        }
+        return image;
+    }
+
+    /**
+     * Releases every image this screen acquired.
+     */
+    public void releaseAll()
+    {
+        for (String path : paths)
+        {
+            AssetManager.release(path);
+        }
+        paths.clear();
+    }
+
+    /**
+     * Checks if the screen currently holds its images.
+     */
+    public boolean isLoaded()
+    {
+        return !paths.isEmpty();
+    }
+}
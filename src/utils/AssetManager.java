@@ -0,0 +1,182 @@
+package utils;
+
+import utils.Constants.AssetCons;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Shares decoded images between screens and releases the ones no visible screen uses.
+ *
+ * Each image is reference counted. While at least one screen holds it, it stays
+ * decoded. Once released it is kept in a least-recently-used pool up to
+ * IMAGE_BUDGET_BYTES, and beyond that only through a SoftReference, so the GC
+ * can reclaim it. The PNG bytes stay in memory, so an evicted image is checked
+ * against its ImageCache file, or decoded again, without reading the resource twice.
+ */
+public class AssetManager
+{
+    /**
+     * Bookkeeping for one image resource.
+     */
+    private static class Entry
+    {
+        byte[] encoded;                      // PNG bytes as read from the resource
+        BufferedImage image;                 // Strong reference while in use or within budget
+        SoftReference<BufferedImage> soft;   // Left behind once evicted from the budget
+        int refCount;                        // Number of screens currently holding the image
+        long size;                           // Decoded size in bytes
+    }
+
+    private static final Map<String, Entry> entries = new HashMap<>();
+
+    // Released but still decoded images, least recently released first
+    private static final LinkedHashMap<String, Entry> released = new LinkedHashMap<>();
+    private static long releasedBytes = 0;
+
+    /**
+     * Acquires an image, decoding it if it is not in memory.
+     *
+     * @param path Resource path of the image
+     * @return The decoded image, or null if the resource does not exist
+     * @throws IOException If the image cannot be read
+     */
+    public static synchronized BufferedImage acquire(String path) throws IOException
+    {
+        Entry entry = entries.get(path);
+        if (entry == null)
+        {
+            entry = new Entry();
+            long start = StartupProfiler.start();
+            entry.encoded = readResource(path);
+            StartupProfiler.end("read " + path, start);
+            if (entry.encoded == null)
+            {
+                return null;
+            }
+            entries.put(path, entry);
+        }
+
+        if (released.remove(path) != null)
+        {
+            releasedBytes -= entry.size;
+        }
+
+        if (entry.image == null && entry.soft != null)
+        {
+            entry.image = entry.soft.get(); // Still around if the GC did not need the memory
+        }
+        if (entry.image == null)
+        {
+            entry.image = decode(path, entry.encoded);
+            entry.size = (long) entry.image.getWidth() * entry.image.getHeight() * 4;
+        }
+        entry.soft = null;
+        entry.refCount++;
+        return entry.image;
+    }
+
+    /**
+     * Loads an image from the pre-decoded cache, or decodes the PNG and caches it for the next launch.
+     */
+    private static BufferedImage decode(String path, byte[] png) throws IOException
+    {
+        long start = StartupProfiler.start();
+        BufferedImage image = ImageCache.load(path, png);
+        if (image != null)
+        {
+            StartupProfiler.end("load cached " + path, start);
+            return image;
+        }
+
+        image = ImageCache.decodePng(png);
+        StartupProfiler.end("decode " + path, start);
+        if (image == null)
+        {
+            throw new IOException("Unsupported image format: " + path);
+        }
+        ImageCache.storeLater(path, png, image);
+        return image;
+    }
+
+    /**
+     * Releases an image acquired earlier. Once no screen holds it, it may be evicted.
+     *
+     * @param path Resource path of the image
+     */
+    public static synchronized void release(String path)
+    {
+        Entry entry = entries.get(path);
+        if (entry == null || entry.refCount == 0) return;
+
+        entry.refCount--;
+        if (entry.refCount == 0 && entry.image != null)
+        {
+            released.put(path, entry);
+            releasedBytes += entry.size;
+            trimToBudget();
+        }
+    }
+
+    /**
+     * Moves the least recently released images to soft references until the pool fits the budget.
+     */
+    private static void trimToBudget()
+    {
+        Iterator<Entry> it = released.values().iterator();
+        while (releasedBytes > AssetCons.IMAGE_BUDGET_BYTES && it.hasNext())
+        {
+            Entry entry = it.next();
+            entry.soft = new SoftReference<>(entry.image);
+            entry.image = null;
+            releasedBytes -= entry.size;
+            it.remove();
+        }
+    }
+
+    /**
+     * Reads the encoded bytes of a resource.
+     *
+     * @return The bytes, or null if the resource does not exist
+     */
+    private static byte[] readResource(String path) throws IOException
+    {
+        try (InputStream is = AssetManager.class.getResourceAsStream(path))
+        {
+            if (is == null)
+            {
+                System.out.println("Failed to load " + path);
+                return null;
+            }
+            return is.readAllBytes();
+        }
+    }
+
+    /**
+     * Retrieves the number of bytes of decoded images held by visible screens.
+     * Intended for debugging memory use.
+     */
+    public static synchronized long getInUseBytes()
+    {
+        long total = 0;
+        for (Entry entry : entries.values())
+        {
+            if (entry.refCount > 0) total += entry.size;
+        }
+        return total;
+    }
+
+    /**
+     * Retrieves the number of bytes of released images still kept within the budget.
+     */
+    public static synchronized long getReleasedBytes()
+    {
+        return releasedBytes;
+    }
+}
@@ -30,12 +30,17 @@ public class Constants {
         public static final int HAND_X = 5;
         public static final int HAND_Y = 300;
 
-        // Game choice constants
-        public static final int TOTAL_RPS_BUTTONS = 3;
+        // Game choice constants of the classic rules; other variants come from RuleSet
         public static final int ROCK = 0;
         public static final int PAPER = 1;
         public static final int SCISSORS = 2;
 
+        // Weapon keys: the first three weapons are on Q W E (player 2: I O P), and the
+        // first nine also on the number row (player 2: the numpad)
+        public static final String PLAYER_ONE_KEYS = "QWE";
+        public static final String PLAYER_TWO_KEYS = "IOP";
+        public static final int MAX_NUMBER_KEYS = 9;
+
         // Heart/Lives constants
         public static final int TOTAL_HEARTS = 3;
         public static final int HEART_SIZE = 40;
@@ -58,6 +63,31 @@ public class Constants {
         public static final int PAUSE_MENU_BUTTON_WIDTH = 120;  // Same as RPS buttons
         public static final int PAUSE_MENU_BUTTON_HEIGHT = 120; // Same as RPS buttons
         public static final int PAUSE_MENU_SPACING = 20;        // Same as RPS buttons
+        public static final int PAUSE_BLUR_SCALE = 2;           // The paused scene is blurred at 1/2 size
+        public static final int PAUSE_BLUR_RADIUS = 3;          // Box radius of that blur, in reduced pixels
+        public static final int PAUSE_BLUR_PASSES = 3;          // Box blurs per direction, close to a Gaussian
+
+        // "Bato, bato, pik" hand shake shown before a round is revealed
+        public static final long SHAKE_BEAT_DURATION = 300; // One up-and-down shake, in ms
+        public static final int SHAKE_BEATS = 3;
+        public static final int SHAKE_HEIGHT = 60;           // How far the hands are raised, in pixels
+        public static final float SHAKE_MAX_ANGLE = 12f;     // How far the hands tilt back, in degrees
+        public static final int SHAKE_ANGLE_STEPS = 7;       // Pre-rendered tilt frames per hand
+        public static final int SHAKE_TEXT_SIZE = 64;
+
+        // Particle effects shown when the hands are revealed
+        public static final int MAX_PARTICLES = 10000;
+        public static final int CONFETTI_COUNT = 800;  // Player wins the match
+        public static final int SPARK_COUNT = 150;     // Burst at the losing hand
+        public static final int SHARD_COUNT = 40;      // A heart breaks
+        public static final float PARTICLE_GRAVITY = 900f; // Pixels per second squared
+
+        // Opponent modes
+        public static final int MODE_COMPUTER = 0;
+        public static final int MODE_HOT_SEAT = 1; // Two players on one keyboard
+        public static final int MODE_LAN = 2;      // Versus another client through a VersusServer
+        public static final int MODE_BRACKET = 3;  // Knockout tournament against AI opponents
+        public static final int MODE_LEARNING = 4; // Against LearningOpponent, which adapts to the player
 
         // Change the order: RETRY = 0, MENU = 1, RESUME = 2
         public static final int RETRY_BUTTON = 0;
@@ -65,6 +95,58 @@ public class Constants {
         public static final int RESUME_BUTTON = 2;
     }
 
+    public static class VersusCons
+    {
+        public static final int DEFAULT_PORT = 7777;
+        // Server the LAN mode connects to, e.g. -Dbbp.server=192.168.1.10:7777
+        public static final String SERVER_PROPERTY = "bbp.server";
+        public static final String DEFAULT_SERVER = "localhost:" + DEFAULT_PORT;
+
+        // Frames are: u8 type, u8 payload length, payload
+        public static final int HELLO = 1;          // c->s: join the queue, UTF-8 player name (may be empty)
+        public static final int WAITING = 2;        // s->c: no opponent yet
+        public static final int MATCHED = 3;        // s->c: u8 side, u8 lives, u16 your rating, u16 opponent rating
+        public static final int COMMIT = 4;         // c->s: hash of hand + nonce
+        public static final int OPP_COMMIT = 5;     // s->c: opponent's hash
+        public static final int REVEAL_REQUEST = 6; // s->c: both committed, reveal now
+        public static final int REVEAL = 7;         // c->s: u8 hand, nonce
+        public static final int RESULT = 8;         // s->c: u8 your hand, u8 opponent hand, u8 outcome,
+                                                    //       u8 your lives, u8 opponent lives, u8 game over, opponent nonce
+        public static final int PAUSE = 9;          // c->s: u8 paused
+        public static final int OPP_PAUSE = 10;     // s->c: u8 paused
+        public static final int RETRY = 11;         // c->s: restart the match
+        public static final int RESTART = 12;       // s->c: u8 lives
+        public static final int OPP_LEFT = 13;      // s->c: opponent disconnected
+        public static final int ERROR = 14;         // s->c: u8 error code
+
+        public static final int ERROR_BAD_REVEAL = 1;     // Revealed hand does not match the commit
+        public static final int ERROR_REVEAL_TIMEOUT = 2; // No reveal within REVEAL_TIMEOUT_NANOS
+
+        // Clients reveal as soon as they are asked to; one that has not within this long
+        // forfeits the round and is dropped, so it cannot stall its opponent
+        public static final long REVEAL_TIMEOUT_NANOS = 10_000_000_000L;
+
+        public static final int HASH_SIZE = 32;  // SHA-256
+        public static final int NONCE_SIZE = 16;
+        public static final int MAX_NAME_BYTES = 32;
+        public static final int MAX_FRAME = 2 + 255;
+    }
+
+    public static class ServerCons
+    {
+        public static final int HTTP_PORT = 8080;
+        public static final int WEBSOCKET_PORT = 8081;
+        public static final int BACKLOG = 4096;       // Pending connections the listening sockets queue
+        public static final int MAX_IDLE_CONNECTIONS = 20_000; // Keep-alive connections kept open between requests
+
+        // Matches live in a power of two number of independently locked shards
+        public static final int MATCH_SHARDS = 64;
+        public static final long MATCH_IDLE_TIMEOUT_MS = 10 * 60 * 1000; // Untouched matches are dropped after this
+        public static final long SWEEP_INTERVAL_MS = 60 * 1000;
+
+        public static final int MAX_WS_MESSAGE = 1024; // Longest WebSocket text message accepted
+    }
+
     public static class menuButtons {
         public static final int PLAY = 0;
         public static final int SETTINGS = 1;
@@ -76,6 +158,66 @@ public class Constants {
         public static final int MENU = 0;
         public static final int PLAYING = 1;
         public static final int SETTINGS = 2;
+        public static final int LEADERBOARD = 3;
+        public static final int REPLAYS = 4;
+    }
+
+    public static class LeaderboardCons
+    {
+        // File header: int magic, int version, long record count
+        public static final int MAGIC = 0x4242504C; // "BBPL"
+        public static final int VERSION = 1;
+        public static final int HEADER_SIZE = 16;
+
+        // Record: u8 name length, 23 bytes UTF-8 name, int matches, int wins, short longest streak, short current streak
+        public static final int NAME_BYTES = 24;
+        public static final int RECORD_SIZE = NAME_BYTES + 12;
+        public static final int GROW_RECORDS = 4096;
+
+        // Orderings
+        public static final int SORT_WIN_RATE = 0;
+        public static final int SORT_STREAK = 1;
+        public static final int SORT_GAMES = 2;
+        public static final int TOTAL_SORTS = 3;
+
+        // Name the local player is ranked under, defaults to the OS user name
+        public static final String PLAYER_PROPERTY = "bbp.player";
+
+        // Screen layout
+        public static final int PAGE_SIZE = 10;
+        public static final int TITLE_Y = 90;
+        public static final int TABS_Y = 150;
+        public static final int TABLE_Y = 220;
+        public static final int ROW_HEIGHT = 44;
+        public static final int TABLE_WIDTH = 900;
+        public static final int TITLE_SIZE = 56;
+        public static final int TEXT_SIZE = 24;
+    }
+
+    public static class TournamentCons
+    {
+        // Defaults, overridable with -Dbbp.bestOf=5 -Dbbp.lives=2 -Dbbp.entrants=64
+        public static final String BEST_OF_PROPERTY = "bbp.bestOf";
+        public static final String LIVES_PROPERTY = "bbp.lives";
+        public static final String ENTRANTS_PROPERTY = "bbp.entrants";
+        public static final int DEFAULT_BEST_OF = 3;
+        public static final int DEFAULT_ENTRANTS = 16;
+
+        // Limits of the formats that can be chosen
+        public static final int MAX_BEST_OF = 9;
+        public static final int MAX_LIVES = 5;
+        public static final int MIN_ENTRANTS = 2;
+        public static final int MAX_ENTRANTS = 1 << 16;
+        public static final int MAX_ROUNDS_PER_GAME = 100; // Simulated games still tied after this go to the side with more lives
+
+        // Bracket view
+        public static final int VIEW_SLOTS = 16;     // First round slots shown, the block holding the player
+        public static final int VIEW_TOP = 150;
+        public static final int VIEW_BOTTOM = 110;   // Space left below the bracket
+        public static final int COLUMN_WIDTH = 230;
+        public static final int TITLE_SIZE = 40;
+        public static final int NAME_SIZE = 15;
+        public static final int TEXT_SIZE = 20;
     }
 
     public static class ImagePaths {
@@ -158,6 +300,17 @@ public class Constants {
         public static final int UNMUTE_STATE = 1;
         public static final int HALF_VOLUME_STATE = 1;
         public static final int FULL_VOLUME_STATE = 2;
+
+        // Settings are written this long after the last change, so a burst of clicks is saved once
+        public static final long SAVE_DELAY_MS = 500;
+
+        // Continuous volume sliders, drawn below each row of buttons
+        public static final int SLIDER_WIDTH = 300;
+        public static final int SLIDER_HEIGHT = 24;       // Height of the clickable area
+        public static final int SLIDER_TRACK_HEIGHT = 6;
+        public static final int SLIDER_KNOB_SIZE = 20;
+        public static final int SFX_SLIDER_Y = 350;
+        public static final int MUSIC_SLIDER_Y = 530;
     }
 
     public static class SettingsImagePaths {
@@ -187,4 +340,258 @@ public class Constants {
         public static final String WIN_SOUND = "/sounds/winSound.wav";
         public static final String LOSE_SOUND = "/sounds/loseSound.wav";
     }
-}
\ No newline at end of file
+
+    public static class AssetCons
+    {
+        // Decoded images of screens that are not visible are kept up to this many bytes,
+        // beyond that they are only softly reachable. Override with -Dbbp.imageBudgetMB=...
+        public static final long IMAGE_BUDGET_BYTES = Long.getLong("bbp.imageBudgetMB", 64) * 1024 * 1024;
+
+        // Pre-decoded image cache, see ImageCache. Off with -Dbbp.imageCache=false,
+        // uncompressed files (faster to load, ~15x the disk space) with -Dbbp.imageCacheCompress=false
+        public static final boolean IMAGE_CACHE = !"false".equals(System.getProperty("bbp.imageCache"));
+        public static final boolean IMAGE_CACHE_COMPRESS = !"false".equals(System.getProperty("bbp.imageCacheCompress"));
+
+        // Cache file header: int magic, int version, int width, int height, int flags,
+        // int payload length, long checksum of the PNG the pixels were decoded from
+        public static final int IMAGE_MAGIC = 0x42425049; // "BBPI"
+        public static final int IMAGE_VERSION = 1;
+        public static final int IMAGE_HEADER_SIZE = 32;
+        public static final int FLAG_COMPRESSED = 1;
+        public static final int FLAG_OPAQUE = 2;    // TYPE_INT_RGB rather than TYPE_INT_ARGB_PRE
+
+        // Texture atlas pages, see TextureAtlas. 2048 is the smallest texture limit still around
+        public static final int ATLAS_MAX_SIZE = 2048;
+        public static final int ATLAS_PADDING = 2; // Transparent pixels between two sprites
+    }
+
+    // Locations of files the game writes on the player's machine
+    public static class StoragePaths
+    {
+        public static final String DATA_DIR = System.getProperty("user.home") + "/.batobatopik";
+        public static final String REPLAY_DIR = DATA_DIR + "/replays";
+        public static final String ARCHIVE_DIR = REPLAY_DIR + "/archive";
+        public static final String STATS_FILE = DATA_DIR + "/stats.dat";
+        public static final String SETTINGS_FILE = DATA_DIR + "/settings.properties";
+        public static final String LEADERBOARD_FILE = DATA_DIR + "/leaderboard.dat";
+        public static final String IMAGE_CACHE_DIR = DATA_DIR + "/images";
+        public static final String HISTORY_DIR = DATA_DIR + "/history";
+    }
+
+    public static class StartupCons
+    {
+        public static final String PROFILE_PROPERTY = "bbp.profileStartup";    // Print the startup timeline
+        public static final String EXIT_PROPERTY = "bbp.exitAfterFirstFrame";  // Training and comparison runs
+        public static final String FIRST_FRAME_PREFIX = "FIRST_FRAME_MS=";     // Timeline line the Launcher parses
+
+        // Class data sharing archive written by the Launcher's training run
+        public static final String CDS_DIR = StoragePaths.DATA_DIR + "/cds";
+        public static final int COMPARE_RUNS = 5; // Launches per side in the Launcher's comparison
+    }
+
+    public static class StatsCons
+    {
+        // File header: int magic, int version, long record count, int rule set count, int unused, then the
+        // ids of the rule sets the records were played with, each a length byte and up to RULE_ID_BYTES - 1 bytes
+        public static final int MAGIC = 0x42425053; // "BBPS"
+        public static final int VERSION = 3;
+        public static final int VERSION_CLASSIC_ONLY = 1; // 8 byte records without the rules, upgraded on open
+        public static final int VERSION_RULE_HASHES = 2;  // Records hold the String.hashCode of the rules id, upgraded on open
+        public static final int RULE_COUNT_OFFSET = 16;
+        public static final int RULE_TABLE_OFFSET = 24;
+        public static final int RULE_SLOTS = 32;
+        public static final int RULE_ID_BYTES = 32;
+        public static final int HEADER_SIZE = RULE_TABLE_OFFSET + RULE_SLOTS * RULE_ID_BYTES;
+        public static final int OLD_HEADER_SIZE = 16; // Versions 1 and 2, without the rule set ids
+
+        // Record: int time (epoch seconds), byte player hand, byte computer hand, byte outcome, byte flags,
+        // int index of the rule set in the header, or UNKNOWN_RULES once the header is full
+        public static final int RECORD_SIZE = 12;
+        public static final int CLASSIC_ONLY_RECORD_SIZE = 8;
+        public static final int UNKNOWN_RULES = -1;
+        public static final int FLAG_MATCH_OVER = 1;
+
+        // The mapped file grows by this many records at a time
+        public static final int GROW_RECORDS = 128 * 1024;
+    }
+
+    public static class HistoryCons
+    {
+        // File header: int magic, int version, int bits per move, int unused, long move count, long unused
+        public static final int MAGIC = 0x42425048; // "BBPH"
+        public static final int VERSION = 1;
+        public static final int HEADER_SIZE = 32;
+        public static final int BITS_OFFSET = 8;
+        public static final int COUNT_OFFSET = 16;
+
+        // Moves are mapped in segments, as one buffer holds at most 2 GB. The last
+        // segment doubles from MIN_MAP_BYTES as it fills
+        public static final int SEGMENT_BYTES = 1 << 30;
+        public static final int MIN_MAP_BYTES = 64 * 1024;
+
+        public static final String FILE_EXTENSION = ".history"; // One file per rule set, named by its id
+    }
+
+    public static class RuleCons
+    {
+        // Game variant, e.g. -Dbbp.rules=rpsls for Rock Paper Scissors Lizard Spock, see RuleSet
+        public static final String RULES_PROPERTY = "bbp.rules";
+        public static final String DEFAULT_RULES = "classic";
+        public static final String RULES_DIR = "/rules/";
+        public static final String FILE_EXTENSION = ".rules";
+        public static final int MAX_WEAPONS = 64; // Who beats a weapon is one bit per weapon in a long
+    }
+
+    public static class ReplayCons
+    {
+        // File header
+        public static final int MAGIC = 0x42425052; // "BBPR"
+        public static final int VERSION = 2;
+        public static final int VERSION_CLASSIC_ONLY = 1; // No rules id, classic event codes
+        public static final String FILE_EXTENSION = ".bbpr";
+
+        // Event codes; below the rule set's weapon count they are the hands themselves
+        public static final int EVENT_NEXT_ROUND = 0xFE; // resetGame after a round
+        public static final int EVENT_RESTART = 0xFF;    // playAgain from the pause menu
+        public static final int V1_EVENT_NEXT_ROUND = 3; // Codes of version 1 files
+        public static final int V1_EVENT_RESTART = 4;
+
+        // Recorder buffer size; flushed to disk off-thread when full or when the match ends
+        public static final int BUFFER_SIZE = 16 * 1024;
+
+        // How long the game waits on exit for the last buffers of an unfinished match to be written
+        public static final long SHUTDOWN_WAIT_MS = 2000;
+
+        // Optional system property to force the seed of the first match, e.g. -Dbbp.seed=42
+        public static final String SEED_PROPERTY = "bbp.seed";
+    }
+
+    public static class ArchiveCons
+    {
+        // Segment header: int magic, byte version, long first match id, int match count,
+        // long newest start time (ms), long index offset; then the matches, then the index
+        public static final int MAGIC = 0x42425041; // "BBPA"
+        public static final int VERSION = 1;
+        public static final int HEADER_SIZE = 33;
+        public static final String FILE_PREFIX = "segment_";
+        public static final String FILE_EXTENSION = ".bbpa";
+
+        // The index keeps the offset of one match in this many, the rest are read through
+        public static final int INDEX_INTERVAL = 64;
+
+        // Compaction merges MERGE_FANIN segments of the same size tier into one, up to SEGMENT_MATCHES
+        public static final int MERGE_FANIN = 8;
+        public static final int SEGMENT_MATCHES = 1 << 20;
+
+        // Loose replay files modified more recently than this are left for the next compaction,
+        // in case another process is still writing them
+        public static final long SETTLE_MS = 2000;
+
+        // Replays screen
+        public static final int PAGE_SIZE = 12;
+        public static final int TITLE_SIZE = 40;
+        public static final int TITLE_Y = 90;
+        public static final int TEXT_SIZE = 20;
+        public static final int TABLE_Y = 170;
+        public static final int ROW_HEIGHT = 34;
+        public static final int TABLE_WIDTH = 1000;
+        public static final int DETAIL_ROUNDS = 10; // Rounds spelled out under the table for the selected match
+    }
+
+    public static class PowerCons
+    {
+        // Power modes of the game loop, picked by PowerManager from the window and the active screen
+        public static final int ACTIVE = 0;     // Focused and moving
+        public static final int PAUSED = 1;     // A still screen such as the pause menu, repainted by its input handlers
+        public static final int BACKGROUND = 2; // Visible, but another window has the focus
+        public static final int PARKED = 3;     // Minimized: no updates, no frames, music suspended
+        public static final String[] MODE_NAMES = {"active", "paused", "background", "parked"};
+
+        // Updates and frames per second of each mode, by mode. A mode without updates or
+        // frames parks the loop until PowerManager wakes it.
+        public static final int[] UPS = {120, 10, 30, 0};
+        public static final int[] FPS = {60, 4, 30, 0};
+
+        // Off with -Dbbp.powerSaving=false, which runs every mode at the active rates
+        public static final boolean ENABLED = !"false".equals(System.getProperty("bbp.powerSaving"));
+    }
+
+    public static class CalculatorCons
+    {
+        // Bounds of MatchCalculator: lives per side, and memory states of both strategies together
+        public static final int MAX_LIVES = 99;
+        public static final int MAX_MEMORY_STATES = 1024;
+        public static final double SINGULAR_PIVOT = 1e-12; // Below this a memory state only ever ties
+        public static final double TAIL_MASS = 1e-12;      // Round distributions stop once less is left
+        public static final int MAX_ROUNDS = 10_000;
+
+        // Debug panel of the settings screen, toggled with F3
+        public static final int PANEL_MAX_LIVES = 5;
+        public static final int PANEL_X = 1010;
+        public static final int PANEL_Y = 60;
+        public static final int PANEL_WIDTH = 500;
+        public static final int PANEL_HEIGHT = 560;
+    }
+
+    public static class LearningCons
+    {
+        // Difficulty of the learning opponent, by name or index, e.g. -Dbbp.difficulty=hard; D changes it in game
+        public static final String DIFFICULTY_PROPERTY = "bbp.difficulty";
+        public static final String[] DIFFICULTY_NAMES = {"Easy", "Normal", "Hard", "Adaptive"};
+        public static final int DEFAULT_DIFFICULTY = 1;
+        public static final int ADAPTIVE = 3; // Learns as Normal, DifficultyController decides how well it plays
+
+        // By difficulty: time the worker may spend learning after each round, and the
+        // most of the player's last hands it looks at
+        public static final long[] BUDGET_NANOS = {20_000, 250_000, 2_000_000, 250_000};
+        public static final int[] MAX_ORDER = {1, 3, 5, 3};
+        public static final int LONGEST_ORDER = 5;
+
+        public static final float LEARNING_RATE = 0.1f;
+        public static final int FEATURE_BITS = 14;        // 2^14 hashed feature rows of one weight per hand
+        public static final int REPLAY_ROUNDS = 1024;     // Recent rounds replayed while the budget lasts
+        public static final float REPLAY_FADE = 0.99f;    // Step size kept per round a replayed round is older
+        public static final int WARM_START_MOVES = 4096;  // Moves of the history learned before the first round
+        public static final int UPDATE_SAMPLES = 1024;    // Update times kept for the metrics
+    }
+
+    public static class AdaptiveCons
+    {
+        // Share of the decided rounds the player should win at the adaptive difficulty, e.g. -Dbbp.targetWinRate=0.45
+        public static final String TARGET_PROPERTY = "bbp.targetWinRate";
+        public static final double DEFAULT_TARGET = 0.5;
+
+        // Win rate estimate: a Beta distribution whose counts fade by DECAY per decided
+        // round, so it follows roughly the last 1 / (1 - DECAY) of them
+        public static final double DECAY = 0.95;
+        public static final double PRIOR_ROUNDS = 2; // Weight of the target as the estimate before any round
+
+        // How far the strength moves per decided round, per unit of the estimate's error
+        public static final double GAIN = 0.08;
+    }
+
+    public static class RatingCons
+    {
+        // Glicko-2: ratings shown on the Elo-like scale, computed on the Glicko-2 one
+        public static final double INITIAL_RATING = 1500;
+        public static final double INITIAL_DEVIATION = 350;
+        public static final double INITIAL_VOLATILITY = 0.06;
+        public static final double SCALE = 173.7178; // Rating points per Glicko-2 unit
+        public static final double TAU = 0.5;        // How fast the volatility may change
+        public static final double CONVERGENCE = 1e-6;
+    }
+
+    public static class MatchmakingCons
+    {
+        // Waiting players are indexed by rating in buckets of BUCKET_WIDTH points
+        public static final int BUCKET_WIDTH = 25;
+
+        // Two players are paired when their ratings are within the wider of their windows.
+        // A window starts at BASE_WINDOW and grows by WIDEN_STEP every WIDEN_NANOS of waiting;
+        // after MAX_STEPS it takes anyone, so no one waits longer than that while someone else queues
+        public static final double BASE_WINDOW = 50;
+        public static final double WIDEN_STEP = 50;
+        public static final long WIDEN_NANOS = 1_000_000_000L;
+        public static final int MAX_STEPS = 10;
+    }
+}
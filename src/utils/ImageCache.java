@@ -0,0 +1,231 @@
+package utils;
+
+import utils.Constants.AssetCons;
+import utils.Constants.StoragePaths;
+
+import javax.imageio.ImageIO;
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps decoded images on disk as raw pixels, so a launch maps them in instead
+ * of inflating and unfiltering every PNG again.
+ *
+ * Each image has a file in IMAGE_CACHE_DIR: a header (see AssetCons) followed by
+ * the pixels as little-endian ints, TYPE_INT_ARGB_PRE or TYPE_INT_RGB for opaque
+ * images, LZ compressed unless -Dbbp.imageCacheCompress=false. Uncompressed
+ * files load fastest but take about 200 MB for the game's full-screen art; LZ
+ * brings that near the size of the PNGs and still loads several times faster
+ * than decoding them. Pre-multiplied pixels are also what Java2D blends with,
+ * so drawing them skips a conversion. The header holds a checksum of the PNG
+ * the pixels came from; if it does not match the PNG on the class path the
+ * file is stale, the PNG is decoded and the file is rewritten in the background.
+ * ImageCacheBenchmark builds every file up front.
+ */
+public class ImageCache
+{
+    private static final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "image-cache-writer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * Loads the cached pixels of an image.
+     *
+     * @param path Resource path of the image
+     * @param png The image's PNG bytes, to check the cache file against
+     * @return The image, or null if caching is off or its file is missing, stale or unreadable
+     */
+    public static BufferedImage load(String path, byte[] png)
+    {
+        if (!AssetCons.IMAGE_CACHE) return null;
+        File file = getFile(new File(StoragePaths.IMAGE_CACHE_DIR), path);
+        if (!file.exists()) return null;
+        try {
+            return read(file, checksum(png));
+        } catch (IOException e) {
+            System.err.println("Ignoring image cache file " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Writes the cache file of a freshly decoded image on the writer thread.
+     * The image must not be modified afterwards, which holds for everything the AssetManager hands out.
+     */
+    public static void storeLater(String path, byte[] png, BufferedImage image)
+    {
+        if (!AssetCons.IMAGE_CACHE) return;
+        writer.execute(() -> {
+            try {
+                write(getFile(new File(StoragePaths.IMAGE_CACHE_DIR), path), image, checksum(png),
+                        AssetCons.IMAGE_CACHE_COMPRESS);
+            } catch (IOException e) {
+                System.err.println("Error caching " + path + ": " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Decodes a PNG into the cache's pixel layout, so an image looks the same whichever way it was loaded.
+     *
+     * @return The image, or null if ImageIO cannot read the data
+     */
+    public static BufferedImage decodePng(byte[] png) throws IOException
+    {
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(png));
+        if (decoded == null) return null;
+
+        boolean opaque = decoded.getTransparency() == Transparency.OPAQUE;
+        BufferedImage image = new BufferedImage(decoded.getWidth(), decoded.getHeight(),
+                opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g = image.createGraphics();
+        g.setComposite(AlphaComposite.Src);
+        g.drawImage(decoded, 0, 0, null);
+        g.dispose();
+        return image;
+    }
+
+    /**
+     * Reads a cache file.
+     *
+     * @param checksum checksum() of the PNG the file should have been built from
+     * @return The image, or null if the file is from another format version or another PNG
+     * @throws IOException If the file cannot be read or is corrupt
+     */
+    public static BufferedImage read(File file, long checksum) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            // Header first, with a plain read: a stale file is never mapped, so it can be replaced right away
+            ByteBuffer header = ByteBuffer.allocate(AssetCons.IMAGE_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header) >= 0) { }
+            if (header.hasRemaining()) throw new IOException("Truncated header");
+            header.flip();
+            if (header.getInt() != AssetCons.IMAGE_MAGIC || header.getInt() != AssetCons.IMAGE_VERSION) return null;
+            int width = header.getInt();
+            int height = header.getInt();
+            int flags = header.getInt();
+            int payloadLength = header.getInt();
+            if (header.getLong() != checksum) return null;
+
+            long pixelCount = (long) width * height;
+            if (width <= 0 || height <= 0 || pixelCount * 4 > Integer.MAX_VALUE ||
+                    payloadLength != channel.size() - AssetCons.IMAGE_HEADER_SIZE)
+            {
+                throw new IOException("Bad header: " + width + "x" + height + ", " + payloadLength + " bytes");
+            }
+
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, AssetCons.IMAGE_HEADER_SIZE, payloadLength);
+            IntBuffer pixels;
+            if ((flags & AssetCons.FLAG_COMPRESSED) != 0)
+            {
+                byte[] packed = new byte[payloadLength];
+                mapped.get(packed);
+                byte[] raw = new byte[(int) pixelCount * 4];
+                LzCodec.decompress(packed, 0, packed.length, raw);
+                pixels = ByteBuffer.wrap(raw).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            } else {
+                if (payloadLength != pixelCount * 4) throw new IOException("Expected " + pixelCount * 4 + " bytes of pixels");
+                pixels = mapped.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            }
+
+            BufferedImage image = new BufferedImage(width, height, (flags & AssetCons.FLAG_OPAQUE) != 0 ?
+                    BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB_PRE);
+            // Copied row by row into the image's own array: wrapping an array in a DataBufferInt
+            // would keep Java2D from caching the image in video memory, and a row needs no big temporary
+            WritableRaster raster = image.getRaster();
+            int[] row = new int[width];
+            for (int y = 0; y < height; y++)
+            {
+                pixels.get(row); // A plain copy on little-endian machines
+                raster.setDataElements(0, y, width, 1, row);
+            }
+            return image;
+        }
+    }
+
+    /**
+     * Writes a cache file to a temporary file and renames it over the old one.
+     *
+     * @param image Image from decodePng() or read()
+     * @param checksum checksum() of the PNG the image was decoded from
+     * @param compress Whether to LZ compress the pixels
+     */
+    public static void write(File file, BufferedImage image, long checksum, boolean compress) throws IOException
+    {
+        int type = image.getType();
+        if (type != BufferedImage.TYPE_INT_ARGB_PRE && type != BufferedImage.TYPE_INT_RGB)
+        {
+            throw new IllegalArgumentException("Unsupported image type: " + type);
+        }
+        int width = image.getWidth(), height = image.getHeight();
+        int[] pixels = (int[]) image.getRaster().getDataElements(0, 0, width, height, null);
+        ByteBuffer raw = ByteBuffer.allocate(pixels.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+        raw.asIntBuffer().put(pixels);
+        byte[] payload = compress ? LzCodec.compress(raw.array()) : raw.array();
+
+        ByteBuffer header = ByteBuffer.allocate(AssetCons.IMAGE_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(AssetCons.IMAGE_MAGIC).putInt(AssetCons.IMAGE_VERSION).putInt(width).putInt(height);
+        header.putInt((compress ? AssetCons.FLAG_COMPRESSED : 0) |
+                (type == BufferedImage.TYPE_INT_RGB ? AssetCons.FLAG_OPAQUE : 0));
+        header.putInt(payload.length).putLong(checksum);
+
+        File dir = file.getParentFile();
+        if (!dir.exists() && !dir.mkdirs())
+        {
+            throw new IOException("Could not create " + dir);
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        try (OutputStream out = new FileOutputStream(temp))
+        {
+            out.write(header.array());
+            out.write(payload);
+        }
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Retrieves the cache file of a resource, e.g. images_menu_mainBack.raw for /images/menu/mainBack.png.
+     */
+    public static File getFile(File dir, String path)
+    {
+        String name = path.startsWith("/") ? path.substring(1) : path;
+        return new File(dir, name.replace('/', '_').replaceAll("\\.png$", "") + ".raw");
+    }
+
+    /**
+     * Fingerprints PNG bytes: their length in the high half, their CRC-32 in the low half.
+     */
+    public static long checksum(byte[] png)
+    {
+        CRC32 crc = new CRC32();
+        crc.update(png);
+        return (long) png.length << 32 | crc.getValue();
+    }
+}
@@ -0,0 +1,184 @@
+package utils;
+
+import utils.Constants.AssetCons;
+import utils.Constants.ImagePaths;
+import utils.Constants.SettingsImagePaths;
+import utils.Constants.StoragePaths;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Builds the image cache for every image in ImagePaths and SettingsImagePaths,
+ * checks that each cached image has exactly the pixels of its PNG, and times
+ * loading the whole set from PNG, from raw cache files and from LZ compressed ones.
+ *
+ * The first pass of each is what a launch pays, class loading and interpreted
+ * code included; the best of the later passes is the cost once compiled.
+ *
+ * Usage: java -cp out:res utils.ImageCacheBenchmark [--build-only] [runs]
+ *   --build-only  Only write the cache files the game loads
+ */
+public class ImageCacheBenchmark
+{
+    public static void main(String[] args) throws IOException
+    {
+        List<String> options = Arrays.asList(args);
+        boolean buildOnly = options.contains("--build-only");
+        int runs = args.length > 0 && !args[args.length - 1].startsWith("--") ? Integer.parseInt(args[args.length - 1]) : 10;
+
+        List<String> paths = getImagePaths();
+        List<byte[]> pngs = new ArrayList<>();
+        for (String path : paths)
+        {
+            try (InputStream in = ImageCacheBenchmark.class.getResourceAsStream(path))
+            {
+                if (in == null) throw new IOException("Missing resource " + path);
+                pngs.add(in.readAllBytes());
+            }
+        }
+
+        // The build step: the cache files the game itself loads
+        long start = System.nanoTime();
+        File cacheDir = new File(StoragePaths.IMAGE_CACHE_DIR);
+        for (int i = 0; i < paths.size(); i++)
+        {
+            ImageCache.write(ImageCache.getFile(cacheDir, paths.get(i)), ImageCache.decodePng(pngs.get(i)),
+                    ImageCache.checksum(pngs.get(i)), AssetCons.IMAGE_CACHE_COMPRESS);
+        }
+        System.out.println("Built " + paths.size() + " images into " + cacheDir + " in " +
+                (System.nanoTime() - start) / 1_000_000 + " ms" + (AssetCons.IMAGE_CACHE_COMPRESS ? " (compressed)" : ""));
+        if (buildOnly) return;
+
+        File rawDir = Files.createTempDirectory("bbp-raw").toFile();
+        File lzDir = Files.createTempDirectory("bbp-lz").toFile();
+        long pngBytes = 0, rawBytes = 0, lzBytes = 0;
+        for (int i = 0; i < paths.size(); i++)
+        {
+            BufferedImage image = ImageCache.decodePng(pngs.get(i));
+            long checksum = ImageCache.checksum(pngs.get(i));
+            File raw = ImageCache.getFile(rawDir, paths.get(i));
+            File lz = ImageCache.getFile(lzDir, paths.get(i));
+            ImageCache.write(raw, image, checksum, false);
+            ImageCache.write(lz, image, checksum, true);
+            pngBytes += pngs.get(i).length;
+            rawBytes += raw.length();
+            lzBytes += lz.length();
+        }
+
+        // Timed before validating, so the first pass is as cold as at startup
+        double[] raw = time(paths, pngs, rawDir, runs);
+        double[] lz = time(paths, pngs, lzDir, runs);
+        double[] png = time(paths, pngs, null, runs);
+        validate(paths, pngs, rawDir, lzDir);
+
+        System.out.println("Images:     " + paths.size() + " (" + pngBytes / 1024 + " KB of PNG)");
+        System.out.printf("PNG:        %7.1f ms first pass, %7.1f ms best, %6d KB on disk%n", png[0], png[1], pngBytes / 1024);
+        System.out.printf("Raw:        %7.1f ms first pass, %7.1f ms best, %6d KB on disk%n", raw[0], raw[1], rawBytes / 1024);
+        System.out.printf("LZ:         %7.1f ms first pass, %7.1f ms best, %6d KB on disk%n", lz[0], lz[1], lzBytes / 1024);
+        System.out.printf("Speed-up:   %.1fx raw, %.1fx LZ (first pass)%n", png[0] / raw[0], png[0] / lz[0]);
+
+        deleteAll(rawDir);
+        deleteAll(lzDir);
+    }
+
+    /**
+     * Collects the PNG paths declared as constants, in declaration order.
+     */
+    private static List<String> getImagePaths()
+    {
+        Set<String> paths = new LinkedHashSet<>();
+        for (Class<?> holder : new Class<?>[]{ImagePaths.class, SettingsImagePaths.class})
+        {
+            for (Field field : holder.getDeclaredFields())
+            {
+                if (!Modifier.isStatic(field.getModifiers()) || field.getType() != String.class) continue;
+                try {
+                    String value = (String) field.get(null);
+                    if (value.endsWith(".png")) paths.add(value);
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+        return new ArrayList<>(paths);
+    }
+
+    /**
+     * Loads every image the way AssetManager does, from cache files in dir or, if dir is null, from PNG.
+     *
+     * @return {first pass, best later pass} in milliseconds
+     */
+    private static double[] time(List<String> paths, List<byte[]> pngs, File dir, int runs) throws IOException
+    {
+        long first = 0, best = Long.MAX_VALUE;
+        for (int run = 0; run <= runs; run++)
+        {
+            long start = System.nanoTime();
+            for (int i = 0; i < paths.size(); i++)
+            {
+                BufferedImage image = dir == null ? ImageCache.decodePng(pngs.get(i)) :
+                        ImageCache.read(ImageCache.getFile(dir, paths.get(i)), ImageCache.checksum(pngs.get(i)));
+                if (image == null) throw new IllegalStateException("Could not load " + paths.get(i));
+            }
+            long elapsed = System.nanoTime() - start;
+            if (run == 0) first = elapsed;
+            else best = Math.min(best, elapsed);
+        }
+        return new double[]{first / 1e6, best / 1e6};
+    }
+
+    /**
+     * Checks that both cache formats give back the PNG's pixels exactly, and that a changed PNG counts as stale.
+     */
+    private static void validate(List<String> paths, List<byte[]> pngs, File rawDir, File lzDir) throws IOException
+    {
+        for (int i = 0; i < paths.size(); i++)
+        {
+            String path = paths.get(i);
+            long checksum = ImageCache.checksum(pngs.get(i));
+            int[] expected = pixelsOf(ImageCache.decodePng(pngs.get(i)));
+            for (File dir : new File[]{rawDir, lzDir})
+            {
+                File file = ImageCache.getFile(dir, path);
+                if (!Arrays.equals(expected, pixelsOf(ImageCache.read(file, checksum))))
+                {
+                    throw new IllegalStateException("Pixels differ from the PNG: " + file);
+                }
+                if (ImageCache.read(file, checksum ^ 1) != null)
+                {
+                    throw new IllegalStateException("Stale file was not detected: " + file);
+                }
+            }
+        }
+        System.out.println("Validated:  every cached image matches its PNG pixel for pixel");
+    }
+
+    private static int[] pixelsOf(BufferedImage image)
+    {
+        return (int[]) image.getRaster().getDataElements(0, 0, image.getWidth(), image.getHeight(), null);
+    }
+
+    private static void deleteAll(File dir)
+    {
+        File[] files = dir.listFiles();
+        if (files != null)
+        {
+            for (File file : files)
+            {
+                if (!file.delete()) System.err.println("Could not delete " + file);
+            }
+        }
+        if (!dir.delete()) System.err.println("Could not delete " + dir);
+    }
+}
@@ -0,0 +1,152 @@
+package utils;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Byte-oriented LZ77 compression in the LZ4 block layout, meant for data that is
+ * compressed once and decompressed often, like the image cache's pixels.
+ *
+ * A block is a run of sequences: a token byte (literal count in the high nibble,
+ * match length - 4 in the low one, 15 meaning more length bytes follow), the
+ * literals, a little-endian 16-bit offset back into the output and the extra
+ * match length bytes. The last sequence has literals only. Decompression is
+ * nothing but array copies, which is what makes it cheap even before the JIT
+ * has compiled it.
+ */
+public class LzCodec
+{
+    private static final int MIN_MATCH = 4;
+    private static final int MAX_OFFSET = 0xFFFF;
+    private static final int HASH_BITS = 16;
+
+    /**
+     * Compresses a whole array. Greedy, with one candidate per hash slot: fast
+     * enough for a build step, and transparent runs still shrink to a few bytes.
+     */
+    public static byte[] compress(byte[] src)
+    {
+        int n = src.length;
+        byte[] dst = new byte[n + n / 255 + 16]; // Worst case, everything a literal
+        int[] table = new int[1 << HASH_BITS];   // Position + 1 of the last 4 bytes with that hash
+        int ip = 0, anchor = 0, op = 0;
+
+        while (ip + MIN_MATCH <= n)
+        {
+            int h = hash(readInt(src, ip));
+            int candidate = table[h] - 1;
+            table[h] = ip + 1;
+            if (candidate < 0 || ip - candidate > MAX_OFFSET || readInt(src, candidate) != readInt(src, ip))
+            {
+                ip++;
+                continue;
+            }
+
+            int length = MIN_MATCH;
+            while (ip + length < n && src[candidate + length] == src[ip + length]) length++;
+            op = writeSequence(src, anchor, ip - anchor, ip - candidate, length, dst, op);
+            ip += length;
+            anchor = ip;
+            if (ip - 2 + MIN_MATCH <= n) table[hash(readInt(src, ip - 2))] = ip - 1;
+        }
+
+        // Final sequence, literals only
+        int literals = n - anchor;
+        int token = op++;
+        dst[token] = (byte) (Math.min(literals, 15) << 4);
+        if (literals >= 15) op = writeLength(dst, op, literals - 15);
+        System.arraycopy(src, anchor, dst, op, literals);
+        op += literals;
+        return Arrays.copyOf(dst, op);
+    }
+
+    /**
+     * Decompresses a block into dst, which must be exactly the original size.
+     *
+     * @throws IOException If the block is corrupt or does not fill dst
+     */
+    public static void decompress(byte[] src, int offset, int length, byte[] dst) throws IOException
+    {
+        int ip = offset, end = offset + length, op = 0;
+        try {
+            while (true)
+            {
+                int token = src[ip++] & 0xFF;
+                int literals = token >>> 4;
+                if (literals == 15)
+                {
+                    int b;
+                    do {
+                        b = src[ip++] & 0xFF;
+                        literals += b;
+                    } while (b == 255);
+                }
+                System.arraycopy(src, ip, dst, op, literals);
+                ip += literals;
+                op += literals;
+                if (ip >= end) break;
+
+                int distance = (src[ip++] & 0xFF) | (src[ip++] & 0xFF) << 8;
+                int matchLength = token & 0x0F;
+                if (matchLength == 15)
+                {
+                    int b;
+                    do {
+                        b = src[ip++] & 0xFF;
+                        matchLength += b;
+                    } while (b == 255);
+                }
+                matchLength += MIN_MATCH;
+
+                int from = op - distance;
+                if (distance == 0 || from < 0) throw new IOException("Corrupt block: offset " + distance + " at " + op);
+                // An overlapping match repeats the last `distance` bytes; every copy doubles what can be copied next
+                while (matchLength > 0)
+                {
+                    int chunk = Math.min(matchLength, op - from);
+                    System.arraycopy(dst, from, dst, op, chunk);
+                    op += chunk;
+                    matchLength -= chunk;
+                }
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Corrupt block at input " + (ip - offset) + ", output " + op);
+        }
+        if (op != dst.length) throw new IOException("Block decompressed to " + op + " bytes, expected " + dst.length);
+    }
+
+    private static int writeSequence(byte[] src, int from, int literals, int distance, int length, byte[] dst, int op)
+    {
+        int matchCode = length - MIN_MATCH;
+        int token = op++;
+        dst[token] = (byte) (Math.min(literals, 15) << 4 | Math.min(matchCode, 15));
+        if (literals >= 15) op = writeLength(dst, op, literals - 15);
+        System.arraycopy(src, from, dst, op, literals);
+        op += literals;
+        dst[op++] = (byte) distance;
+        dst[op++] = (byte) (distance >>> 8);
+        if (matchCode >= 15) op = writeLength(dst, op, matchCode - 15);
+        return op;
+    }
+
+    private static int writeLength(byte[] dst, int op, int value)
+    {
+        while (value >= 255)
+        {
+            dst[op++] = (byte) 255;
+            value -= 255;
+        }
+        dst[op++] = (byte) value;
+        return op;
+    }
+
+    private static int readInt(byte[] b, int i)
+    {
+        return (b[i] & 0xFF) | (b[i + 1] & 0xFF) << 8 | (b[i + 2] & 0xFF) << 16 | b[i + 3] << 24;
+    }
+
+    private static int hash(int value)
+    {
+        return (value * 0x9E3779B1) >>> (32 - HASH_BITS);
+    }
+}
@@ -0,0 +1,155 @@
+package utils;
+
+import Sound.SoundManager;
+import utils.Constants.SettingsUICons;
+import utils.Constants.StoragePaths;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Loads and saves the player's settings.
+ * The file is read once, when the class is first used (SoundManager reads its
+ * volumes from here before creating any clip). Changes are kept in memory and
+ * written by a background thread after SAVE_DELAY_MS, replacing the old file
+ * with an atomic rename so a crash never leaves it half written.
+ */
+public class SettingsStore
+{
+    private static final String MUSIC_VOLUME_KEY = "musicVolume";
+    private static final String SFX_VOLUME_KEY = "sfxVolume";
+
+    // Current values, changed on the EDT and read by the writer thread
+    private static volatile float musicVolume = SoundManager.DEFAULT_MUSIC_VOLUME;
+    private static volatile float sfxVolume = SoundManager.DEFAULT_SFX_VOLUME;
+
+    // Set while a save is scheduled, so a burst of changes is written once
+    private static final AtomicBoolean savePending = new AtomicBoolean(false);
+
+    private static final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "settings-writer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    static {
+        load();
+        // Write a change that is still waiting when the game is closed
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (savePending.get()) save();
+        }, "settings-shutdown"));
+    }
+
+    /**
+     * Reads the settings file, keeping the defaults for anything missing or invalid.
+     */
+    private static void load()
+    {
+        File file = new File(StoragePaths.SETTINGS_FILE);
+        if (!file.exists()) return;
+
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            properties.load(in);
+        } catch (IOException e) {
+            System.err.println("Error loading settings: " + e.getMessage());
+            return;
+        }
+        musicVolume = readVolume(properties, MUSIC_VOLUME_KEY, musicVolume);
+        sfxVolume = readVolume(properties, SFX_VOLUME_KEY, sfxVolume);
+    }
+
+    private static float readVolume(Properties properties, String key, float fallback)
+    {
+        String value = properties.getProperty(key);
+        if (value == null) return fallback;
+        try {
+            return Math.max(0f, Math.min(1f, Float.parseFloat(value)));
+        } catch (NumberFormatException e) {
+            System.err.println("Ignoring invalid setting " + key + "=" + value);
+            return fallback;
+        }
+    }
+
+    /**
+     * Schedules a save unless one is already waiting; the waiting save picks up this change too.
+     */
+    private static void scheduleSave()
+    {
+        if (savePending.compareAndSet(false, true))
+        {
+            writer.schedule(SettingsStore::save, SettingsUICons.SAVE_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Writes the current settings to a temporary file and renames it over the settings file.
+     */
+    private static synchronized void save()
+    {
+        // Cleared before reading the values, so a change made during the write schedules another save
+        savePending.set(false);
+
+        Properties properties = new Properties();
+        properties.setProperty(MUSIC_VOLUME_KEY, Float.toString(musicVolume));
+        properties.setProperty(SFX_VOLUME_KEY, Float.toString(sfxVolume));
+
+        File file = new File(StoragePaths.SETTINGS_FILE);
+        File temp = new File(StoragePaths.SETTINGS_FILE + ".tmp");
+        try {
+            File dir = file.getParentFile();
+            if (!dir.exists() && !dir.mkdirs())
+            {
+                throw new IOException("Could not create " + dir);
+            }
+            try (OutputStream out = new FileOutputStream(temp)) {
+                properties.store(out, "Bato Bato Pik settings");
+            }
+            try {
+                Files.move(temp.toPath(), file.toPath(),
+                        StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            System.err.println("Error saving settings: " + e.getMessage());
+        }
+    }
+
+    public static float getMusicVolume() { return musicVolume; }
+    public static float getSfxVolume() { return sfxVolume; }
+
+    /**
+     * Stores a new music volume. Never touches the disk on the calling thread.
+     * @param volume Volume level (0.0 to 1.0)
+     */
+    public static void setMusicVolume(float volume)
+    {
+        if (volume == musicVolume) return;
+        musicVolume = volume;
+        scheduleSave();
+    }
+
+    /**
+     * Stores a new sound effect volume. Never touches the disk on the calling thread.
+     * @param volume Volume level (0.0 to 1.0)
+     */
+    public static void setSfxVolume(float volume)
+    {
+        if (volume == sfxVolume) return;
+        sfxVolume = volume;
+        scheduleSave();
+    }
+}
@@ -0,0 +1,163 @@
+package utils;
+
+import utils.Constants.StartupCons;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records a timeline of the game's startup, from JVM start to the first frame.
+ *
+ * Enabled with -Dbbp.profileStartup=true. Spans are recorded from any thread
+ * (class init on main, asset decodes, window creation on the EDT) and printed,
+ * sorted by start time and indented by nesting, once the first frame is painted.
+ * Nothing is recorded after that. When disabled every call returns immediately.
+ *
+ * With -Dbbp.exitAfterFirstFrame=true the game exits after the first frame,
+ * which is how the CDS training run and the launcher's comparison runs work.
+ */
+public class StartupProfiler
+{
+    /**
+     * One timed step of the startup.
+     */
+    private static final class Span
+    {
+        final String label;
+        final String thread;
+        final long start, end; // System.nanoTime()
+
+        Span(String label, long start, long end)
+        {
+            this.label = label;
+            this.thread = Thread.currentThread().getName();
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    public static final boolean ENABLED = Boolean.getBoolean(StartupCons.PROFILE_PROPERTY);
+    private static final boolean EXIT_AFTER_FIRST_FRAME = Boolean.getBoolean(StartupCons.EXIT_PROPERTY);
+
+    // The profiler is first touched in Main.main, so this is when main() was entered
+    private static final long mainNanos = System.nanoTime();
+    // Only asked for when enabled, the management classes are not free to load
+    private static final long mainSinceJvmStartMs = ENABLED ? ManagementFactory.getRuntimeMXBean().getUptime() : 0;
+
+    private static final List<Span> spans = new ArrayList<>(); // Guarded by the class lock
+    private static volatile boolean finished;
+
+    /**
+     * Starts timing a step.
+     *
+     * @return Token to pass to end()
+     */
+    public static long start()
+    {
+        return ENABLED && !finished ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records a step started with start().
+     *
+     * @param label What was done, e.g. "decode /images/menu/bg.png"
+     * @param start Token returned by start()
+     */
+    public static void end(String label, long start)
+    {
+        if (start == 0 || finished) return;
+        Span span = new Span(label, start, System.nanoTime());
+        synchronized (StartupProfiler.class)
+        {
+            spans.add(span);
+        }
+    }
+
+    /**
+     * Records that main() was entered. The time before it is JVM startup.
+     */
+    public static void mainEntered()
+    {
+        if (!ENABLED) return;
+        System.out.println("Startup profiling enabled; main() entered " + mainSinceJvmStartMs + " ms after JVM start");
+    }
+
+    /**
+     * Marks the first frame as painted and prints the timeline. Only the first call counts.
+     * Called on the EDT once the first frame is on screen (or rendered offscreen without a display).
+     */
+    public static void firstFramePainted()
+    {
+        if (finished) return;
+        finished = true;
+        if (ENABLED)
+        {
+            printTimeline(System.nanoTime());
+        }
+        if (EXIT_AFTER_FIRST_FRAME)
+        {
+            System.exit(0);
+        }
+    }
+
+    private static synchronized void printTimeline(long firstFrameNanos)
+    {
+        spans.sort((a, b) -> a.start != b.start ? Long.compare(a.start, b.start) : Long.compare(b.end, a.end));
+
+        StringBuilder out = new StringBuilder("Startup timeline (ms since JVM start):\n");
+        out.append(String.format("  %8s %8s %8s  %-10s %s%n", "start", "end", "took", "thread", "step"));
+        appendLine(out, 0, mainSinceJvmStartMs, "main", "JVM start until main()", 0);
+        for (int i = 0; i < spans.size(); i++)
+        {
+            Span span = spans.get(i);
+            appendLine(out, toMs(span.start), toMs(span.end), span.thread, span.label, depthOf(i));
+        }
+        out.append(String.format("First frame after %.1f ms; %d classes loaded, CDS archive: %s%n",
+                toMs(firstFrameNanos), ManagementFactory.getClassLoadingMXBean().getTotalLoadedClassCount(),
+                getArchive()));
+        // Parsed by the Launcher's comparison runs
+        out.append(StartupCons.FIRST_FRAME_PREFIX).append(String.format("%.1f", toMs(firstFrameNanos)));
+        System.out.println(out);
+    }
+
+    /**
+     * Counts the earlier spans of the same thread that contain span i.
+     */
+    private static int depthOf(int i)
+    {
+        Span span = spans.get(i);
+        int depth = 0;
+        for (int j = 0; j < i; j++)
+        {
+            Span outer = spans.get(j);
+            if (outer.thread.equals(span.thread) && outer.start <= span.start && outer.end >= span.end) depth++;
+        }
+        return depth;
+    }
+
+    private static void appendLine(StringBuilder out, double start, double end, String thread, String label, int depth)
+    {
+        out.append(String.format("  %8.1f %8.1f %8.1f  %-10.10s %s%s%n", start, end, end - start, thread,
+                "  ".repeat(depth), label));
+    }
+
+    private static double toMs(long nanos)
+    {
+        return mainSinceJvmStartMs + (nanos - mainNanos) / 1_000_000.0;
+    }
+
+    /**
+     * Retrieves the class data sharing archive the JVM was started with, as far as the flags tell.
+     */
+    private static String getArchive()
+    {
+        for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments())
+        {
+            if (argument.startsWith("-XX:SharedArchiveFile=")) return argument.substring(argument.indexOf('=') + 1);
+            if (argument.startsWith("-XX:ArchiveClassesAtExit=")) return "writing " + argument.substring(argument.indexOf('=') + 1);
+            if (argument.equals("-Xshare:off")) return "off";
+        }
+        return "JDK default";
+    }
+}